@@ -0,0 +1,613 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The BPlusTreeIndex class is an on-disk B+tree index on an integer column of a table, mapping
+ * every value of the column to the byte offsets of the rows holding it in the CSV data file.
+ * The tree is bulk-loaded from the sorted entries of the table by {@link IndexBuilder}, and its
+ * pages are read through the {@link BufferPool} as they are needed.
+ * The index file consists of pages of Constants.BINARY_PAGE_SIZE bytes:
+ * - Page 0 is the header: root page, height, number of leaves and entries, indexed column, and
+ *   whether the index is clustered.
+ * - Leaf pages, from page 1 on, hold (key, offset) entries sorted by key and then by offset,
+ *   one per row, and the number of the next leaf. Every leaf is full except the last one.
+ * - Internal pages hold n keys and n + 1 children, where key i is the smallest key of child i.
+ * In a clustered index, the data file itself is sorted on the indexed column, so the rows with
+ * keys in a range are consecutive in the file; in an unclustered index, they may be anywhere.
+ * @see ed.inf.adbs.blazedb.operator.IndexScanOperator
+ */
+public class BPlusTreeIndex implements LookupIndex {
+
+    private static final byte LEAF_PAGE = 0;
+    private static final byte INTERNAL_PAGE = 1;
+
+    // Page type, entry or key count, and the next leaf or the first child
+    private static final int PAGE_HEADER_SIZE = 1 + 2 * Integer.BYTES;
+    private static final int LEAF_ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int INTERNAL_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    /** Number of entries of a full leaf page */
+    public static final int LEAF_CAPACITY = (Constants.BINARY_PAGE_SIZE - PAGE_HEADER_SIZE) / LEAF_ENTRY_SIZE;
+
+    /** Maximum number of keys of an internal page, which has one more child */
+    public static final int INTERNAL_CAPACITY = (Constants.BINARY_PAGE_SIZE - PAGE_HEADER_SIZE) / INTERNAL_ENTRY_SIZE;
+
+    private static final int FIRST_LEAF_PAGE = 1;
+
+    private final Path indexPath;
+    private final int rootPage;
+    private final int height;
+    private final int leafCount;
+    private final long entryCount;
+    private final int columnIndex;
+    private final boolean clustered;
+
+    /**
+     * Constructs an index from the values of its header page.
+     */
+    private BPlusTreeIndex(Path indexPath, int rootPage, int height, int leafCount, long entryCount,
+                           int columnIndex, boolean clustered) {
+        this.indexPath = indexPath;
+        this.rootPage = rootPage;
+        this.height = height;
+        this.leafCount = leafCount;
+        this.entryCount = entryCount;
+        this.columnIndex = columnIndex;
+        this.clustered = clustered;
+    }
+
+    /**
+     * Opens an index file, reading only its header page.
+     * @param indexPath The location of the index file.
+     * @return The index.
+     * @throws IOException If the file cannot be read.
+     */
+    public static BPlusTreeIndex open(Path indexPath) throws IOException {
+        BufferPool.getInstance().refresh(indexPath);
+        ByteBuffer header = BufferPool.getInstance().pinPage(indexPath, 0);
+        if (header == null) {
+            throw new IOException("Empty index file " + indexPath);
+        }
+        try {
+            return new BPlusTreeIndex(indexPath, header.getInt(0), header.getInt(4), header.getInt(8),
+                    header.getLong(12), header.getInt(20), header.get(24) != 0);
+        } finally {
+            BufferPool.getInstance().unpinPage(header);
+        }
+    }
+
+    /**
+     * Builds an index on a column of a CSV data file and writes it to the index file.
+     * For a clustered index, the data file is first rewritten with its rows sorted on the column,
+     * in the order they appear in the file for equal keys; this holds all rows in memory.
+     * @param csvPath The location of the CSV data file.
+     * @param columnIndex The position of the indexed column.
+     * @param clustered Whether to sort the data file on the column.
+     * @param indexPath The location of the index file.
+     * @return The index.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static BPlusTreeIndex build(Path csvPath, int columnIndex, boolean clustered, Path indexPath) throws IOException {
+        if (clustered) {
+            TableClusterer.sortDataFile(csvPath, new int[]{columnIndex});
+        }
+
+        // Read the key and offset of every row; ordinals keep the sort stable on equal keys
+        List<Long> rowOffsets = new ArrayList<>();
+        List<Integer> rowKeys = new ArrayList<>();
+        readRows(csvPath, columnIndex, rowKeys, rowOffsets);
+
+        long[] sortKeys = new long[rowKeys.size()];
+        for (int i = 0; i < sortKeys.length; i++) {
+            sortKeys[i] = (long) rowKeys.get(i) << 32 | i;
+        }
+        Arrays.sort(sortKeys);
+        int[] keys = new int[sortKeys.length];
+        long[] offsets = new long[sortKeys.length];
+        for (int i = 0; i < sortKeys.length; i++) {
+            int ordinal = (int) sortKeys[i];
+            keys[i] = rowKeys.get(ordinal);
+            offsets[i] = rowOffsets.get(ordinal);
+        }
+
+        Files.createDirectories(indexPath.toAbsolutePath().getParent());
+        write(indexPath, keys, offsets, columnIndex, clustered);
+        return open(indexPath);
+    }
+
+    /**
+     * Reads the key and byte offset of every non-blank row of a CSV data file.
+     * @param csvPath The location of the CSV data file.
+     * @param columnIndex The position of the indexed column.
+     * @param keys Receives the key of every row.
+     * @param offsets Receives the offset of every row.
+     * @throws IOException If the file cannot be read.
+     */
+    static void readRows(Path csvPath, int columnIndex, List<Integer> keys, List<Long> offsets) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(csvPath))) {
+            StringBuilder line = new StringBuilder();
+            long position = 0;
+            long lineStart = 0;
+            int b;
+            while (true) {
+                b = in.read();
+                if (b == '\n' || b == -1) {
+                    String row = line.toString().trim();
+                    if (!row.isEmpty()) {
+                        keys.add(Integer.parseInt(row.split(",\\s*")[columnIndex].trim()));
+                        offsets.add(lineStart);
+                    }
+                    if (b == -1) {
+                        break;
+                    }
+                    line.setLength(0);
+                    lineStart = position + 1;
+                } else {
+                    line.append((char) b);
+                }
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Adds the entries of rows appended to the data file to the index, and writes the index file again.
+     * If no new key is below the largest key of the index, which is the case for keys growing with
+     * the table, the new entries go after the existing ones: the last leaf is filled up, further
+     * leaves are written over the internal pages after it, and the internal levels are written
+     * again. Only the last leaf, the new leaves and the internal levels are written, and the
+     * smallest keys of the other leaves are taken from their parents.
+     * Otherwise, the entries of all leaves are read and merged with the new ones.
+     * A clustered index stays clustered only if the appended rows keep the data file sorted on
+     * the column, i.e. their keys are in ascending order in the file and none is below the
+     * largest key of the index.
+     * @param keys The keys of the appended rows, in file order.
+     * @param offsets The byte offsets of the appended rows, which follow every indexed row.
+     * @return The index holding the new entries.
+     * @throws IOException If the index file cannot be read or written.
+     */
+    public BPlusTreeIndex insert(int[] keys, long[] offsets) throws IOException {
+        if (keys.length == 0) {
+            return this;
+        }
+
+        // Sort the new entries by key; ordinals keep equal keys in file order
+        boolean ascending = true;
+        long[] sortKeys = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortKeys[i] = (long) keys[i] << 32 | i;
+            ascending &= i == 0 || keys[i - 1] <= keys[i];
+        }
+        Arrays.sort(sortKeys);
+        int[] newKeys = new int[keys.length];
+        long[] newOffsets = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int ordinal = (int) sortKeys[i];
+            newKeys[i] = keys[ordinal];
+            newOffsets[i] = offsets[ordinal];
+        }
+
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer page = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            int lastLeafPage = FIRST_LEAF_PAGE + leafCount - 1;
+            readPage(channel, page, lastLeafPage);
+            int lastLeafCount = page.getInt(1);
+            boolean afterLargestKey = lastLeafCount == 0
+                    || newKeys[0] >= page.getInt(PAGE_HEADER_SIZE + (lastLeafCount - 1) * LEAF_ENTRY_SIZE);
+
+            if (afterLargestKey) {
+                int[] tailKeys = new int[lastLeafCount + newKeys.length];
+                long[] tailOffsets = new long[tailKeys.length];
+                for (int i = 0; i < lastLeafCount; i++) {
+                    tailKeys[i] = page.getInt(PAGE_HEADER_SIZE + i * LEAF_ENTRY_SIZE);
+                    tailOffsets[i] = page.getLong(PAGE_HEADER_SIZE + i * LEAF_ENTRY_SIZE + Integer.BYTES);
+                }
+                System.arraycopy(newKeys, 0, tailKeys, lastLeafCount, newKeys.length);
+                System.arraycopy(newOffsets, 0, tailOffsets, lastLeafCount, newOffsets.length);
+
+                List<Integer> leafKeys = readLeafKeys(channel, page, leafCount - 1);
+                writeLeaves(channel, page, lastLeafPage, tailKeys, tailOffsets, leafKeys);
+                writeUpperLevels(channel, page, leafKeys, entryCount + keys.length, columnIndex, clustered && ascending);
+            } else {
+                int[] allKeys = new int[(int) entryCount + newKeys.length];
+                long[] allOffsets = new long[allKeys.length];
+                int next = 0;
+                int newEntry = 0;
+                for (int leaf = FIRST_LEAF_PAGE; leaf <= lastLeafPage; leaf++) {
+                    readPage(channel, page, leaf);
+                    int count = page.getInt(1);
+                    for (int slot = 0; slot < count; slot++) {
+                        int key = page.getInt(PAGE_HEADER_SIZE + slot * LEAF_ENTRY_SIZE);
+                        while (newEntry < newKeys.length && newKeys[newEntry] < key) {
+                            allKeys[next] = newKeys[newEntry];
+                            allOffsets[next++] = newOffsets[newEntry++];
+                        }
+                        allKeys[next] = key;
+                        allOffsets[next++] = page.getLong(PAGE_HEADER_SIZE + slot * LEAF_ENTRY_SIZE + Integer.BYTES);
+                    }
+                }
+                System.arraycopy(newKeys, newEntry, allKeys, next, newKeys.length - newEntry);
+                System.arraycopy(newOffsets, newEntry, allOffsets, next, newOffsets.length - newEntry);
+
+                List<Integer> leafKeys = new ArrayList<>();
+                writeLeaves(channel, page, FIRST_LEAF_PAGE, allKeys, allOffsets, leafKeys);
+                writeUpperLevels(channel, page, leafKeys, allKeys.length, columnIndex, false);
+            }
+        }
+        return open(indexPath);
+    }
+
+    /**
+     * Reads the smallest keys of the first leaves. The parents of the leaves, which follow them in
+     * the file, hold the smallest key of every child but their first one, which is read from the
+     * leaf itself.
+     * @param channel The index file.
+     * @param page A page sized buffer.
+     * @param leaves The number of leaves whose keys are read.
+     * @return The smallest key of each leaf.
+     * @throws IOException If the file cannot be read.
+     */
+    private List<Integer> readLeafKeys(FileChannel channel, ByteBuffer page, int leaves) throws IOException {
+        List<Integer> leafKeys = new ArrayList<>();
+        for (int leaf = 0; leaf < leaves; leaf++) {
+            int child = leaf % (INTERNAL_CAPACITY + 1);
+            if (child == 0) {
+                readPage(channel, page, FIRST_LEAF_PAGE + leaf);
+                leafKeys.add(page.getInt(PAGE_HEADER_SIZE));
+                readPage(channel, page, FIRST_LEAF_PAGE + leafCount + leaf / (INTERNAL_CAPACITY + 1));
+            } else {
+                leafKeys.add(page.getInt(PAGE_HEADER_SIZE + (child - 1) * INTERNAL_ENTRY_SIZE));
+            }
+        }
+        return leafKeys;
+    }
+
+    /**
+     * Writes the leaves holding the sorted entries, then the internal levels above them bottom up,
+     * and finally the header page.
+     * @param indexPath The location of the index file.
+     * @param keys The sorted keys.
+     * @param offsets The offset of the row of every key.
+     * @param columnIndex The position of the indexed column.
+     * @param clustered Whether the data file is sorted on the column.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void write(Path indexPath, int[] keys, long[] offsets, int columnIndex, boolean clustered) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer page = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            List<Integer> leafKeys = new ArrayList<>();
+            writeLeaves(channel, page, FIRST_LEAF_PAGE, keys, offsets, leafKeys);
+            writeUpperLevels(channel, page, leafKeys, keys.length, columnIndex, clustered);
+        }
+    }
+
+    /**
+     * Writes sorted entries to full leaves on consecutive pages, each linked to the next one.
+     * At least one leaf is written, which is empty if there are no entries.
+     * @param channel The index file.
+     * @param page A page sized buffer.
+     * @param firstPage The page of the first leaf written.
+     * @param keys The sorted keys.
+     * @param offsets The offset of the row of every key.
+     * @param leafKeys Receives the smallest key of every leaf written.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeLeaves(FileChannel channel, ByteBuffer page, int firstPage, int[] keys, long[] offsets,
+                                    List<Integer> leafKeys) throws IOException {
+        int leafCount = Math.max(1, (keys.length + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            int start = leaf * LEAF_CAPACITY;
+            int count = Math.min(LEAF_CAPACITY, keys.length - start);
+            clearPage(page, LEAF_PAGE, count, leaf + 1 < leafCount ? firstPage + leaf + 1 : -1);
+            for (int i = 0; i < count; i++) {
+                page.putInt(keys[start + i]);
+                page.putLong(offsets[start + i]);
+            }
+            writePage(channel, page, firstPage + leaf);
+            leafKeys.add(count > 0 ? keys[start] : 0);
+        }
+    }
+
+    /**
+     * Writes the internal levels above the leaves from page 1 on, bottom up, until a single page
+     * is left, then the header page, and cuts the file after the last internal page.
+     * @param channel The index file.
+     * @param page A page sized buffer.
+     * @param leafKeys The smallest key of every leaf.
+     * @param entryCount The number of entries in the leaves.
+     * @param columnIndex The position of the indexed column.
+     * @param clustered Whether the data file is sorted on the column.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeUpperLevels(FileChannel channel, ByteBuffer page, List<Integer> leafKeys, long entryCount,
+                                         int columnIndex, boolean clustered) throws IOException {
+        int leafCount = leafKeys.size();
+        int nextPage = FIRST_LEAF_PAGE + leafCount;
+        List<Integer> levelPages = new ArrayList<>();
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            levelPages.add(FIRST_LEAF_PAGE + leaf);
+        }
+        List<Integer> levelKeys = leafKeys;
+
+        int height = 1;
+        while (levelPages.size() > 1) {
+            List<Integer> parentPages = new ArrayList<>();
+            List<Integer> parentKeys = new ArrayList<>();
+            for (int start = 0; start < levelPages.size(); start += INTERNAL_CAPACITY + 1) {
+                int end = Math.min(levelPages.size(), start + INTERNAL_CAPACITY + 1);
+                clearPage(page, INTERNAL_PAGE, end - start - 1, levelPages.get(start));
+                for (int child = start + 1; child < end; child++) {
+                    page.putInt(levelKeys.get(child));
+                    page.putInt(levelPages.get(child));
+                }
+                writePage(channel, page, nextPage);
+                parentPages.add(nextPage++);
+                parentKeys.add(levelKeys.get(start));
+            }
+            levelPages = parentPages;
+            levelKeys = parentKeys;
+            height++;
+        }
+
+        page.clear();
+        Arrays.fill(page.array(), (byte) 0);
+        page.putInt(levelPages.get(0));
+        page.putInt(height);
+        page.putInt(leafCount);
+        page.putLong(entryCount);
+        page.putInt(columnIndex);
+        page.put((byte) (clustered ? 1 : 0));
+        writePage(channel, page, 0);
+        channel.truncate((long) nextPage * Constants.BINARY_PAGE_SIZE);
+    }
+
+    private static void clearPage(ByteBuffer page, byte type, int count, int link) {
+        page.clear();
+        Arrays.fill(page.array(), (byte) 0);
+        page.put(type);
+        page.putInt(count);
+        page.putInt(link);
+    }
+
+    private static void writePage(FileChannel channel, ByteBuffer page, int pageNumber) throws IOException {
+        page.clear();
+        long position = (long) pageNumber * Constants.BINARY_PAGE_SIZE;
+        while (page.hasRemaining()) {
+            position += channel.write(page, position);
+        }
+    }
+
+    private static void readPage(FileChannel channel, ByteBuffer page, int pageNumber) throws IOException {
+        page.clear();
+        long position = (long) pageNumber * Constants.BINARY_PAGE_SIZE;
+        while (page.hasRemaining()) {
+            int read = channel.read(page, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of index file at page " + pageNumber);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Finds the position of the first entry whose key is at least the given key.
+     * Internal pages are descended to the last child whose smallest key is below the key, since
+     * entries with the key may start at the end of that child.
+     * @param key The smallest key searched for.
+     * @return The leaf page and the slot of the entry in it; the slot is the entry count of the
+     * last leaf if every key is smaller.
+     * @throws IOException If the index file cannot be read.
+     */
+    private long[] findFirst(long key) throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        int pageNumber = rootPage;
+        while (true) {
+            ByteBuffer page = pool.pinPage(indexPath, pageNumber);
+            try {
+                int count = page.getInt(1);
+                if (page.get(0) == LEAF_PAGE) {
+                    int low = 0;
+                    int high = count;
+                    while (low < high) {
+                        int mid = (low + high) >>> 1;
+                        if (page.getInt(PAGE_HEADER_SIZE + mid * LEAF_ENTRY_SIZE) < key) {
+                            low = mid + 1;
+                        } else {
+                            high = mid;
+                        }
+                    }
+                    int nextLeaf = page.getInt(5);
+                    if (low == count && nextLeaf != -1) {
+                        return new long[]{nextLeaf, 0};
+                    }
+                    return new long[]{pageNumber, low};
+                }
+
+                // The number of separators below the key is the child to descend to
+                int low = 0;
+                int high = count;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (page.getInt(PAGE_HEADER_SIZE + mid * INTERNAL_ENTRY_SIZE) < key) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                pageNumber = low == 0 ? page.getInt(5)
+                        : page.getInt(PAGE_HEADER_SIZE + (low - 1) * INTERNAL_ENTRY_SIZE + Integer.BYTES);
+            } finally {
+                pool.unpinPage(page);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries before a position, which leaves being full except the last one makes exact.
+     */
+    private long ordinal(long[] position) {
+        return (position[0] - FIRST_LEAF_PAGE) * (long) LEAF_CAPACITY + position[1];
+    }
+
+    /**
+     * Looks up the rows whose key is in a range.
+     * @param low The smallest key, inclusive.
+     * @param high The largest key, inclusive.
+     * @return The byte offsets of the matching rows, sorted by key and then by offset.
+     * @throws IOException If the index file cannot be read.
+     */
+    public List<Long> lookupRange(long low, long high) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        if (low > high) {
+            return offsets;
+        }
+
+        BufferPool pool = BufferPool.getInstance();
+        long[] position = findFirst(low);
+        int pageNumber = (int) position[0];
+        int slot = (int) position[1];
+        while (pageNumber != -1) {
+            ByteBuffer page = pool.pinPage(indexPath, pageNumber);
+            try {
+                int count = page.getInt(1);
+                for (; slot < count; slot++) {
+                    int entry = PAGE_HEADER_SIZE + slot * LEAF_ENTRY_SIZE;
+                    if (page.getInt(entry) > high) {
+                        return offsets;
+                    }
+                    offsets.add(page.getLong(entry + Integer.BYTES));
+                }
+                pageNumber = page.getInt(5);
+                slot = 0;
+            } finally {
+                pool.unpinPage(page);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Looks up the rows with the given key.
+     * @param key The value to look up.
+     * @return The byte offsets of the matching rows in file order.
+     * @throws RuntimeException If the index file cannot be read.
+     */
+    @Override
+    public List<Long> lookup(int key) {
+        try {
+            return lookupRange(key, key);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading index " + indexPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds the first row whose key is in a range, where a clustered scan starts reading.
+     * @param low The smallest key, inclusive.
+     * @param high The largest key, inclusive.
+     * @return The byte offset of the row, or -1 if no key is in the range.
+     * @throws IOException If the index file cannot be read.
+     */
+    public long findFirstOffset(long low, long high) throws IOException {
+        if (low > high) {
+            return -1;
+        }
+        long[] position = findFirst(low);
+        ByteBuffer page = BufferPool.getInstance().pinPage(indexPath, (int) position[0]);
+        try {
+            int entry = PAGE_HEADER_SIZE + (int) position[1] * LEAF_ENTRY_SIZE;
+            if (position[1] == page.getInt(1) || page.getInt(entry) > high) {
+                return -1;
+            }
+            return page.getLong(entry + Integer.BYTES);
+        } finally {
+            BufferPool.getInstance().unpinPage(page);
+        }
+    }
+
+    /**
+     * Counts the rows whose key is in a range, from the positions of the range's ends in the leaves.
+     * @param low The smallest key, inclusive.
+     * @param high The largest key, inclusive.
+     * @return The number of matching rows.
+     * @throws IOException If the index file cannot be read.
+     */
+    public long countRange(long low, long high) throws IOException {
+        if (low > high) {
+            return 0;
+        }
+        long end = high >= Integer.MAX_VALUE ? entryCount : ordinal(findFirst(high + 1));
+        return end - ordinal(findFirst(low));
+    }
+
+    /**
+     * Estimates the fraction of the rows of the table whose key is in a range.
+     * @param low The smallest key, inclusive.
+     * @param high The largest key, inclusive.
+     * @return The fraction of matching rows between 0 and 1, 0 for an empty table.
+     * @throws IOException If the index file cannot be read.
+     */
+    public double estimateSelectivity(long low, long high) throws IOException {
+        return entryCount == 0 ? 0 : (double) countRange(low, high) / entryCount;
+    }
+
+    /**
+     * Get the location of the index file.
+     * @return The Path of the index file.
+     */
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    /**
+     * Get the position of the indexed column in the table.
+     * @return The column position.
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Checks whether the data file is sorted on the indexed column.
+     * @return true for a clustered index, false otherwise.
+     */
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * Get the number of levels of the tree, including the leaves.
+     * @return The height of the tree.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of leaf pages.
+     * @return The number of leaves.
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * Get the number of indexed rows.
+     * @return The number of entries.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+}
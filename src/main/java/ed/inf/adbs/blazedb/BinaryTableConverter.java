@@ -0,0 +1,158 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The BinaryTableConverter class converts the CSV data files of a database into the binary page format.
+ * A binary table file is a sequence of pages of {@link Constants#BINARY_PAGE_SIZE} bytes. Each page starts
+ * with a header of two ints, the number of columns and the number of tuples in the page, followed by
+ * the tuples one after the other, each stored as one 4-byte big-endian int per column.
+ * The remainder of the last page is padded with zeros.
+ * Since every page has the same size, page n starts at byte n x BINARY_PAGE_SIZE of the file.
+ * The binary file is written next to the CSV file, which is kept for lookups through table indexes.
+ * Usage: BinaryTableConverter database_dir [table ...]
+ * Without table names, every table of the database is converted.
+ * @see ed.inf.adbs.blazedb.operator.BinaryScanOperator reads binary table files.
+ */
+public class BinaryTableConverter {
+
+    /** Size in bytes of the page header holding the number of columns and tuples */
+    public static final int PAGE_HEADER_SIZE = 2 * Integer.BYTES;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BinaryTableConverter database_dir [table ...]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        List<String> tableNames = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : new ArrayList<>(catalog.getTableNames());
+        for (String tableName : tableNames) {
+            if (!catalog.tableExists(tableName)) {
+                System.err.println("Table " + tableName + " not found in the database");
+                continue;
+            }
+
+            Path csvPath = catalog.getDBLocation(tableName);
+            Path binaryPath = csvPath.resolveSibling(tableName + Constants.BINARY_FILE_EXTENSION);
+            try {
+                int rows = convert(csvPath, binaryPath, catalog.getDBSchemata(tableName).size());
+                System.out.println("Converted " + tableName + ": " + rows + " rows written to " + binaryPath);
+            } catch (IOException e) {
+                System.err.println("Failed to convert table " + tableName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tuples that fit into one page.
+     * @param numColumns The number of columns of the table.
+     * @return The maximum number of tuples per page.
+     */
+    public static int getPageCapacity(int numColumns) {
+        int capacity = (Constants.BINARY_PAGE_SIZE - PAGE_HEADER_SIZE) / (numColumns * Integer.BYTES);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("A tuple with " + numColumns + " columns does not fit into a page");
+        }
+        return capacity;
+    }
+
+    /**
+     * Converts a CSV data file into a binary table file, replacing any existing binary file.
+     * @param csvPath The location of the CSV data file.
+     * @param binaryPath The location of the binary file to write.
+     * @param numColumns The number of columns of the table.
+     * @return The number of rows written.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static int convert(Path csvPath, Path binaryPath, int numColumns) throws IOException {
+        if (numColumns < 1) {
+            throw new IllegalArgumentException("Table must have at least one column, got " + numColumns);
+        }
+        int pageCapacity = getPageCapacity(numColumns);
+        ByteBuffer page = ByteBuffer.allocateDirect(Constants.BINARY_PAGE_SIZE);
+        int rows = 0;
+        int tuplesInPage = 0;
+        startPage(page, numColumns);
+
+        try (BufferedReader reader = Files.newBufferedReader(csvPath);
+             FileChannel channel = FileChannel.open(binaryPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] values = line.split(",\\s*");
+                if (values.length != numColumns) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + csvPath + " has "
+                            + values.length + " values, expected " + numColumns);
+                }
+
+                if (tuplesInPage == pageCapacity) {
+                    writePage(channel, page, tuplesInPage);
+                    startPage(page, numColumns);
+                    tuplesInPage = 0;
+                }
+                for (String value : values) {
+                    page.putInt(Integer.parseInt(value.trim()));
+                }
+                tuplesInPage++;
+                rows++;
+            }
+
+            if (tuplesInPage > 0) {
+                writePage(channel, page, tuplesInPage);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Clears a page buffer and writes the number of columns into its header.
+     * The number of tuples is filled in when the page is written.
+     * @param page The page buffer.
+     * @param numColumns The number of columns of the table.
+     */
+    private static void startPage(ByteBuffer page, int numColumns) {
+        page.clear();
+        page.putInt(numColumns);
+        page.putInt(0);
+    }
+
+    /**
+     * Completes the header of a page, pads it with zeros and writes it to the file.
+     * @param channel The channel of the binary file.
+     * @param page The page buffer, positioned after the last tuple.
+     * @param tuplesInPage The number of tuples in the page.
+     * @throws IOException If the page cannot be written.
+     */
+    private static void writePage(FileChannel channel, ByteBuffer page, int tuplesInPage) throws IOException {
+        page.putInt(Integer.BYTES, tuplesInPage);
+        while (page.hasRemaining()) {
+            page.put((byte) 0);
+        }
+        page.flip();
+        while (page.hasRemaining()) {
+            channel.write(page);
+        }
+    }
+}
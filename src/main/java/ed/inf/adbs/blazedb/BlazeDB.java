@@ -2,11 +2,16 @@ package ed.inf.adbs.blazedb;
 
 import java.io.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
 import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.ReadAheadScanOperator;
 import ed.inf.adbs.blazedb.operator.ScanOperator;
 import ed.inf.adbs.blazedb.operator.SelectOperator;
+import ed.inf.adbs.blazedb.operator.SharedScanOperator;
+import ed.inf.adbs.blazedb.operator.SumOperator;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
@@ -100,6 +105,11 @@ public class BlazeDB {
 
 			System.out.println("Query executed successfully!");
 			System.out.println("Output file: " + outputFile);
+			if (usesBufferPool(root)) {
+				System.out.println(BufferPool.getInstance());
+			}
+			reportScans(root);
+			reportEstimates(root);
 
 			// Initialize map to track operator type counts
 //			Map<String, Integer> operatorCounts = new HashMap<>();
@@ -119,6 +129,86 @@ public class BlazeDB {
 		}
 	}
 
+	/**
+	 * Checks whether a (sub)plan reads pages through the buffer pool, i.e. it has a scan reading its
+	 * table through the pool, or an index nested loop join looking up its index pages in it.
+	 * @param op The root of the (sub)plan.
+	 * @return true if the pool is used by the plan, false otherwise.
+	 */
+	private static boolean usesBufferPool(Operator op) {
+		if (op instanceof ScanOperator && ((ScanOperator) op).readsThroughBufferPool()
+				|| op instanceof IndexNestedLoopJoinOperator) {
+			return true;
+		}
+		for (Operator input : op.getChildren()) {
+			if (usesBufferPool(input)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Prints, for every read-ahead scan of the plan, how long it stalled waiting for chunks of its
+	 * table to be read, and how long its loader read and waited for free buffers. A scan which
+	 * stalls for most of the read time is I/O bound; a loader which mostly waits is not.
+	 * For every shared scan, prints how many chunks it read itself and how many it was handed by
+	 * the other scans of its pass.
+	 * @param op The root of the (sub)plan.
+	 */
+	private static void reportScans(Operator op) {
+		if (op == null) {
+			return;
+		}
+		if (op instanceof ReadAheadScanOperator) {
+			ReadAheadScanOperator scan = (ReadAheadScanOperator) op;
+			System.out.printf("Read-ahead scan of %s: %d chunks, stalled %d times for %.1f ms, "
+							+ "loader read for %.1f ms and waited %.1f ms for free buffers%n",
+					scan.getTableName(), scan.getChunkCount(), scan.getStallCount(), scan.getStallNanos() / 1e6,
+					scan.getReadNanos() / 1e6, scan.getLoaderWaitNanos() / 1e6);
+		}
+		if (op instanceof SharedScanOperator) {
+			SharedScanOperator scan = (SharedScanOperator) op;
+			System.out.printf("Shared scan of %s: started at chunk %d, read %d chunks for the pass and %d alone, "
+							+ "took %d chunks read by other scans%n",
+					scan.getTableName(), scan.getStartChunk(), scan.getPassChunkCount(),
+					scan.getPrivateChunkCount(), scan.getSharedChunkCount());
+		}
+		for (Operator input : op.getChildren()) {
+			reportScans(input);
+		}
+	}
+
+	/**
+	 * Prints the error bounds of the sums estimated from sampled tables, for every group of every
+	 * aggregation of the plan whose input is sampled. The output file holds the estimates.
+	 * @param op The root of the (sub)plan.
+	 */
+	private static void reportEstimates(Operator op) {
+		if (op == null) {
+			return;
+		}
+		if (op instanceof SumOperator && ((SumOperator) op).isApproximate()) {
+			SumOperator sumOp = (SumOperator) op;
+			System.out.printf("Sums estimated from a %.4g%% sample, error bounds at %.2f standard errors:%n",
+					SumOperator.getSamplingFraction(sumOp.getChild()) * 100, Constants.SAMPLE_ERROR_BOUND_Z);
+			for (Map.Entry<List<Integer>, List<Double>> group : sumOp.getErrorBounds().entrySet()) {
+				StringBuilder sb = new StringBuilder("  ");
+				if (!sumOp.getGroupByColumns().isEmpty()) {
+					sb.append(sumOp.getGroupByColumns()).append(" = ").append(group.getKey()).append(": ");
+				}
+				for (int i = 0; i < group.getValue().size(); i++) {
+					sb.append(i > 0 ? ", " : "").append(sumOp.getSumExpressions().get(i))
+							.append(String.format(" +/- %.1f", group.getValue().get(i)));
+				}
+				System.out.println(sb);
+			}
+		}
+		for (Operator input : op.getChildren()) {
+			reportEstimates(input);
+		}
+	}
+
 //	private static void reportOperatorCounts(Operator op, Map<String, Integer> operatorCounts) {
 //		if (op == null) return;
 //
@@ -0,0 +1,97 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * The BloomFilter class is a compact, approximate set of integer keys.
+ * A lookup may return a false positive, but never a false negative, so a row whose key is
+ * not in the filter can safely be dropped, while rows that pass still need an exact check.
+ * Hash joins build one filter per key column over the keys of their build side and push it
+ * down to the scan of the probe side, so that rows without a possible match are discarded
+ * before a tuple is constructed for them (runtime filter push down).
+ * The filter is sized for the expected number of keys, using the given number of bits per key
+ * and the matching optimal number of hash functions, derived with double hashing.
+ * @see ed.inf.adbs.blazedb.operator.ScanOperator#addRuntimeFilter
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * Constructs an empty Bloom filter.
+     * @param expectedKeys The number of distinct keys expected to be added.
+     * @param bitsPerKey The number of bits per key, at least 1; 10 gives about 1% false positives.
+     */
+    public BloomFilter(int expectedKeys, int bitsPerKey) {
+        if (bitsPerKey < 1) {
+            throw new IllegalArgumentException("Invalid number of bits per key " + bitsPerKey);
+        }
+        long size = Math.max(64L, (long) Math.max(expectedKeys, 1) * bitsPerKey);
+        this.bits = new long[(int) ((size + 63) / 64)];
+        this.numBits = (long) bits.length * 64;
+        // k = ln 2 * m / n minimises the false positive rate
+        this.numHashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+    }
+
+    /**
+     * Adds a key to the filter.
+     * @param key The key to add.
+     */
+    public void add(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1; // odd, so the probes never collapse onto one bit
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Checks whether a key may have been added to the filter.
+     * @param key The key to check.
+     * @return false if the key was definitely not added, true if it probably was.
+     */
+    public boolean mightContain(int key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1; // odd, so the probes never collapse onto one bit
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spreads the bits of a key over a 64 bit hash (the finaliser of MurmurHash3),
+     * whose two halves are used as the two base hash functions.
+     */
+    private static long mix(int key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Get the size of the filter.
+     * @return The number of bits in the filter.
+     */
+    public long getNumBits() {
+        return numBits;
+    }
+
+    /**
+     * Get the number of hash functions applied to every key.
+     * @return The number of hash functions.
+     */
+    public int getNumHashes() {
+        return numHashes;
+    }
+}
@@ -0,0 +1,472 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The BufferPool class caches pages of the files read by the scans in a fixed number of frames,
+ * so that a table read repeatedly, e.g. by the inner scan of a join or by consecutive queries,
+ * is read from the file only once while its pages fit into the pool.
+ * It implements the singleton pattern in the same way as {@link DBCatalog}, so that all scans
+ * share the same frames; its size is capped by {@link Constants#BUFFER_POOL_SIZE}.
+ * Pages have the size of the pages of binary table files, {@link Constants#BINARY_PAGE_SIZE},
+ * and the page n of a file holds its bytes from n * BINARY_PAGE_SIZE on. The last page of a file
+ * may be shorter.
+ * A page can be pinned, which keeps it in its frame until it is unpinned, and gives direct access
+ * to the frame; or its bytes can be copied with read(), e.g. by an InputStream over the file.
+ * When all frames are in use, the frame of an unpinned page is replaced using the clock algorithm:
+ * the clock hand passes over the frames in turn, clearing their reference bit, and replaces the
+ * first page which has not been accessed since the hand last passed it.
+ * The pool counts page hits, misses and evictions, which can be used to choose its size.
+ * Cached pages are not written back, since the files are only read. A scan calls refresh() on the
+ * files it reads when it is created, so that the pages of a file which has changed are read again.
+ * Reading a page on a thread which is interrupted closes the channel of its file; the pool then
+ * opens the file again before passing the interrupt on, so that the other readers of the file,
+ * e.g. the background loaders of scans which are stopped by an interrupt, are not affected.
+ */
+public class BufferPool {
+
+    private static BufferPool instance;
+
+    private final int capacity;
+
+    // Frames, the page each holds and its clock state
+    private final ByteBuffer[] frames;
+    private final ByteBuffer[] views;
+    private final PageKey[] framePages;
+    private final int[] pinCounts;
+    private final boolean[] referenced;
+    private int usedFrames;
+    private int clockHand;
+
+    // The frame of every cached page, and of every view handed out by pinPage()
+    private final Map<PageKey, Integer> pageTable;
+    private final Map<ByteBuffer, Integer> viewFrames;
+
+    // Files read through the pool, with the state they had when they were opened
+    private final Map<Path, PooledFile> files;
+    private int nextFileId;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * A page of a file, identified by the id the file was given when it was opened.
+     */
+    private static final class PageKey {
+        final int fileId;
+        final long pageNumber;
+
+        PageKey(int fileId, long pageNumber) {
+            this.fileId = fileId;
+            this.pageNumber = pageNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PageKey)) return false;
+            PageKey other = (PageKey) o;
+            return fileId == other.fileId && pageNumber == other.pageNumber;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fileId, pageNumber);
+        }
+    }
+
+    /**
+     * An open file, with its size and modification time when it was opened.
+     */
+    private static final class PooledFile {
+        final int id;
+        final FileChannel channel;
+        final long size;
+        final FileTime lastModified;
+
+        PooledFile(int id, FileChannel channel, long size, FileTime lastModified) {
+            this.id = id;
+            this.channel = channel;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * An InputStream reading a file through the pool from a given position.
+     */
+    private static final class PageInputStream extends InputStream {
+        private final BufferPool pool;
+        private final Path file;
+        private long position;
+
+        PageInputStream(BufferPool pool, Path file, long position) {
+            this.pool = pool;
+            this.file = file;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = pool.read(file, position, ByteBuffer.wrap(b, off, len));
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Private constructor to ensure singleton design.
+     * @param capacity The number of frames of the pool.
+     */
+    private BufferPool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer pool must hold at least one page, got " + capacity);
+        }
+        this.capacity = capacity;
+        frames = new ByteBuffer[capacity];
+        views = new ByteBuffer[capacity];
+        framePages = new PageKey[capacity];
+        pinCounts = new int[capacity];
+        referenced = new boolean[capacity];
+        pageTable = new HashMap<>();
+        viewFrames = new IdentityHashMap<>();
+        files = new HashMap<>();
+    }
+
+    /**
+     * Returns the singleton instance of BufferPool.
+     * Creates a pool of Constants.BUFFER_POOL_SIZE bytes if one does not already exist.
+     * @return The singleton BufferPool instance
+     */
+    public static synchronized BufferPool getInstance() {
+        if (instance == null) {
+            instance = new BufferPool((int) Math.max(1, Constants.BUFFER_POOL_SIZE / Constants.BINARY_PAGE_SIZE));
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the pool with the given number of frames, unless it already exists.
+     * @param capacity The number of pages the pool holds.
+     */
+    public static synchronized void initBufferPool(int capacity) {
+        if (instance == null) {
+            instance = new BufferPool(capacity);
+        }
+    }
+
+    /**
+     * Closes the files of the pool and resets the instance to null, dropping every cached page.
+     * Primarily used for testing or to change the size of the pool.
+     */
+    public static synchronized void resetBufferPool() {
+        if (instance != null) {
+            instance.closeFiles();
+            instance = null;
+        }
+    }
+
+    /**
+     * Pins a page of a file in its frame, reading it if it is not cached.
+     * The returned buffer is a read-only view of the frame, holding the page from position 0 up to
+     * its limit; it is shared by everyone pinning the page, so it must be read with absolute gets.
+     * The page stays in the frame until it is unpinned as many times as it was pinned.
+     * @param file The file to read.
+     * @param pageNumber The number of the page in the file, starting at 0.
+     * @return The view of the page, or null if the file ends before the page.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized ByteBuffer pinPage(Path file, long pageNumber) throws IOException {
+        int frame = loadPage(file, pageNumber);
+        if (frame == -1) {
+            return null;
+        }
+        pinCounts[frame]++;
+        return views[frame];
+    }
+
+    /**
+     * Unpins a page pinned by pinPage(), allowing its frame to be replaced once it is not pinned anymore.
+     * @param page The view of the page returned by pinPage().
+     */
+    public synchronized void unpinPage(ByteBuffer page) {
+        Integer frame = viewFrames.get(page);
+        if (frame == null || pinCounts[frame] == 0) {
+            throw new IllegalArgumentException("Page is not pinned in the buffer pool");
+        }
+        pinCounts[frame]--;
+    }
+
+    /**
+     * Copies bytes of a file into a buffer through the pool, reading the pages which are not cached.
+     * As FileChannel.read(), it reads up to the remaining bytes of the buffer, fewer at the end of the file.
+     * @param file The file to read.
+     * @param position The position in the file of the first byte to read.
+     * @param destination The buffer to fill from its position on.
+     * @return The number of bytes read, or -1 if the position is at or past the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized int read(Path file, long position, ByteBuffer destination) throws IOException {
+        int total = 0;
+        while (destination.hasRemaining()) {
+            int frame = loadPage(file, position / Constants.BINARY_PAGE_SIZE);
+            int offset = (int) (position % Constants.BINARY_PAGE_SIZE);
+            if (frame == -1 || offset >= frames[frame].limit()) {
+                break; // END OF FILE
+            }
+
+            ByteBuffer source = frames[frame].duplicate();
+            int length = Math.min(source.limit() - offset, destination.remaining());
+            source.position(offset);
+            source.limit(offset + length);
+            destination.put(source);
+            position += length;
+            total += length;
+        }
+        return total == 0 && destination.hasRemaining() ? -1 : total;
+    }
+
+    /**
+     * Opens an InputStream which reads a file through the pool.
+     * @param file The file to read.
+     * @param position The position in the file of the first byte to read.
+     * @return The stream; closing it has no effect.
+     */
+    public InputStream newInputStream(Path file, long position) {
+        return new PageInputStream(this, file, position);
+    }
+
+    /**
+     * Drops the cached pages of a file if its size or modification time changed since it was opened,
+     * so that its pages are read again. Pages of the old file which are still pinned stay valid
+     * until they are unpinned.
+     * @param file The file to check.
+     */
+    public synchronized void refresh(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        PooledFile pooledFile = files.get(key);
+        if (pooledFile == null) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            if (attributes.size() == pooledFile.size && attributes.lastModifiedTime().equals(pooledFile.lastModified)) {
+                return;
+            }
+        } catch (IOException e) {
+            // the file was removed
+        }
+        files.remove(key);
+        closeFile(pooledFile);
+        // Pages with the id of the old file are never hit again, and are replaced first
+        for (int frame = 0; frame < usedFrames; frame++) {
+            if (framePages[frame] != null && framePages[frame].fileId == pooledFile.id) {
+                referenced[frame] = false;
+            }
+        }
+    }
+
+    /**
+     * Finds the frame holding a page, reading the page into a frame if it is not cached.
+     * @param file The file to read.
+     * @param pageNumber The number of the page in the file.
+     * @return The frame holding the page, or -1 if the file ends before the page.
+     * @throws IOException If the file cannot be read.
+     */
+    private int loadPage(Path file, long pageNumber) throws IOException {
+        PooledFile pooledFile = openFile(file);
+        if (pageNumber < 0 || pageNumber * Constants.BINARY_PAGE_SIZE >= pooledFile.size) {
+            return -1;
+        }
+
+        PageKey page = new PageKey(pooledFile.id, pageNumber);
+        Integer cached = pageTable.get(page);
+        if (cached != null) {
+            hits++;
+            referenced[cached] = true;
+            return cached;
+        }
+        misses++;
+
+        int frame = findFreeFrame();
+        ByteBuffer buffer = frames[frame];
+        buffer.clear();
+        long position = pageNumber * Constants.BINARY_PAGE_SIZE;
+        try {
+            while (buffer.hasRemaining()) {
+                int read = pooledFile.channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (ClosedByInterruptException e) {
+            // The frame is left free; the file keeps its id, so its cached pages stay valid
+            reopenFile(file, pooledFile);
+            throw e;
+        }
+        buffer.flip();
+        views[frame].clear();
+        views[frame].limit(buffer.limit());
+
+        framePages[frame] = page;
+        pageTable.put(page, frame);
+        referenced[frame] = true;
+        return frame;
+    }
+
+    /**
+     * Finds a frame to read a page into: an unused frame while the pool is not full, otherwise
+     * the frame of the first unpinned page the clock hand finds without its reference bit set.
+     * @return The free frame.
+     */
+    private int findFreeFrame() {
+        if (usedFrames < capacity) {
+            int frame = usedFrames++;
+            frames[frame] = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            views[frame] = frames[frame].asReadOnlyBuffer();
+            viewFrames.put(views[frame], frame);
+            return frame;
+        }
+
+        // Two turns clear every reference bit, so an unpinned frame is found if there is one
+        for (int step = 0; step < 2 * capacity; step++) {
+            int frame = clockHand;
+            clockHand = (clockHand + 1) % capacity;
+            if (pinCounts[frame] > 0) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+
+            pageTable.remove(framePages[frame]);
+            framePages[frame] = null;
+            evictions++;
+            return frame;
+        }
+        throw new RuntimeException("Buffer pool is full: all " + capacity + " pages are pinned");
+    }
+
+    /**
+     * Returns the open file for a path, opening it on first use.
+     * @param file The file to open.
+     * @return The open file.
+     * @throws IOException If the file cannot be opened.
+     */
+    private PooledFile openFile(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        PooledFile pooledFile = files.get(key);
+        if (pooledFile == null) {
+            BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+            FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+            pooledFile = new PooledFile(nextFileId++, channel, attributes.size(), attributes.lastModifiedTime());
+            files.put(key, pooledFile);
+        }
+        return pooledFile;
+    }
+
+    /**
+     * Replaces the channel of an open file closed by an interrupt with a new one, keeping the
+     * id, size and modification time the file had when it was first opened.
+     * @param file The file to open again.
+     * @param pooledFile The open file whose channel was closed.
+     * @throws IOException If the file cannot be opened.
+     */
+    private void reopenFile(Path file, PooledFile pooledFile) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+        files.put(key, new PooledFile(pooledFile.id, channel, pooledFile.size, pooledFile.lastModified));
+    }
+
+    private void closeFile(PooledFile pooledFile) {
+        try {
+            pooledFile.channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file in buffer pool: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized void closeFiles() {
+        for (PooledFile pooledFile : files.values()) {
+            closeFile(pooledFile);
+        }
+        files.clear();
+    }
+
+    /**
+     * Get the number of pages the pool holds.
+     * @return The number of frames.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of frames which hold a page.
+     * @return The number of used frames.
+     */
+    public synchronized int getUsedFrameCount() {
+        return usedFrames;
+    }
+
+    /**
+     * Get the number of page accesses which found the page in the pool.
+     * @return The number of hits.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Get the number of page accesses which read the page from its file.
+     * @return The number of misses.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Get the number of pages replaced to make room for another page.
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Describes the use of the pool, e.g. to be printed after a query.
+     * @return The hit, miss and eviction counts and the number of used frames.
+     */
+    @Override
+    public synchronized String toString() {
+        long accesses = hits + misses;
+        return "Buffer pool: " + hits + " hits, " + misses + " misses"
+                + (accesses == 0 ? "" : String.format(" (%.1f%% hit rate)", 100.0 * hits / accesses))
+                + ", " + evictions + " evictions, " + usedFrames + "/" + capacity + " pages used";
+    }
+}
@@ -0,0 +1,438 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The ColumnCompression class encodes and decodes the chunks of compressed column files.
+ * A compressed column file holds the values of a column in chunks of up to
+ * {@link Constants#COMPRESSED_CHUNK_ROWS} rows, so the n-th chunk of every column of a table holds
+ * the same rows. Each chunk is written as its length in bytes, followed by the chunk itself:
+ * one byte for its {@link ColumnEncoding}, the number of values, and the encoded values:
+ * BIT_PACKED: the bit width, and the values packed into longs
+ * FRAME_OF_REFERENCE: the smallest value, the bit width, and the offsets from it packed into longs
+ * RUN_LENGTH: the number of runs, and the value and length of each run
+ * DICTIONARY: the number of distinct values, the sorted distinct values, the bit width,
+ * and the positions of the values in the dictionary packed into longs
+ * The encoding giving the smallest chunk is chosen when the chunk is written.
+ * Chunks are decoded in bulk into an int array, and range conditions can be evaluated on the
+ * encoded values directly, e.g. on the dictionary positions, or once per run.
+ * @see ed.inf.adbs.blazedb.operator.CompressedColumnarScanOperator reads compressed column files.
+ */
+public class ColumnCompression {
+
+    // Offsets of the chunk header fields
+    private static final int ENCODING_OFFSET = 0;
+    private static final int COUNT_OFFSET = 1;
+    private static final int PAYLOAD_OFFSET = 5;
+
+    /**
+     * Chooses the encoding giving the smallest chunk for the given values.
+     * @param values The values of the chunk.
+     * @param count The number of values.
+     * @return The chosen encoding.
+     */
+    public static ColumnEncoding chooseEncoding(int[] values, int count) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            if (i == 0 || values[i] != values[i - 1]) {
+                runs++;
+            }
+        }
+        if (count == 0) {
+            return ColumnEncoding.FRAME_OF_REFERENCE;
+        }
+        int distinct = countDistinct(values, count);
+
+        ColumnEncoding best = ColumnEncoding.FRAME_OF_REFERENCE;
+        long bestSize = Integer.BYTES + 1 + packedSize(count, bitWidth(max - min));
+        if (min >= 0) {
+            long size = 1 + packedSize(count, bitWidth(max));
+            if (size <= bestSize) {
+                best = ColumnEncoding.BIT_PACKED;
+                bestSize = size;
+            }
+        }
+        long runLengthSize = Integer.BYTES + (long) runs * 2 * Integer.BYTES;
+        if (runLengthSize < bestSize) {
+            best = ColumnEncoding.RUN_LENGTH;
+            bestSize = runLengthSize;
+        }
+        long dictionarySize = Integer.BYTES + (long) distinct * Integer.BYTES + 1 + packedSize(count, bitWidth(distinct - 1));
+        if (dictionarySize < bestSize) {
+            best = ColumnEncoding.DICTIONARY;
+        }
+        return best;
+    }
+
+    /**
+     * Writes a chunk with the encoding giving the smallest size, preceded by its length in bytes.
+     * @param out The stream of the compressed column file.
+     * @param values The values of the chunk.
+     * @param count The number of values.
+     * @return The encoding used.
+     * @throws IOException If the chunk cannot be written.
+     */
+    public static ColumnEncoding writeChunk(DataOutputStream out, int[] values, int count) throws IOException {
+        ColumnEncoding encoding = chooseEncoding(values, count);
+        writeChunk(out, values, count, encoding);
+        return encoding;
+    }
+
+    /**
+     * Writes a chunk with the given encoding, preceded by its length in bytes.
+     * @param out The stream of the compressed column file.
+     * @param values The values of the chunk.
+     * @param count The number of values.
+     * @param encoding The encoding to use; BIT_PACKED requires non-negative values.
+     * @throws IOException If the chunk cannot be written.
+     */
+    public static void writeChunk(DataOutputStream out, int[] values, int count, ColumnEncoding encoding)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream chunk = new DataOutputStream(bytes);
+        chunk.writeByte(encoding.ordinal());
+        chunk.writeInt(count);
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+
+        switch (encoding) {
+            case BIT_PACKED: {
+                if (count > 0 && min < 0) {
+                    throw new IllegalArgumentException("Bit-packing requires non-negative values, got " + min);
+                }
+                int width = count == 0 ? 0 : bitWidth(max);
+                long[] codes = new long[count];
+                for (int i = 0; i < count; i++) {
+                    codes[i] = values[i];
+                }
+                chunk.writeByte(width);
+                writePacked(chunk, codes, count, width);
+                break;
+            }
+            case FRAME_OF_REFERENCE: {
+                int reference = count == 0 ? 0 : (int) min;
+                int width = count == 0 ? 0 : bitWidth(max - min);
+                long[] codes = new long[count];
+                for (int i = 0; i < count; i++) {
+                    codes[i] = (long) values[i] - reference;
+                }
+                chunk.writeInt(reference);
+                chunk.writeByte(width);
+                writePacked(chunk, codes, count, width);
+                break;
+            }
+            case RUN_LENGTH: {
+                int runs = 0;
+                for (int i = 0; i < count; i++) {
+                    if (i == 0 || values[i] != values[i - 1]) {
+                        runs++;
+                    }
+                }
+                chunk.writeInt(runs);
+                int start = 0;
+                for (int i = 1; i <= count; i++) {
+                    if (i == count || values[i] != values[start]) {
+                        chunk.writeInt(values[start]);
+                        chunk.writeInt(i - start);
+                        start = i;
+                    }
+                }
+                break;
+            }
+            case DICTIONARY: {
+                int[] dictionary = Arrays.copyOf(values, count);
+                Arrays.sort(dictionary);
+                int distinct = 0;
+                for (int i = 0; i < count; i++) {
+                    if (i == 0 || dictionary[i] != dictionary[distinct - 1]) {
+                        dictionary[distinct++] = dictionary[i];
+                    }
+                }
+                int width = distinct == 0 ? 0 : bitWidth(distinct - 1);
+                long[] codes = new long[count];
+                for (int i = 0; i < count; i++) {
+                    codes[i] = Arrays.binarySearch(dictionary, 0, distinct, values[i]);
+                }
+                chunk.writeInt(distinct);
+                for (int i = 0; i < distinct; i++) {
+                    chunk.writeInt(dictionary[i]);
+                }
+                chunk.writeByte(width);
+                writePacked(chunk, codes, count, width);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown column encoding " + encoding);
+        }
+
+        chunk.flush();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Get the encoding of a chunk.
+     * @param chunk The chunk, starting at position 0, without its length.
+     * @return The encoding of the chunk.
+     */
+    public static ColumnEncoding getEncoding(ByteBuffer chunk) {
+        return ColumnEncoding.values()[chunk.get(ENCODING_OFFSET)];
+    }
+
+    /**
+     * Get the number of values in a chunk.
+     * @param chunk The chunk, starting at position 0, without its length.
+     * @return The number of values.
+     */
+    public static int getValueCount(ByteBuffer chunk) {
+        return chunk.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Decodes all values of a chunk.
+     * @param chunk The chunk, starting at position 0, without its length.
+     * @param values The array to decode the values into, at least as long as the number of values.
+     */
+    public static void decode(ByteBuffer chunk, int[] values) {
+        int count = getValueCount(chunk);
+        switch (getEncoding(chunk)) {
+            case BIT_PACKED: {
+                int width = chunk.get(PAYLOAD_OFFSET);
+                unpack(chunk, PAYLOAD_OFFSET + 1, width, count, 0, values);
+                break;
+            }
+            case FRAME_OF_REFERENCE: {
+                int reference = chunk.getInt(PAYLOAD_OFFSET);
+                int width = chunk.get(PAYLOAD_OFFSET + Integer.BYTES);
+                unpack(chunk, PAYLOAD_OFFSET + Integer.BYTES + 1, width, count, reference, values);
+                break;
+            }
+            case RUN_LENGTH: {
+                int runs = chunk.getInt(PAYLOAD_OFFSET);
+                int position = PAYLOAD_OFFSET + Integer.BYTES;
+                int row = 0;
+                for (int run = 0; run < runs; run++) {
+                    int value = chunk.getInt(position);
+                    int length = chunk.getInt(position + Integer.BYTES);
+                    Arrays.fill(values, row, row + length, value);
+                    row += length;
+                    position += 2 * Integer.BYTES;
+                }
+                break;
+            }
+            case DICTIONARY: {
+                int distinct = chunk.getInt(PAYLOAD_OFFSET);
+                int dictionaryOffset = PAYLOAD_OFFSET + Integer.BYTES;
+                int widthOffset = dictionaryOffset + distinct * Integer.BYTES;
+                int width = chunk.get(widthOffset);
+                unpack(chunk, widthOffset + 1, width, count, 0, values);
+                for (int i = 0; i < count; i++) {
+                    values[i] = chunk.getInt(dictionaryOffset + values[i] * Integer.BYTES);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Evaluates an inclusive range condition on the encoded values of a chunk, without decoding them.
+     * Rows outside the range are cleared in the matches array; rows already cleared stay cleared,
+     * so the conditions on several columns can be combined.
+     * @param chunk The chunk, starting at position 0, without its length.
+     * @param lower The smallest value in the range.
+     * @param upper The largest value in the range.
+     * @param matches The rows of the chunk still matching, at least as long as the number of values.
+     * @return The number of rows still matching.
+     */
+    public static int evaluateRange(ByteBuffer chunk, long lower, long upper, boolean[] matches) {
+        int count = getValueCount(chunk);
+        switch (getEncoding(chunk)) {
+            case BIT_PACKED: {
+                int width = chunk.get(PAYLOAD_OFFSET);
+                return matchPacked(chunk, PAYLOAD_OFFSET + 1, width, count, lower, upper, matches);
+            }
+            case FRAME_OF_REFERENCE: {
+                int reference = chunk.getInt(PAYLOAD_OFFSET);
+                int width = chunk.get(PAYLOAD_OFFSET + Integer.BYTES);
+                // Compare the offsets against the range shifted by the reference
+                long shiftedLower = lower == Long.MIN_VALUE ? Long.MIN_VALUE : lower - reference;
+                long shiftedUpper = upper == Long.MAX_VALUE ? Long.MAX_VALUE : upper - reference;
+                return matchPacked(chunk, PAYLOAD_OFFSET + Integer.BYTES + 1, width, count,
+                        shiftedLower, shiftedUpper, matches);
+            }
+            case RUN_LENGTH: {
+                int runs = chunk.getInt(PAYLOAD_OFFSET);
+                int position = PAYLOAD_OFFSET + Integer.BYTES;
+                int row = 0;
+                int matching = 0;
+                for (int run = 0; run < runs; run++) {
+                    int value = chunk.getInt(position);
+                    int length = chunk.getInt(position + Integer.BYTES);
+                    if (value < lower || value > upper) {
+                        Arrays.fill(matches, row, row + length, false);
+                    } else {
+                        for (int i = row; i < row + length; i++) {
+                            if (matches[i]) {
+                                matching++;
+                            }
+                        }
+                    }
+                    row += length;
+                    position += 2 * Integer.BYTES;
+                }
+                return matching;
+            }
+            case DICTIONARY: {
+                int distinct = chunk.getInt(PAYLOAD_OFFSET);
+                int dictionaryOffset = PAYLOAD_OFFSET + Integer.BYTES;
+                int widthOffset = dictionaryOffset + distinct * Integer.BYTES;
+                int width = chunk.get(widthOffset);
+                // The dictionary is sorted, so the range maps to a range of positions
+                int lowerCode = 0;
+                while (lowerCode < distinct && chunk.getInt(dictionaryOffset + lowerCode * Integer.BYTES) < lower) {
+                    lowerCode++;
+                }
+                int upperCode = distinct - 1;
+                while (upperCode >= lowerCode && chunk.getInt(dictionaryOffset + upperCode * Integer.BYTES) > upper) {
+                    upperCode--;
+                }
+                return matchPacked(chunk, widthOffset + 1, width, count, lowerCode, upperCode, matches);
+            }
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Clears the rows whose packed value is outside an inclusive range.
+     * @return The number of rows still matching.
+     */
+    private static int matchPacked(ByteBuffer chunk, int offset, int width, int count,
+                                   long lower, long upper, boolean[] matches) {
+        long maxCode = width == 0 ? 0 : (1L << width) - 1;
+        if (lower > upper || upper < 0 || lower > maxCode) {
+            Arrays.fill(matches, 0, count, false);
+            return 0;
+        }
+        boolean allMatch = lower <= 0 && upper >= maxCode;
+
+        int matching = 0;
+        for (int i = 0; i < count; i++) {
+            if (!matches[i]) {
+                continue;
+            }
+            if (allMatch) {
+                matching++;
+                continue;
+            }
+            long code = unpackValue(chunk, offset, width, i);
+            if (code < lower || code > upper) {
+                matches[i] = false;
+            } else {
+                matching++;
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Get the number of bits needed to store a non-negative value.
+     * @param value The largest value to store.
+     * @return The bit width, 0 for the value 0.
+     */
+    static int bitWidth(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Get the number of bytes of the packed values of a chunk.
+     * @param count The number of values.
+     * @param width The bit width of each value.
+     * @return The size in bytes.
+     */
+    private static long packedSize(int count, int width) {
+        return ((long) count * width + 63) / 64 * Long.BYTES;
+    }
+
+    private static int countDistinct(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Packs non-negative values of the given bit width into longs and writes them.
+     */
+    private static void writePacked(DataOutputStream out, long[] codes, int count, int width) throws IOException {
+        long[] words = new long[(int) (packedSize(count, width) / Long.BYTES)];
+        for (int i = 0; i < count && width > 0; i++) {
+            long bit = (long) i * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= codes[i] << shift;
+            if (shift + width > 64) {
+                words[word + 1] |= codes[i] >>> (64 - shift);
+            }
+        }
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Unpacks all values of the given bit width, adding the reference to each of them.
+     */
+    private static void unpack(ByteBuffer chunk, int offset, int width, int count, int reference, int[] values) {
+        if (width == 0) {
+            Arrays.fill(values, 0, count, reference);
+            return;
+        }
+        long mask = (1L << width) - 1;
+        long bit = 0;
+        for (int i = 0; i < count; i++, bit += width) {
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long code = chunk.getLong(offset + word * Long.BYTES) >>> shift;
+            if (shift + width > 64) {
+                code |= chunk.getLong(offset + (word + 1) * Long.BYTES) << (64 - shift);
+            }
+            values[i] = (int) ((code & mask) + reference);
+        }
+    }
+
+    /**
+     * Unpacks a single value of the given bit width.
+     */
+    private static long unpackValue(ByteBuffer chunk, int offset, int width, int index) {
+        if (width == 0) {
+            return 0;
+        }
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long code = chunk.getLong(offset + word * Long.BYTES) >>> shift;
+        if (shift + width > 64) {
+            code |= chunk.getLong(offset + (word + 1) * Long.BYTES) << (64 - shift);
+        }
+        return code & ((1L << width) - 1);
+    }
+}
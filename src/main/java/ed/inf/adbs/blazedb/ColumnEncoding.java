@@ -0,0 +1,21 @@
+package ed.inf.adbs.blazedb;
+
+/**
+ * Enum representing the encodings of a chunk of a compressed column file.
+ * Every chunk is stored with the encoding giving the smallest size for its values.
+ * @see ColumnCompression
+ */
+public enum ColumnEncoding {
+
+    // non-negative values packed with the bit width of the largest value
+    BIT_PACKED,
+
+    // offsets from the smallest value, packed with the bit width of the largest offset
+    FRAME_OF_REFERENCE,
+
+    // runs of equal values stored as (value, length) pairs
+    RUN_LENGTH,
+
+    // sorted distinct values, with each value stored as its bit-packed position in the dictionary
+    DICTIONARY
+}
@@ -0,0 +1,134 @@
+package ed.inf.adbs.blazedb;
+
+import java.util.Arrays;
+
+/**
+ * The ColumnStatistics class summarises the values of a column of a table for cardinality
+ * estimation: the minimum and maximum value, an estimate of the number of distinct values,
+ * and an equi-depth histogram.
+ * The histogram divides the rows into buckets holding the same number of rows each, and stores
+ * the bounds between them: bucket b holds the values between bound b and bound b + 1. A value
+ * occurring in many rows fills whole buckets whose bounds are both that value, which keeps skewed
+ * columns estimated well, unlike an even spread over the range of the column would.
+ * Collected by {@link TableAnalyzer} as part of the {@link TableStatistics} of a table.
+ */
+public class ColumnStatistics {
+
+    private final int min;
+    private final int max;
+    private final long distinctCount;
+    private final int[] histogramBounds;
+
+    /**
+     * Constructs the statistics of a column.
+     * @param min The smallest value of the column.
+     * @param max The largest value of the column.
+     * @param distinctCount The estimated number of distinct values, 0 for an empty table.
+     * @param histogramBounds The bucket bounds of the equi-depth histogram in ascending order,
+     *                        one more than the number of buckets, or none for an empty table.
+     */
+    public ColumnStatistics(int min, int max, long distinctCount, int[] histogramBounds) {
+        if (histogramBounds.length == 1) {
+            throw new IllegalArgumentException("A histogram needs at least two bounds, got one");
+        }
+        this.min = min;
+        this.max = max;
+        this.distinctCount = distinctCount;
+        this.histogramBounds = histogramBounds.clone();
+    }
+
+    /**
+     * Estimates the fraction of rows whose value equals a constant.
+     * The rows are assumed to be spread evenly over the distinct values, unless the value fills
+     * whole buckets of the histogram.
+     * @param value The constant.
+     * @return The estimated fraction of rows between 0 and 1.
+     */
+    public double estimateEqualsSelectivity(long value) {
+        if (distinctCount == 0 || value < min || value > max) {
+            return 0;
+        }
+
+        int fullBuckets = 0;
+        for (int b = 0; b < getBucketCount(); b++) {
+            if (histogramBounds[b] == value && histogramBounds[b + 1] == value) {
+                fullBuckets++;
+            }
+        }
+        return Math.max(1.0 / distinctCount, (double) fullBuckets / getBucketCount());
+    }
+
+    /**
+     * Estimates the fraction of rows whose value is in an inclusive range.
+     * Every bucket of the histogram contributes the fraction of its values in the range,
+     * assuming the values are spread evenly within the bucket.
+     * @param low The smallest value in the range.
+     * @param high The largest value in the range.
+     * @return The estimated fraction of rows between 0 and 1.
+     */
+    public double estimateRangeSelectivity(long low, long high) {
+        if (distinctCount == 0 || low > high || high < min || low > max) {
+            return 0;
+        }
+        if (low <= min && high >= max) {
+            return 1;
+        }
+
+        double coveredBuckets = 0;
+        for (int b = 0; b < getBucketCount(); b++) {
+            long bucketLow = histogramBounds[b];
+            long bucketHigh = histogramBounds[b + 1];
+            long overlap = Math.min(high, bucketHigh) - Math.max(low, bucketLow) + 1;
+            if (overlap > 0) {
+                coveredBuckets += (double) overlap / (bucketHigh - bucketLow + 1);
+            }
+        }
+        return Math.min(1, coveredBuckets / getBucketCount());
+    }
+
+    /**
+     * Get the smallest value of the column.
+     * @return The minimum.
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * Get the largest value of the column.
+     * @return The maximum.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Get the estimated number of distinct values of the column.
+     * @return The distinct count.
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Get the number of buckets of the histogram.
+     * @return The number of buckets, 0 for an empty table.
+     */
+    public int getBucketCount() {
+        return Math.max(0, histogramBounds.length - 1);
+    }
+
+    /**
+     * Get the bucket bounds of the histogram.
+     * @return A copy of the bounds in ascending order.
+     */
+    public int[] getHistogramBounds() {
+        return histogramBounds.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "min: " + min + " max: " + max + " distinct: " + distinctCount
+                + " histogram: " + Arrays.toString(histogramBounds);
+    }
+}
@@ -0,0 +1,147 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ColumnarTableConverter class converts the CSV data files of a database into the columnar layout.
+ * Every column of a table is stored in its own file, columns/Table/column.col under the database
+ * directory, holding the values of the column for all rows in file order as 4-byte big-endian ints.
+ * The n-th value of every column file belongs to the n-th row of the table, so a scan reading only
+ * some of the columns can rebuild its rows without touching the other files.
+ * With {@link Constants#useColumnCompression}, the columns are written as compressed column files,
+ * columns/Table/column.ccol, holding the values in chunks encoded by {@link ColumnCompression}.
+ * The CSV file is kept for lookups through table indexes.
+ * Usage: ColumnarTableConverter database_dir [table ...]
+ * Without table names, every table of the database is converted.
+ * @see ed.inf.adbs.blazedb.operator.ColumnarScanOperator reads tables in the columnar layout.
+ */
+public class ColumnarTableConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: ColumnarTableConverter database_dir [table ...]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        List<String> tableNames = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : new ArrayList<>(catalog.getTableNames());
+        for (String tableName : tableNames) {
+            if (!catalog.tableExists(tableName)) {
+                System.err.println("Table " + tableName + " not found in the database");
+                continue;
+            }
+
+            Path columnDirectory = Paths.get(args[0], Constants.COLUMNS_DIRECTORY_NAME, tableName);
+            try {
+                int rows = convert(catalog.getDBLocation(tableName), columnDirectory, catalog.getColumnNames(tableName),
+                        Constants.useColumnCompression);
+                System.out.println("Converted " + tableName + ": " + rows + " rows written to " + columnDirectory);
+            } catch (IOException e) {
+                System.err.println("Failed to convert table " + tableName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Converts a CSV data file into one column file per column, replacing any existing column files.
+     * @param csvPath The location of the CSV data file.
+     * @param columnDirectory The directory to write the column files to, created if needed.
+     * @param columnNames The names of the table's columns, by position.
+     * @return The number of rows written.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static int convert(Path csvPath, Path columnDirectory, List<String> columnNames) throws IOException {
+        return convert(csvPath, columnDirectory, columnNames, false);
+    }
+
+    /**
+     * Converts a CSV data file into one column file per column, replacing any existing column files
+     * of the same kind.
+     * @param csvPath The location of the CSV data file.
+     * @param columnDirectory The directory to write the column files to, created if needed.
+     * @param columnNames The names of the table's columns, by position.
+     * @param compress Whether to write compressed column files instead of plain ones.
+     * @return The number of rows written.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static int convert(Path csvPath, Path columnDirectory, List<String> columnNames, boolean compress)
+            throws IOException {
+        int numColumns = columnNames.size();
+        if (numColumns < 1) {
+            throw new IllegalArgumentException("Table must have at least one column, got " + numColumns);
+        }
+        Files.createDirectories(columnDirectory);
+
+        DataOutputStream[] outputs = new DataOutputStream[numColumns];
+        String extension = compress ? Constants.COMPRESSED_COLUMN_FILE_EXTENSION : Constants.COLUMN_FILE_EXTENSION;
+        // Values of the current chunk of every column, when compressing
+        int[][] chunks = compress ? new int[numColumns][Constants.COMPRESSED_CHUNK_ROWS] : null;
+        int chunkRows = 0;
+        int rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvPath)) {
+            for (int i = 0; i < numColumns; i++) {
+                Path columnFile = columnDirectory.resolve(columnNames.get(i).toLowerCase() + extension);
+                outputs[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(columnFile)));
+            }
+
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] values = line.split(",\\s*");
+                if (values.length != numColumns) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + csvPath + " has "
+                            + values.length + " values, expected " + numColumns);
+                }
+                for (int i = 0; i < numColumns; i++) {
+                    int value = Integer.parseInt(values[i].trim());
+                    if (compress) {
+                        chunks[i][chunkRows] = value;
+                    } else {
+                        outputs[i].writeInt(value);
+                    }
+                }
+                rows++;
+
+                if (compress && ++chunkRows == Constants.COMPRESSED_CHUNK_ROWS) {
+                    for (int i = 0; i < numColumns; i++) {
+                        ColumnCompression.writeChunk(outputs[i], chunks[i], chunkRows);
+                    }
+                    chunkRows = 0;
+                }
+            }
+
+            if (compress && chunkRows > 0) {
+                for (int i = 0; i < numColumns; i++) {
+                    ColumnCompression.writeChunk(outputs[i], chunks[i], chunkRows);
+                }
+            }
+        } finally {
+            for (DataOutputStream output : outputs) {
+                if (output != null) {
+                    output.close();
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -12,15 +12,183 @@ public class Constants {
     /** Controls whether query plan optimization is enabled */
     public static final boolean useQueryOptimization = true;  // Add this line
 
+    /** Controls whether equi-joins are evaluated with a hash join instead of a nested loop join */
+    public static final boolean useHashJoin = true;
+
+    /** Maximum number of build tuples a hash join keeps in memory before spilling partitions to disk */
+    public static final int HASH_JOIN_MEMORY_BUDGET = 500000;
+
+    /** Number of partitions created per partitioning pass of the Grace hash join */
+    public static final int GRACE_HASH_JOIN_PARTITIONS = 32;
+
+    /** Controls whether hash joins push Bloom filters on their build keys down to the scans of the probe side */
+    public static final boolean useBloomFilterPushdown = true;
+
+    /** Number of bits per build key in the Bloom filters pushed down by hash joins */
+    public static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+
+    /** Controls whether the optimizer replaces joins by semi-joins when only one side is needed above them */
+    public static final boolean useSemiJoin = true;
+
+    /** Controls whether chains of hash joins on keys of the same input are combined into a star join */
+    public static final boolean useStarJoin = true;
+
+    /** Controls whether equi-joins on the leading ORDER BY column, or on keys both inputs are already sorted on, are evaluated with a sort-merge join */
+    public static final boolean useSortMergeJoin = true;
+
+    /** Controls whether inequality joins between an inner and an outer column use a sort-based range join */
+    public static final boolean useRangeJoin = true;
+
+    /** Controls whether joins without equi-join keys use a block nested loop join instead of a tuple nested loop join */
+    public static final boolean useBlockNestedLoopJoin = true;
+
+    /** Number of outer tuples buffered per block by the block nested loop join */
+    public static final int JOIN_BLOCK_SIZE = 1000;
+
+    /** Controls whether equi-joins with a small outer input use an index nested loop join */
+    public static final boolean useIndexNestedLoopJoin = true;
+
+    /** Estimated cost of one index lookup, relative to reading one row sequentially */
+    public static final int INDEX_LOOKUP_COST = 3;
+
+    /** Controls whether tables converted to the binary page format are scanned from the binary file */
+    public static final boolean useBinaryScan = true;
+
+    /** Size in bytes of a page of a binary table file */
+    public static final int BINARY_PAGE_SIZE = 4096;
+
+    /** Maximum number of bytes of table pages cached by the buffer pool shared by the scans */
+    public static final long BUFFER_POOL_SIZE = 1L << 26;
+
+    /** Controls whether tables converted to the columnar layout are scanned one column file per required column */
+    public static final boolean useColumnarScan = true;
+
+    /** Controls whether the columnar converter writes compressed column files instead of plain ones */
+    public static final boolean useColumnCompression = true;
+
+    /** Number of rows per chunk of a compressed column file */
+    public static final int COMPRESSED_CHUNK_ROWS = 4096;
+
+    /** Controls whether CSV data files are scanned by memory-mapping them and parsing the mapped bytes */
+    public static final boolean useMappedScan = true;
+
+    /** Maximum number of bytes of a data file mapped into memory at a time by a memory-mapped scan */
+    public static final int MAPPED_REGION_SIZE = 1 << 28;
+
+    /** Controls whether large CSV data files are scanned by parsing byte ranges of the file on several threads */
+    public static final boolean useParallelScan = true;
+
+    /** Minimum size in bytes of a CSV data file scanned in parallel */
+    public static final long PARALLEL_SCAN_MIN_FILE_SIZE = 1L << 24;
+
+    /** Number of worker threads shared by the parallel scans */
+    public static final int PARALLEL_SCAN_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** Number of bytes of a data file parsed at a time by a worker of a parallel scan */
+    public static final int PARALLEL_SCAN_RANGE_SIZE = 1 << 20;
+
+    /** Maximum number of ranges of a parallel scan being parsed or waiting to be returned to its parent */
+    public static final int PARALLEL_SCAN_QUEUE_SIZE = 2 * PARALLEL_SCAN_THREADS + 2;
+
+    /** Controls whether parallel scans return the tuples in file order, instead of in the order the ranges are parsed */
+    public static final boolean PARALLEL_SCAN_PRESERVE_ORDER = true;
+
+    /** Controls whether CSV data files too small to be scanned in parallel are read ahead in chunks on a background thread while the previous chunk is parsed */
+    public static final boolean useReadAheadScan = true;
+
+    /** Minimum size in bytes of a CSV data file scanned with read-ahead; smaller files are memory-mapped */
+    public static final long READ_AHEAD_MIN_FILE_SIZE = 1L << 22;
+
+    /** Number of bytes of a data file read at a time by the loader of a read-ahead scan */
+    public static final int READ_AHEAD_CHUNK_SIZE = 1 << 20;
+
+    /** Number of chunk buffers of a read-ahead scan, i.e. how many chunks its loader may read ahead; 2 is double buffering */
+    public static final int READ_AHEAD_DEPTH = 2;
+
+    /** Controls whether queries run concurrently by QueryBatch share a single pass over the CSV data file of a large table */
+    public static final boolean useSharedScan = true;
+
+    /** Minimum size in bytes of a CSV data file read by shared scans */
+    public static final long SHARED_SCAN_MIN_FILE_SIZE = 1L << 22;
+
+    /** Number of bytes of a data file read and parsed at a time by a shared scan */
+    public static final int SHARED_SCAN_CHUNK_SIZE = 1 << 20;
+
+    /** Number of most recently read chunks a shared pass keeps for the scans attached to it which are behind the leading one */
+    public static final int SHARED_SCAN_WINDOW_CHUNKS = 8;
+
+    /** Controls whether scans skip blocks of rows using the zone map of their table */
+    public static final boolean useZoneMaps = true;
+
+    /** Number of rows per block of a zone map */
+    public static final int ZONE_MAP_BLOCK_ROWS = 1024;
+
+    /** Controls whether selections on an indexed column of a table are evaluated by an index scan */
+    public static final boolean useIndexScan = true;
+
+    /** Maximum estimated cost of an index scan, as a fraction of the cost of a full scan of the table */
+    public static final double INDEX_SCAN_MAX_COST = 0.2;
+
+    /** Fraction of the entries of a bucket page filled when a hash index is built */
+    public static final double INDEX_HASH_FILL_FACTOR = 0.75;
+
+    /** Controls whether GROUP BY on columns the input is already sorted on aggregates one group at a time instead of hashing */
+    public static final boolean useStreamingAggregation = true;
+
+    /** Controls whether the optimizer estimates cardinalities from the statistics collected by ANALYZE, where available */
+    public static final boolean useTableStatistics = true;
+
+    /** Maximum number of rows sampled by ANALYZE to build the histograms of a table */
+    public static final int STATISTICS_SAMPLE_ROWS = 100000;
+
+    /** Number of buckets of the equi-depth histogram of a column */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    /** Number of smallest value hashes kept by ANALYZE to estimate the number of distinct values of a column */
+    public static final int DISTINCT_SKETCH_SIZE = 1024;
+
+    /** Number of standard errors in the error bounds of sums estimated from a TABLESAMPLE, 1.96 for 95% confidence */
+    public static final double SAMPLE_ERROR_BOUND_Z = 1.96;
+
     /** Prefix used to identify intermediate schemas created during query processing */
     public static final String INTERMEDIATE_SCHEMA_PREFIX = "temp_";
 
     /** Standard filename for database schema definitions */
     public static final String SCHEMA_FILE_NAME = "schema.txt";
 
+    /** Filename of the sort orders of clustered tables, stored next to the schema file */
+    public static final String SORT_ORDER_FILE_NAME = "sortorder.txt";
+
+    /** Filename of the statistics of analyzed tables, stored next to the schema file */
+    public static final String STATISTICS_FILE_NAME = "statistics.txt";
+
     /** Directory name where database data files are stored */
     public static final String DATA_DIRECTORY_NAME = "data";
 
+    /** File extension of table data files in the binary page format */
+    public static final String BINARY_FILE_EXTENSION = ".bin";
+
+    /** Directory name where the column files of tables in the columnar layout are stored */
+    public static final String COLUMNS_DIRECTORY_NAME = "columns";
+
+    /** File extension of column files in the columnar layout */
+    public static final String COLUMN_FILE_EXTENSION = ".col";
+
+    /** File extension of compressed column files in the columnar layout */
+    public static final String COMPRESSED_COLUMN_FILE_EXTENSION = ".ccol";
+
+    /** File extension of the zone map sidecar files of table data files */
+    public static final String ZONE_MAP_FILE_EXTENSION = ".zonemap";
+
+    /** Directory name where the B+tree index files of a database are stored */
+    public static final String INDEX_DIRECTORY_NAME = "indexes";
+
+    /** File extension of B+tree index files */
+    public static final String INDEX_FILE_EXTENSION = ".idx";
+
+    /** File extension of hash index files */
+    public static final String HASH_INDEX_FILE_EXTENSION = ".hash";
+
     /** SQL aggregation function name for sum operations */
     public static final String SUM_FUNCTION_NAME = "SUM";
 
@@ -1,10 +1,13 @@
 package ed.inf.adbs.blazedb;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
 
@@ -17,16 +20,32 @@ import java.util.stream.Stream;
  * 2. Table schemas (column names and their positions)
  * 3. Intermediate schemas generated during query processing
  * 4. Schema transformation tracking for operations like projection and join
+ * 5. Lookup indexes and row count estimates used to choose join algorithms
+ * 6. Binary and columnar copies of table data files, which are preferred for full scans
+ * 7. Zone maps of table data files, used by scans to skip blocks of rows
+ * 8. B+tree and hash indexes on columns of tables, used by index scans and index nested loop joins
+ *    to read only the matching rows
+ * 9. Sort orders of tables whose data files have been sorted, used to avoid sorting them again
+ * 10. Statistics of analyzed tables (row counts, column ranges, distinct counts and histograms),
+ *    used to estimate the cardinality of plans
+ * Rows appended by {@link TableAppender} keep the zone maps, indexes, statistics and sort orders
+ * which are up to date, and remove the binary and columnar copies of the table.
  * The catalog provides methods to register, retrieve, and resolve schema information,
  * supporting the dynamic schema transformations that occur during query execution.
  * It plays a critical role in column name resolution during expression evaluation
  * and is essential for query optimisations.
+ * Queries may be planned and executed concurrently, e.g. by {@link QueryBatch}: the schemas are
+ * kept in concurrent maps, so that resolving columns for every tuple does not take a lock, and
+ * the metadata loaded on demand is loaded under the catalog's lock.
  */
 public class DBCatalog {
 
     private static DBCatalog instance;
 
     private final Map<String, Path> dBLocations;
+    private final Map<String, Path> binaryLocations;
+    private final Map<String, Path> columnarLocations;
+    private final Set<String> compressedColumnarTables;
     private final Map<String, Map<String, Integer>> dBSchemata;
 
     private final Map<String, Map<String, Integer>> intermediateSchemata;
@@ -38,21 +57,55 @@ public class DBCatalog {
 
     private final Map<String, Map<String, String>> columnOriginMap;
 
+    // Estimated number of rows per table, computed on demand
+    private final Map<String, Long> estimatedRowCounts;
+
+    // Zone maps read on demand, null for tables without an up-to-date zone map
+    private final Map<String, ZoneMap> zoneMaps;
+
+    // Names of the files in the indexes directory; their headers are only read on demand
+    private final Set<String> indexFileNames;
+
+    // B+tree and hash indexes opened on demand, keyed by "table.column", null for columns without an up-to-date index
+    private final Map<String, BPlusTreeIndex> bPlusTreeIndexes;
+    private final Map<String, HashIndex> hashIndexes;
+
+    // Sort orders read from the sort order file, and those found to be up to date on demand
+    private final Map<String, List<String>> storedSortOrders;
+    private final Map<String, List<String>> sortOrders;
+    private Path sortOrderPath;
+
+    // Statistics read from the statistics file on first use, and those found to be up to date
+    private Map<String, TableStatistics> storedStatistics;
+    private final Map<String, TableStatistics> tableStatistics;
+    private Path statisticsPath;
 
     /**
      * Private constructor to ensure singleton design.
      */
     private DBCatalog() {
         dBLocations = new HashMap<>();
+        binaryLocations = new HashMap<>();
+        columnarLocations = new HashMap<>();
+        compressedColumnarTables = new HashSet<>();
         dBSchemata = new HashMap<>();
-        intermediateSchemata = new HashMap<>();
+        intermediateSchemata = new ConcurrentHashMap<>();
+
 
+        schemaParentMap = new ConcurrentHashMap<>();
 
-        schemaParentMap = new HashMap<>();
+        schemaMultiParentMap = new ConcurrentHashMap<>();
 
-        schemaMultiParentMap = new HashMap<>();
+        columnOriginMap = new ConcurrentHashMap<>();
 
-        columnOriginMap = new HashMap<>();
+        estimatedRowCounts = new HashMap<>();
+        zoneMaps = new HashMap<>();
+        indexFileNames = new HashSet<>();
+        bPlusTreeIndexes = new HashMap<>();
+        hashIndexes = new HashMap<>();
+        storedSortOrders = new HashMap<>();
+        sortOrders = new HashMap<>();
+        tableStatistics = new HashMap<>();
     }
 
     /**
@@ -114,9 +167,52 @@ public class DBCatalog {
 
                     Path dataFilePath = dataPath.resolve(tableName + ".csv");
                     dBLocations.put(tableName, dataFilePath);
+
+                    // Prefer a binary copy of the data file, unless the CSV file changed after the conversion
+                    Path binaryFilePath = dataPath.resolve(tableName + Constants.BINARY_FILE_EXTENSION);
+                    if (Files.exists(binaryFilePath) && (!Files.exists(dataFilePath) ||
+                            Files.getLastModifiedTime(binaryFilePath).compareTo(Files.getLastModifiedTime(dataFilePath)) >= 0)) {
+                        binaryLocations.put(tableName, binaryFilePath);
+                    }
+
+                    // Likewise for a complete set of column files, preferring compressed ones
+                    Path columnDirectory = dBPath.resolve(Constants.COLUMNS_DIRECTORY_NAME).resolve(tableName);
+                    if (hasColumnFiles(columnDirectory, columnMap.keySet(), dataFilePath,
+                            Constants.COMPRESSED_COLUMN_FILE_EXTENSION)) {
+                        columnarLocations.put(tableName, columnDirectory);
+                        compressedColumnarTables.add(tableName);
+                    } else if (hasColumnFiles(columnDirectory, columnMap.keySet(), dataFilePath,
+                            Constants.COLUMN_FILE_EXTENSION)) {
+                        columnarLocations.put(tableName, columnDirectory);
+                    }
+                }
+            }
+
+            // Record which index files exist
+            Path indexPath = dBPath.resolve(Constants.INDEX_DIRECTORY_NAME);
+            if (Files.isDirectory(indexPath)) {
+                try (Stream<Path> files = Files.list(indexPath)) {
+                    files.forEach(file -> indexFileNames.add(file.getFileName().toString()));
                 }
             }
 
+            // Read the sort orders of clustered tables, one line "Table column..." per table
+            sortOrderPath = dBPath.resolve(Constants.SORT_ORDER_FILE_NAME);
+            if (Files.exists(sortOrderPath)) {
+                for (String line : Files.readAllLines(sortOrderPath)) {
+                    String[] parts = line.trim().split(Constants.SPLITTER_REGEX);
+                    if (parts.length > 1) {
+                        List<String> columns = new ArrayList<>();
+                        for (int i = 1; i < parts.length; i++) {
+                            columns.add(parts[i].toLowerCase());
+                        }
+                        storedSortOrders.put(parts[0], columns);
+                    }
+                }
+            }
+
+            statisticsPath = dBPath.resolve(Constants.STATISTICS_FILE_NAME);
+
             //Verify data file exists
             if (Files.exists(dataPath) && Files.isDirectory(dataPath)) {
                 try (Stream<Path> files = Files.list(dataPath)) {
@@ -142,6 +238,30 @@ public class DBCatalog {
 
     }
 
+    /**
+     * Checks whether a directory holds an up-to-date column file for every column of a table.
+     * @param columnDirectory The directory of the table's column files
+     * @param columnNames The names of the table's columns
+     * @param dataFilePath The location of the table's CSV data file
+     * @param extension The file extension of the column files, plain or compressed
+     * @return true if every column file exists and none is older than the CSV file, false otherwise
+     * @throws IOException If the modification times cannot be read
+     */
+    private static boolean hasColumnFiles(Path columnDirectory, Set<String> columnNames, Path dataFilePath,
+                                          String extension) throws IOException {
+        if (!Files.isDirectory(columnDirectory)) {
+            return false;
+        }
+        for (String columnName : columnNames) {
+            Path columnFile = columnDirectory.resolve(columnName + extension);
+            if (!Files.exists(columnFile) || (Files.exists(dataFilePath) &&
+                    Files.getLastModifiedTime(columnFile).compareTo(Files.getLastModifiedTime(dataFilePath)) < 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the file path for a specified table.
      * @param tableName The name of the table
@@ -151,6 +271,417 @@ public class DBCatalog {
         return dBLocations.get(tableName);
     }
 
+    /**
+     * Returns the location of the binary copy of a table's data file.
+     * @param tableName The name of the table
+     * @return The Path of the binary data file, or null if the table has not been converted
+     * or the CSV file is newer than the binary file
+     */
+    public Path getBinaryLocation(String tableName) {
+        return binaryLocations.get(tableName);
+    }
+
+    /**
+     * Returns the directory holding the column files of a table in the columnar layout.
+     * The file of each column is named after the column in lower case.
+     * @param tableName The name of the table
+     * @return The Path of the column directory, or null if the table has not been converted
+     * or the CSV file is newer than the column files
+     */
+    public Path getColumnarLocation(String tableName) {
+        return columnarLocations.get(tableName);
+    }
+
+    /**
+     * Checks whether the column files of a table in the columnar layout are compressed.
+     * @param tableName The name of the table
+     * @return true if the column files are compressed, false if they are plain or the table has not been converted
+     */
+    public boolean isColumnarCompressed(String tableName) {
+        return compressedColumnarTables.contains(tableName);
+    }
+
+    /**
+     * Returns the names of the columns of a table in the order they are stored.
+     * @param tableName The name of the table
+     * @return The lower case column names, by position
+     */
+    public List<String> getColumnNames(String tableName) {
+        Map<String, Integer> schema = dBSchemata.get(tableName);
+        String[] names = new String[schema.size()];
+        for (Map.Entry<String, Integer> entry : schema.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Returns the names of all tables in the database.
+     * @return The table names
+     */
+    public Set<String> getTableNames() {
+        return Collections.unmodifiableSet(dBLocations.keySet());
+    }
+
+    /**
+     * Returns the zone map of a table, reading its sidecar file on first use.
+     * The zone map is kept for the lifetime of the catalog.
+     * @param tableName The name of the table
+     * @return The zone map of the table, or null if the table has no zone map
+     * or the CSV file is newer than the zone map
+     */
+    public synchronized ZoneMap getZoneMap(String tableName) {
+        if (zoneMaps.containsKey(tableName)) {
+            return zoneMaps.get(tableName);
+        }
+
+        ZoneMap zoneMap = null;
+        Path dataFilePath = dBLocations.get(tableName);
+        if (dataFilePath != null) {
+            Path zoneMapPath = getZoneMapPath(dataFilePath);
+            try {
+                if (Files.exists(zoneMapPath) && Files.exists(dataFilePath) &&
+                        Files.getLastModifiedTime(zoneMapPath).compareTo(Files.getLastModifiedTime(dataFilePath)) >= 0) {
+                    zoneMap = ZoneMap.read(zoneMapPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading zone map of table " + tableName + ": " + e.getMessage());
+            }
+        }
+
+        zoneMaps.put(tableName, zoneMap);
+        return zoneMap;
+    }
+
+    /**
+     * Replaces the zone map of a table, after {@link TableAppender} has extended it.
+     * @param tableName The name of the table
+     * @param zoneMap The zone map of the table, or null if the table has no up-to-date zone map
+     */
+    public synchronized void setZoneMap(String tableName, ZoneMap zoneMap) {
+        zoneMaps.put(tableName, zoneMap);
+    }
+
+    /**
+     * Returns the location of the zone map sidecar file of a data file.
+     * @param dataFilePath The location of a table's CSV data file
+     * @return The Path of the zone map file next to the data file
+     */
+    public static Path getZoneMapPath(Path dataFilePath) {
+        String fileName = dataFilePath.getFileName().toString();
+        String tableName = fileName.endsWith(".csv") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        return dataFilePath.resolveSibling(tableName + Constants.ZONE_MAP_FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the columns the rows of a table's data file are sorted on, as recorded by
+     * {@link TableClusterer}. The order is only trusted if the sort order file is not older than
+     * the CSV file, since any later change to the data file may have broken it; it is checked
+     * on first use and kept for the lifetime of the catalog.
+     * Recorded columns which are not in the schema of the table end the order.
+     * @param tableName The name of the table
+     * @return The lowercase names of the sort columns in order of precedence, or an empty list
+     * if the table is not known to be sorted
+     */
+    public synchronized List<String> getSortOrder(String tableName) {
+        if (sortOrders.containsKey(tableName)) {
+            return sortOrders.get(tableName);
+        }
+
+        List<String> sortOrder = new ArrayList<>();
+        Path dataFilePath = dBLocations.get(tableName);
+        if (storedSortOrders.containsKey(tableName) && dataFilePath != null) {
+            try {
+                if (Files.exists(sortOrderPath) && Files.exists(dataFilePath) &&
+                        Files.getLastModifiedTime(sortOrderPath).compareTo(Files.getLastModifiedTime(dataFilePath)) >= 0) {
+                    for (String columnName : storedSortOrders.get(tableName)) {
+                        if (!columnExists(tableName, columnName)) {
+                            break;
+                        }
+                        sortOrder.add(columnName);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading sort order of table " + tableName + ": " + e.getMessage());
+            }
+        }
+
+        sortOrder = Collections.unmodifiableList(sortOrder);
+        sortOrders.put(tableName, sortOrder);
+        return sortOrder;
+    }
+
+    /**
+     * Replaces the sort order of a table, after {@link TableClusterer} has recorded a new one.
+     * @param tableName The name of the table
+     * @param columnNames The sort columns in order of precedence, or an empty list if the table is not sorted
+     */
+    public synchronized void setSortOrder(String tableName, List<String> columnNames) {
+        List<String> sortOrder = new ArrayList<>();
+        for (String columnName : columnNames) {
+            sortOrder.add(columnName.toLowerCase());
+        }
+        sortOrders.put(tableName, Collections.unmodifiableList(sortOrder));
+    }
+
+    /**
+     * Returns the location of the sort order file of the database holding a data file.
+     * @param dataFilePath The location of a table's CSV data file
+     * @return The Path of the sort order file next to the schema file
+     */
+    public static Path getSortOrderPath(Path dataFilePath) {
+        return dataFilePath.toAbsolutePath().getParent().resolveSibling(Constants.SORT_ORDER_FILE_NAME);
+    }
+
+    /**
+     * Returns the statistics of a table collected by {@link TableAnalyzer}. The statistics file
+     * is read on the first call, and the statistics of a table are only trusted if the file is
+     * not older than the CSV file, since the data may have changed since the table was analyzed.
+     * The statistics are kept for the lifetime of the catalog.
+     * @param tableName The name of the table
+     * @return The statistics of the table, or null if the table has not been analyzed
+     * or the CSV file is newer than the statistics
+     */
+    public synchronized TableStatistics getTableStatistics(String tableName) {
+        if (tableStatistics.containsKey(tableName)) {
+            return tableStatistics.get(tableName);
+        }
+
+        TableStatistics statistics = null;
+        Path dataFilePath = dBLocations.get(tableName);
+        try {
+            if (storedStatistics == null) {
+                storedStatistics = Files.exists(statisticsPath)
+                        ? TableStatistics.parse(Files.readAllLines(statisticsPath)) : new HashMap<>();
+            }
+            if (storedStatistics.containsKey(tableName) && dataFilePath != null && Files.exists(dataFilePath) &&
+                    Files.getLastModifiedTime(statisticsPath).compareTo(Files.getLastModifiedTime(dataFilePath)) >= 0) {
+                statistics = storedStatistics.get(tableName);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading statistics of table " + tableName + ": " + e.getMessage());
+            storedStatistics = new HashMap<>();
+        }
+
+        tableStatistics.put(tableName, statistics);
+        return statistics;
+    }
+
+    /**
+     * Replaces the statistics of a table, after {@link TableAnalyzer} has recorded new ones.
+     * The row count estimate of the table is replaced as well.
+     * @param tableName The name of the table
+     * @param statistics The statistics of the table
+     */
+    public synchronized void setTableStatistics(String tableName, TableStatistics statistics) {
+        tableStatistics.put(tableName, statistics);
+        estimatedRowCounts.remove(tableName);
+    }
+
+    /**
+     * Returns the statistics of a column of a table collected by {@link TableAnalyzer}.
+     * @param tableName The name of the table
+     * @param columnName The name of the column
+     * @return The statistics of the column, or null if the table has no up-to-date statistics
+     */
+    public ColumnStatistics getColumnStatistics(String tableName, String columnName) {
+        TableStatistics statistics = getTableStatistics(tableName);
+        return statistics == null ? null : statistics.getColumnStatistics(columnName);
+    }
+
+    /**
+     * Returns the location of the statistics file of the database holding a data file.
+     * @param dataFilePath The location of a table's CSV data file
+     * @return The Path of the statistics file next to the schema file
+     */
+    public static Path getStatisticsPath(Path dataFilePath) {
+        return dataFilePath.toAbsolutePath().getParent().resolveSibling(Constants.STATISTICS_FILE_NAME);
+    }
+
+    /**
+     * Returns the B+tree index on a column of a table, opening its index file on first use.
+     * The index is kept for the lifetime of the catalog.
+     * @param tableName The name of the table
+     * @param columnName The name of the indexed column
+     * @return The index on the column, or null if the column has no index
+     * or the CSV file is newer than the index
+     */
+    public synchronized BPlusTreeIndex getBPlusTreeIndex(String tableName, String columnName) {
+        if (!columnExists(tableName, columnName)) {
+            return null;
+        }
+
+        String key = tableName + "." + columnName.toLowerCase();
+        if (!bPlusTreeIndexes.containsKey(key)) {
+            Path indexPath = getIndexPath(dBLocations.get(tableName), columnName);
+            BPlusTreeIndex index = null;
+            try {
+                if (isIndexUpToDate(tableName, indexPath)) {
+                    index = BPlusTreeIndex.open(indexPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading index on " + key + ": " + e.getMessage());
+            }
+            bPlusTreeIndexes.put(key, index);
+        }
+        return bPlusTreeIndexes.get(key);
+    }
+
+    /**
+     * Returns the hash index on a column of a table, opening its index file on first use.
+     * The index is kept for the lifetime of the catalog.
+     * @param tableName The name of the table
+     * @param columnName The name of the indexed column
+     * @return The index on the column, or null if the column has no hash index
+     * or the CSV file is newer than the index
+     */
+    public synchronized HashIndex getHashIndex(String tableName, String columnName) {
+        if (!columnExists(tableName, columnName)) {
+            return null;
+        }
+
+        String key = tableName + "." + columnName.toLowerCase();
+        if (!hashIndexes.containsKey(key)) {
+            Path indexPath = getHashIndexPath(dBLocations.get(tableName), columnName);
+            HashIndex index = null;
+            try {
+                if (isIndexUpToDate(tableName, indexPath)) {
+                    index = HashIndex.open(indexPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading hash index on " + key + ": " + e.getMessage());
+            }
+            hashIndexes.put(key, index);
+        }
+        return hashIndexes.get(key);
+    }
+
+    /**
+     * Replaces the B+tree index on a column of a table, after {@link TableAppender} has added rows to it.
+     * @param tableName The name of the table
+     * @param columnName The name of the indexed column
+     * @param index The index on the column, or null if the column has no up-to-date index
+     */
+    public synchronized void setBPlusTreeIndex(String tableName, String columnName, BPlusTreeIndex index) {
+        bPlusTreeIndexes.put(tableName + "." + columnName.toLowerCase(), index);
+    }
+
+    /**
+     * Replaces the hash index on a column of a table, after {@link TableAppender} has added rows to it.
+     * @param tableName The name of the table
+     * @param columnName The name of the indexed column
+     * @param index The index on the column, or null if the column has no up-to-date hash index
+     */
+    public synchronized void setHashIndex(String tableName, String columnName, HashIndex index) {
+        hashIndexes.put(tableName + "." + columnName.toLowerCase(), index);
+    }
+
+    /**
+     * Forgets the metadata of a table derived from its data file which is not maintained when
+     * rows are appended to it: the binary and columnar copies, which are no longer preferred for
+     * scans until they are converted again, and the row count estimate.
+     * @param tableName The name of the table
+     */
+    public synchronized void dropDerivedData(String tableName) {
+        binaryLocations.remove(tableName);
+        columnarLocations.remove(tableName);
+        compressedColumnarTables.remove(tableName);
+        estimatedRowCounts.remove(tableName);
+    }
+
+    /**
+     * Returns the persistent index used to look up the rows of a table by their value in a column:
+     * a hash index if there is one, otherwise a B+tree index.
+     * @param tableName The name of the table
+     * @param columnName The name of the indexed column
+     * @return The index on the column, or null if the column has no up-to-date index file
+     */
+    public LookupIndex getLookupIndex(String tableName, String columnName) {
+        LookupIndex index = getHashIndex(tableName, columnName);
+        return index != null ? index : getBPlusTreeIndex(tableName, columnName);
+    }
+
+    /**
+     * Checks whether an index file existed when the catalog was loaded and is not older than the CSV file.
+     * @param tableName The name of the indexed table
+     * @param indexPath The location of the index file
+     * @return true if the index can be used, false otherwise
+     * @throws IOException If the modification times cannot be read
+     */
+    private boolean isIndexUpToDate(String tableName, Path indexPath) throws IOException {
+        Path dataFilePath = dBLocations.get(tableName);
+        return indexFileNames.contains(indexPath.getFileName().toString())
+                && Files.exists(indexPath) && Files.exists(dataFilePath)
+                && Files.getLastModifiedTime(indexPath).compareTo(Files.getLastModifiedTime(dataFilePath)) >= 0;
+    }
+
+    /**
+     * Returns the location of the B+tree index file on a column of a data file.
+     * @param dataFilePath The location of a table's CSV data file
+     * @param columnName The name of the indexed column
+     * @return The Path of the index file in the indexes directory of the database
+     */
+    public static Path getIndexPath(Path dataFilePath, String columnName) {
+        return getIndexFilePath(dataFilePath, columnName, Constants.INDEX_FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the location of the hash index file on a column of a data file.
+     * @param dataFilePath The location of a table's CSV data file
+     * @param columnName The name of the indexed column
+     * @return The Path of the index file in the indexes directory of the database
+     */
+    public static Path getHashIndexPath(Path dataFilePath, String columnName) {
+        return getIndexFilePath(dataFilePath, columnName, Constants.HASH_INDEX_FILE_EXTENSION);
+    }
+
+    private static Path getIndexFilePath(Path dataFilePath, String columnName, String extension) {
+        String fileName = dataFilePath.getFileName().toString();
+        String tableName = fileName.endsWith(".csv") ? fileName.substring(0, fileName.length() - 4) : fileName;
+        return dataFilePath.toAbsolutePath().getParent().resolveSibling(Constants.INDEX_DIRECTORY_NAME)
+                .resolve(tableName + "." + columnName.toLowerCase() + extension);
+    }
+
+    /**
+     * Estimates the number of rows in a table without reading the whole data file.
+     * The row count of an analyzed table is taken from its statistics; otherwise, the size of
+     * the data file is divided by the average row length of its first rows.
+     * @param tableName The name of the table
+     * @return The estimated number of rows, or 0 if the table is empty or cannot be read
+     */
+    public synchronized long estimateRowCount(String tableName) {
+        Long cached = estimatedRowCounts.get(tableName);
+        if (cached != null) {
+            return cached;
+        }
+
+        TableStatistics statistics = getTableStatistics(tableName);
+        if (statistics != null) {
+            estimatedRowCounts.put(tableName, statistics.getRowCount());
+            return statistics.getRowCount();
+        }
+
+        long estimate = 0;
+        Path tablePath = dBLocations.get(tableName);
+        try (BufferedReader reader = Files.newBufferedReader(tablePath)) {
+            long sampledBytes = 0;
+            int sampledRows = 0;
+            String line;
+            while (sampledRows < 100 && (line = reader.readLine()) != null) {
+                sampledBytes += line.length() + 1; // include the line separator
+                sampledRows++;
+            }
+
+            if (sampledRows > 0) {
+                estimate = Math.max(sampledRows, Math.round((double) Files.size(tablePath) * sampledRows / sampledBytes));
+            }
+        } catch (Exception e) {
+            System.err.println("Error estimating size of table " + tableName + ": " + e.getMessage());
+        }
+
+        estimatedRowCounts.put(tableName, estimate);
+        return estimate;
+    }
 
     /**
      * Returns the schema mapping for a specified table.
@@ -240,7 +771,6 @@ public class DBCatalog {
 
         // Track column origins for the new schema
         Map<String, String> originMap = new HashMap<>();
-        columnOriginMap.put(schemaId, originMap);
 
         // For each column in the new schema, record its origin
         for (Map.Entry<String, String> detail : transformationDetails.entrySet()) {
@@ -248,6 +778,7 @@ public class DBCatalog {
                 originMap.put(detail.getKey(), detail.getKey()); // Self-reference for existing qualified names
             }
         }
+        columnOriginMap.put(schemaId, originMap);
 
         return schemaId;
     }
@@ -270,7 +801,7 @@ public class DBCatalog {
      * @param parentSchemaId The parent schema ID to add
      */
     public void addParentSchema(String childSchemaId, String parentSchemaId) {
-        schemaMultiParentMap.computeIfAbsent(childSchemaId, k -> new ArrayList<>())
+        schemaMultiParentMap.computeIfAbsent(childSchemaId, k -> new CopyOnWriteArrayList<>())
                 .add(parentSchemaId);
     }
 
@@ -0,0 +1,537 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The HashIndex class is an on-disk linear hash index on an integer column of a table, mapping
+ * every value of the column to the byte offsets of the rows holding it in the CSV data file.
+ * It answers equality lookups with a single bucket read, e.g. for id lookups and the probes
+ * of index nested loop joins, but cannot answer range queries, see {@link BPlusTreeIndex}.
+ * Keys are assigned to buckets by linear hashing: with level L and split pointer S, a key
+ * goes to bucket h mod 2^L, or to bucket h mod 2^(L+1) if that is below S, where h is the hash
+ * of the key. The number of buckets is chosen by {@link IndexBuilder} so that buckets are
+ * about INDEX_HASH_FILL_FACTOR full, which fixes L and S.
+ * The index file consists of pages of Constants.BINARY_PAGE_SIZE bytes, read through the
+ * {@link BufferPool}:
+ * - Page 0 is the header: level, split pointer, number of buckets, entries and distinct keys,
+ *   indexed column and number of pages.
+ * - Page 1 + b is the primary page of bucket b. Its (key, offset) entries are sorted by key and
+ *   then by offset; a bucket holding more entries than fit into a page continues on overflow
+ *   pages, which follow the primary pages in the file.
+ * The header is read when the index is opened; bucket pages are read on lookup.
+ * Rows appended to the table are added by {@link #insert(int[], long[])}, which splits buckets
+ * one at a time as linear hashing does. Pages left over by a bucket whose chain got shorter are
+ * marked free with an entry count of -1, and are only reclaimed when the index is built again.
+ */
+public class HashIndex implements LookupIndex {
+
+    // Entry count and next overflow page
+    private static final int PAGE_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+
+    /** Number of entries of a full bucket page */
+    public static final int BUCKET_CAPACITY = (Constants.BINARY_PAGE_SIZE - PAGE_HEADER_SIZE) / ENTRY_SIZE;
+
+    private final Path indexPath;
+    private final int level;
+    private final int splitPointer;
+    private final int bucketCount;
+    private final long entryCount;
+    private final long distinctKeyCount;
+    private final int columnIndex;
+    private final int pageCount;
+
+    /**
+     * Constructs an index from the values of its header page.
+     */
+    private HashIndex(Path indexPath, int level, int splitPointer, int bucketCount, long entryCount,
+                      long distinctKeyCount, int columnIndex, int pageCount) {
+        this.indexPath = indexPath;
+        this.level = level;
+        this.splitPointer = splitPointer;
+        this.bucketCount = bucketCount;
+        this.entryCount = entryCount;
+        this.distinctKeyCount = distinctKeyCount;
+        this.columnIndex = columnIndex;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Opens an index file, reading only its header page.
+     * @param indexPath The location of the index file.
+     * @return The index.
+     * @throws IOException If the file cannot be read.
+     */
+    public static HashIndex open(Path indexPath) throws IOException {
+        BufferPool.getInstance().refresh(indexPath);
+        ByteBuffer header = BufferPool.getInstance().pinPage(indexPath, 0);
+        if (header == null) {
+            throw new IOException("Empty index file " + indexPath);
+        }
+        try {
+            return new HashIndex(indexPath, header.getInt(0), header.getInt(4), header.getInt(8),
+                    header.getLong(12), header.getLong(20), header.getInt(28), header.getInt(32));
+        } finally {
+            BufferPool.getInstance().unpinPage(header);
+        }
+    }
+
+    /**
+     * Builds an index on a column of a CSV data file and writes it to the index file.
+     * @param csvPath The location of the CSV data file.
+     * @param columnIndex The position of the indexed column.
+     * @param indexPath The location of the index file.
+     * @return The index.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static HashIndex build(Path csvPath, int columnIndex, Path indexPath) throws IOException {
+        List<Long> rowOffsets = new ArrayList<>();
+        List<Integer> rowKeys = new ArrayList<>();
+        BPlusTreeIndex.readRows(csvPath, columnIndex, rowKeys, rowOffsets);
+        int rows = rowKeys.size();
+
+        // Size the table for the fill factor; the level is the largest power of two not above it
+        int bucketCount = (int) Math.max(1, Math.ceil(rows / (BUCKET_CAPACITY * Constants.INDEX_HASH_FILL_FACTOR)));
+        int level = 31 - Integer.numberOfLeadingZeros(bucketCount);
+        int splitPointer = bucketCount - (1 << level);
+
+        // Group the rows by bucket, keeping file order, then sort every bucket by key;
+        // the sort is stable, so equal keys keep their offsets in file order
+        int[] bucketStarts = new int[bucketCount + 1];
+        int[] buckets = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            buckets[i] = bucketOf(rowKeys.get(i), level, splitPointer);
+            bucketStarts[buckets[i] + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            bucketStarts[b + 1] += bucketStarts[b];
+        }
+        int[] order = new int[rows];
+        int[] next = Arrays.copyOf(bucketStarts, bucketCount);
+        for (int i = 0; i < rows; i++) {
+            order[next[buckets[i]]++] = i;
+        }
+
+        int[] keys = new int[rows];
+        long[] offsets = new long[rows];
+        long distinctKeys = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            int start = bucketStarts[b];
+            long[] sortKeys = new long[bucketStarts[b + 1] - start];
+            for (int i = 0; i < sortKeys.length; i++) {
+                sortKeys[i] = (long) rowKeys.get(order[start + i]) << 32 | i;
+            }
+            Arrays.sort(sortKeys);
+            for (int i = 0; i < sortKeys.length; i++) {
+                int row = order[start + (int) sortKeys[i]];
+                keys[start + i] = rowKeys.get(row);
+                offsets[start + i] = rowOffsets.get(row);
+                if (i == 0 || keys[start + i] != keys[start + i - 1]) {
+                    distinctKeys++;
+                }
+            }
+        }
+
+        Files.createDirectories(indexPath.toAbsolutePath().getParent());
+        write(indexPath, keys, offsets, bucketStarts, level, splitPointer, distinctKeys, columnIndex);
+        return open(indexPath);
+    }
+
+    /**
+     * Writes the primary page of every bucket, the overflow pages after them, and the header page.
+     */
+    private static void write(Path indexPath, int[] keys, long[] offsets, int[] bucketStarts, int level,
+                              int splitPointer, long distinctKeys, int columnIndex) throws IOException {
+        int bucketCount = bucketStarts.length - 1;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer page = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            int nextOverflowPage = 1 + bucketCount;
+
+            for (int b = 0; b < bucketCount; b++) {
+                int pageNumber = 1 + b;
+                int start = bucketStarts[b];
+                int end = bucketStarts[b + 1];
+                do {
+                    int count = Math.min(BUCKET_CAPACITY, end - start);
+                    int overflowPage = start + count < end ? nextOverflowPage++ : -1;
+                    page.clear();
+                    Arrays.fill(page.array(), (byte) 0);
+                    page.putInt(count);
+                    page.putInt(overflowPage);
+                    for (int i = start; i < start + count; i++) {
+                        page.putInt(keys[i]);
+                        page.putLong(offsets[i]);
+                    }
+                    writePage(channel, page, pageNumber);
+                    start += count;
+                    pageNumber = overflowPage;
+                } while (pageNumber != -1);
+            }
+
+            writeHeader(channel, page, level, splitPointer, bucketCount, keys.length, distinctKeys, columnIndex,
+                    nextOverflowPage);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, ByteBuffer page, int level, int splitPointer, int bucketCount,
+                                    long entryCount, long distinctKeys, int columnIndex, int pageCount) throws IOException {
+        page.clear();
+        Arrays.fill(page.array(), (byte) 0);
+        page.putInt(level);
+        page.putInt(splitPointer);
+        page.putInt(bucketCount);
+        page.putLong(entryCount);
+        page.putLong(distinctKeys);
+        page.putInt(columnIndex);
+        page.putInt(pageCount);
+        writePage(channel, page, 0);
+    }
+
+    private static void writePage(FileChannel channel, ByteBuffer page, int pageNumber) throws IOException {
+        page.clear();
+        long position = (long) pageNumber * Constants.BINARY_PAGE_SIZE;
+        while (page.hasRemaining()) {
+            position += channel.write(page, position);
+        }
+    }
+
+    private static void readPage(FileChannel channel, ByteBuffer page, int pageNumber) throws IOException {
+        page.clear();
+        long position = (long) pageNumber * Constants.BINARY_PAGE_SIZE;
+        while (page.hasRemaining()) {
+            int read = channel.read(page, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of index file at page " + pageNumber);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Adds the entries of rows appended to the data file to the index, updating the index file in place.
+     * First, buckets are split until they are about INDEX_HASH_FILL_FACTOR full again: the bucket
+     * at the split pointer is divided between itself and a new bucket by one more bit of the hash.
+     * The primary page of the new bucket follows the last primary page; an overflow page in the
+     * way is moved to the end of the file. Then every bucket receiving new entries is merged with
+     * them. Only the chains of the split buckets and of the buckets receiving entries are read and
+     * written, so appending a few rows to a large index touches a few pages.
+     * @param keys The keys of the appended rows, in file order.
+     * @param offsets The byte offsets of the appended rows, which follow every indexed row.
+     * @return The index holding the new entries.
+     * @throws IOException If the index file cannot be read or written.
+     */
+    public HashIndex insert(int[] keys, long[] offsets) throws IOException {
+        if (keys.length == 0) {
+            return this;
+        }
+
+        int level = this.level;
+        int splitPointer = this.splitPointer;
+        int bucketCount = this.bucketCount;
+        int pageCount = this.pageCount;
+        long entries = entryCount + keys.length;
+        long distinctKeys = distinctKeyCount;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer page = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+
+            int targetBuckets = (int) Math.max(1, Math.ceil(entries / (BUCKET_CAPACITY * Constants.INDEX_HASH_FILL_FACTOR)));
+            while (bucketCount < targetBuckets) {
+                int newPrimaryPage = 1 + bucketCount;
+                if (newPrimaryPage == pageCount) {
+                    pageCount++;
+                } else {
+                    readPage(channel, page, newPrimaryPage);
+                    if (page.getInt(0) > 0) {
+                        // Move the overflow page to the end of the file, and link its predecessor to the copy
+                        writePage(channel, page, pageCount);
+                        int previousPage = 1 + bucketOf(page.getInt(PAGE_HEADER_SIZE), level, splitPointer);
+                        readPage(channel, page, previousPage);
+                        while (page.getInt(4) != newPrimaryPage) {
+                            previousPage = page.getInt(4);
+                            readPage(channel, page, previousPage);
+                        }
+                        page.putInt(4, pageCount++);
+                        writePage(channel, page, previousPage);
+                    }
+                }
+
+                // The entries of the split bucket stay sorted in both buckets
+                List<Integer> chainPages = new ArrayList<>();
+                List<Integer> chainKeys = new ArrayList<>();
+                List<Long> chainOffsets = new ArrayList<>();
+                readChain(channel, page, splitPointer, chainPages, chainKeys, chainOffsets);
+                List<Integer> stayKeys = new ArrayList<>();
+                List<Long> stayOffsets = new ArrayList<>();
+                List<Integer> moveKeys = new ArrayList<>();
+                List<Long> moveOffsets = new ArrayList<>();
+                for (int i = 0; i < chainKeys.size(); i++) {
+                    boolean stays = (hash(chainKeys.get(i)) & ((1 << (level + 1)) - 1)) == splitPointer;
+                    (stays ? stayKeys : moveKeys).add(chainKeys.get(i));
+                    (stays ? stayOffsets : moveOffsets).add(chainOffsets.get(i));
+                }
+                pageCount = writeChain(channel, page, chainPages, stayKeys, stayOffsets, pageCount);
+                pageCount = writeChain(channel, page, new ArrayList<>(Collections.singletonList(newPrimaryPage)),
+                        moveKeys, moveOffsets, pageCount);
+
+                bucketCount++;
+                if (++splitPointer == 1 << level) {
+                    level++;
+                    splitPointer = 0;
+                }
+            }
+
+            // Group the new entries by bucket, sorted by key; ordinals keep equal keys in file order
+            Map<Integer, List<Long>> bucketEntries = new TreeMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                bucketEntries.computeIfAbsent(bucketOf(keys[i], level, splitPointer), b -> new ArrayList<>())
+                        .add((long) keys[i] << 32 | i);
+            }
+            for (Map.Entry<Integer, List<Long>> bucket : bucketEntries.entrySet()) {
+                List<Long> newEntries = bucket.getValue();
+                Collections.sort(newEntries);
+
+                List<Integer> chainPages = new ArrayList<>();
+                List<Integer> chainKeys = new ArrayList<>();
+                List<Long> chainOffsets = new ArrayList<>();
+                readChain(channel, page, bucket.getKey(), chainPages, chainKeys, chainOffsets);
+
+                // Merge, the existing entries first on equal keys since the new rows follow them;
+                // every entry of a key is in this bucket, so the change in its distinct keys is exact
+                List<Integer> mergedKeys = new ArrayList<>();
+                List<Long> mergedOffsets = new ArrayList<>();
+                int existing = 0;
+                for (long newEntry : newEntries) {
+                    int key = (int) (newEntry >> 32);
+                    while (existing < chainKeys.size() && chainKeys.get(existing) <= key) {
+                        mergedKeys.add(chainKeys.get(existing));
+                        mergedOffsets.add(chainOffsets.get(existing++));
+                    }
+                    mergedKeys.add(key);
+                    mergedOffsets.add(offsets[(int) newEntry]);
+                }
+                mergedKeys.addAll(chainKeys.subList(existing, chainKeys.size()));
+                mergedOffsets.addAll(chainOffsets.subList(existing, chainOffsets.size()));
+                distinctKeys += countDistinct(mergedKeys) - countDistinct(chainKeys);
+
+                pageCount = writeChain(channel, page, chainPages, mergedKeys, mergedOffsets, pageCount);
+            }
+
+            writeHeader(channel, page, level, splitPointer, bucketCount, entries, distinctKeys, columnIndex, pageCount);
+        }
+        return open(indexPath);
+    }
+
+    /**
+     * Reads the pages and entries of the chain of a bucket.
+     * @param channel The index file.
+     * @param page A page sized buffer.
+     * @param bucket The bucket number.
+     * @param chainPages Receives the primary page and overflow pages of the bucket in chain order.
+     * @param keys Receives the keys of the entries in the order they are stored.
+     * @param offsets Receives the offsets of the entries.
+     * @throws IOException If the file cannot be read.
+     */
+    private static void readChain(FileChannel channel, ByteBuffer page, int bucket, List<Integer> chainPages,
+                                  List<Integer> keys, List<Long> offsets) throws IOException {
+        int pageNumber = 1 + bucket;
+        while (pageNumber != -1) {
+            readPage(channel, page, pageNumber);
+            chainPages.add(pageNumber);
+            int count = page.getInt(0);
+            for (int slot = 0; slot < count; slot++) {
+                keys.add(page.getInt(PAGE_HEADER_SIZE + slot * ENTRY_SIZE));
+                offsets.add(page.getLong(PAGE_HEADER_SIZE + slot * ENTRY_SIZE + Integer.BYTES));
+            }
+            pageNumber = page.getInt(4);
+        }
+    }
+
+    /**
+     * Writes the sorted entries of a bucket over the pages of its chain, adding overflow pages at
+     * the end of the file if they do not fit, and marking the pages no longer needed free.
+     * @param channel The index file.
+     * @param page A page sized buffer.
+     * @param chainPages The pages of the chain, starting with the primary page of the bucket.
+     * @param keys The sorted keys.
+     * @param offsets The offset of the row of every key.
+     * @param pageCount The number of pages of the file.
+     * @return The number of pages of the file after the chain was written.
+     * @throws IOException If the file cannot be written.
+     */
+    private static int writeChain(FileChannel channel, ByteBuffer page, List<Integer> chainPages, List<Integer> keys,
+                                  List<Long> offsets, int pageCount) throws IOException {
+        int pagesNeeded = Math.max(1, (keys.size() + BUCKET_CAPACITY - 1) / BUCKET_CAPACITY);
+        while (chainPages.size() < pagesNeeded) {
+            chainPages.add(pageCount++);
+        }
+        for (int i = 0; i < chainPages.size(); i++) {
+            page.clear();
+            Arrays.fill(page.array(), (byte) 0);
+            if (i < pagesNeeded) {
+                int start = i * BUCKET_CAPACITY;
+                int count = Math.min(BUCKET_CAPACITY, keys.size() - start);
+                page.putInt(count);
+                page.putInt(i + 1 < pagesNeeded ? chainPages.get(i + 1) : -1);
+                for (int entry = start; entry < start + count; entry++) {
+                    page.putInt(keys.get(entry));
+                    page.putLong(offsets.get(entry));
+                }
+            } else {
+                page.putInt(-1);
+                page.putInt(-1);
+            }
+            writePage(channel, page, chainPages.get(i));
+        }
+        return pageCount;
+    }
+
+    private static int countDistinct(List<Integer> sortedKeys) {
+        int distinct = 0;
+        for (int i = 0; i < sortedKeys.size(); i++) {
+            if (i == 0 || !sortedKeys.get(i).equals(sortedKeys.get(i - 1))) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Scrambles the bits of a key, so that consecutive keys are spread over the buckets.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the bucket of a key by linear hashing.
+     * @param key The key.
+     * @param level The number of hash bits used by buckets which have not been split in this round.
+     * @param splitPointer The number of buckets which have been split in this round.
+     * @return The bucket number.
+     */
+    private static int bucketOf(int key, int level, int splitPointer) {
+        int h = hash(key);
+        int bucket = h & ((1 << level) - 1);
+        if (bucket < splitPointer) {
+            bucket = h & ((1 << (level + 1)) - 1);
+        }
+        return bucket;
+    }
+
+    /**
+     * Looks up the rows with the given key, reading its bucket and the bucket's overflow pages.
+     * @param key The value to look up.
+     * @return The byte offsets of the matching rows in file order, or an empty list if there are none.
+     * @throws RuntimeException If the index file cannot be read.
+     */
+    @Override
+    public List<Long> lookup(int key) {
+        List<Long> offsets = new ArrayList<>();
+        BufferPool pool = BufferPool.getInstance();
+        int pageNumber = 1 + bucketOf(key, level, splitPointer);
+        try {
+            while (pageNumber != -1) {
+                ByteBuffer page = pool.pinPage(indexPath, pageNumber);
+                try {
+                    int count = page.getInt(0);
+
+                    // Binary search for the first entry with the key
+                    int low = 0;
+                    int high = count;
+                    while (low < high) {
+                        int mid = (low + high) >>> 1;
+                        if (page.getInt(PAGE_HEADER_SIZE + mid * ENTRY_SIZE) < key) {
+                            low = mid + 1;
+                        } else {
+                            high = mid;
+                        }
+                    }
+                    for (int slot = low; slot < count; slot++) {
+                        int entry = PAGE_HEADER_SIZE + slot * ENTRY_SIZE;
+                        if (page.getInt(entry) != key) {
+                            return offsets; // the bucket is sorted, so no later page holds the key
+                        }
+                        offsets.add(page.getLong(entry + Integer.BYTES));
+                    }
+                    pageNumber = page.getInt(4);
+                } finally {
+                    pool.unpinPage(page);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading index " + indexPath + ": " + e.getMessage(), e);
+        }
+        return offsets;
+    }
+
+    /**
+     * Estimates the fraction of the rows of the table holding a key, assuming the rows are
+     * spread evenly over the distinct keys.
+     * @return The fraction of rows per key between 0 and 1, 0 for an empty table.
+     */
+    public double estimateSelectivity() {
+        return distinctKeyCount == 0 ? 0 : 1.0 / distinctKeyCount;
+    }
+
+    /**
+     * Get the location of the index file.
+     * @return The Path of the index file.
+     */
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    /**
+     * Get the position of the indexed column in the table.
+     * @return The column position.
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Get the number of buckets.
+     * @return The number of primary bucket pages.
+     */
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * Get the number of pages after the primary pages: the overflow pages of all buckets, and the
+     * pages freed by bucket splits since the index was built.
+     * @return The number of overflow pages.
+     */
+    public int getOverflowPageCount() {
+        return pageCount - 1 - bucketCount;
+    }
+
+    /**
+     * Get the number of indexed rows.
+     * @return The number of entries.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Get the number of distinct values of the indexed column.
+     * @return The number of distinct keys.
+     */
+    public long getDistinctKeyCount() {
+        return distinctKeyCount;
+    }
+}
@@ -0,0 +1,70 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * The IndexBuilder class builds a B+tree index on an integer column of a table and writes it
+ * to indexes/Table.column.idx in the database directory, or a hash index written to
+ * indexes/Table.column.hash, which only serves equality lookups.
+ * A clustered index first sorts the CSV data file of the table on the column, which makes the
+ * binary and columnar copies, zone map and other indexes of the table out of date; the catalog
+ * ignores them until they are built again. The column is recorded as the sort order of the
+ * table, like {@link TableClusterer} does.
+ * An index older than its CSV file is ignored by the catalog as well, so the builder has to be
+ * run again after the data changes, unless rows were appended by {@link TableAppender}, which
+ * inserts them into the indexes.
+ * Usage: IndexBuilder database_dir table column [clustered | hash]
+ * @see BPlusTreeIndex
+ * @see HashIndex
+ */
+public class IndexBuilder {
+
+    public static void main(String[] args) {
+        String type = args.length > 3 ? args[3].toLowerCase() : "unclustered";
+        if (args.length < 3 || !(type.equals("unclustered") || type.equals("clustered") || type.equals("hash"))) {
+            System.err.println("Usage: IndexBuilder database_dir table column [clustered | hash]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        String tableName = args[1];
+        String columnName = args[2];
+        if (!catalog.tableExists(tableName)) {
+            System.err.println("Table " + tableName + " not found in the database");
+            return;
+        }
+        if (!catalog.columnExists(tableName, columnName)) {
+            System.err.println("Column " + columnName + " not found in table " + tableName);
+            return;
+        }
+
+        Path csvPath = catalog.getDBLocation(tableName);
+        int columnIndex = catalog.getDBSchemata(tableName).get(columnName.toLowerCase());
+        try {
+            if (type.equals("hash")) {
+                Path indexPath = DBCatalog.getHashIndexPath(csvPath, columnName);
+                HashIndex index = HashIndex.build(csvPath, columnIndex, indexPath);
+                System.out.println("Built hash index on " + tableName + "." + columnName + ": "
+                        + index.getEntryCount() + " entries in " + index.getBucketCount() + " buckets and "
+                        + index.getOverflowPageCount() + " overflow pages written to " + indexPath);
+            } else {
+                Path indexPath = DBCatalog.getIndexPath(csvPath, columnName);
+                BPlusTreeIndex index = BPlusTreeIndex.build(csvPath, columnIndex, type.equals("clustered"), indexPath);
+                if (index.isClustered()) {
+                    TableClusterer.recordSortOrder(tableName, Collections.singletonList(columnName.toLowerCase()));
+                }
+                System.out.println("Built " + type + " index on " + tableName + "." + columnName + ": "
+                        + index.getEntryCount() + " entries in " + index.getLeafCount() + " leaves of height "
+                        + index.getHeight() + " written to " + indexPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to build index on " + tableName + "." + columnName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
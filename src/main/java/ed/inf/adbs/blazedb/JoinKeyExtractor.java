@@ -0,0 +1,132 @@
+package ed.inf.adbs.blazedb;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JoinKeyExtractor class is a utility visitor for analysing a join condition
+ * before a join algorithm is chosen for it.
+ * It separates the conjuncts of the condition into:
+ * - Equi-join keys: equalities between a column of the inner table and a column of the outer side
+ * - Residual conditions: every other conjunct, which must still be evaluated on the joined tuple
+ * The equi-join keys are returned as two parallel lists of columns, so that the i-th outer key
+ * column is compared with the i-th inner key column.
+ * This is used by the query planner to decide whether a hash-based join can replace
+ * the tuple nested loop join.
+ * @see ed.inf.adbs.blazedb.operator.HashJoinOperator
+ */
+public class JoinKeyExtractor extends ExpressionVisitorAdapter {
+
+    // The table on the inner (right) side of the join
+    private final String innerTableName;
+
+    private final List<Column> outerKeys = new ArrayList<>();
+    private final List<Column> innerKeys = new ArrayList<>();
+    private final List<Expression> residualConditions = new ArrayList<>();
+
+    /**
+     * Constructs a JoinKeyExtractor for a join whose inner side is the given table.
+     * @param innerTableName The name of the table on the inner (right) side of the join
+     */
+    public JoinKeyExtractor(String innerTableName) {
+        this.innerTableName = innerTableName;
+    }
+
+    /**
+     * Visits an AND expression and processes each of its conjuncts separately.
+     * @param andExpression The AND expression to process
+     */
+    @Override
+    public void visit(AndExpression andExpression) {
+        andExpression.getLeftExpression().accept(this);
+        andExpression.getRightExpression().accept(this);
+    }
+
+    /**
+     * Visits an equals comparison and records it as an equi-join key if it compares
+     * a column of the inner table with a column of another table.
+     * Otherwise, the comparison is kept as a residual condition.
+     * @param equalsTo The equals comparison to process
+     */
+    @Override
+    public void visit(EqualsTo equalsTo) {
+        Expression left = equalsTo.getLeftExpression();
+        Expression right = equalsTo.getRightExpression();
+
+        if (left instanceof Column && right instanceof Column) {
+            Column leftColumn = (Column) left;
+            Column rightColumn = (Column) right;
+            String leftTable = leftColumn.getTable().getName();
+            String rightTable = rightColumn.getTable().getName();
+
+            if (innerTableName.equals(rightTable) && !innerTableName.equals(leftTable)) {
+                outerKeys.add(leftColumn);
+                innerKeys.add(rightColumn);
+                return;
+            }
+            if (innerTableName.equals(leftTable) && !innerTableName.equals(rightTable)) {
+                outerKeys.add(rightColumn);
+                innerKeys.add(leftColumn);
+                return;
+            }
+        }
+
+        residualConditions.add(equalsTo);
+    }
+
+    /**
+     * Any other comparison cannot be used as a hash key and is kept as a residual condition.
+     * @param expression The binary expression to process
+     */
+    @Override
+    public void visitBinaryExpression(BinaryExpression expression) {
+        residualConditions.add(expression);
+    }
+
+    /**
+     * Checks whether at least one equi-join key was found.
+     * @return true if the condition contains an equality between the two sides, false otherwise
+     */
+    public boolean hasEquiJoinKeys() {
+        return !innerKeys.isEmpty();
+    }
+
+    /**
+     * Returns the key columns belonging to the outer side of the join.
+     * @return A list of outer key columns, parallel to {@link #getInnerKeys()}
+     */
+    public List<Column> getOuterKeys() {
+        return outerKeys;
+    }
+
+    /**
+     * Returns the key columns belonging to the inner table of the join.
+     * @return A list of inner key columns, parallel to {@link #getOuterKeys()}
+     */
+    public List<Column> getInnerKeys() {
+        return innerKeys;
+    }
+
+    /**
+     * Returns the conjuncts that are not equi-join keys, combined with AND.
+     * @return The residual condition, or null if every conjunct is an equi-join key
+     */
+    public Expression getResidualCondition() {
+        if (residualConditions.isEmpty()) {
+            return null;
+        }
+
+        Expression result = residualConditions.get(0);
+        for (int i = 1; i < residualConditions.size(); i++) {
+            result = new AndExpression(result, residualConditions.get(i));
+        }
+        return result;
+    }
+}
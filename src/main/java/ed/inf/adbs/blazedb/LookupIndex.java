@@ -0,0 +1,18 @@
+package ed.inf.adbs.blazedb;
+
+import java.util.List;
+
+/**
+ * Interface of the indexes which find the rows of a table holding a value in a column.
+ * Implemented by the on-disk {@link HashIndex} and {@link BPlusTreeIndex}, so that index nested
+ * loop joins and point lookups can use either of them.
+ */
+public interface LookupIndex {
+
+    /**
+     * Looks up the rows with the given value in the indexed column.
+     * @param key The value to look up.
+     * @return The byte offsets of the matching rows in the data file, in file order.
+     */
+    List<Long> lookup(int key);
+}
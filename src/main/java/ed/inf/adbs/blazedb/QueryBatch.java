@@ -0,0 +1,100 @@
+package ed.inf.adbs.blazedb;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.SharedScanOperator;
+
+/**
+ * The QueryBatch class runs a batch of queries over the same database concurrently, each on its
+ * own thread, and writes the result of each query to its own output file.
+ * While the batch runs, the CSV data files of large tables are read by shared scans: the queries
+ * of the batch scanning the same table attach to a single pass over its data file, instead of
+ * each reading the whole file, see {@link SharedScanOperator}.
+ * The queries are planned one after another before any of them starts, and then executed
+ * together; a query whose plan fails is skipped, and the others still run.
+ * Usage: QueryBatch database_dir output_dir query_file...
+ * The result of a query file name.sql is written to output_dir/name.csv.
+ */
+public class QueryBatch {
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: QueryBatch database_dir output_dir query_file...");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+
+        List<String> queryFiles = Arrays.asList(args).subList(2, args.length);
+        List<String> outputFiles = new ArrayList<>();
+        for (String queryFile : queryFiles) {
+            String fileName = Paths.get(queryFile).getFileName().toString();
+            String queryName = fileName.endsWith(".sql") ? fileName.substring(0, fileName.length() - 4) : fileName;
+            outputFiles.add(Paths.get(args[1], queryName + ".csv").toString());
+        }
+        runBatch(queryFiles, outputFiles);
+    }
+
+    /**
+     * Plans the queries of a batch and executes them concurrently with shared scans enabled,
+     * waiting for all of them to finish. The catalog must have been initialized.
+     * @param queryFiles The files holding the queries.
+     * @param outputFiles The files the results are written to, one per query file.
+     * @return The number of queries which ran to completion.
+     */
+    public static int runBatch(List<String> queryFiles, List<String> outputFiles) {
+        if (queryFiles.size() != outputFiles.size()) {
+            throw new IllegalArgumentException("Got " + queryFiles.size() + " query files but "
+                    + outputFiles.size() + " output files");
+        }
+
+        boolean wasSharing = SharedScanOperator.isSharingEnabled();
+        SharedScanOperator.setSharingEnabled(true);
+        List<Operator> plans = new ArrayList<>();
+        try {
+            for (String queryFile : queryFiles) {
+                plans.add(QueryPlanner.parseStatement(queryFile));
+            }
+        } finally {
+            SharedScanOperator.setSharingEnabled(wasSharing);
+        }
+
+        ExecutorService queryThreads = Executors.newFixedThreadPool(Math.max(1, queryFiles.size()));
+        List<Future<?>> runningQueries = new ArrayList<>();
+        for (int i = 0; i < plans.size(); i++) {
+            Operator plan = plans.get(i);
+            String outputFile = outputFiles.get(i);
+            runningQueries.add(plan == null ? null : queryThreads.submit(() -> BlazeDB.execute(plan, outputFile)));
+        }
+
+        int completed = 0;
+        for (int i = 0; i < runningQueries.size(); i++) {
+            Future<?> query = runningQueries.get(i);
+            if (query == null) {
+                System.err.println("Skipped query " + queryFiles.get(i) + ", which could not be planned");
+                continue;
+            }
+            try {
+                query.get();
+                completed++;
+            } catch (ExecutionException e) {
+                System.err.println("Failed to run query " + queryFiles.get(i) + ": " + e.getCause().getMessage());
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        queryThreads.shutdownNow();
+        return completed;
+    }
+}
@@ -8,6 +8,7 @@ import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.schema.Column;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -23,12 +24,26 @@ import java.util.stream.Stream;
  *
  * The optimizer applies several transformation techniques:
  * - Removing trivial operators (e.g., SELECT with always-true conditions)
+ * - Removing sorts whose input is already in the requested order (e.g., after a sort-merge join)
+ * - Caching the inner child of nested loop joins in memory when it is not a plain scan
  * - Pushing selections down the operator tree to filter tuples early
- * - Pushing projections down to reduce data movement
+ * - Handing selections on a table to its scan, which skips blocks using the table's zone map
+ *   and evaluates ranges on compressed column data
+ * - Pushing projections down to reduce data movement, into columnar scans where possible
+ * - Replacing hash joins by index nested loop joins when the outer input is estimated to be small,
+ *   using the statistics collected by ANALYZE where available
+ * - Replacing selective selections on scans by index scans when the table has a B+tree index
+ * - Replacing joins by semi-joins when only one side is needed and duplicates do not matter
+ * - Replacing chains of hash joins on keys of the same input by a single star join
  * - Combining consecutive operators of the same type
  */
 public class QueryPlanOptimizer {
 
+    // Default selectivities for cardinality estimation, in the absence of statistics
+    private static final double EQUALITY_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+    private static final double NOT_EQUALS_SELECTIVITY = 0.9;
+
     /**
      * Optimizes a query plan by applying various transformation rules.
      * Optimization rules are applied in a specific order to ensure correctness.
@@ -43,6 +58,16 @@ public class QueryPlanOptimizer {
         rootOp = pushSelectionsDown(rootOp);
         rootOp = pushProjectionsDown(rootOp);
 
+        // Use index lookups for equi-joins whose outer input is small after push-down
+        if (Constants.useIndexNestedLoopJoin) {
+            rootOp = chooseIndexNestedLoopJoins(rootOp);
+        }
+
+        // Use semi-joins for joins which only filter one of their sides
+        if (Constants.useSemiJoin) {
+            rootOp = introduceSemiJoins(rootOp, null, false);
+        }
+
         // Update schema information after push-down operations
         rootOp.updateSchema();
 
@@ -52,6 +77,24 @@ public class QueryPlanOptimizer {
         // Finally, remove unnecessary operators
         rootOp = removeUnnecessaryProjects(rootOp);
         rootOp = removeUnnecessarySelects(rootOp);
+        rootOp = removeRedundantSorts(rootOp);
+
+        // Read only the matching rows of selections on indexed columns
+        if (Constants.useIndexScan) {
+            rootOp = chooseIndexScans(rootOp);
+            rootOp.updateSchema();
+        }
+
+        // Let scans skip the blocks and encoded rows their selection cannot match
+        rootOp = pushPredicatesIntoScans(rootOp);
+
+        // Cache inner children which would otherwise be recomputed on every rescan
+        rootOp = materializeRescannedInnerChildren(rootOp);
+
+        // Probe all dimension hash tables of a star-shaped join chain at once
+        if (Constants.useStarJoin) {
+            rootOp = combineStarJoins(rootOp);
+        }
 
 //        System.out.println("Query plan optimization complete.");
 
@@ -89,6 +132,435 @@ public class QueryPlanOptimizer {
         }
     }
 
+    /**
+     * Replaces hash joins by index nested loop joins when the inner table has a hash or B+tree
+     * index on the join column, and looking up every outer tuple in it is estimated to be cheaper
+     * than reading the whole inner table, i.e. when (estimated outer rows) x INDEX_LOOKUP_COST
+     * <= (estimated inner rows). Without an index file, building an index would read the whole
+     * inner table anyway, so the hash join is kept.
+     * Only joins whose inner child is a scan, optionally below pushed-down selections and
+     * projections, are considered. The first equi-join key is used for the lookups.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator chooseIndexNestedLoopJoins(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        // Recursive case: optimize child operators first
+        if (op.hasChild()) {
+            op.setChild(chooseIndexNestedLoopJoins(op.getChild()));
+        }
+
+        // Special case for JoinOperator which has two children
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            joinOp.setOuterChild(chooseIndexNestedLoopJoins(joinOp.getOuterChild()));
+
+            if (joinOp instanceof HashJoinOperator) {
+                HashJoinOperator hashJoinOp = (HashJoinOperator) joinOp;
+                ScanOperator innerScan = IndexNestedLoopJoinOperator.findLookupScan(hashJoinOp.getChild());
+
+                if (innerScan != null && DBCatalog.getInstance().getLookupIndex(innerScan.getTableName(),
+                        hashJoinOp.getInnerKeyColumns().get(0).getColumnName()) != null) {
+                    double outerRows = estimateCardinality(hashJoinOp.getOuterChild());
+                    long innerRows = DBCatalog.getInstance().estimateRowCount(innerScan.getTableName());
+
+                    if (outerRows * Constants.INDEX_LOOKUP_COST <= innerRows) {
+//                        System.out.println("Optimizer: Using index nested loop join, estimated outer rows " + outerRows);
+                        return new IndexNestedLoopJoinOperator(hashJoinOp.getOuterChild(), hashJoinOp.getChild(),
+                                hashJoinOp.getJoinCondition(), hashJoinOp.getOuterKeyColumns().get(0),
+                                hashJoinOp.getInnerKeyColumns().get(0));
+                    }
+                }
+            }
+        }
+
+        return op;
+    }
+
+    /**
+     * Replaces equi-joins by semi-joins when no columns of one of their sides are needed above
+     * the join, and the operators above produce the same result without duplicate tuples,
+     * i.e. below a DISTINCT or a GROUP BY without SUM.
+     * The side whose columns are needed becomes the outer child of the semi-join, so each of
+     * its tuples is returned at most once and no combined tuples are built.
+     * Only hash and sort-merge joins whose condition consists of equi-join keys are replaced.
+     * The plan is processed top down, tracking the columns needed by the operators above.
+     * @param op The operator to optimize
+     * @param requiredColumns The columns needed above this operator, or null if all columns are needed
+     * @param duplicatesIrrelevant Whether duplicate output tuples of this operator may be dropped
+     * @return The optimized operator
+     */
+    private static Operator introduceSemiJoins(Operator op, Set<Column> requiredColumns,
+                                               boolean duplicatesIrrelevant) {
+        if (op == null) {
+            return null;
+        }
+
+        // Columns needed below this operator, and whether duplicates matter there
+        Set<Column> childRequiredColumns = requiredColumns;
+        boolean childDuplicatesIrrelevant = duplicatesIrrelevant;
+
+        if (op instanceof SumOperator) {
+            SumOperator sumOp = (SumOperator) op;
+            childRequiredColumns = new HashSet<>(sumOp.getGroupByColumns());
+            childRequiredColumns.addAll(sumOp.getOutputColumns());
+            for (Expression sumExpression : sumOp.getSumExpressions()) {
+                addConditionColumns(sumExpression, childRequiredColumns);
+            }
+            // Grouping alone yields each group once, however often it occurs
+            childDuplicatesIrrelevant = sumOp.getSumExpressions().isEmpty() && !sumOp.getGroupByColumns().isEmpty();
+        } else if (op instanceof DuplicateEliminationOperator) {
+            childDuplicatesIrrelevant = true;
+        } else if (op instanceof ProjectOperator) {
+            ProjectOperator projectOp = (ProjectOperator) op;
+            // Columns kept by the projection but not used above it are not needed either
+            childRequiredColumns = requiredColumns != null ? requiredColumns : new HashSet<>(projectOp.getColumns());
+            Operator optimizedChild = introduceSemiJoins(projectOp.getChild(), childRequiredColumns, duplicatesIrrelevant);
+
+            // Drop projected columns of tables only used as the inner side of a semi-join below
+            Set<String> outputTables = getOutputTables(optimizedChild);
+            List<Column> keptColumns = new ArrayList<>();
+            for (Column column : projectOp.getColumns()) {
+                if (outputTables.contains(column.getTable().getName())) {
+                    keptColumns.add(column);
+                }
+            }
+            if (keptColumns.size() < projectOp.getColumns().size()) {
+                return new ProjectOperator(optimizedChild, keptColumns);
+            }
+            projectOp.setChild(optimizedChild);
+            return projectOp;
+        } else if (op instanceof SortOperator && requiredColumns != null) {
+            childRequiredColumns = new HashSet<>(requiredColumns);
+            childRequiredColumns.addAll(((SortOperator) op).getSortColumns());
+        } else if (op instanceof SelectOperator && requiredColumns != null) {
+            childRequiredColumns = new HashSet<>(requiredColumns);
+            addConditionColumns(((SelectOperator) op).getCondition(), childRequiredColumns);
+        } else if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            if (duplicatesIrrelevant && requiredColumns != null) {
+                op = joinOp = toSemiJoin(joinOp, requiredColumns);
+            }
+            if (requiredColumns != null && joinOp.getJoinCondition() != null) {
+                childRequiredColumns = new HashSet<>(requiredColumns);
+                addConditionColumns(joinOp.getJoinCondition(), childRequiredColumns);
+            }
+
+            // Only the existence of matches in the inner child of a semi-join matters
+            boolean innerDuplicatesIrrelevant = childDuplicatesIrrelevant || joinOp instanceof SemiJoinOperator;
+            joinOp.setOuterChild(introduceSemiJoins(joinOp.getOuterChild(), childRequiredColumns, childDuplicatesIrrelevant));
+            joinOp.setChild(introduceSemiJoins(joinOp.getChild(), childRequiredColumns, innerDuplicatesIrrelevant));
+            return joinOp;
+        }
+
+        if (op.hasChild()) {
+            op.setChild(introduceSemiJoins(op.getChild(), childRequiredColumns, childDuplicatesIrrelevant));
+        }
+
+        return op;
+    }
+
+    /**
+     * Replaces a join by a semi-join if none of the required columns come from one of its sides.
+     * @param joinOp The join to replace
+     * @param requiredColumns The columns needed above the join
+     * @return The semi-join, or the original join if it cannot be replaced
+     */
+    private static JoinOperator toSemiJoin(JoinOperator joinOp, Set<Column> requiredColumns) {
+        List<Column> outerKeys;
+        List<Column> innerKeys;
+        Expression residualCondition;
+        if (joinOp instanceof HashJoinOperator) {
+            HashJoinOperator hashJoinOp = (HashJoinOperator) joinOp;
+            outerKeys = hashJoinOp.getOuterKeyColumns();
+            innerKeys = hashJoinOp.getInnerKeyColumns();
+            residualCondition = hashJoinOp.getResidualCondition();
+        } else if (joinOp instanceof GraceHashJoinOperator) {
+            GraceHashJoinOperator graceJoinOp = (GraceHashJoinOperator) joinOp;
+            outerKeys = graceJoinOp.getOuterKeyColumns();
+            innerKeys = graceJoinOp.getInnerKeyColumns();
+            residualCondition = graceJoinOp.getResidualCondition();
+        } else if (joinOp instanceof SortMergeJoinOperator) {
+            SortMergeJoinOperator mergeJoinOp = (SortMergeJoinOperator) joinOp;
+            outerKeys = mergeJoinOp.getOuterKeyColumns();
+            innerKeys = mergeJoinOp.getInnerKeyColumns();
+            residualCondition = mergeJoinOp.getResidualCondition();
+        } else {
+            return joinOp;
+        }
+        if (residualCondition != null) {
+            return joinOp;
+        }
+
+        Set<String> outerTables = getScannedTables(joinOp.getOuterChild());
+        Set<String> innerTables = getScannedTables(joinOp.getChild());
+        boolean outerNeeded = false;
+        boolean innerNeeded = false;
+        for (Column column : requiredColumns) {
+            if (column.getTable() == null || column.getTable().getName() == null) {
+                return joinOp; // cannot tell which side it belongs to
+            }
+            outerNeeded |= outerTables.contains(column.getTable().getName());
+            innerNeeded |= innerTables.contains(column.getTable().getName());
+        }
+
+        if (!innerNeeded) {
+//            System.out.println("Optimizer: Using semi-join keeping the outer side");
+            return new SemiJoinOperator(joinOp.getOuterChild(), joinOp.getChild(),
+                    joinOp.getJoinCondition(), outerKeys, innerKeys);
+        }
+        if (!outerNeeded) {
+//            System.out.println("Optimizer: Using semi-join keeping the inner side");
+            return new SemiJoinOperator(joinOp.getChild(), joinOp.getOuterChild(),
+                    joinOp.getJoinCondition(), innerKeys, outerKeys);
+        }
+        return joinOp;
+    }
+
+    /**
+     * Replaces chains of hash joins on keys of one input by star joins.
+     * A left-deep chain of hash joins is split into segments in which the outer key columns of
+     * every join come from the input at the bottom of the segment (the fact input), e.g.
+     * Enrolled JOIN Student ON Enrolled.A = Student.A JOIN Course ON Enrolled.E = Course.E.
+     * Each segment of at least two joins is replaced by a StarJoinOperator, which probes all
+     * dimension hash tables per fact tuple instead of building the intermediate joined tuples.
+     * Only in-memory hash joins are combined, since the dimensions are held in memory together.
+     * This runs last, as the other rules only know about binary joins.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator combineStarJoins(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        if (op.getClass() != HashJoinOperator.class) {
+            if (op.hasChild()) {
+                op.setChild(combineStarJoins(op.getChild()));
+            }
+            if (op instanceof JoinOperator) {
+                JoinOperator joinOp = (JoinOperator) op;
+                joinOp.setOuterChild(combineStarJoins(joinOp.getOuterChild()));
+            }
+            return op;
+        }
+
+        // Collect the chain of hash joins along the outer side, from the bottom to the top
+        List<HashJoinOperator> chain = new ArrayList<>();
+        Operator current = op;
+        while (current.getClass() == HashJoinOperator.class) {
+            chain.add(0, (HashJoinOperator) current);
+            current = ((JoinOperator) current).getOuterChild();
+        }
+        chain.get(0).setOuterChild(combineStarJoins(current));
+        for (HashJoinOperator join : chain) {
+            join.setChild(combineStarJoins(join.getChild()));
+        }
+
+        Operator result = op;
+        int start = 0;
+        while (start < chain.size()) {
+            Set<String> factTables = getOutputTables(chain.get(start).getOuterChild());
+            int end = start + 1;
+            while (end < chain.size() && chain.get(end).getOuterKeyColumns().stream()
+                    .allMatch(column -> factTables.contains(column.getTable().getName()))) {
+                end++;
+            }
+
+            if (end - start >= 2) {
+//                System.out.println("Optimizer: Combining " + (end - start) + " hash joins into a star join");
+                StarJoinOperator starJoin = new StarJoinOperator(chain.subList(start, end));
+                if (end < chain.size()) {
+                    chain.get(end).setOuterChild(starJoin);
+                } else {
+                    result = starJoin;
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Collects the names of the tables whose columns are part of the output of a subtree,
+     * i.e. all scanned tables except those on the inner side of a semi-join.
+     * @param op The root of the subtree
+     * @return The table names
+     */
+    private static Set<String> getOutputTables(Operator op) {
+        if (op instanceof SemiJoinOperator) {
+            return getOutputTables(((JoinOperator) op).getOuterChild());
+        }
+
+        Set<String> tables = new HashSet<>();
+        if (op instanceof ScanOperator) {
+            tables.add(((ScanOperator) op).getTableName());
+        }
+        for (Operator input : op.getChildren()) {
+            tables.addAll(getOutputTables(input));
+        }
+        return tables;
+    }
+
+    /**
+     * Collects the names of the tables scanned in a subtree.
+     * @param op The root of the subtree
+     * @return The table names
+     */
+    private static Set<String> getScannedTables(Operator op) {
+        Set<String> tables = new HashSet<>();
+        if (op instanceof ScanOperator) {
+            tables.add(((ScanOperator) op).getTableName());
+        }
+        for (Operator input : op.getChildren()) {
+            tables.addAll(getScannedTables(input));
+        }
+        return tables;
+    }
+
+    /**
+     * Estimates the number of tuples produced by an operator.
+     * Table sizes come from the catalog; conjuncts of selections and join conditions are
+     * estimated from the statistics of their columns where the tables have been analyzed,
+     * and assumed to have fixed default selectivities otherwise.
+     * @param op The operator to estimate
+     * @return The estimated number of output tuples
+     */
+    private static double estimateCardinality(Operator op) {
+        if (op instanceof SampleScanOperator) {
+            return DBCatalog.getInstance().estimateRowCount(((ScanOperator) op).getTableName())
+                    * ((SampleScanOperator) op).getSamplingFraction();
+        }
+        if (op instanceof ScanOperator) {
+            return DBCatalog.getInstance().estimateRowCount(((ScanOperator) op).getTableName());
+        }
+
+        if (op instanceof SelectOperator) {
+            return estimateCardinality(op.getChild()) * estimateSelectivity(((SelectOperator) op).getCondition());
+        }
+
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            double cardinality = estimateCardinality(joinOp.getOuterChild()) * estimateCardinality(joinOp.getChild());
+            return cardinality * estimateSelectivity(joinOp.getJoinCondition());
+        }
+
+        // Other operators are assumed not to reduce their input
+        return op.hasChild() ? estimateCardinality(op.getChild()) : 0;
+    }
+
+    /**
+     * Estimates the fraction of tuples satisfying a condition, as the product of
+     * the selectivities of its conjuncts.
+     * @param condition The condition, or null for none
+     * @return The estimated selectivity between 0 and 1
+     */
+    private static double estimateSelectivity(Expression condition) {
+        if (condition == null) {
+            return 1.0;
+        }
+
+        double selectivity = 1.0;
+        for (Expression conjunct : splitAndConditions(condition)) {
+            Double estimate = Constants.useTableStatistics ? estimateSelectivityFromStatistics(conjunct) : null;
+            if (estimate != null) {
+                selectivity *= estimate;
+            } else if (conjunct instanceof EqualsTo) {
+                selectivity *= EQUALITY_SELECTIVITY;
+            } else if (conjunct instanceof NotEqualsTo) {
+                selectivity *= NOT_EQUALS_SELECTIVITY;
+            } else if (conjunct instanceof GreaterThan || conjunct instanceof GreaterThanEquals
+                    || conjunct instanceof MinorThan || conjunct instanceof MinorThanEquals) {
+                selectivity *= RANGE_SELECTIVITY;
+            }
+        }
+        return selectivity;
+    }
+
+    /**
+     * Estimates the selectivity of a comparison from the statistics of its columns:
+     * - a comparison of a column with a constant uses the histogram of the column
+     * - an equality of two columns selects 1 / (larger distinct count) of the pairs of rows,
+     *   assuming the values of the column with fewer distinct values all appear in the other
+     * @param conjunct The comparison
+     * @return The estimated selectivity, or null if it is not such a comparison or a column has no statistics
+     */
+    private static Double estimateSelectivityFromStatistics(Expression conjunct) {
+        if (!(conjunct instanceof ComparisonOperator)) {
+            return null;
+        }
+        ComparisonOperator comparison = (ComparisonOperator) conjunct;
+        Expression left = comparison.getLeftExpression();
+        Expression right = comparison.getRightExpression();
+
+        if (left instanceof Column && right instanceof Column) {
+            ColumnStatistics leftStats = getColumnStatistics((Column) left);
+            ColumnStatistics rightStats = getColumnStatistics((Column) right);
+            if (!(comparison instanceof EqualsTo) || leftStats == null || rightStats == null) {
+                return null;
+            }
+            long distinct = Math.max(leftStats.getDistinctCount(), rightStats.getDistinctCount());
+            return distinct == 0 ? 0.0 : 1.0 / distinct;
+        }
+
+        // Normalise to column op constant
+        boolean flipped = false;
+        if (left instanceof LongValue && right instanceof Column) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            flipped = true;
+        }
+        if (!(left instanceof Column && right instanceof LongValue)) {
+            return null;
+        }
+        ColumnStatistics stats = getColumnStatistics((Column) left);
+        if (stats == null) {
+            return null;
+        }
+
+        long value = ((LongValue) right).getValue();
+        if (comparison instanceof EqualsTo) {
+            return stats.estimateEqualsSelectivity(value);
+        }
+        if (comparison instanceof NotEqualsTo) {
+            return 1 - stats.estimateEqualsSelectivity(value);
+        }
+        boolean lessThan = comparison instanceof MinorThan || comparison instanceof MinorThanEquals;
+        boolean greaterThan = comparison instanceof GreaterThan || comparison instanceof GreaterThanEquals;
+        if (!lessThan && !greaterThan) {
+            return null;
+        }
+        boolean inclusive = comparison instanceof MinorThanEquals || comparison instanceof GreaterThanEquals;
+        if (flipped) {
+            lessThan = !lessThan; // 5 < A bounds A from below
+        }
+        if (lessThan) {
+            return stats.estimateRangeSelectivity(Long.MIN_VALUE, inclusive ? value : value - 1);
+        }
+        return stats.estimateRangeSelectivity(inclusive ? value : value + 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Looks up the statistics of a column of a base table in the catalog.
+     * @param column The column
+     * @return The statistics of the column, or null if its table has not been analyzed
+     */
+    private static ColumnStatistics getColumnStatistics(Column column) {
+        if (column.getTable() == null || column.getTable().getName() == null) {
+            return null;
+        }
+        DBCatalog catalog = DBCatalog.getInstance();
+        String tableName = column.getTable().getName();
+        if (!catalog.columnExists(tableName, column.getColumnName())) {
+            return null;
+        }
+        return catalog.getColumnStatistics(tableName, column.getColumnName());
+    }
+
     /**
      * Removes ProjectOperators that don't actually project anything (keep all columns).
      * A projection is considered trivial if it keeps all columns from its child.
@@ -249,6 +721,249 @@ public class QueryPlanOptimizer {
         return op;
     }
 
+    /**
+     * Removes SortOperators whose child already produces tuples in the requested order,
+     * for example a sort-merge join on the ORDER BY column.
+     * Since sorting is stable, skipping the sort does not change the output.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator removeRedundantSorts(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        // Recursive case: optimize child operators first
+        if (op.hasChild()) {
+            Operator optimizedChild = removeRedundantSorts(op.getChild());
+
+            // If this is a SortOperator, check if it's necessary
+            if (op instanceof SortOperator) {
+                SortOperator sortOp = (SortOperator) op;
+
+                if (optimizedChild.isOrderedBy(sortOp.getSortColumns())) {
+//                    System.out.println("Optimizer: Removing SortOperator on already ordered input");
+                    return optimizedChild; // Skip this SortOperator
+                }
+
+                sortOp.setChild(optimizedChild);
+                return sortOp;
+            }
+
+            // For other operator types, just update their child
+            op.setChild(optimizedChild);
+        }
+
+        // Special case for JoinOperator which has two children
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            Operator optimizedOuterChild = removeRedundantSorts(joinOp.getOuterChild());
+            joinOp.setOuterChild(optimizedOuterChild);
+        }
+
+        return op;
+    }
+
+    /**
+     * Hands the condition of every SelectOperator directly above a scan, possibly through a projection,
+     * to the scan, which uses it to skip blocks of rows with its table's zone map, and to skip rows
+     * of compressed column files by evaluating ranges on the encoded values.
+     * The SelectOperator is kept, as only comparisons of columns with constants are used by the scan.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator pushPredicatesIntoScans(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        if (op instanceof SelectOperator) {
+            Operator scanOp = op.getChild();
+            while (scanOp instanceof ProjectOperator) {
+                scanOp = scanOp.getChild();
+            }
+            if (scanOp instanceof ScanOperator) {
+//                System.out.println("Optimizer: Handing " + ((SelectOperator) op).getCondition() + " to scan of " + ((ScanOperator) scanOp).getTableName());
+                ((ScanOperator) scanOp).setScanPredicate(((SelectOperator) op).getCondition());
+            }
+        }
+
+        // Recursive case: visit child operators
+        if (op.hasChild()) {
+            op.setChild(pushPredicatesIntoScans(op.getChild()));
+        }
+
+        // Special case for JoinOperator which has two children
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            joinOp.setOuterChild(pushPredicatesIntoScans(joinOp.getOuterChild()));
+        }
+
+        return op;
+    }
+
+    /**
+     * Replaces the scan below a selection by an index scan when a column bounded by the selection
+     * has a B+tree index, or a hash index and an equality, and reading the matching rows through
+     * the index is estimated to be cheaper than a full scan, i.e. when (fraction of matching rows)
+     * x (INDEX_LOOKUP_COST for an unclustered or hash index, 1 for a clustered one) <= INDEX_SCAN_MAX_COST.
+     * The fraction of matching rows is counted in a B+tree index, and estimated from the number
+     * of distinct keys of a hash index. The conjuncts evaluated by the index
+     * are removed from the selection, which is removed if no conjunct is left.
+     * The inner child of an index nested loop join is left alone, since it is read by lookups,
+     * and so are sampled tables, since an index scan would return all matching rows.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator chooseIndexScans(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        // Recursive case: optimize child operators first
+        if (op.hasChild() && !(op instanceof IndexNestedLoopJoinOperator)) {
+            op.setChild(chooseIndexScans(op.getChild()));
+        }
+
+        // Special case for JoinOperator which has two children
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            joinOp.setOuterChild(chooseIndexScans(joinOp.getOuterChild()));
+        }
+
+        if (op instanceof SelectOperator) {
+            return chooseIndexScan((SelectOperator) op);
+        }
+        return op;
+    }
+
+    /**
+     * Replaces the scan below a selection, possibly below projections, by the cheapest index scan
+     * on a column bounded by the selection, if it is cheap enough.
+     * @param selectOp The selection
+     * @return The selection, a selection of the remaining conjuncts, or the operator below the selection
+     */
+    private static Operator chooseIndexScan(SelectOperator selectOp) {
+        Operator parentOp = selectOp;
+        Operator scanOp = selectOp.getChild();
+        while (scanOp instanceof ProjectOperator) {
+            parentOp = scanOp;
+            scanOp = scanOp.getChild();
+        }
+        if (!(scanOp instanceof ScanOperator) || scanOp instanceof IndexScanOperator
+                || scanOp instanceof SampleScanOperator) {
+            return selectOp;
+        }
+
+        String tableName = ((ScanOperator) scanOp).getTableName();
+        ZoneMapFilter filter = new ZoneMapFilter(tableName, selectOp.getCondition());
+        if (!filter.hasBounds()) {
+            return selectOp;
+        }
+
+        // Find the cheapest index on a bounded column; a hash index only serves equalities
+        List<String> columnNames = DBCatalog.getInstance().getColumnNames(tableName);
+        ScanOperator bestScan = null;
+        double bestCost = Double.MAX_VALUE;
+        int bestColumn = -1;
+        for (int column = 0; column < columnNames.size(); column++) {
+            if (!filter.isBounded(column)) {
+                continue;
+            }
+            long lowerBound = filter.getLowerBound(column);
+            long upperBound = filter.getUpperBound(column);
+
+            HashIndex hashIndex = DBCatalog.getInstance().getHashIndex(tableName, columnNames.get(column));
+            if (hashIndex != null && lowerBound == upperBound && lowerBound == (int) lowerBound) {
+                double cost = hashIndex.estimateSelectivity() * Constants.INDEX_LOOKUP_COST;
+                if (cost < bestCost) {
+                    bestScan = new IndexScanOperator(tableName, hashIndex, (int) lowerBound);
+                    bestCost = cost;
+                    bestColumn = column;
+                }
+            }
+
+            BPlusTreeIndex index = DBCatalog.getInstance().getBPlusTreeIndex(tableName, columnNames.get(column));
+            if (index == null) {
+                continue;
+            }
+            try {
+                double cost = index.estimateSelectivity(lowerBound, upperBound)
+                        * (index.isClustered() ? 1 : Constants.INDEX_LOOKUP_COST);
+                if (cost < bestCost) {
+                    bestScan = new IndexScanOperator(tableName, index, lowerBound, upperBound);
+                    bestCost = cost;
+                    bestColumn = column;
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading index on " + tableName + "." + columnNames.get(column) + ": " + e.getMessage());
+            }
+        }
+        if (bestScan == null || bestCost > Constants.INDEX_SCAN_MAX_COST) {
+            return selectOp;
+        }
+
+//        System.out.println("Optimizer: Using index scan on " + tableName + "." + columnNames.get(bestColumn) + ", estimated cost " + bestCost);
+        Operator indexScan = bestScan;
+
+        // A columnar scan reading only some columns is replaced by a projection of the same columns
+        if (scanOp instanceof ColumnarScanOperator && ((ColumnarScanOperator) scanOp).getOutputColumns() != null) {
+            indexScan = new ProjectOperator(indexScan, ((ColumnarScanOperator) scanOp).getOutputColumns());
+        }
+        parentOp.setChild(indexScan);
+
+        // Keep the conjuncts which do not only bound the indexed column
+        List<Expression> remaining = new ArrayList<>();
+        for (Expression conjunct : splitAndConditions(selectOp.getCondition())) {
+            if (!new ZoneMapFilter(tableName, conjunct).isBounded(bestColumn)) {
+                remaining.add(conjunct);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return selectOp.getChild();
+        }
+        Expression condition = remaining.get(0);
+        for (int i = 1; i < remaining.size(); i++) {
+            condition = new AndExpression(condition, remaining.get(i));
+        }
+        return new SelectOperator(selectOp.getChild(), condition);
+    }
+
+    /**
+     * Inserts a MaterializeOperator above the inner child of every join that rescans its inner child,
+     * unless that child is a plain ScanOperator.
+     * Rescanning a selection or a nested join repeats the parsing and predicate evaluation
+     * of its whole subtree, whereas a materialized child is only rewound.
+     * @param op The operator to optimize
+     * @return The optimized operator
+     */
+    private static Operator materializeRescannedInnerChildren(Operator op) {
+        if (op == null) {
+            return null;
+        }
+
+        // Recursive case: optimize child operators first
+        if (op.hasChild()) {
+            op.setChild(materializeRescannedInnerChildren(op.getChild()));
+        }
+
+        // Special case for JoinOperator which has two children
+        if (op instanceof JoinOperator) {
+            JoinOperator joinOp = (JoinOperator) op;
+            joinOp.setOuterChild(materializeRescannedInnerChildren(joinOp.getOuterChild()));
+
+            Operator innerChild = joinOp.getChild();
+            if (joinOp.rescansInnerChild()
+                    && !(innerChild instanceof ScanOperator)
+                    && !(innerChild instanceof MaterializeOperator)) {
+//                System.out.println("Optimizer: Materializing inner child " + innerChild.getClass().getSimpleName());
+                joinOp.setChild(new MaterializeOperator(innerChild));
+            }
+        }
+
+        return op;
+    }
+
     /**
      * Checks if a SELECT condition is trivial (always true).
      * Currently identifies simple cases like "1 = 1".
@@ -791,6 +1506,12 @@ public class QueryPlanOptimizer {
         // If we're not selecting all columns, add a projection
         Map<String, Integer> tableSchema = DBCatalog.getInstance().getDBSchemata(tableName);
         if (tableColumns.size() < tableSchema.size()) {
+            // A columnar scan reads only the required columns instead of being projected afterwards
+            if (scanOp instanceof ColumnarScanOperator) {
+//                System.out.println("Optimizer: Reading columns " + tableColumns + " of table " + tableName);
+                ((ColumnarScanOperator) scanOp).setOutputColumns(tableColumns);
+                return scanOp;
+            }
 //            System.out.println("Optimizer: Adding projection at scan level for table " + tableName +
 //                    " with columns: " + tableColumns);
             return new ProjectOperator(scanOp, tableColumns);
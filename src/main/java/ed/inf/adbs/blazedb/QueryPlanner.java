@@ -13,6 +13,8 @@ import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 
 /**
@@ -119,7 +121,79 @@ public class QueryPlanner {
      */
     private static Operator createScanOperator(Select select) {
         Table firstTable = (Table) select.getPlainSelect().getFromItem();
-        return new ScanOperator(firstTable.getName());
+        return createTableScan(firstTable);
+    }
+
+    /**
+     * Creates a scan operator for a table of the FROM clause, which samples the table if it has a
+     * sample clause: {@code TABLESAMPLE BERNOULLI | SYSTEM (percentage) [REPEATABLE (seed)]}, or
+     * {@code SAMPLE [BLOCK] (percentage) [SEED (seed)]}, where BLOCK samples blocks like SYSTEM.
+     * @param table The table of the FROM clause
+     * @return A SampleScanOperator if the table is sampled, the scan chosen by createTableScan(String) otherwise
+     */
+    private static ScanOperator createTableScan(Table table) {
+        SampleClause sampleClause = table.getSampleClause();
+        if (sampleClause == null) {
+            return createTableScan(table.getName());
+        }
+
+        SampleScanOperator.Method method = sampleClause.getMethod() == SampleClause.SampleMethod.SYSTEM
+                || sampleClause.getMethod() == SampleClause.SampleMethod.BLOCK
+                ? SampleScanOperator.Method.SYSTEM : SampleScanOperator.Method.BERNOULLI;
+        Number seed = sampleClause.getRepeatArgument() != null
+                ? sampleClause.getRepeatArgument() : sampleClause.getSeedArgument();
+        return new SampleScanOperator(table.getName(), method,
+                sampleClause.getPercentageArgument().doubleValue(), seed != null ? seed.longValue() : null);
+    }
+
+    /**
+     * Creates a scan operator for a table, reading the columnar or binary copy of its data file
+     * if there is one, sharing a pass over a large CSV data file with the concurrent queries of a
+     * batch, parsing it on several threads outside of a batch, reading a medium-sized one ahead on
+     * a background thread, and memory-mapping the CSV data file otherwise.
+     * @param tableName The name of the table
+     * @return A CompressedColumnarScanOperator, ColumnarScanOperator or BinaryScanOperator if the table
+     * was converted, a SharedScanOperator, ParallelScanOperator, ReadAheadScanOperator, MappedScanOperator
+     * or a ScanOperator otherwise
+     */
+    private static ScanOperator createTableScan(String tableName) {
+        if (Constants.useColumnarScan && DBCatalog.getInstance().getColumnarLocation(tableName) != null) {
+            if (DBCatalog.getInstance().isColumnarCompressed(tableName)) {
+                return new CompressedColumnarScanOperator(tableName);
+            }
+            return new ColumnarScanOperator(tableName);
+        }
+        if (Constants.useBinaryScan && DBCatalog.getInstance().getBinaryLocation(tableName) != null) {
+            return new BinaryScanOperator(tableName);
+        }
+        if (Constants.useSharedScan && SharedScanOperator.isSharingEnabled()
+                && isLargeDataFile(tableName, Constants.SHARED_SCAN_MIN_FILE_SIZE)) {
+            return new SharedScanOperator(tableName);
+        }
+        if (Constants.useParallelScan && isLargeDataFile(tableName, Constants.PARALLEL_SCAN_MIN_FILE_SIZE)) {
+            return new ParallelScanOperator(tableName);
+        }
+        if (Constants.useReadAheadScan && isLargeDataFile(tableName, Constants.READ_AHEAD_MIN_FILE_SIZE)) {
+            return new ReadAheadScanOperator(tableName);
+        }
+        if (Constants.useMappedScan) {
+            return new MappedScanOperator(tableName);
+        }
+        return new ScanOperator(tableName);
+    }
+
+    /**
+     * Checks whether the CSV data file of a table is large enough to be scanned in parallel, shared or read ahead.
+     * @param tableName The name of the table
+     * @param minFileSize The minimum size in bytes, e.g. Constants.PARALLEL_SCAN_MIN_FILE_SIZE
+     * @return true if the file holds at least minFileSize bytes, false otherwise
+     */
+    private static boolean isLargeDataFile(String tableName, long minFileSize) {
+        try {
+            return Files.size(DBCatalog.getInstance().getDBLocation(tableName)) >= minFileSize;
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     /**
@@ -151,6 +225,7 @@ public class QueryPlanner {
         }
 
         List<Table> tables = getTablesInOrder(select);
+        List<Column> mergeOrderColumns = getMergeOrderColumns(select);
         Set<String> joinedTableNames = new HashSet<>();
         joinedTableNames.add(((Table) select.getPlainSelect().getFromItem()).getName()); // the first table in the from clause
 
@@ -158,8 +233,8 @@ public class QueryPlanner {
         for (Table table : tables) {
             Expression joinCondition = findJoinCondition(joinExpressions, joinedTableNames, table);
 
-            Operator rightOp = new ScanOperator(table.getName());
-            rootOp = new JoinOperator(rootOp, rightOp, joinCondition);
+            Operator rightOp = createTableScan(table);
+            rootOp = createJoinOperator(rootOp, rightOp, joinCondition, table, mergeOrderColumns);
 
             joinedTableNames.add(table.getName());
 
@@ -178,6 +253,147 @@ public class QueryPlanner {
         return rootOp;
     }
 
+    /**
+     * Chooses the join algorithm for a join between the tree built so far and a new table.
+     * When the join condition contains at least one equality between a column of the new table
+     * and a column of the tables already joined:
+     * - a sort-merge join is used if one of the keys is the leading ORDER BY column,
+     *   so that the final sort can be removed by the optimizer
+     * - a merge join is also used if both inputs are already sorted on a pair of keys,
+     *   e.g. scans of tables clustered on the join columns, since neither needs to be sorted
+     * - a hash join is used otherwise, partitioned to disk (Grace hash join) when the new
+     *   table is estimated to exceed the hash join memory budget
+     * Joins without such an equality use:
+     * - a range join if a column of the new table is compared (<, <=, >, >=) with a column
+     *   of the tables already joined, so only inner tuples within the bounds are visited
+     * - the block nested loop join otherwise, which scans the inner table once per block
+     *   of outer tuples rather than once per outer tuple
+     * @param outerOp The outer (left) operator, i.e. the join tree built so far
+     * @param innerOp The inner (right) operator, a scan of the new table
+     * @param joinCondition The join condition, or null for cross product
+     * @param innerTable The table being joined
+     * @param mergeOrderColumns The ORDER BY columns a join may produce its output in, or an empty list
+     * @return The join operator combining both inputs
+     */
+    private static Operator createJoinOperator(Operator outerOp, Operator innerOp,
+                                               Expression joinCondition, Table innerTable,
+                                               List<Column> mergeOrderColumns) {
+        if (joinCondition != null) {
+            JoinKeyExtractor keyExtractor = new JoinKeyExtractor(innerTable.getName());
+            joinCondition.accept(keyExtractor);
+
+            if (keyExtractor.hasEquiJoinKeys()) {
+                List<Column> outerKeys = new ArrayList<>(keyExtractor.getOuterKeys());
+                List<Column> innerKeys = new ArrayList<>(keyExtractor.getInnerKeys());
+
+                int orderKeyIndex = findOrderKeyIndex(outerKeys, innerKeys, mergeOrderColumns);
+                if (Constants.useSortMergeJoin && orderKeyIndex >= 0) {
+                    // Merge on the ORDER BY key first, so the output is ordered as requested
+                    outerKeys.add(0, outerKeys.remove(orderKeyIndex));
+                    innerKeys.add(0, innerKeys.remove(orderKeyIndex));
+                    return new SortMergeJoinOperator(outerOp, innerOp, joinCondition,
+                            outerKeys, innerKeys, keyExtractor.getResidualCondition());
+                }
+
+                int sortedKeyIndex = findSortedKeyIndex(outerOp, innerOp, outerKeys, innerKeys);
+                if (Constants.useSortMergeJoin && sortedKeyIndex >= 0) {
+                    // Both inputs are read in key order, so the merge needs no sort
+                    outerKeys.add(0, outerKeys.remove(sortedKeyIndex));
+                    innerKeys.add(0, innerKeys.remove(sortedKeyIndex));
+                    return new SortMergeJoinOperator(outerOp, innerOp, joinCondition,
+                            outerKeys, innerKeys, keyExtractor.getResidualCondition());
+                }
+
+                if (Constants.useHashJoin) {
+                    if (DBCatalog.getInstance().estimateRowCount(innerTable.getName()) > Constants.HASH_JOIN_MEMORY_BUDGET) {
+                        // The build side is not expected to fit in memory, partition it to disk
+                        return new GraceHashJoinOperator(outerOp, innerOp, joinCondition,
+                                outerKeys, innerKeys, keyExtractor.getResidualCondition(),
+                                Constants.HASH_JOIN_MEMORY_BUDGET, Constants.GRACE_HASH_JOIN_PARTITIONS);
+                    }
+                    return new HashJoinOperator(outerOp, innerOp, joinCondition,
+                            outerKeys, innerKeys, keyExtractor.getResidualCondition());
+                }
+            }
+        }
+
+        if (joinCondition != null && Constants.useRangeJoin) {
+            RangeConditionExtractor rangeExtractor = new RangeConditionExtractor(innerTable.getName());
+            joinCondition.accept(rangeExtractor);
+
+            if (rangeExtractor.hasRangeCondition()) {
+                return new RangeJoinOperator(outerOp, innerOp, joinCondition, rangeExtractor.getInnerColumn(),
+                        rangeExtractor.getLowerBound(), rangeExtractor.isLowerInclusive(),
+                        rangeExtractor.getUpperBound(), rangeExtractor.isUpperInclusive());
+            }
+        }
+
+        if (Constants.useBlockNestedLoopJoin) {
+            return new BlockNestedLoopJoinOperator(outerOp, innerOp, joinCondition, Constants.JOIN_BLOCK_SIZE);
+        }
+        return new JoinOperator(outerOp, innerOp, joinCondition);
+    }
+
+    /**
+     * Finds the equi-join key pair that matches the leading ORDER BY column.
+     * @param outerKeys The outer key columns
+     * @param innerKeys The inner key columns, parallel to outerKeys
+     * @param mergeOrderColumns The ORDER BY columns a join may produce its output in
+     * @return The index of the matching key pair, or -1 if there is none
+     */
+    private static int findOrderKeyIndex(List<Column> outerKeys, List<Column> innerKeys,
+                                         List<Column> mergeOrderColumns) {
+        if (mergeOrderColumns.isEmpty()) {
+            return -1;
+        }
+
+        ColumnIdentity leadingColumn = new ColumnIdentity(mergeOrderColumns.get(0));
+        for (int i = 0; i < outerKeys.size(); i++) {
+            if (leadingColumn.equals(new ColumnIdentity(outerKeys.get(i)))
+                    || leadingColumn.equals(new ColumnIdentity(innerKeys.get(i)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds an equi-join key pair such that both inputs are already sorted on all keys when
+     * that pair is merged on first.
+     * @param outerOp The outer operator
+     * @param innerOp The inner operator
+     * @param outerKeys The outer key columns
+     * @param innerKeys The inner key columns, parallel to outerKeys
+     * @return The index of the leading key pair, or -1 if an input would have to be sorted
+     */
+    private static int findSortedKeyIndex(Operator outerOp, Operator innerOp,
+                                          List<Column> outerKeys, List<Column> innerKeys) {
+        for (int i = 0; i < outerKeys.size(); i++) {
+            List<Column> mergeOuterKeys = new ArrayList<>(outerKeys);
+            List<Column> mergeInnerKeys = new ArrayList<>(innerKeys);
+            mergeOuterKeys.add(0, mergeOuterKeys.remove(i));
+            mergeInnerKeys.add(0, mergeInnerKeys.remove(i));
+            if (outerOp.isOrderedBy(mergeOuterKeys) && innerOp.isOrderedBy(mergeInnerKeys)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the ORDER BY columns that the join tree could produce its output in.
+     * Aggregation does not preserve the order of its input, so no order is returned
+     * for queries with GROUP BY or SUM.
+     * @param select The SELECT statement being processed
+     * @return The ORDER BY columns, or an empty list
+     */
+    private static List<Column> getMergeOrderColumns(Select select) {
+        if (!existSortOp(select) || existGroupByOp(select) || existSumAggregate(select)) {
+            return new ArrayList<>();
+        }
+        return getSortCols(select);
+    }
+
     /**
      * Processes GROUP BY and aggregation operations.
      * Handles both queries with explicit GROUP BY and those with SUM aggregates only.
@@ -567,18 +783,53 @@ public class QueryPlanner {
         if(op instanceof ProjectOperator) {
             sb.append(" column: ").append(((ProjectOperator) op).getColumns().toString());
         }
+        if (op instanceof SumOperator && ((SumOperator) op).isStreaming()) {
+            sb.append(" streaming group by: ").append(((SumOperator) op).getGroupByColumns().toString());
+        }
+        if (op instanceof ScanOperator && !op.getOutputOrder().isEmpty()) {
+            sb.append(" sorted on: ").append(op.getOutputOrder().toString());
+        }
+        if (op instanceof ReadAheadScanOperator) {
+            sb.append(" read-ahead depth: ").append(((ReadAheadScanOperator) op).getDepth())
+                    .append(" chunk size: ").append(((ReadAheadScanOperator) op).getChunkSize());
+        }
+        if (op instanceof ColumnarScanOperator && ((ColumnarScanOperator) op).getOutputColumns() != null) {
+            sb.append(" column: ").append(((ColumnarScanOperator) op).getOutputColumns().toString());
+        }
+        if (op instanceof IndexScanOperator) {
+            IndexScanOperator indexScanOp = (IndexScanOperator) op;
+            BPlusTreeIndex index = indexScanOp.getIndex();
+            if (index != null) {
+                sb.append(index.isClustered() ? " clustered" : " unclustered").append(" index: ")
+                        .append(index.getIndexPath().getFileName()).append(" range: [")
+                        .append(indexScanOp.getLowerBound()).append(", ").append(indexScanOp.getUpperBound()).append("]");
+            } else {
+                sb.append(" hash index: ").append(indexScanOp.getHashIndex().getIndexPath().getFileName())
+                        .append(" key: ").append(indexScanOp.getLowerBound());
+            }
+        }
+        if (op instanceof SampleScanOperator) {
+            SampleScanOperator sampleScanOp = (SampleScanOperator) op;
+            sb.append(" sample: ").append(sampleScanOp.getMethod()).append(" ").append(sampleScanOp.getPercentage())
+                    .append("% seed: ").append(sampleScanOp.getSeed());
+        }
+        if (op instanceof ScanOperator && !(op instanceof IndexScanOperator) && ((ScanOperator) op).usesZoneMap()
+                && ((ScanOperator) op).getScanPredicate() != null) {
+            sb.append(" zone map filter: ").append(((ScanOperator) op).getScanPredicate());
+        }
 
-        System.out.println(sb.toString());
-
-        // Print child operators
-        if (op.hasChild()) {
-            printQueryPlan(op.getChild(), indent + 1);
+        // Runtime filters built from the join's build side, and the probe side scans applying them
+        for (Map.Entry<Column, ScanOperator> target : op.getRuntimeFilterTargets().entrySet()) {
+            sb.append(" bloom filter: ").append(target.getKey())
+                    .append(" -> ").append(target.getValue().getClass().getSimpleName())
+                    .append(" ").append(target.getValue().getTableName());
         }
 
-        // Handle JoinOperator's outer child
-        if (op instanceof JoinOperator) {
-            JoinOperator joinOp = (JoinOperator) op;
-            printQueryPlan(joinOp.getOuterChild(), indent + 1);
+        System.out.println(sb.toString());
+
+        // Print child operators, e.g. the inner and then the outer child of a join
+        for (Operator input : op.getChildren()) {
+            printQueryPlan(input, indent + 1);
         }
     }
 
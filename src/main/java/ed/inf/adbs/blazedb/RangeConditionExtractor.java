@@ -0,0 +1,198 @@
+package ed.inf.adbs.blazedb;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.schema.Column;
+
+/**
+ * The RangeConditionExtractor class is a utility visitor for analysing an inequality join condition
+ * before a join algorithm is chosen for it.
+ * It looks for comparisons (<, <=, >, >=) between a column of the inner table and a column of
+ * the outer side, and rewrites them as bounds on a single inner column, e.g.
+ * Student.C < Course.E becomes a lower bound on Course.E given by Student.C.
+ * At most one lower and one upper bound are kept, so that a between-style pair such as
+ * Course.E > Student.C AND Course.E <= Student.D becomes a band on Course.E.
+ * Comparisons on other inner columns and any other conjuncts are ignored here; the join
+ * still evaluates the complete condition on every candidate tuple.
+ * @see ed.inf.adbs.blazedb.operator.RangeJoinOperator
+ */
+public class RangeConditionExtractor extends ExpressionVisitorAdapter {
+
+    // The table on the inner (right) side of the join
+    private final String innerTableName;
+
+    private Column innerColumn;
+    private Column lowerBound;
+    private boolean lowerInclusive;
+    private Column upperBound;
+    private boolean upperInclusive;
+
+    /**
+     * Constructs a RangeConditionExtractor for a join whose inner side is the given table.
+     * @param innerTableName The name of the table on the inner (right) side of the join
+     */
+    public RangeConditionExtractor(String innerTableName) {
+        this.innerTableName = innerTableName;
+    }
+
+    /**
+     * Visits an AND expression and processes each of its conjuncts separately.
+     * @param andExpression The AND expression to process
+     */
+    @Override
+    public void visit(AndExpression andExpression) {
+        andExpression.getLeftExpression().accept(this);
+        andExpression.getRightExpression().accept(this);
+    }
+
+    /**
+     * Visits a > comparison and records it as a bound if it compares an inner and an outer column.
+     * @param greaterThan The comparison to process
+     */
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        addComparison(greaterThan, true, false);
+    }
+
+    /**
+     * Visits a >= comparison and records it as a bound if it compares an inner and an outer column.
+     * @param greaterThanEquals The comparison to process
+     */
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        addComparison(greaterThanEquals, true, true);
+    }
+
+    /**
+     * Visits a < comparison and records it as a bound if it compares an inner and an outer column.
+     * @param minorThan The comparison to process
+     */
+    @Override
+    public void visit(MinorThan minorThan) {
+        addComparison(minorThan, false, false);
+    }
+
+    /**
+     * Visits a <= comparison and records it as a bound if it compares an inner and an outer column.
+     * @param minorThanEquals The comparison to process
+     */
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        addComparison(minorThanEquals, false, true);
+    }
+
+    /**
+     * Any other expression cannot be used as a bound, and its operands are not searched
+     * for comparisons.
+     * @param expression The binary expression to process
+     */
+    @Override
+    public void visitBinaryExpression(BinaryExpression expression) {
+        // not a bound
+    }
+
+    /**
+     * Records a comparison between an inner and an outer column as a bound on the inner column.
+     * @param comparison The comparison to process
+     * @param greater true if the comparison is left > right (or >=), false if left < right (or <=)
+     * @param inclusive true if equality satisfies the comparison
+     */
+    private void addComparison(ComparisonOperator comparison, boolean greater, boolean inclusive) {
+        Expression left = comparison.getLeftExpression();
+        Expression right = comparison.getRightExpression();
+        if (!(left instanceof Column) || !(right instanceof Column)) {
+            return;
+        }
+
+        Column leftColumn = (Column) left;
+        Column rightColumn = (Column) right;
+        boolean leftInner = innerTableName.equals(leftColumn.getTable().getName());
+        boolean rightInner = innerTableName.equals(rightColumn.getTable().getName());
+
+        Column inner;
+        Column outer;
+        boolean isLowerBound;
+        if (leftInner && !rightInner) {
+            // inner > outer is a lower bound, inner < outer an upper bound
+            inner = leftColumn;
+            outer = rightColumn;
+            isLowerBound = greater;
+        } else if (rightInner && !leftInner) {
+            // outer < inner is a lower bound, outer > inner an upper bound
+            inner = rightColumn;
+            outer = leftColumn;
+            isLowerBound = !greater;
+        } else {
+            return;
+        }
+
+        if (innerColumn == null) {
+            innerColumn = inner;
+        } else if (!new ColumnIdentity(innerColumn).equals(new ColumnIdentity(inner))) {
+            return; // only one inner column can be searched
+        }
+
+        if (isLowerBound && lowerBound == null) {
+            lowerBound = outer;
+            lowerInclusive = inclusive;
+        } else if (!isLowerBound && upperBound == null) {
+            upperBound = outer;
+            upperInclusive = inclusive;
+        }
+    }
+
+    /**
+     * Checks whether at least one bound on an inner column was found.
+     * @return true if the condition contains an inequality between the two sides, false otherwise
+     */
+    public boolean hasRangeCondition() {
+        return innerColumn != null;
+    }
+
+    /**
+     * Returns the inner column the bounds apply to.
+     * @return The inner column, or null if no bound was found
+     */
+    public Column getInnerColumn() {
+        return innerColumn;
+    }
+
+    /**
+     * Returns the outer column giving the lower bound of the inner column.
+     * @return The lower bound column, or null if there is none
+     */
+    public Column getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Checks whether the inner column may be equal to the lower bound.
+     * @return true for >=, false for >
+     */
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    /**
+     * Returns the outer column giving the upper bound of the inner column.
+     * @return The upper bound column, or null if there is none
+     */
+    public Column getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Checks whether the inner column may be equal to the upper bound.
+     * @return true for <=, false for <
+     */
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+}
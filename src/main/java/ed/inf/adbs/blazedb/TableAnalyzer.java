@@ -0,0 +1,98 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The TableAnalyzer class implements ANALYZE: it collects the {@link TableStatistics} of tables
+ * of a database and stores them in the statistics file next to schema.txt, where the catalog
+ * finds them for cardinality estimation.
+ * Statistics older than the CSV file of their table are ignored by the catalog, so the analyzer
+ * has to be run again after the data changes. Rows appended by {@link TableAppender} update the
+ * statistics with estimates, which analyzing the table again makes exact.
+ * Usage: TableAnalyzer database_dir [table ...]
+ * Without table names, every table of the database is analyzed.
+ * @see DBCatalog#getTableStatistics(String)
+ */
+public class TableAnalyzer {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: TableAnalyzer database_dir [table ...]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        List<String> tableNames = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : new ArrayList<>(catalog.getTableNames());
+        for (String tableName : tableNames) {
+            if (!catalog.tableExists(tableName)) {
+                System.err.println("Table " + tableName + " not found in the database");
+                continue;
+            }
+
+            try {
+                TableStatistics statistics = analyze(tableName);
+                System.out.println("Analyzed " + tableName + ": " + statistics.getRowCount() + " rows");
+                for (String columnName : statistics.getColumnNames()) {
+                    System.out.println("  " + columnName + " " + statistics.getColumnStatistics(columnName));
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to analyze table " + tableName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Collects the statistics of a table and records them in the statistics file of the database
+     * in the catalog. The recorded statistics of other tables are kept if they are still up to
+     * date, and dropped otherwise, so that rewriting the file does not make them look current.
+     * @param tableName The name of the table.
+     * @return The statistics of the table.
+     * @throws IOException If the data file cannot be read or the statistics file cannot be written.
+     */
+    public static TableStatistics analyze(String tableName) throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        TableStatistics statistics = TableStatistics.compute(catalog.getDBLocation(tableName),
+                catalog.getColumnNames(tableName));
+        recordStatistics(tableName, statistics);
+        return statistics;
+    }
+
+    /**
+     * Records the statistics of a table in the statistics file of the database in the catalog,
+     * keeping the recorded statistics of other tables if they are still up to date.
+     * @param tableName The name of the table.
+     * @param statistics The statistics of the table.
+     * @throws IOException If the statistics file cannot be written.
+     */
+    public static void recordStatistics(String tableName, TableStatistics statistics) throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        Map<String, TableStatistics> allStatistics = new TreeMap<>();
+        for (String otherTable : catalog.getTableNames()) {
+            TableStatistics otherStatistics = catalog.getTableStatistics(otherTable);
+            if (!otherTable.equals(tableName) && otherStatistics != null) {
+                allStatistics.put(otherTable, otherStatistics);
+            }
+        }
+        allStatistics.put(tableName, statistics);
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, TableStatistics> entry : allStatistics.entrySet()) {
+            lines.addAll(entry.getValue().toLines(entry.getKey()));
+        }
+        Files.write(DBCatalog.getStatisticsPath(catalog.getDBLocation(tableName)), lines, StandardCharsets.UTF_8);
+        catalog.setTableStatistics(tableName, statistics);
+    }
+}
@@ -0,0 +1,313 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The TableAppender class appends rows to the CSV data file of a table, and keeps the metadata
+ * of the table up to date without rebuilding it from the whole file:
+ * - the zone map is extended with the new rows, filling up its last block first
+ * - the new rows are inserted into the B+tree and hash indexes on the columns of the table
+ * - the statistics are merged with those of the new rows, see {@link TableStatistics#withAppendedRows(List)}
+ * - the sort order is kept if the new rows continue it, and dropped otherwise
+ * Only metadata which is up to date before the append is maintained; the rest stays out of date
+ * and is still ignored by the catalog afterwards. The binary and columnar copies of the table are
+ * not maintained: they are deleted, since they no longer hold every row, and scans read the CSV
+ * file until the table is converted again.
+ * If maintaining a structure fails, its file is deleted, so that it is never used out of date.
+ * Appends must not run concurrently with queries on the table.
+ * Usage: TableAppender database_dir table [rows_file]
+ * The rows are read from the file, or from the standard input without one, in the format of the
+ * CSV data files.
+ */
+public class TableAppender {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: TableAppender database_dir table [rows_file]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        String tableName = args[1];
+        if (!catalog.tableExists(tableName)) {
+            System.err.println("Table " + tableName + " not found in the database");
+            return;
+        }
+
+        try (BufferedReader reader = args.length > 2
+                ? Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            List<int[]> rows = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String row = line.trim();
+                if (!row.isEmpty()) {
+                    String[] fields = row.split(",\\s*");
+                    int[] values = new int[fields.length];
+                    for (int i = 0; i < fields.length; i++) {
+                        values[i] = Integer.parseInt(fields[i].trim());
+                    }
+                    rows.add(values);
+                }
+            }
+
+            append(tableName, rows);
+            System.out.println("Appended " + rows.size() + " rows to " + tableName);
+            ZoneMap zoneMap = catalog.getZoneMap(tableName);
+            if (zoneMap != null) {
+                System.out.println("  zone map: " + zoneMap.getBlockCount() + " blocks");
+            }
+            for (String columnName : catalog.getColumnNames(tableName)) {
+                BPlusTreeIndex bPlusTreeIndex = catalog.getBPlusTreeIndex(tableName, columnName);
+                if (bPlusTreeIndex != null) {
+                    System.out.println("  " + (bPlusTreeIndex.isClustered() ? "clustered" : "unclustered")
+                            + " index on " + columnName + ": " + bPlusTreeIndex.getEntryCount() + " entries");
+                }
+                HashIndex hashIndex = catalog.getHashIndex(tableName, columnName);
+                if (hashIndex != null) {
+                    System.out.println("  hash index on " + columnName + ": " + hashIndex.getEntryCount()
+                            + " entries in " + hashIndex.getBucketCount() + " buckets");
+                }
+            }
+            TableStatistics statistics = catalog.getTableStatistics(tableName);
+            if (statistics != null) {
+                System.out.println("  statistics: " + statistics.getRowCount() + " rows");
+            }
+            if (!catalog.getSortOrder(tableName).isEmpty()) {
+                System.out.println("  sort order: " + catalog.getSortOrder(tableName));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to append to table " + tableName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends rows to the data file of a table in the catalog, and updates the zone map, indexes,
+     * statistics and sort order of the table which were up to date before.
+     * @param tableName The name of the table.
+     * @param rows The values of the rows, by column position.
+     * @throws IOException If the data file cannot be read or written.
+     * @throws IllegalArgumentException If a row does not have a value for every column.
+     */
+    public static void append(String tableName, List<int[]> rows) throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        Path csvPath = catalog.getDBLocation(tableName);
+        List<String> columnNames = catalog.getColumnNames(tableName);
+        for (int r = 0; r < rows.size(); r++) {
+            if (rows.get(r).length != columnNames.size()) {
+                throw new IllegalArgumentException("Row " + r + " has " + rows.get(r).length
+                        + " values, expected " + columnNames.size());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Find the metadata which is up to date before the data file changes
+        ZoneMap zoneMap = catalog.getZoneMap(tableName);
+        Map<String, BPlusTreeIndex> bPlusTreeIndexes = new LinkedHashMap<>();
+        Map<String, HashIndex> hashIndexes = new LinkedHashMap<>();
+        for (String columnName : columnNames) {
+            BPlusTreeIndex bPlusTreeIndex = catalog.getBPlusTreeIndex(tableName, columnName);
+            if (bPlusTreeIndex != null) {
+                bPlusTreeIndexes.put(columnName, bPlusTreeIndex);
+            }
+            HashIndex hashIndex = catalog.getHashIndex(tableName, columnName);
+            if (hashIndex != null) {
+                hashIndexes.put(columnName, hashIndex);
+            }
+        }
+        TableStatistics statistics = catalog.getTableStatistics(tableName);
+        List<String> sortOrder = catalog.getSortOrder(tableName);
+        int[] lastRow = sortOrder.isEmpty() ? null : readLastRow(csvPath);
+
+        Path binaryPath = catalog.getBinaryLocation(tableName);
+        Path columnDirectory = catalog.getColumnarLocation(tableName);
+
+        long[] offsets = appendRows(csvPath, rows);
+        BufferPool.getInstance().refresh(csvPath);
+        catalog.dropDerivedData(tableName);
+
+        // Delete the copies rather than count on them looking older than the data file,
+        // which they do not if they were written within the resolution of the modification times
+        if (binaryPath != null) {
+            Files.deleteIfExists(binaryPath);
+        }
+        if (columnDirectory != null) {
+            try (Stream<Path> columnFiles = Files.list(columnDirectory)) {
+                columnFiles.forEach(columnFile -> columnFile.toFile().delete());
+            }
+        }
+
+        if (zoneMap != null) {
+            Path zoneMapPath = DBCatalog.getZoneMapPath(csvPath);
+            try {
+                for (int r = 0; r < rows.size(); r++) {
+                    zoneMap.addRow(offsets[r], rows.get(r), Constants.ZONE_MAP_BLOCK_ROWS);
+                }
+                zoneMap.write(zoneMapPath);
+            } catch (IOException e) {
+                System.err.println("Error updating zone map of table " + tableName + ": " + e.getMessage());
+                Files.deleteIfExists(zoneMapPath);
+                zoneMap = null;
+            }
+            catalog.setZoneMap(tableName, zoneMap);
+        }
+
+        for (Map.Entry<String, BPlusTreeIndex> entry : bPlusTreeIndexes.entrySet()) {
+            BPlusTreeIndex index = entry.getValue();
+            try {
+                index = index.insert(columnValues(rows, index.getColumnIndex()), offsets);
+            } catch (IOException e) {
+                System.err.println("Error updating index on " + tableName + "." + entry.getKey() + ": " + e.getMessage());
+                Files.deleteIfExists(index.getIndexPath());
+                index = null;
+            }
+            catalog.setBPlusTreeIndex(tableName, entry.getKey(), index);
+        }
+        for (Map.Entry<String, HashIndex> entry : hashIndexes.entrySet()) {
+            HashIndex index = entry.getValue();
+            try {
+                index = index.insert(columnValues(rows, index.getColumnIndex()), offsets);
+            } catch (IOException e) {
+                System.err.println("Error updating hash index on " + tableName + "." + entry.getKey() + ": " + e.getMessage());
+                Files.deleteIfExists(index.getIndexPath());
+                index = null;
+            }
+            catalog.setHashIndex(tableName, entry.getKey(), index);
+        }
+
+        if (statistics != null) {
+            TableAnalyzer.recordStatistics(tableName, statistics.withAppendedRows(rows));
+        }
+
+        if (!sortOrder.isEmpty()) {
+            int[] sortColumns = new int[sortOrder.size()];
+            for (int i = 0; i < sortColumns.length; i++) {
+                sortColumns[i] = catalog.getDBSchemata(tableName).get(sortOrder.get(i));
+            }
+            boolean sorted = true;
+            int[] previous = lastRow;
+            for (int[] row : rows) {
+                sorted &= previous == null || compareOn(previous, row, sortColumns) <= 0;
+                previous = row;
+            }
+            if (sorted) {
+                TableClusterer.recordSortOrder(tableName, sortOrder);
+            } else {
+                catalog.setSortOrder(tableName, Collections.emptyList());
+            }
+        }
+    }
+
+    /**
+     * Writes rows at the end of a CSV data file, after a line separator if the file does not end with one.
+     * @param csvPath The location of the CSV data file.
+     * @param rows The values of the rows.
+     * @return The byte offset of every row in the file.
+     * @throws IOException If the file cannot be read or written.
+     */
+    private static long[] appendRows(Path csvPath, List<int[]> rows) throws IOException {
+        long[] offsets = new long[rows.size()];
+        StringBuilder text = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > 0) {
+                ByteBuffer lastByte = ByteBuffer.allocate(1);
+                channel.read(lastByte, size - 1);
+                if (lastByte.get(0) != '\n') {
+                    text.append('\n');
+                }
+            }
+            for (int r = 0; r < rows.size(); r++) {
+                offsets[r] = size + text.length();
+                int[] row = rows.get(r);
+                for (int i = 0; i < row.length; i++) {
+                    text.append(i == 0 ? "" : ", ").append(row[i]);
+                }
+                text.append('\n');
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII));
+            long position = size;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Reads the last row of a CSV data file, reading back from the end of the file until a whole
+     * non-blank line has been read.
+     * @param csvPath The location of the CSV data file.
+     * @return The values of the last row, or null if the file has no rows.
+     * @throws IOException If the file cannot be read.
+     */
+    private static int[] readLastRow(Path csvPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long tail = 4096; ; tail *= 2) {
+                long start = Math.max(0, size - tail);
+                ByteBuffer buffer = ByteBuffer.allocate((int) (size - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                String[] lines = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).split("\n");
+                // The first line is only whole if the tail starts at the beginning of the file
+                for (int i = lines.length - 1; i >= (start == 0 ? 0 : 1); i--) {
+                    String row = lines[i].trim();
+                    if (!row.isEmpty()) {
+                        String[] fields = row.split(",\\s*");
+                        int[] values = new int[fields.length];
+                        for (int v = 0; v < fields.length; v++) {
+                            values[v] = Integer.parseInt(fields[v].trim());
+                        }
+                        return values;
+                    }
+                }
+                if (start == 0) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private static int[] columnValues(List<int[]> rows, int column) {
+        int[] values = new int[rows.size()];
+        for (int r = 0; r < values.length; r++) {
+            values[r] = rows.get(r)[column];
+        }
+        return values;
+    }
+
+    private static int compareOn(int[] a, int[] b, int[] columns) {
+        for (int column : columns) {
+            if (a[column] != b[column]) {
+                return Integer.compare(a[column], b[column]);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,153 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The TableClusterer class sorts the CSV data file of a table on one or more columns and records
+ * the sort order in the sort order file of the database, next to schema.txt, one line
+ * "Table column..." per sorted table.
+ * Scans of a table with a recorded sort order report it as their output order, so the optimizer
+ * drops an ORDER BY on a prefix of it, a GROUP BY on its leading columns is aggregated one group
+ * at a time, and merge joins on the leading column read the table without sorting it.
+ * Sorting the data file makes the binary and columnar copies, zone map and indexes of the table
+ * out of date; the catalog ignores them until they are built again, which keeps the order.
+ * A recorded order is ignored by the catalog once the CSV file is newer than the sort order file.
+ * Usage: TableClusterer database_dir table column...
+ * @see DBCatalog#getSortOrder(String)
+ */
+public class TableClusterer {
+
+    /**
+     * A row of the data file with its values in the sort columns.
+     */
+    private static class SortRow {
+        final String line;
+        final int[] key;
+
+        SortRow(String line, int[] key) {
+            this.line = line;
+            this.key = key;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: TableClusterer database_dir table column...");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        String tableName = args[1];
+        if (!catalog.tableExists(tableName)) {
+            System.err.println("Table " + tableName + " not found in the database");
+            return;
+        }
+        List<String> columnNames = new ArrayList<>();
+        int[] columnIndices = new int[args.length - 2];
+        for (int i = 2; i < args.length; i++) {
+            if (!catalog.columnExists(tableName, args[i])) {
+                System.err.println("Column " + args[i] + " not found in table " + tableName);
+                return;
+            }
+            columnNames.add(args[i].toLowerCase());
+            columnIndices[i - 2] = catalog.getDBSchemata(tableName).get(args[i].toLowerCase());
+        }
+
+        try {
+            int rows = sortDataFile(catalog.getDBLocation(tableName), columnIndices);
+            recordSortOrder(tableName, columnNames);
+            System.out.println("Sorted " + rows + " rows of " + tableName + " on " + columnNames
+                    + ", recorded in " + DBCatalog.getSortOrderPath(catalog.getDBLocation(tableName)));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to cluster table " + tableName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rewrites a CSV data file with its rows sorted on the given columns, dropping blank lines.
+     * Rows with equal values in all sort columns keep the order they have in the file.
+     * This holds all rows in memory.
+     * @param csvPath The location of the CSV data file.
+     * @param columnIndices The positions of the sort columns, in order of precedence.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static int sortDataFile(Path csvPath, int[] columnIndices) throws IOException {
+        List<SortRow> rows = new ArrayList<>();
+        for (String line : Files.readAllLines(csvPath, StandardCharsets.UTF_8)) {
+            String row = line.trim();
+            if (!row.isEmpty()) {
+                String[] values = row.split(",\\s*");
+                int[] key = new int[columnIndices.length];
+                for (int i = 0; i < columnIndices.length; i++) {
+                    key[i] = Integer.parseInt(values[columnIndices[i]].trim());
+                }
+                rows.add(new SortRow(row, key));
+            }
+        }
+        rows.sort((a, b) -> {
+            for (int i = 0; i < a.key.length; i++) {
+                if (a.key[i] != b.key[i]) {
+                    return Integer.compare(a.key[i], b.key[i]);
+                }
+            }
+            return 0;
+        });
+
+        Path sortedPath = csvPath.resolveSibling(csvPath.getFileName() + ".sorted");
+        try (BufferedWriter writer = Files.newBufferedWriter(sortedPath, StandardCharsets.UTF_8)) {
+            for (SortRow row : rows) {
+                writer.write(row.line);
+                writer.write('\n');
+            }
+        }
+        Files.move(sortedPath, csvPath, StandardCopyOption.REPLACE_EXISTING);
+        BufferPool.getInstance().refresh(csvPath);
+        return rows.size();
+    }
+
+    /**
+     * Records the sort order of a table in the sort order file of the database in the catalog.
+     * The recorded orders of other tables are kept if they are still up to date, and dropped
+     * otherwise, so that rewriting the file does not make a stale order look current again.
+     * The data file must have been sorted before the order is recorded.
+     * @param tableName The name of the sorted table.
+     * @param columnNames The sort columns, in order of precedence.
+     * @throws IOException If the sort order file cannot be written.
+     */
+    public static void recordSortOrder(String tableName, List<String> columnNames) throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        Map<String, List<String>> sortOrders = new TreeMap<>();
+        for (String otherTable : catalog.getTableNames()) {
+            List<String> sortOrder = catalog.getSortOrder(otherTable);
+            if (!otherTable.equals(tableName) && !sortOrder.isEmpty()) {
+                sortOrders.put(otherTable, sortOrder);
+            }
+        }
+        List<String> sortOrder = new ArrayList<>();
+        for (String columnName : columnNames) {
+            sortOrder.add(columnName.toLowerCase());
+        }
+        sortOrders.put(tableName, sortOrder);
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : sortOrders.entrySet()) {
+            lines.add(entry.getKey() + " " + String.join(" ", entry.getValue()));
+        }
+        Files.write(DBCatalog.getSortOrderPath(catalog.getDBLocation(tableName)), lines, StandardCharsets.UTF_8);
+        catalog.setSortOrder(tableName, sortOrder);
+    }
+}
@@ -0,0 +1,385 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The TableStatistics class holds the number of rows of a table and the {@link ColumnStatistics}
+ * of each of its columns, used by the optimizer to estimate the cardinality of plans.
+ * Statistics are collected by {@link TableAnalyzer} in a single pass over the CSV data file:
+ * - the number of rows and the minimum and maximum of every column are exact
+ * - the number of distinct values is estimated from the smallest hashes of the values
+ *   (a k minimum values sketch), which is exact for columns with few distinct values
+ * - the equi-depth histograms are built from a uniform sample of rows (reservoir sampling),
+ *   which is the whole table for small tables
+ * The statistics of all analyzed tables are stored in the statistics file next to schema.txt,
+ * as a line "Table rows" for every table followed by a line
+ * "Table.column min max distinct bound..." for each of its columns, and are loaded on demand by
+ * {@link DBCatalog}.
+ */
+public class TableStatistics {
+
+    // Seed of the row sample, so that analyzing the same data gives the same statistics
+    private static final long SAMPLE_SEED = 42;
+
+    // Number of points standing for the old rows of a histogram bucket when rows are appended
+    private static final int HISTOGRAM_MERGE_POINTS = 16;
+
+    private final long rowCount;
+    private final Map<String, ColumnStatistics> columnStatistics;
+
+    /**
+     * Estimates the number of distinct values of a column from the smallest hashes of its values.
+     */
+    private static class DistinctSketch {
+        private final TreeSet<Long> smallestHashes = new TreeSet<>();
+        private final int capacity;
+
+        DistinctSketch(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void add(int value) {
+            // Scramble the value into a non-negative 63 bit hash
+            long h = value * 0x9E3779B97F4A7C15L;
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            h = (h ^ (h >>> 31)) >>> 1;
+
+            if (smallestHashes.size() < capacity) {
+                smallestHashes.add(h);
+            } else if (h < smallestHashes.last() && smallestHashes.add(h)) {
+                smallestHashes.pollLast();
+            }
+        }
+
+        long estimate() {
+            if (smallestHashes.size() < capacity) {
+                return smallestHashes.size(); // every distinct value is kept
+            }
+            // The k-th smallest of n uniform hashes is expected at k / n of the hash range
+            return Math.round((capacity - 1) * (double) Long.MAX_VALUE / smallestHashes.last());
+        }
+    }
+
+    /**
+     * Constructs the statistics of a table.
+     * @param rowCount The number of rows of the table.
+     * @param columnStatistics The statistics of the columns, keyed by lowercase column name.
+     */
+    public TableStatistics(long rowCount, Map<String, ColumnStatistics> columnStatistics) {
+        this.rowCount = rowCount;
+        this.columnStatistics = new LinkedHashMap<>();
+        for (Map.Entry<String, ColumnStatistics> entry : columnStatistics.entrySet()) {
+            this.columnStatistics.put(entry.getKey().toLowerCase(), entry.getValue());
+        }
+    }
+
+    /**
+     * Collects the statistics of a table by reading its CSV data file once.
+     * @param csvPath The location of the CSV data file.
+     * @param columnNames The names of the columns of the table, by position.
+     * @return The statistics of the table.
+     * @throws IOException If the file cannot be read.
+     */
+    public static TableStatistics compute(Path csvPath, List<String> columnNames) throws IOException {
+        int numColumns = columnNames.size();
+        int sampleSize = Constants.STATISTICS_SAMPLE_ROWS;
+        int[] mins = new int[numColumns];
+        int[] maxs = new int[numColumns];
+        Arrays.fill(mins, Integer.MAX_VALUE);
+        Arrays.fill(maxs, Integer.MIN_VALUE);
+        List<DistinctSketch> sketches = new ArrayList<>();
+        List<int[]> sample = new ArrayList<>();
+        for (int i = 0; i < numColumns; i++) {
+            sketches.add(new DistinctSketch(Constants.DISTINCT_SKETCH_SIZE));
+        }
+
+        Random random = new Random(SAMPLE_SEED);
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String row = line.trim();
+                if (row.isEmpty()) {
+                    continue;
+                }
+                String[] fields = row.split(",\\s*");
+                if (fields.length != numColumns) {
+                    throw new IllegalArgumentException("Row " + rows + " of " + csvPath
+                            + " has " + fields.length + " values, expected " + numColumns);
+                }
+                int[] values = new int[numColumns];
+                for (int i = 0; i < numColumns; i++) {
+                    values[i] = Integer.parseInt(fields[i].trim());
+                    mins[i] = Math.min(mins[i], values[i]);
+                    maxs[i] = Math.max(maxs[i], values[i]);
+                    sketches.get(i).add(values[i]);
+                }
+
+                // Reservoir sampling: the row replaces a random sampled row with probability sampleSize / rows
+                if (rows < sampleSize) {
+                    sample.add(values);
+                } else {
+                    long slot = (long) (random.nextDouble() * (rows + 1));
+                    if (slot < sampleSize) {
+                        sample.set((int) slot, values);
+                    }
+                }
+                rows++;
+            }
+        }
+
+        Map<String, ColumnStatistics> columnStatistics = new LinkedHashMap<>();
+        for (int i = 0; i < numColumns; i++) {
+            if (rows == 0) {
+                columnStatistics.put(columnNames.get(i), new ColumnStatistics(0, 0, 0, new int[0]));
+                continue;
+            }
+
+            int[] values = new int[sample.size()];
+            for (int r = 0; r < values.length; r++) {
+                values[r] = sample.get(r)[i];
+            }
+            Arrays.sort(values);
+
+            // Bound b is the value a fraction b / buckets into the sorted sample; the outer bounds are exact
+            int buckets = Math.min(Constants.HISTOGRAM_BUCKETS, values.length);
+            int[] bounds = new int[buckets + 1];
+            for (int b = 0; b <= buckets; b++) {
+                bounds[b] = values[(int) ((long) b * (values.length - 1) / buckets)];
+            }
+            bounds[0] = mins[i];
+            bounds[buckets] = maxs[i];
+
+            long distinctCount = Math.max(1, Math.min(rows, sketches.get(i).estimate()));
+            columnStatistics.put(columnNames.get(i), new ColumnStatistics(mins[i], maxs[i], distinctCount, bounds));
+        }
+        return new TableStatistics(rows, columnStatistics);
+    }
+
+    /**
+     * Estimates the statistics of the table after rows were appended to it, without reading the
+     * rows already in the table. The row count, minimum and maximum stay exact.
+     * A distinct value of the new rows outside the old range of a column is counted as a new value,
+     * and one inside it in proportion to the share of the range the old distinct values leave
+     * free, so that appending repeated values to a dense column does not inflate its count.
+     * The histogram is rebuilt from the old rows, spread evenly within their buckets, and a sample
+     * of the new rows. The estimates drift as more rows are appended; analyzing the table again
+     * makes them exact.
+     * @param rows The values of the appended rows, by column position.
+     * @return The statistics of the table with the rows appended.
+     */
+    public TableStatistics withAppendedRows(List<int[]> rows) {
+        if (rows.isEmpty()) {
+            return this;
+        }
+
+        // Sample the new rows in the same way as compute
+        Random random = new Random(SAMPLE_SEED);
+        int sampleSize = Constants.STATISTICS_SAMPLE_ROWS;
+        List<int[]> sample = new ArrayList<>();
+        for (int r = 0; r < rows.size(); r++) {
+            if (r < sampleSize) {
+                sample.add(rows.get(r));
+            } else {
+                long slot = (long) (random.nextDouble() * (r + 1));
+                if (slot < sampleSize) {
+                    sample.set((int) slot, rows.get(r));
+                }
+            }
+        }
+
+        long newRowCount = rowCount + rows.size();
+        Map<String, ColumnStatistics> appended = new LinkedHashMap<>();
+        int column = 0;
+        for (Map.Entry<String, ColumnStatistics> entry : columnStatistics.entrySet()) {
+            ColumnStatistics old = entry.getValue();
+            boolean wasEmpty = rowCount == 0 || old.getDistinctCount() == 0;
+            int min = wasEmpty ? Integer.MAX_VALUE : old.getMin();
+            int max = wasEmpty ? Integer.MIN_VALUE : old.getMax();
+
+            Set<Integer> newValues = new HashSet<>();
+            for (int[] row : rows) {
+                newValues.add(row[column]);
+                min = Math.min(min, row[column]);
+                max = Math.max(max, row[column]);
+            }
+            double freeShare = wasEmpty ? 1
+                    : 1 - Math.min(1, old.getDistinctCount() / ((double) old.getMax() - old.getMin() + 1));
+            double addedValues = 0;
+            for (int value : newValues) {
+                addedValues += wasEmpty || value < old.getMin() || value > old.getMax() ? 1 : freeShare;
+            }
+            long distinctCount = Math.max(1, Math.min(newRowCount,
+                    (wasEmpty ? 0 : old.getDistinctCount()) + Math.round(addedValues)));
+
+            int[] sampleValues = new int[sample.size()];
+            for (int r = 0; r < sampleValues.length; r++) {
+                sampleValues[r] = sample.get(r)[column];
+            }
+            int[] bounds = mergeHistogram(wasEmpty ? new int[0] : old.getHistogramBounds(), rowCount,
+                    sampleValues, rows.size(), newRowCount);
+            bounds[0] = min;
+            bounds[bounds.length - 1] = max;
+            appended.put(entry.getKey(), new ColumnStatistics(min, max, distinctCount, bounds));
+            column++;
+        }
+        return new TableStatistics(newRowCount, appended);
+    }
+
+    /**
+     * Builds the equi-depth histogram of a column from the histogram of its old rows and a sample
+     * of its new rows. The old rows of every bucket are represented by points spread evenly
+     * between its bounds, weighted by the rows they stand for, as are the sampled new rows.
+     * @param oldBounds The bounds of the histogram of the old rows, none if there were no rows.
+     * @param oldRows The number of old rows.
+     * @param sampleValues The values of the sampled new rows.
+     * @param newRows The number of new rows.
+     * @param totalRows The number of rows of the table.
+     * @return The bounds of the new histogram; the outer bounds are left for the caller to set exactly.
+     */
+    private static int[] mergeHistogram(int[] oldBounds, long oldRows, int[] sampleValues, long newRows,
+                                        long totalRows) {
+        int oldBuckets = Math.max(0, oldBounds.length - 1);
+        int[] oldPoints = new int[oldBuckets * HISTOGRAM_MERGE_POINTS];
+        for (int b = 0; b < oldBuckets; b++) {
+            long width = (long) oldBounds[b + 1] - oldBounds[b];
+            for (int p = 0; p < HISTOGRAM_MERGE_POINTS; p++) {
+                oldPoints[b * HISTOGRAM_MERGE_POINTS + p] =
+                        (int) (oldBounds[b] + width * (2 * p + 1) / (2 * HISTOGRAM_MERGE_POINTS));
+            }
+        }
+        int[] newPoints = sampleValues.clone();
+        Arrays.sort(oldPoints);
+        Arrays.sort(newPoints);
+        double oldWeight = oldPoints.length == 0 ? 0 : (double) oldRows / oldPoints.length;
+        double newWeight = (double) newRows / newPoints.length;
+
+        // Walk the points in ascending order, placing bound b where a fraction b / buckets of the rows is passed
+        int buckets = (int) Math.min(Constants.HISTOGRAM_BUCKETS, Math.min(Constants.STATISTICS_SAMPLE_ROWS, totalRows));
+        int[] bounds = new int[buckets + 1];
+        double totalWeight = oldWeight * oldPoints.length + newWeight * newPoints.length;
+        double passedWeight = 0;
+        int oldPoint = 0;
+        int newPoint = 0;
+        int value = 0;
+        for (int b = 1; b < buckets; b++) {
+            double target = totalWeight * b / buckets;
+            while (passedWeight < target && (oldPoint < oldPoints.length || newPoint < newPoints.length)) {
+                if (newPoint == newPoints.length
+                        || (oldPoint < oldPoints.length && oldPoints[oldPoint] <= newPoints[newPoint])) {
+                    value = oldPoints[oldPoint++];
+                    passedWeight += oldWeight;
+                } else {
+                    value = newPoints[newPoint++];
+                    passedWeight += newWeight;
+                }
+            }
+            bounds[b] = value;
+        }
+        return bounds;
+    }
+
+    /**
+     * Formats the statistics as lines of the statistics file.
+     * @param tableName The name of the table.
+     * @return The table line followed by a line per column.
+     */
+    public List<String> toLines(String tableName) {
+        List<String> lines = new ArrayList<>();
+        lines.add(tableName + " " + rowCount);
+        for (Map.Entry<String, ColumnStatistics> entry : columnStatistics.entrySet()) {
+            ColumnStatistics stats = entry.getValue();
+            StringBuilder line = new StringBuilder(tableName + "." + entry.getKey());
+            line.append(' ').append(stats.getMin()).append(' ').append(stats.getMax())
+                    .append(' ').append(stats.getDistinctCount());
+            for (int bound : stats.getHistogramBounds()) {
+                line.append(' ').append(bound);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Parses the lines of a statistics file.
+     * @param lines The lines of the file.
+     * @return The statistics of every table in the file, keyed by table name.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    public static Map<String, TableStatistics> parse(List<String> lines) {
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        Map<String, Map<String, ColumnStatistics>> columns = new HashMap<>();
+        for (String line : lines) {
+            String[] parts = line.trim().split(Constants.SPLITTER_REGEX);
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            try {
+                int dot = parts[0].indexOf('.');
+                if (dot < 0 && parts.length == 2) {
+                    rowCounts.put(parts[0], Long.parseLong(parts[1]));
+                } else if (dot > 0 && parts.length >= 4) {
+                    int[] bounds = new int[parts.length - 4];
+                    for (int i = 0; i < bounds.length; i++) {
+                        bounds[i] = Integer.parseInt(parts[4 + i]);
+                    }
+                    columns.computeIfAbsent(parts[0].substring(0, dot), t -> new LinkedHashMap<>())
+                            .put(parts[0].substring(dot + 1), new ColumnStatistics(Integer.parseInt(parts[1]),
+                                    Integer.parseInt(parts[2]), Long.parseLong(parts[3]), bounds));
+                } else {
+                    throw new IllegalArgumentException("Malformed statistics line: " + line);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed statistics line: " + line, e);
+            }
+        }
+
+        Map<String, TableStatistics> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : rowCounts.entrySet()) {
+            statistics.put(entry.getKey(), new TableStatistics(entry.getValue(),
+                    columns.getOrDefault(entry.getKey(), Collections.emptyMap())));
+        }
+        return statistics;
+    }
+
+    /**
+     * Get the number of rows of the table.
+     * @return The row count.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the statistics of a column.
+     * @param columnName The name of the column, in any case.
+     * @return The statistics of the column, or null if the column was not analyzed.
+     */
+    public ColumnStatistics getColumnStatistics(String columnName) {
+        return columnStatistics.get(columnName.toLowerCase());
+    }
+
+    /**
+     * Get the names of the analyzed columns.
+     * @return The lowercase column names, by position.
+     */
+    public List<String> getColumnNames() {
+        return new ArrayList<>(columnStatistics.keySet());
+    }
+}
@@ -1,5 +1,6 @@
 package ed.inf.adbs.blazedb;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -39,6 +40,19 @@ public class Tuple {
         return attributes.get(i);
     }
 
+    /**
+     * Get the attributes at the given positions, e.g. the join key of a hash-based join.
+     * @param indices The zero-based indices of the attributes to retrieve.
+     * @return A new list of the attribute values, in the order of the indices, usable as a hash table key.
+     */
+    public List<Integer> getAttributes(List<Integer> indices) {
+        List<Integer> values = new ArrayList<>(indices.size());
+        for (Integer index : indices) {
+            values.add(attributes.get(index));
+        }
+        return values;
+    }
+
     /**
      * Converts the tuple to a comma-separated string.
      * @see BlazeDB used for writing tuples to output file.
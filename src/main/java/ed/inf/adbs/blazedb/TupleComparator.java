@@ -7,6 +7,8 @@ import java.util.List;
  * A custom comparator class for the tuples.
  * @see ed.inf.adbs.blazedb.operator.SortOperator
  * Used to sort tuples based on specified sort columns.
+ * @see ed.inf.adbs.blazedb.operator.SortMergeJoinOperator
+ * Also used to compare join keys of tuples with different schemas.
  * Assume only ascending order.
  */
 public class TupleComparator implements Comparator<Tuple> {
@@ -14,13 +16,29 @@ public class TupleComparator implements Comparator<Tuple> {
     // The column indices for the attributes to sort tuple with
     private List<Integer> sortColumnIndices;
 
+    // The column indices used for the second tuple, identical to sortColumnIndices unless
+    // tuples from two different schemas are compared
+    private List<Integer> otherColumnIndices;
+
     /**
      * Construct a tuple comparator given an ordered list of columns to sort with.
      * @param sortColumnIndices An ordered list containing columns to sort the tuple with
      *                          The order is specified by the ORDER BY from query.
      */
     public TupleComparator(List<Integer> sortColumnIndices) {
-        this.sortColumnIndices = sortColumnIndices;
+        this(sortColumnIndices, sortColumnIndices);
+    }
+
+    /**
+     * Construct a tuple comparator for tuples of two different schemas.
+     * The i-th column of the first tuple is compared with the i-th column of the second tuple.
+     * @param firstColumnIndices An ordered list containing columns of the first tuple.
+     * @param secondColumnIndices An ordered list containing columns of the second tuple,
+     *                            of the same length as firstColumnIndices.
+     */
+    public TupleComparator(List<Integer> firstColumnIndices, List<Integer> secondColumnIndices) {
+        this.sortColumnIndices = firstColumnIndices;
+        this.otherColumnIndices = secondColumnIndices;
     }
 
     /**
@@ -36,12 +54,12 @@ public class TupleComparator implements Comparator<Tuple> {
      */
     @Override
     public int compare(Tuple t1, Tuple t2) {
-        for (Integer columnIndex : sortColumnIndices) {
-            int value1 = t1.getAttribute(columnIndex);
-            int value2 = t2.getAttribute(columnIndex);
+        for (int i = 0; i < sortColumnIndices.size(); i++) {
+            int value1 = t1.getAttribute(sortColumnIndices.get(i));
+            int value2 = t2.getAttribute(otherColumnIndices.get(i));
 
             if (value1 != value2) {
-                return value1 - value2; // Ascending order
+                return Integer.compare(value1, value2); // Ascending order
             }
         }
         return 0; // Tuples are equal
@@ -0,0 +1,260 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ZoneMap class holds the minimum and maximum value of every column for consecutive blocks
+ * of rows of a table, so that a scan can skip the blocks whose ranges cannot satisfy its predicates.
+ * Blocks are defined on rows in file order, which makes the same zone map usable by every scan of
+ * the table regardless of the file it reads: the CSV file (where each block also records the byte
+ * offset of its first row), the binary page file, or the column files.
+ * Zone maps are stored in a sidecar file next to the CSV data file, data/Table.zonemap, written
+ * by {@link ZoneMapBuilder}, and are loaded on demand by {@link DBCatalog}.
+ * The sidecar file holds the number of columns and blocks, followed by the byte offset, row count,
+ * and the minimum and maximum of every column for each block.
+ * Blank lines of the CSV file are not counted as rows, in the same way as the scans skip them.
+ * @see ZoneMapFilter decides which blocks may contain matching rows.
+ */
+public class ZoneMap {
+
+    private final int numColumns;
+    private final List<Long> blockOffsets;
+    private final List<Long> blockFirstRows;
+    private final List<Integer> blockRowCounts;
+    private final List<int[]> blockMins;
+    private final List<int[]> blockMaxs;
+
+    /**
+     * Constructs an empty zone map.
+     * @param numColumns The number of columns of the table.
+     */
+    public ZoneMap(int numColumns) {
+        this.numColumns = numColumns;
+        this.blockOffsets = new ArrayList<>();
+        this.blockFirstRows = new ArrayList<>();
+        this.blockRowCounts = new ArrayList<>();
+        this.blockMins = new ArrayList<>();
+        this.blockMaxs = new ArrayList<>();
+    }
+
+    /**
+     * Builds a zone map by reading a CSV data file once.
+     * @param csvPath The location of the CSV data file.
+     * @param numColumns The number of columns of the table.
+     * @param blockRows The number of rows per block.
+     * @return The zone map of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ZoneMap build(Path csvPath, int numColumns, int blockRows) throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Zone map blocks must hold at least one row, got " + blockRows);
+        }
+
+        ZoneMap zoneMap = new ZoneMap(numColumns);
+        int[] values = new int[numColumns];
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(csvPath))) {
+            StringBuilder line = new StringBuilder();
+            long position = 0;
+            long lineStart = 0;
+            int b;
+            while (true) {
+                b = in.read();
+                if (b == -1 || b == '\n') {
+                    String row = line.toString().trim();
+                    if (!row.isEmpty()) {
+                        String[] fields = row.split(",\\s*");
+                        if (fields.length != numColumns) {
+                            throw new IllegalArgumentException("Row at offset " + lineStart + " of " + csvPath
+                                    + " has " + fields.length + " values, expected " + numColumns);
+                        }
+                        for (int i = 0; i < numColumns; i++) {
+                            values[i] = Integer.parseInt(fields[i].trim());
+                        }
+                        zoneMap.addRow(lineStart, values, blockRows);
+                    }
+                    if (b == -1) {
+                        break;
+                    }
+                    line.setLength(0);
+                    lineStart = position + 1;
+                } else {
+                    line.append((char) b);
+                }
+                position++;
+            }
+        }
+        return zoneMap;
+    }
+
+    /**
+     * Adds a row to the last block, starting a new block when the last one is full.
+     * @param offset The byte offset of the row in the CSV data file.
+     * @param values The values of the row.
+     * @param blockRows The number of rows per block.
+     */
+    public void addRow(long offset, int[] values, int blockRows) {
+        int last = blockRowCounts.size() - 1;
+        if (last < 0 || blockRowCounts.get(last) >= blockRows) {
+            long firstRow = last < 0 ? 0 : blockFirstRows.get(last) + blockRowCounts.get(last);
+            blockOffsets.add(offset);
+            blockFirstRows.add(firstRow);
+            blockRowCounts.add(1);
+            blockMins.add(values.clone());
+            blockMaxs.add(values.clone());
+            return;
+        }
+
+        blockRowCounts.set(last, blockRowCounts.get(last) + 1);
+        int[] mins = blockMins.get(last);
+        int[] maxs = blockMaxs.get(last);
+        for (int i = 0; i < numColumns; i++) {
+            mins[i] = Math.min(mins[i], values[i]);
+            maxs[i] = Math.max(maxs[i], values[i]);
+        }
+    }
+
+    /**
+     * Reads a zone map from its sidecar file.
+     * @param path The location of the sidecar file.
+     * @return The zone map.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ZoneMap read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int numColumns = in.readInt();
+            int numBlocks = in.readInt();
+            ZoneMap zoneMap = new ZoneMap(numColumns);
+            long firstRow = 0;
+            for (int block = 0; block < numBlocks; block++) {
+                zoneMap.blockOffsets.add(in.readLong());
+                int rowCount = in.readInt();
+                zoneMap.blockFirstRows.add(firstRow);
+                zoneMap.blockRowCounts.add(rowCount);
+                firstRow += rowCount;
+
+                int[] mins = new int[numColumns];
+                int[] maxs = new int[numColumns];
+                for (int i = 0; i < numColumns; i++) {
+                    mins[i] = in.readInt();
+                    maxs[i] = in.readInt();
+                }
+                zoneMap.blockMins.add(mins);
+                zoneMap.blockMaxs.add(maxs);
+            }
+            return zoneMap;
+        }
+    }
+
+    /**
+     * Writes the zone map to its sidecar file, replacing any existing file.
+     * @param path The location of the sidecar file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(numColumns);
+            out.writeInt(getBlockCount());
+            for (int block = 0; block < getBlockCount(); block++) {
+                out.writeLong(blockOffsets.get(block));
+                out.writeInt(blockRowCounts.get(block));
+                for (int i = 0; i < numColumns; i++) {
+                    out.writeInt(blockMins.get(block)[i]);
+                    out.writeInt(blockMaxs.get(block)[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of blocks.
+     * @return The number of blocks.
+     */
+    public int getBlockCount() {
+        return blockRowCounts.size();
+    }
+
+    /**
+     * Get the number of columns of the table.
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return numColumns;
+    }
+
+    /**
+     * Get the byte offset of the first row of a block in the CSV data file.
+     * @param block The block number.
+     * @return The byte offset.
+     */
+    public long getBlockOffset(int block) {
+        return blockOffsets.get(block);
+    }
+
+    /**
+     * Get the position of the first row of a block among the rows of the table.
+     * @param block The block number.
+     * @return The row number, starting at 0.
+     */
+    public long getFirstRow(int block) {
+        return blockFirstRows.get(block);
+    }
+
+    /**
+     * Get the number of rows in a block.
+     * @param block The block number.
+     * @return The number of rows.
+     */
+    public int getRowCount(int block) {
+        return blockRowCounts.get(block);
+    }
+
+    /**
+     * Get the smallest value of a column in a block.
+     * @param block The block number.
+     * @param column The position of the column in the table.
+     * @return The minimum value.
+     */
+    public int getMin(int block, int column) {
+        return blockMins.get(block)[column];
+    }
+
+    /**
+     * Get the largest value of a column in a block.
+     * @param block The block number.
+     * @param column The position of the column in the table.
+     * @return The maximum value.
+     */
+    public int getMax(int block, int column) {
+        return blockMaxs.get(block)[column];
+    }
+
+    /**
+     * Get the total number of rows in the table.
+     * @return The number of rows.
+     */
+    public long getTotalRowCount() {
+        int last = getBlockCount() - 1;
+        return last < 0 ? 0 : blockFirstRows.get(last) + blockRowCounts.get(last);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ZoneMap(" + getBlockCount() + " blocks)");
+        for (int block = 0; block < getBlockCount(); block++) {
+            sb.append("\n  rows ").append(getFirstRow(block)).append("+").append(getRowCount(block))
+                    .append(" min ").append(Arrays.toString(blockMins.get(block)))
+                    .append(" max ").append(Arrays.toString(blockMaxs.get(block)));
+        }
+        return sb.toString();
+    }
+}
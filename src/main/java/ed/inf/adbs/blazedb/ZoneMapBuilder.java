@@ -0,0 +1,56 @@
+package ed.inf.adbs.blazedb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ZoneMapBuilder class builds the zone maps of the tables of a database and writes them
+ * to their sidecar files, data/Table.zonemap next to the CSV data files.
+ * A zone map holds the minimum and maximum of every column for each block of rows; it is
+ * most useful on tables sorted or clustered on the columns queries select on.
+ * A zone map older than its CSV file is ignored by the catalog, so the builder has to be run
+ * again after the data changes, unless rows were appended by {@link TableAppender}, which
+ * extends the zone map.
+ * Usage: ZoneMapBuilder database_dir [table ...]
+ * Without table names, a zone map is built for every table of the database.
+ * @see ZoneMap
+ */
+public class ZoneMapBuilder {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: ZoneMapBuilder database_dir [table ...]");
+            return;
+        }
+
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(args[0]);
+        DBCatalog catalog = DBCatalog.getInstance();
+
+        List<String> tableNames = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length)
+                : new ArrayList<>(catalog.getTableNames());
+        for (String tableName : tableNames) {
+            if (!catalog.tableExists(tableName)) {
+                System.err.println("Table " + tableName + " not found in the database");
+                continue;
+            }
+
+            Path csvPath = catalog.getDBLocation(tableName);
+            Path zoneMapPath = DBCatalog.getZoneMapPath(csvPath);
+            try {
+                ZoneMap zoneMap = ZoneMap.build(csvPath, catalog.getDBSchemata(tableName).size(),
+                        Constants.ZONE_MAP_BLOCK_ROWS);
+                zoneMap.write(zoneMapPath);
+                System.out.println("Built zone map of " + tableName + ": " + zoneMap.getBlockCount()
+                        + " blocks written to " + zoneMapPath);
+            } catch (IOException e) {
+                System.err.println("Failed to build zone map of table " + tableName + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package ed.inf.adbs.blazedb;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NotExpression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.ComparisonOperator;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The ZoneMapFilter class is a utility visitor which turns the selection condition on a table
+ * into an inclusive range of values per column, and uses these ranges to decide which blocks
+ * of a {@link ZoneMap} may hold matching rows.
+ * Only comparisons (=, <, <=, >, >=) between a column of the table and an integer constant are
+ * used, e.g. Student.A < 3 becomes the range [Long.MIN_VALUE, 2] on Student.A; several comparisons
+ * on the same column narrow its range. Any other conjunct is ignored, so a block which may match
+ * is not guaranteed to hold a matching row, and the selection still evaluates the complete
+ * condition on every row read.
+ * The ranges are also evaluated directly on compressed column data, see {@link ColumnCompression#evaluateRange}.
+ * @see ed.inf.adbs.blazedb.operator.ScanOperator#setScanPredicate
+ */
+public class ZoneMapFilter extends ExpressionVisitorAdapter {
+
+    private final String tableName;
+    private final Map<String, Integer> tableSchema;
+
+    // Inclusive bounds on the value of every column of the table
+    private final long[] lowerBounds;
+    private final long[] upperBounds;
+    private boolean hasBounds;
+
+    /**
+     * Constructs a ZoneMapFilter from a condition on the given table.
+     * @param tableName The name of the filtered table
+     * @param condition The selection condition on the table
+     */
+    public ZoneMapFilter(String tableName, Expression condition) {
+        this.tableName = tableName;
+        this.tableSchema = DBCatalog.getInstance().getDBSchemata(tableName);
+        this.lowerBounds = new long[tableSchema.size()];
+        this.upperBounds = new long[tableSchema.size()];
+        Arrays.fill(lowerBounds, Long.MIN_VALUE);
+        Arrays.fill(upperBounds, Long.MAX_VALUE);
+
+        condition.accept(this);
+    }
+
+    /**
+     * Visits an AND expression and processes each of its conjuncts separately.
+     * @param andExpression The AND expression to process
+     */
+    @Override
+    public void visit(AndExpression andExpression) {
+        andExpression.getLeftExpression().accept(this);
+        andExpression.getRightExpression().accept(this);
+    }
+
+    /**
+     * Visits an = comparison and records it as a range if it compares a column with a constant.
+     * @param equalsTo The comparison to process
+     */
+    @Override
+    public void visit(EqualsTo equalsTo) {
+        Column column = getColumn(equalsTo);
+        Long value = getConstant(equalsTo);
+        if (column != null && value != null) {
+            addLowerBound(column, value);
+            addUpperBound(column, value);
+        }
+    }
+
+    /**
+     * Visits a > comparison and records it as a bound if it compares a column with a constant.
+     * @param greaterThan The comparison to process
+     */
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        addComparison(greaterThan, true, false);
+    }
+
+    /**
+     * Visits a >= comparison and records it as a bound if it compares a column with a constant.
+     * @param greaterThanEquals The comparison to process
+     */
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        addComparison(greaterThanEquals, true, true);
+    }
+
+    /**
+     * Visits a < comparison and records it as a bound if it compares a column with a constant.
+     * @param minorThan The comparison to process
+     */
+    @Override
+    public void visit(MinorThan minorThan) {
+        addComparison(minorThan, false, false);
+    }
+
+    /**
+     * Visits a <= comparison and records it as a bound if it compares a column with a constant.
+     * @param minorThanEquals The comparison to process
+     */
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        addComparison(minorThanEquals, false, true);
+    }
+
+    /**
+     * A negated condition cannot be used as a bound, so the comparisons inside it are ignored.
+     * @param notExpression The NOT expression to process
+     */
+    @Override
+    public void visit(NotExpression notExpression) {
+        // not a bound
+    }
+
+    /**
+     * Any other expression cannot be used as a bound, and its operands are not searched
+     * for comparisons.
+     * @param expression The binary expression to process
+     */
+    @Override
+    public void visitBinaryExpression(BinaryExpression expression) {
+        // not a bound
+    }
+
+    /**
+     * Records a comparison between a column of the table and a constant as a bound on the column.
+     * @param comparison The comparison to process
+     * @param greater true if the comparison is left > right (or >=), false if left < right (or <=)
+     * @param inclusive true if equality satisfies the comparison
+     */
+    private void addComparison(ComparisonOperator comparison, boolean greater, boolean inclusive) {
+        Column column = getColumn(comparison);
+        Long value = getConstant(comparison);
+        if (column == null || value == null) {
+            return;
+        }
+
+        // column > constant is a lower bound, constant > column an upper bound
+        boolean isLowerBound = comparison.getLeftExpression() instanceof Column ? greater : !greater;
+        if (isLowerBound) {
+            addLowerBound(column, inclusive || value == Long.MAX_VALUE ? value : value + 1);
+        } else {
+            addUpperBound(column, inclusive || value == Long.MIN_VALUE ? value : value - 1);
+        }
+    }
+
+    /**
+     * Returns the column of the table compared in a comparison with a constant.
+     * @param comparison The comparison to check
+     * @return The compared column, or null if the comparison is not between a column of this table and a constant
+     */
+    private Column getColumn(ComparisonOperator comparison) {
+        Expression left = comparison.getLeftExpression();
+        Expression right = comparison.getRightExpression();
+        Expression column;
+        if (left instanceof Column && right instanceof LongValue) {
+            column = left;
+        } else if (right instanceof Column && left instanceof LongValue) {
+            column = right;
+        } else {
+            return null;
+        }
+
+        Column tableColumn = (Column) column;
+        if (tableColumn.getTable() == null || !tableName.equals(tableColumn.getTable().getName())
+                || !tableSchema.containsKey(tableColumn.getColumnName().toLowerCase())) {
+            return null;
+        }
+        return tableColumn;
+    }
+
+    /**
+     * Returns the constant of a comparison between a column and a constant.
+     * @param comparison The comparison to check
+     * @return The value of the constant, or null if neither side is a constant
+     */
+    private static Long getConstant(ComparisonOperator comparison) {
+        if (comparison.getRightExpression() instanceof LongValue) {
+            return ((LongValue) comparison.getRightExpression()).getValue();
+        }
+        if (comparison.getLeftExpression() instanceof LongValue) {
+            return ((LongValue) comparison.getLeftExpression()).getValue();
+        }
+        return null;
+    }
+
+    private void addLowerBound(Column column, long value) {
+        int index = tableSchema.get(column.getColumnName().toLowerCase());
+        lowerBounds[index] = Math.max(lowerBounds[index], value);
+        hasBounds = true;
+    }
+
+    private void addUpperBound(Column column, long value) {
+        int index = tableSchema.get(column.getColumnName().toLowerCase());
+        upperBounds[index] = Math.min(upperBounds[index], value);
+        hasBounds = true;
+    }
+
+    /**
+     * Checks whether the condition bounds any column of the table, i.e. whether any block can be skipped.
+     * @return true if at least one comparison with a constant was found, false otherwise
+     */
+    public boolean hasBounds() {
+        return hasBounds;
+    }
+
+    /**
+     * Checks whether the condition bounds a column.
+     * @param column The position of the column in the table
+     * @return true if a comparison with a constant was found on the column, false otherwise
+     */
+    public boolean isBounded(int column) {
+        return lowerBounds[column] != Long.MIN_VALUE || upperBounds[column] != Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the smallest value of a column which may satisfy the condition.
+     * @param column The position of the column in the table
+     * @return The inclusive lower bound, or Long.MIN_VALUE if there is none
+     */
+    public long getLowerBound(int column) {
+        return lowerBounds[column];
+    }
+
+    /**
+     * Get the largest value of a column which may satisfy the condition.
+     * @param column The position of the column in the table
+     * @return The inclusive upper bound, or Long.MAX_VALUE if there is none
+     */
+    public long getUpperBound(int column) {
+        return upperBounds[column];
+    }
+
+    /**
+     * Checks whether a block may hold a row satisfying the condition, i.e. whether the range of every
+     * bounded column is not empty and overlaps the values of the column in the block.
+     * @param zoneMap The zone map of the table
+     * @param block The block number
+     * @return false if no row of the block can satisfy the condition, true otherwise
+     */
+    public boolean mightMatch(ZoneMap zoneMap, int block) {
+        for (int i = 0; i < lowerBounds.length; i++) {
+            if (lowerBounds[i] > upperBounds[i]
+                    || zoneMap.getMax(block, i) < lowerBounds[i] || zoneMap.getMin(block, i) > upperBounds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,182 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BinaryTableConverter;
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * The BinaryScanOperator performs a full table scan over a table file in the binary page format
+ * written by {@link BinaryTableConverter}.
+ * Pages are pinned one at a time in the shared {@link BufferPool}, whose pages have the size of
+ * the pages of the file, and the attribute values are decoded with absolute getInt() calls on
+ * the frame holding the page, so no page is copied, no line or string is built and no value is
+ * parsed from text. The page is unpinned when the scan moves to the next page or is closed.
+ * Runtime filters are checked on the decoded values before a tuple is built for a row.
+ * Pages are full except for the last one, so a block of rows skipped using the zone map is
+ * skipped by pinning the page holding the next row to read.
+ * Lookup mode reads the rows from the CSV file as in {@link ScanOperator}, since the offsets
+ * of the table indexes refer to the CSV file.
+ * @see ScanOperator
+ */
+public class BinaryScanOperator extends ScanOperator {
+
+    private final Path binaryPath;
+    private boolean opened;
+
+    // The pinned page, the number of the page to read after it, its layout, and the next tuple to decode from it
+    private ByteBuffer page;
+    private long nextPage;
+    private int numColumns;
+    private int tuplesInPage;
+    private int tupleIndex;
+    private int[] rowValues;
+
+    /**
+     * Construct a binary scan operator for the given table.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public BinaryScanOperator(String tableName) {
+        super(tableName, false);
+        binaryPath = DBCatalog.getInstance().getBinaryLocation(tableName);
+        if (binaryPath == null) {
+            throw new IllegalArgumentException("No binary data file found for table " + tableName);
+        }
+        BufferPool.getInstance().refresh(binaryPath);
+
+        openReader();
+    }
+
+    /**
+     * Moves back to the first page of the binary file.
+     */
+    @Override
+    protected void openReader() {
+        unpinPage();
+        opened = true;
+        nextPage = 0;
+        tuplesInPage = 0;
+        tupleIndex = 0;
+    }
+
+    /**
+     * Retrieves the next tuple from the current page, reading the next page when it is exhausted.
+     * Rows rejected by a runtime filter are skipped.
+     * If the end of the file is reached, the last page is unpinned, and null is returned.
+     * @return The next tuple, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            return super.getNextTuple();
+        }
+        if (!opened) {
+            return null;
+        }
+
+        try {
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    seekRow(getScanRow());
+                }
+                if (tupleIndex == tuplesInPage) {
+                    if (!readPage()) { // END OF FILE
+                        closeReader();
+                        return null;
+                    }
+                    continue;
+                }
+
+                int offset = BinaryTableConverter.PAGE_HEADER_SIZE + tupleIndex * numColumns * Integer.BYTES;
+                tupleIndex++;
+                countScannedRow();
+                for (int i = 0; i < numColumns; i++) {
+                    rowValues[i] = page.getInt(offset + i * Integer.BYTES);
+                }
+
+                if (passesRuntimeFilters(rowValues)) {
+                    ArrayList<Integer> attributes = new ArrayList<>(numColumns);
+                    for (int value : rowValues) {
+                        attributes.add(value);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Moves to the given row by pinning the page holding it.
+     * @param row The row number, starting at 0.
+     * @throws IOException If the file cannot be read.
+     */
+    private void seekRow(long row) throws IOException {
+        int pageCapacity = BinaryTableConverter.getPageCapacity(DBCatalog.getInstance().getDBSchemata(getTableName()).size());
+        nextPage = row / pageCapacity;
+        if (readPage()) {
+            tupleIndex = (int) Math.min(row % pageCapacity, tuplesInPage);
+        } else {
+            tuplesInPage = 0;
+            tupleIndex = 0;
+        }
+    }
+
+    /**
+     * Pins the next page of the file in the buffer pool, unpinning the current one, and decodes its header.
+     * @return true if a page was read, false at the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private boolean readPage() throws IOException {
+        unpinPage();
+        page = BufferPool.getInstance().pinPage(binaryPath, nextPage);
+        if (page == null || page.limit() < BinaryTableConverter.PAGE_HEADER_SIZE) {
+            return false;
+        }
+        nextPage++;
+
+        numColumns = page.getInt(0);
+        tuplesInPage = page.getInt(Integer.BYTES);
+        tupleIndex = 0;
+        if (rowValues == null || rowValues.length != numColumns) {
+            rowValues = new int[numColumns];
+        }
+        return true;
+    }
+
+    /**
+     * Unpins the current page, if any.
+     */
+    private void unpinPage() {
+        if (page != null) {
+            BufferPool.getInstance().unpinPage(page);
+            page = null;
+        }
+    }
+
+    /**
+     * Unpin the current page of the binary file, and close the reader used in lookup mode.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        unpinPage();
+        opened = false;
+    }
+
+    /**
+     * Get the location of the binary file this operator scans.
+     * @return The path of the binary file.
+     */
+    public Path getBinaryPath() {
+        return binaryPath;
+    }
+}
@@ -0,0 +1,140 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BlockNestedLoopJoinOperator implements the block nested loop join algorithm.
+ * Instead of rescanning the inner child for every outer tuple, it buffers a block of
+ * outer tuples in memory and scans the inner child once per block, joining every inner
+ * tuple with all buffered outer tuples.
+ * This reduces the number of inner rescans from |outer| to |outer| / blockSize, which matters
+ * for joins without an equi-join key (e.g. inequality joins and cross products).
+ * Within a block, results are produced in the order of the inner child, so unlike the tuple
+ * nested loop join the order of the outer child is not preserved.
+ * @see JoinOperator
+ */
+public class BlockNestedLoopJoinOperator extends JoinOperator {
+
+    private final int blockSize;
+
+    // The buffered block of outer tuples
+    private final List<Tuple> outerBlock;
+    private int blockIndex;
+    private boolean outerExhausted;
+
+    private Tuple currentInnerTuple;
+
+    /**
+     * Constructs a BlockNestedLoopJoinOperator with the given block size.
+     * @param outerChild The outer (left) child operator, scanned once.
+     * @param innerChild The inner (right) child operator, scanned once per block.
+     * @param expression The join condition expression, or null for cross product.
+     * @param blockSize The number of outer tuples buffered per block, at least 1.
+     */
+    public BlockNestedLoopJoinOperator(Operator outerChild, Operator innerChild, Expression expression, int blockSize) {
+        super(outerChild, innerChild, expression);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1, got " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.outerBlock = new ArrayList<>(blockSize);
+        this.blockIndex = 0;
+        this.outerExhausted = false;
+        this.currentInnerTuple = null;
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * 1. Fill a block with up to blockSize tuples from the outer child
+     * 2. Scan the inner child once, combining each inner tuple with every tuple in the block
+     * 3. Return combined tuples satisfying the join condition
+     * 4. When the inner child is exhausted, load the next block and reset the inner child
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (outerBlock.isEmpty() && !loadNextBlock()) {
+            return null;
+        }
+
+        while (true) {
+            if (currentInnerTuple != null && blockIndex < outerBlock.size()) {
+                Tuple combined = combineTuples(outerBlock.get(blockIndex), currentInnerTuple);
+                blockIndex++;
+                if (expression == null || evaluator.evaluate(expression, combined)) {
+                    return combined;
+                }
+                continue;
+            }
+
+            currentInnerTuple = child.getNextTuple();
+            blockIndex = 0;
+            if (currentInnerTuple == null && !loadNextBlock()) {
+                return null; // no more tuples from either children
+            }
+        }
+    }
+
+    /**
+     * Buffers the next block of outer tuples and resets the inner child for a new scan.
+     * @return true if the block contains at least one tuple, false if the outer child is exhausted
+     */
+    private boolean loadNextBlock() {
+        outerBlock.clear();
+        currentInnerTuple = null;
+        blockIndex = 0;
+
+        while (!outerExhausted && outerBlock.size() < blockSize) {
+            Tuple outerTuple = outerChild.getNextTuple();
+            if (outerTuple == null) {
+                outerExhausted = true;
+            } else {
+                outerBlock.add(outerTuple);
+            }
+        }
+
+        if (outerBlock.isEmpty()) {
+            return false;
+        }
+
+        child.reset(); // reset inner child for the new block
+        return true;
+    }
+
+    /**
+     * Resets the join operator to its initial state.
+     * Resets the outer child and clears the buffered block; the inner child is reset
+     * when the first block is loaded.
+     */
+    @Override
+    public void reset() {
+        outerChild.reset();
+        outerBlock.clear();
+        blockIndex = 0;
+        outerExhausted = false;
+        currentInnerTuple = null;
+    }
+
+    /**
+     * Results within a block follow the inner child, so no order is guaranteed.
+     * @return An empty list.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the number of outer tuples buffered per block.
+     * @return The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
@@ -0,0 +1,381 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.SchemaTransformationType;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The ColumnarScanOperator performs a table scan over a table in the columnar layout written by
+ * {@link ed.inf.adbs.blazedb.ColumnarTableConverter}, reading only the files of the columns it outputs.
+ * By default all columns are output, in table order. When the query plan only needs some of the
+ * columns, the optimizer sets them as the output columns instead of placing a projection above
+ * the scan; the scan then produces the projected tuples directly and registers a projected schema.
+ * Columns used by runtime filters are read as well, so that rows can be filtered before a tuple is built.
+ * The column files are read through the shared {@link BufferPool}; their readers stay open until
+ * the scan is closed, so reset() only rewinds them.
+ * Blocks of rows skipped using the zone map are skipped by moving every open column file to the next row to read.
+ * Lookup mode reads the rows from the CSV file as in {@link ScanOperator}, since the offsets
+ * of the table indexes refer to the CSV file, and projects them to the output columns.
+ * @see ScanOperator
+ * @see CompressedColumnarScanOperator reads compressed column files.
+ * @see ed.inf.adbs.blazedb.QueryPlanOptimizer sets the output columns during projection push down.
+ */
+public class ColumnarScanOperator extends ScanOperator {
+
+    private final Path columnDirectory;
+    private final List<String> columnNames;
+
+    // Output columns and their positions in the table, or null to output every column
+    private List<Column> outputColumns;
+    private int[] outputIndices;
+
+    // One reader per table column, opened when the column is needed
+    private final ColumnReader[] readers;
+    private boolean readersOpened;
+    private final int[] rowValues;
+
+    /**
+     * Sequential reader for a single column file, copying its pages from the buffer pool.
+     */
+    private static class ColumnReader {
+        final Path columnFile;
+        final ByteBuffer buffer;
+        long position;
+
+        ColumnReader(Path columnFile) {
+            this.columnFile = columnFile;
+            BufferPool.getInstance().refresh(columnFile);
+            buffer = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            buffer.flip(); // nothing read yet
+        }
+
+        /**
+         * Checks whether another value can be read, refilling the buffer when it is exhausted.
+         * @return true if there is another value, false at the end of the file.
+         */
+        boolean hasNext() throws IOException {
+            if (buffer.remaining() >= Integer.BYTES) {
+                return true;
+            }
+            buffer.compact();
+            while (buffer.position() < Integer.BYTES) {
+                int read = BufferPool.getInstance().read(columnFile, position, buffer);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= Integer.BYTES;
+        }
+
+        int next() {
+            return buffer.getInt();
+        }
+
+        /**
+         * Moves the reader to the value of the given row.
+         * @param row The row number, starting at 0.
+         */
+        void seek(long row) {
+            position = row * Integer.BYTES;
+            buffer.clear();
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Construct a columnar scan operator for the given table, outputting all of its columns.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public ColumnarScanOperator(String tableName) {
+        super(tableName, false);
+        columnDirectory = DBCatalog.getInstance().getColumnarLocation(tableName);
+        if (columnDirectory == null) {
+            throw new IllegalArgumentException("No column files found for table " + tableName);
+        }
+        columnNames = DBCatalog.getInstance().getColumnNames(tableName);
+        readers = new ColumnReader[columnNames.size()];
+        rowValues = new int[columnNames.size()];
+        setOutputColumns(null);
+    }
+
+    /**
+     * Sets the columns this scan outputs, in the given order.
+     * Only the files of these columns, and of columns used by runtime filters, are read.
+     * @param columns The columns of this table to output, or null to output every column in table order.
+     */
+    public void setOutputColumns(List<Column> columns) {
+        if (columns == null) {
+            outputColumns = null;
+            outputIndices = new int[columnNames.size()];
+            for (int i = 0; i < outputIndices.length; i++) {
+                outputIndices[i] = i;
+            }
+        } else {
+            // Keep the first occurrence of every column
+            Map<String, Integer> schema = DBCatalog.getInstance().getDBSchemata(getTableName());
+            Set<String> seen = new HashSet<>();
+            List<Column> distinctColumns = new ArrayList<>();
+            List<Integer> indices = new ArrayList<>();
+            for (Column column : columns) {
+                String columnName = column.getColumnName().toLowerCase();
+                Integer index = schema.get(columnName);
+                if (index == null) {
+                    throw new IllegalArgumentException("Column " + column + " not found in table " + getTableName());
+                }
+                if (seen.add(columnName)) {
+                    distinctColumns.add(column);
+                    indices.add(index);
+                }
+            }
+            outputColumns = distinctColumns;
+            outputIndices = indices.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        readersOpened = false;
+        schemaRegistered = false;
+    }
+
+    /**
+     * Get the columns this scan outputs.
+     * @return The output columns, or null if every column of the table is output.
+     */
+    public List<Column> getOutputColumns() {
+        return outputColumns == null ? null : Collections.unmodifiableList(outputColumns);
+    }
+
+    /**
+     * The rows are returned in the order of the data file, but only the leading sort columns
+     * which are output remain sorted.
+     * @return The prefix of the sort order of the table that is still present in the output.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        List<Column> tableOrder = super.getOutputOrder();
+        if (outputColumns == null) {
+            return tableOrder;
+        }
+
+        Set<String> retained = new HashSet<>();
+        for (Column column : outputColumns) {
+            retained.add(column.getColumnName().toLowerCase());
+        }
+        List<Column> outputOrder = new ArrayList<>();
+        for (Column column : tableOrder) {
+            if (!retained.contains(column.getColumnName())) {
+                break;
+            }
+            outputOrder.add(column);
+        }
+        return outputOrder;
+    }
+
+    /**
+     * Get the positions in the table of the columns this scan outputs.
+     * @return The column positions, in output order.
+     */
+    protected int[] getOutputIndices() {
+        return outputIndices;
+    }
+
+    /**
+     * Get the directory holding the column files of the table.
+     * @return The Path of the column directory.
+     */
+    protected Path getColumnDirectory() {
+        return columnDirectory;
+    }
+
+    /**
+     * Get the names of the columns of the table, which name their column files.
+     * @return The lower case column names, by position.
+     */
+    protected List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Opens the readers of the output columns and of the columns used by runtime filters,
+     * positioned at the current row.
+     */
+    private void openColumnReaders() {
+        for (int index : outputIndices) {
+            openColumnReader(index);
+        }
+        Map<String, Integer> schema = DBCatalog.getInstance().getDBSchemata(getTableName());
+        for (Column column : getRuntimeFilterColumns()) {
+            openColumnReader(schema.get(column.getColumnName().toLowerCase()));
+        }
+        readersOpened = true;
+    }
+
+    /**
+     * Opens the reader of a single column if it is not open yet.
+     * @param index The position of the column in the table.
+     */
+    private void openColumnReader(int index) {
+        if (readers[index] == null) {
+            readers[index] = new ColumnReader(columnDirectory.resolve(columnNames.get(index) + Constants.COLUMN_FILE_EXTENSION));
+            readers[index].seek(getScanRow());
+        }
+    }
+
+    /**
+     * Rewinds the open column files to the first row.
+     */
+    @Override
+    protected void openReader() {
+        seekColumnReaders(0);
+    }
+
+    /**
+     * Moves the open column files to the given row.
+     * @param row The row number, starting at 0.
+     */
+    private void seekColumnReaders(long row) {
+        for (ColumnReader reader : readers) {
+            if (reader != null) {
+                reader.seek(row);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the next tuple by reading the next value of every open column file.
+     * Rows rejected by a runtime filter are skipped.
+     * @return The next tuple holding the output columns, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            Tuple tuple = super.getNextTuple();
+            return tuple == null || outputColumns == null ? tuple : project(tuple.getTuple());
+        }
+
+        try {
+            if (!readersOpened) {
+                openColumnReaders();
+            }
+
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    seekColumnReaders(getScanRow());
+                }
+                for (int i = 0; i < readers.length; i++) {
+                    if (readers[i] != null) {
+                        if (!readers[i].hasNext()) { // END OF FILE
+                            return null;
+                        }
+                        rowValues[i] = readers[i].next();
+                    }
+                }
+                countScannedRow();
+
+                if (passesRuntimeFilters(rowValues)) {
+                    ArrayList<Integer> attributes = new ArrayList<>(outputIndices.length);
+                    for (int index : outputIndices) {
+                        attributes.add(rowValues[index]);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Projects a complete row of the table to the output columns.
+     * @param values The values of every column of the row.
+     * @return The tuple holding the output columns.
+     */
+    private Tuple project(List<Integer> values) {
+        ArrayList<Integer> attributes = new ArrayList<>(outputIndices.length);
+        for (int index : outputIndices) {
+            attributes.add(values.get(index));
+        }
+        return new Tuple(attributes);
+    }
+
+    /**
+     * Adds a runtime filter on a column of the scanned table, reading the column file if needed.
+     * @param column The filtered column of this table.
+     * @param filter The filter holding the values that may have a match.
+     */
+    @Override
+    public void addRuntimeFilter(Column column, BloomFilter filter) {
+        super.addRuntimeFilter(column, filter);
+        readersOpened = false;
+    }
+
+    /**
+     * Propagates the schema of this scan, which is the table itself when all columns are output.
+     * @return The table name, or the identifier of the projected schema.
+     */
+    @Override
+    public String propagateSchemaId() {
+        ensureSchemaRegistered();
+        return intermediateSchemaId;
+    }
+
+    /**
+     * Registers the schema of the output columns as an intermediate schema, in the same way
+     * as a projection on the table would.
+     */
+    @Override
+    protected void registerSchema() {
+        if (schemaRegistered) return;
+
+        if (outputColumns == null) {
+            intermediateSchemaId = getTableName();
+            schemaRegistered = true;
+            return;
+        }
+
+        Map<String, Integer> projectedSchema = new HashMap<>();
+        Map<String, String> transformationDetails = new HashMap<>();
+        for (int i = 0; i < outputColumns.size(); i++) {
+            String key = getTableName() + "." + outputColumns.get(i).getColumnName().toLowerCase();
+            projectedSchema.put(key, i);
+            transformationDetails.put(key, Integer.toString(outputIndices[i]));
+        }
+
+        intermediateSchemaId = DBCatalog.getInstance().registerSchemaWithTransformation(
+                projectedSchema,
+                getTableName(),
+                SchemaTransformationType.PROJECTION,
+                transformationDetails
+        );
+
+        schemaRegistered = true;
+    }
+
+    /**
+     * Drop the readers of the column files, and close the reader used in lookup mode.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        Arrays.fill(readers, null);
+        readersOpened = false;
+    }
+}
@@ -0,0 +1,328 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.ColumnCompression;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.ZoneMapFilter;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CompressedColumnarScanOperator performs a table scan over a table in the columnar layout
+ * whose column files are compressed by {@link ColumnCompression}, one chunk of rows at a time.
+ * For every chunk, the ranges of the scan predicate (see {@link ScanOperator#setScanPredicate})
+ * are first evaluated on the encoded values of the bounded columns, without decoding them.
+ * Only if some rows of the chunk are in range, the columns the scan outputs or filters on are
+ * decoded in bulk; rows out of range are skipped before a tuple is built for them.
+ * As in {@link ColumnarScanOperator}, only the files of the required columns are read, through
+ * the shared {@link BufferPool}.
+ * @see ColumnarScanOperator
+ */
+public class CompressedColumnarScanOperator extends ColumnarScanOperator {
+
+    // One reader per table column, opened when the column is needed
+    private final CompressedColumnReader[] readers;
+
+    // The current chunk: its number, number of rows, the next row to read, and the rows in range
+    private int chunkIndex;
+    private int chunkRows;
+    private int chunkPosition;
+    private boolean chunksExhausted;
+    private final boolean[] matches;
+
+    // Decoded values of every column, and the chunk they belong to
+    private final int[][] decodedValues;
+    private final int[] decodedChunks;
+    private final int[] rowValues;
+    private int[] runtimeFilterIndices;
+
+    /**
+     * Reader for the chunks of a single compressed column file, copying them from the buffer pool.
+     */
+    private static class CompressedColumnReader {
+        final Path columnFile;
+        final ByteBuffer lengthBuffer;
+        ByteBuffer chunk;
+        int loadedChunk;
+
+        // File offsets of the chunks found so far
+        final List<Long> chunkOffsets;
+
+        CompressedColumnReader(Path columnFile) {
+            this.columnFile = columnFile;
+            BufferPool.getInstance().refresh(columnFile);
+            lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+            chunk = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+            loadedChunk = -1;
+            chunkOffsets = new ArrayList<>();
+            chunkOffsets.add(0L);
+        }
+
+        /**
+         * Reads the given chunk into the chunk buffer, finding the offsets of the chunks before it first.
+         * @param index The chunk number.
+         * @return true if the chunk was read, false if the file has fewer chunks.
+         */
+        boolean readChunk(int index) throws IOException {
+            if (loadedChunk == index) {
+                return true;
+            }
+            while (chunkOffsets.size() <= index) {
+                long offset = chunkOffsets.get(chunkOffsets.size() - 1);
+                int length = readLength(offset);
+                if (length < 0) {
+                    return false;
+                }
+                chunkOffsets.add(offset + Integer.BYTES + length);
+            }
+
+            long offset = chunkOffsets.get(index);
+            int length = readLength(offset);
+            if (length < 0) {
+                return false;
+            }
+            if (chunk.capacity() < length) {
+                chunk = ByteBuffer.allocate(length);
+            }
+            chunk.clear();
+            chunk.limit(length);
+            long position = offset + Integer.BYTES;
+            while (chunk.hasRemaining()) {
+                int read = BufferPool.getInstance().read(columnFile, position, chunk);
+                if (read == -1) {
+                    throw new IOException("Truncated chunk " + index);
+                }
+                position += read;
+            }
+            chunk.flip();
+            loadedChunk = index;
+            return true;
+        }
+
+        /**
+         * Reads the length of the chunk starting at the given offset.
+         * @return The length in bytes, or -1 at the end of the file.
+         */
+        private int readLength(long offset) throws IOException {
+            lengthBuffer.clear();
+            while (lengthBuffer.hasRemaining()) {
+                if (BufferPool.getInstance().read(columnFile, offset + lengthBuffer.position(), lengthBuffer) == -1) {
+                    return -1;
+                }
+            }
+            return lengthBuffer.getInt(0);
+        }
+    }
+
+    /**
+     * Construct a compressed columnar scan operator for the given table, outputting all of its columns.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public CompressedColumnarScanOperator(String tableName) {
+        super(tableName);
+        if (!DBCatalog.getInstance().isColumnarCompressed(tableName)) {
+            throw new IllegalArgumentException("No compressed column files found for table " + tableName);
+        }
+        int numColumns = getColumnNames().size();
+        readers = new CompressedColumnReader[numColumns];
+        matches = new boolean[Constants.COMPRESSED_CHUNK_ROWS];
+        decodedValues = new int[numColumns][];
+        decodedChunks = new int[numColumns];
+        rowValues = new int[numColumns];
+        openReader();
+    }
+
+    /**
+     * Moves back to the first chunk; the column files stay open.
+     */
+    @Override
+    protected void openReader() {
+        chunkIndex = -1;
+        chunkRows = 0;
+        chunkPosition = 0;
+        chunksExhausted = false;
+        Arrays.fill(decodedChunks, -1);
+    }
+
+    /**
+     * Retrieves the next tuple from the current chunk, loading the next chunk when it is exhausted.
+     * Rows out of the ranges of the scan predicate, or rejected by a runtime filter, are skipped.
+     * @return The next tuple holding the output columns, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            return super.getNextTuple();
+        }
+
+        try {
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    moveToRow(getScanRow());
+                }
+                if (chunkPosition == chunkRows) {
+                    if (chunksExhausted || !loadChunk(chunkIndex + 1)) { // END OF FILE
+                        return null;
+                    }
+                    continue;
+                }
+
+                int position = chunkPosition++;
+                countScannedRow();
+                if (!matches[position]) {
+                    continue;
+                }
+
+                for (int index : getOutputIndices()) {
+                    rowValues[index] = decodeColumn(index)[position];
+                }
+                for (int index : runtimeFilterIndices) {
+                    rowValues[index] = decodeColumn(index)[position];
+                }
+                if (passesRuntimeFilters(rowValues)) {
+                    int[] outputIndices = getOutputIndices();
+                    ArrayList<Integer> attributes = new ArrayList<>(outputIndices.length);
+                    for (int index : outputIndices) {
+                        attributes.add(rowValues[index]);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Loads a chunk and evaluates the ranges of the scan predicate on its encoded values.
+     * @param index The chunk number.
+     * @return true if the chunk was loaded, false if the table has fewer chunks.
+     * @throws IOException If a column file cannot be read.
+     */
+    private boolean loadChunk(int index) throws IOException {
+        int[] outputIndices = getOutputIndices();
+        CompressedColumnReader reader = getReader(outputIndices[0]);
+        if (!reader.readChunk(index)) {
+            chunkIndex = index;
+            chunkRows = 0;
+            chunkPosition = 0;
+            chunksExhausted = true;
+            return false;
+        }
+
+        chunkIndex = index;
+        chunkRows = ColumnCompression.getValueCount(reader.chunk);
+        runtimeFilterIndices = getRuntimeFilterIndices();
+        chunkPosition = 0;
+        Arrays.fill(matches, 0, chunkRows, true);
+
+        ZoneMapFilter scanFilter = getScanFilter();
+        if (scanFilter != null) {
+            for (int column = 0; column < readers.length; column++) {
+                if (scanFilter.isBounded(column)) {
+                    CompressedColumnReader boundedReader = getReader(column);
+                    boundedReader.readChunk(index);
+                    if (ColumnCompression.evaluateRange(boundedReader.chunk, scanFilter.getLowerBound(column),
+                            scanFilter.getUpperBound(column), matches) == 0) {
+                        break; // no row of the chunk is in range
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves to the given row, loading the chunk holding it.
+     * @param row The row number, starting at 0.
+     * @throws IOException If a column file cannot be read.
+     */
+    private void moveToRow(long row) throws IOException {
+        int index = (int) (row / Constants.COMPRESSED_CHUNK_ROWS);
+        if (index != chunkIndex && !loadChunk(index)) {
+            return;
+        }
+        chunkPosition = (int) Math.min(row % Constants.COMPRESSED_CHUNK_ROWS, chunkRows);
+    }
+
+    /**
+     * Decodes a column of the current chunk in bulk, unless it has been decoded already.
+     * @param column The position of the column in the table.
+     * @return The decoded values of the column for the rows of the chunk.
+     * @throws IOException If the column file cannot be read.
+     */
+    private int[] decodeColumn(int column) throws IOException {
+        if (decodedChunks[column] != chunkIndex) {
+            CompressedColumnReader reader = getReader(column);
+            reader.readChunk(chunkIndex);
+            if (decodedValues[column] == null) {
+                decodedValues[column] = new int[Constants.COMPRESSED_CHUNK_ROWS];
+            }
+            ColumnCompression.decode(reader.chunk, decodedValues[column]);
+            decodedChunks[column] = chunkIndex;
+        }
+        return decodedValues[column];
+    }
+
+    /**
+     * Get the reader of a column file, opening it on first use.
+     * @param column The position of the column in the table.
+     * @return The reader of the column file.
+     */
+    private CompressedColumnReader getReader(int column) {
+        if (readers[column] == null) {
+            readers[column] = new CompressedColumnReader(getColumnDirectory().resolve(
+                    getColumnNames().get(column) + Constants.COMPRESSED_COLUMN_FILE_EXTENSION));
+        }
+        return readers[column];
+    }
+
+    /**
+     * Get the positions in the table of the columns used by runtime filters.
+     * @return The column positions.
+     */
+    private int[] getRuntimeFilterIndices() {
+        List<Column> columns = getRuntimeFilterColumns();
+        if (columns.isEmpty()) {
+            return new int[0];
+        }
+        Map<String, Integer> schema = DBCatalog.getInstance().getDBSchemata(getTableName());
+        int[] indices = new int[columns.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = schema.get(columns.get(i).getColumnName().toLowerCase());
+        }
+        return indices;
+    }
+
+    /**
+     * Adds a runtime filter on a column of the scanned table, decoding the column if needed.
+     * @param column The filtered column of this table.
+     * @param filter The filter holding the values that may have a match.
+     */
+    @Override
+    public void addRuntimeFilter(Column column, BloomFilter filter) {
+        super.addRuntimeFilter(column, filter);
+        runtimeFilterIndices = getRuntimeFilterIndices();
+    }
+
+    /**
+     * Drop the readers of the column files, and close the reader used in lookup mode.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        Arrays.fill(readers, null);
+    }
+}
@@ -1,6 +1,7 @@
 package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.schema.Column;
 
 import java.util.*;
 
@@ -101,6 +102,16 @@ public class DuplicateEliminationOperator extends Operator {
         return intermediateSchemaId;
     }
 
+    /**
+     * Unique tuples are returned in the order they are first seen,
+     * so the order of the child is preserved.
+     * @return The output order of the child operator.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return child.getOutputOrder();
+    }
+
     /**
      * Registers the schema for this operator.
      * Creates a schema identical to the child operator's schema, since sorting
@@ -0,0 +1,586 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The GraceHashJoinOperator implements the Grace hash join algorithm for equi-join conditions
+ * whose inputs may not fit in memory.
+ * If the inner (build) input fits within the memory budget, it behaves like the in-memory
+ * {@link HashJoinOperator}. Otherwise both inputs are partitioned by a hash of their join keys
+ * into temporary files, so that matching tuples always end up in the same pair of partitions.
+ * Partition pairs are then joined one at a time with an in-memory hash table on the build
+ * partition. A build partition which is still larger than the budget is partitioned again,
+ * with a different hash function, up to a maximum recursion depth.
+ * The memory budget is expressed as the number of build tuples held in memory at once.
+ * Temporary files are deleted as soon as their partition has been joined.
+ * Bloom filters on the build keys are pushed down into the outer child once the inner input
+ * has been read, so outer rows without a match are neither joined nor written to partitions.
+ * Since partitions are joined one after the other, the output order of the outer child
+ * is not preserved.
+ * @see HashJoinOperator
+ */
+public class GraceHashJoinOperator extends JoinOperator {
+
+    // Beyond this depth, a partition is joined in memory even if it exceeds the budget (e.g. skewed keys)
+    private static final int MAX_RECURSION_DEPTH = 4;
+
+    private final List<Column> outerKeyColumns;
+    private final List<Column> innerKeyColumns;
+    private final Expression residualCondition;
+    private final int memoryBudget;
+    private final int numPartitions;
+
+    private List<Integer> outerKeyIndices;
+    private List<Integer> innerKeyIndices;
+    private boolean initialized;
+
+    // Hash table on the build side of the current partition (or the whole inner input)
+    private Map<List<Integer>, List<Tuple>> hashTable;
+
+    // Partition pairs still to be joined
+    private final Deque<Partition> pendingPartitions;
+
+    // Probe side of the current partition, or null when probing the outer child directly
+    private Partition currentPartition;
+    private DataInputStream probeReader;
+    private int probeTuplesLeft;
+    private boolean probingOuterChild;
+
+    // Matching build tuples for the current probe tuple
+    private List<Tuple> currentMatches;
+    private int matchIndex;
+
+    // Bloom filters collecting the build keys while the inner child is partitioned
+    private List<BloomFilter> buildFilters;
+
+    /**
+     * A pair of temporary files holding the build and probe tuples of one partition.
+     */
+    private static class Partition {
+        final Path buildFile;
+        final Path probeFile;
+        final int depth;
+        int buildCount = 0;
+        int probeCount = 0;
+
+        Partition(Path buildFile, Path probeFile, int depth) {
+            this.buildFile = buildFile;
+            this.probeFile = probeFile;
+            this.depth = depth;
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(buildFile);
+                Files.deleteIfExists(probeFile);
+            } catch (IOException e) {
+                System.err.println("Failed to delete join partition: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Constructs a GraceHashJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator, used to probe.
+     * @param innerChild The inner (right) child operator, used to build.
+     * @param expression The complete join condition.
+     * @param outerKeyColumns The key columns from the outer side, parallel to innerKeyColumns.
+     * @param innerKeyColumns The key columns from the inner side, parallel to outerKeyColumns.
+     * @param residualCondition The conjuncts which are not equi-join keys, or null if there are none.
+     * @param memoryBudget The maximum number of build tuples held in memory at once, at least 1.
+     * @param numPartitions The number of partitions created per partitioning pass, at least 2.
+     */
+    public GraceHashJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                                 List<Column> outerKeyColumns, List<Column> innerKeyColumns,
+                                 Expression residualCondition, int memoryBudget, int numPartitions) {
+        super(outerChild, innerChild, expression);
+        if (memoryBudget < 1 || numPartitions < 2) {
+            throw new IllegalArgumentException("Invalid memory budget " + memoryBudget +
+                    " or number of partitions " + numPartitions);
+        }
+        this.outerKeyColumns = outerKeyColumns;
+        this.innerKeyColumns = innerKeyColumns;
+        this.residualCondition = residualCondition;
+        this.memoryBudget = memoryBudget;
+        this.numPartitions = numPartitions;
+        this.pendingPartitions = new ArrayDeque<>();
+        this.initialized = false;
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * On the first call, the inner child is read into memory, or partitioned together with
+     * the outer child if it exceeds the memory budget.
+     * Probe tuples are then matched against the hash table of the current partition,
+     * moving to the next partition pair once the current one is exhausted.
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!initialized) {
+            initialize();
+        }
+
+        while (true) {
+            if (currentMatches != null && matchIndex < currentMatches.size()) {
+                Tuple combined = combineTuples(currentOuterTuple, currentMatches.get(matchIndex));
+                matchIndex++;
+                if (residualCondition == null || evaluator.evaluate(residualCondition, combined)) {
+                    return combined;
+                }
+                continue;
+            }
+
+            currentOuterTuple = nextProbeTuple();
+            if (currentOuterTuple != null) {
+                currentMatches = hashTable.get(currentOuterTuple.getAttributes(outerKeyIndices));
+                matchIndex = 0;
+                continue;
+            }
+
+            currentMatches = null;
+            if (!openNextPartition()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Resolves the key columns and reads the inner child.
+     * If the inner child fits within the memory budget, its hash table is probed directly
+     * with the outer child. Otherwise both children are partitioned to temporary files.
+     */
+    private void initialize() {
+        outerKeyIndices = resolveColumnIndices(outerKeyColumns, outerChild.propagateSchemaId(), null);
+        innerKeyIndices = resolveColumnIndices(innerKeyColumns, child.propagateSchemaId(), null);
+
+        List<Tuple> buffered = new ArrayList<>();
+        Tuple innerTuple = child.getNextTuple();
+        while (innerTuple != null && buffered.size() < memoryBudget) {
+            buffered.add(innerTuple);
+            innerTuple = child.getNextTuple();
+        }
+
+        currentMatches = null;
+        matchIndex = 0;
+        initialized = true;
+
+        if (innerTuple == null) {
+            // The whole inner input fits in memory
+            hashTable = buildHashTable(buffered);
+            if (Constants.useBloomFilterPushdown) {
+                List<BloomFilter> filters = createRuntimeFilters(outerKeyColumns.size(), hashTable.size());
+                for (List<Integer> key : hashTable.keySet()) {
+                    addToRuntimeFilters(filters, key);
+                }
+                pushRuntimeFilters(outerKeyColumns, filters);
+            }
+            probingOuterChild = true;
+            return;
+        }
+
+        // Spill both inputs to disk, sizing the filters for the largest input a single pass is meant for
+        buffered.add(innerTuple);
+        List<Partition> partitions = createPartitions(0);
+        if (Constants.useBloomFilterPushdown) {
+            long expectedKeys = Math.min((long) memoryBudget * numPartitions, Integer.MAX_VALUE / Constants.BLOOM_FILTER_BITS_PER_KEY);
+            buildFilters = createRuntimeFilters(outerKeyColumns.size(), (int) expectedKeys);
+        }
+        try {
+            writePartitions(partitions, true, buffered, child, 0);
+            if (buildFilters != null) {
+                pushRuntimeFilters(outerKeyColumns, buildFilters);
+                buildFilters = null;
+            }
+            writePartitions(partitions, false, Collections.emptyList(), outerChild, 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to partition join inputs: " + e.getMessage(), e);
+        }
+        queuePartitions(partitions);
+
+        hashTable = Collections.emptyMap();
+        probingOuterChild = false;
+    }
+
+    /**
+     * Returns the next probe tuple, from the outer child when the inner input fit in memory,
+     * or from the probe file of the current partition otherwise.
+     * @return The next probe tuple, or null if the current probe input is exhausted
+     */
+    private Tuple nextProbeTuple() {
+        if (probingOuterChild) {
+            return outerChild.getNextTuple();
+        }
+        if (probeReader == null || probeTuplesLeft == 0) {
+            return null;
+        }
+
+        try {
+            probeTuplesLeft--;
+            return readTuple(probeReader);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read join partition: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes the current partition and loads the build side of the next pending partition.
+     * A build side exceeding the memory budget is partitioned again instead, unless the
+     * maximum recursion depth has been reached.
+     * @return true if a partition is ready for probing, false if all partitions have been joined
+     */
+    private boolean openNextPartition() {
+        if (probingOuterChild) {
+            return false;
+        }
+        closeCurrentPartition();
+
+        try {
+            while (!pendingPartitions.isEmpty()) {
+                Partition partition = pendingPartitions.pop();
+
+                if (partition.buildCount > memoryBudget && partition.depth < MAX_RECURSION_DEPTH) {
+                    List<Partition> subPartitions = createPartitions(partition.depth + 1);
+                    writePartitions(subPartitions, true, partition.buildFile, partition.buildCount, partition.depth + 1);
+                    writePartitions(subPartitions, false, partition.probeFile, partition.probeCount, partition.depth + 1);
+                    partition.delete();
+                    queuePartitions(subPartitions);
+                    continue;
+                }
+
+                List<Tuple> buildTuples = new ArrayList<>(partition.buildCount);
+                try (DataInputStream in = openReader(partition.buildFile)) {
+                    for (int i = 0; i < partition.buildCount; i++) {
+                        buildTuples.add(readTuple(in));
+                    }
+                }
+
+                hashTable = buildHashTable(buildTuples);
+                currentPartition = partition;
+                probeReader = openReader(partition.probeFile);
+                probeTuplesLeft = partition.probeCount;
+                return true;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read join partition: " + e.getMessage(), e);
+        }
+
+        hashTable = Collections.emptyMap();
+        return false;
+    }
+
+    /**
+     * Closes the probe reader of the current partition and deletes its files.
+     */
+    private void closeCurrentPartition() {
+        if (probeReader != null) {
+            try {
+                probeReader.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close join partition: " + e.getMessage());
+            }
+            probeReader = null;
+        }
+        if (currentPartition != null) {
+            currentPartition.delete();
+            currentPartition = null;
+        }
+    }
+
+    /**
+     * Adds partitions to the pending queue, dropping those that cannot produce any result.
+     * @param partitions The partitions to queue.
+     */
+    private void queuePartitions(List<Partition> partitions) {
+        for (Partition partition : partitions) {
+            if (partition.buildCount == 0 || partition.probeCount == 0) {
+                partition.delete();
+            } else {
+                pendingPartitions.push(partition);
+            }
+        }
+    }
+
+    /**
+     * Creates empty temporary files for one partitioning pass.
+     * @param depth The recursion depth of the pass.
+     * @return The new partitions.
+     */
+    private List<Partition> createPartitions(int depth) {
+        List<Partition> partitions = new ArrayList<>(numPartitions);
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                Path buildFile = Files.createTempFile("blazedb-join-build-", ".tmp");
+                Path probeFile = Files.createTempFile("blazedb-join-probe-", ".tmp");
+                buildFile.toFile().deleteOnExit();
+                probeFile.toFile().deleteOnExit();
+                partitions.add(new Partition(buildFile, probeFile, depth));
+            }
+        } catch (IOException e) {
+            for (Partition partition : partitions) {
+                partition.delete();
+            }
+            throw new RuntimeException("Failed to create join partitions: " + e.getMessage(), e);
+        }
+        return partitions;
+    }
+
+    /**
+     * Distributes the given tuples, followed by the remaining tuples of an operator,
+     * over the build or probe files of the partitions.
+     */
+    private void writePartitions(List<Partition> partitions, boolean buildSide, List<Tuple> tuples,
+                                 Operator source, int depth) throws IOException {
+        List<DataOutputStream> writers = openWriters(partitions, buildSide);
+        try {
+            for (Tuple tuple : tuples) {
+                writePartitioned(partitions, writers, buildSide, tuple, depth);
+            }
+            Tuple tuple;
+            while ((tuple = source.getNextTuple()) != null) {
+                writePartitioned(partitions, writers, buildSide, tuple, depth);
+            }
+        } finally {
+            closeWriters(writers);
+        }
+    }
+
+    /**
+     * Distributes the tuples of a partition file over the build or probe files of new partitions.
+     */
+    private void writePartitions(List<Partition> partitions, boolean buildSide, Path file, int count,
+                                 int depth) throws IOException {
+        List<DataOutputStream> writers = openWriters(partitions, buildSide);
+        try (DataInputStream in = openReader(file)) {
+            for (int i = 0; i < count; i++) {
+                writePartitioned(partitions, writers, buildSide, readTuple(in), depth);
+            }
+        } finally {
+            closeWriters(writers);
+        }
+    }
+
+    /**
+     * Writes a single tuple to the partition chosen by the hash of its join key.
+     */
+    private void writePartitioned(List<Partition> partitions, List<DataOutputStream> writers,
+                                  boolean buildSide, Tuple tuple, int depth) throws IOException {
+        List<Integer> key = tuple.getAttributes(buildSide ? innerKeyIndices : outerKeyIndices);
+        if (buildSide && buildFilters != null) {
+            addToRuntimeFilters(buildFilters, key);
+        }
+        int target = partitionOf(key, depth);
+        writeTuple(writers.get(target), tuple);
+        if (buildSide) {
+            partitions.get(target).buildCount++;
+        } else {
+            partitions.get(target).probeCount++;
+        }
+    }
+
+    /**
+     * Chooses the partition of a join key, with a different hash function at each depth
+     * so that a partition which is too large is split further when partitioned again.
+     * @param key The join key values.
+     * @param depth The recursion depth of the partitioning pass.
+     * @return The partition number.
+     */
+    private int partitionOf(List<Integer> key, int depth) {
+        int h = key.hashCode() + depth * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, numPartitions);
+    }
+
+    /**
+     * Opens a writer on the build or probe file of every partition.
+     */
+    private List<DataOutputStream> openWriters(List<Partition> partitions, boolean buildSide) throws IOException {
+        List<DataOutputStream> writers = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            Path file = buildSide ? partition.buildFile : partition.probeFile;
+            writers.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))));
+        }
+        return writers;
+    }
+
+    /**
+     * Closes all partition writers, flushing their buffers.
+     */
+    private static void closeWriters(List<DataOutputStream> writers) throws IOException {
+        for (DataOutputStream writer : writers) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Opens a buffered reader on a partition file.
+     */
+    private static DataInputStream openReader(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    /**
+     * Writes a tuple as its number of attributes followed by the attribute values.
+     */
+    private static void writeTuple(DataOutputStream out, Tuple tuple) throws IOException {
+        List<Integer> attributes = tuple.getTuple();
+        out.writeInt(attributes.size());
+        for (Integer value : attributes) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads a tuple written by writeTuple().
+     */
+    private static Tuple readTuple(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Integer> attributes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            attributes.add(in.readInt());
+        }
+        return new Tuple(attributes);
+    }
+
+    /**
+     * Groups build tuples by their join key.
+     * @param buildTuples The tuples to insert.
+     * @return The hash table from key values to tuples, in input order.
+     */
+    private Map<List<Integer>, List<Tuple>> buildHashTable(List<Tuple> buildTuples) {
+        Map<List<Integer>, List<Tuple>> table = new HashMap<>();
+        for (Tuple tuple : buildTuples) {
+            table.computeIfAbsent(tuple.getAttributes(innerKeyIndices), k -> new ArrayList<>()).add(tuple);
+        }
+        return table;
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Remaining temporary files are deleted, and both children are read again on the
+     * next call to getNextTuple().
+     */
+    @Override
+    public void reset() {
+        closeCurrentPartition();
+        while (!pendingPartitions.isEmpty()) {
+            pendingPartitions.pop().delete();
+        }
+        outerChild.reset();
+        child.reset();
+        currentOuterTuple = null;
+        currentMatches = null;
+        hashTable = null;
+        initialized = false;
+    }
+
+    /**
+     * Sets the outer child operator of this join.
+     * The key columns are resolved again on the next call to getNextTuple().
+     * @param outerChild The new outer child operator
+     */
+    @Override
+    public void setOuterChild(Operator outerChild) {
+        super.setOuterChild(outerChild);
+        initialized = false;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The inner child is read again on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        initialized = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The key column indices are resolved again on the next call to getNextTuple().
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        initialized = false;
+    }
+
+    /**
+     * Partitions are joined one after the other, so no order is guaranteed.
+     * @return An empty list.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * The inner child is read only once, into memory or into partition files.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the scans the Bloom filters on the build keys are pushed down to.
+     * @return The scan for every outer key column that can be filtered, or an empty map
+     * if runtime filter push down is disabled.
+     */
+    @Override
+    public Map<Column, ScanOperator> getRuntimeFilterTargets() {
+        if (!Constants.useBloomFilterPushdown) {
+            return Collections.emptyMap();
+        }
+        return findRuntimeFilterTargets(outerKeyColumns);
+    }
+
+    /**
+     * Returns the key columns from the outer side of the join.
+     * @return The outer key columns.
+     */
+    public List<Column> getOuterKeyColumns() {
+        return outerKeyColumns;
+    }
+
+    /**
+     * Returns the key columns from the inner side of the join.
+     * @return The inner key columns.
+     */
+    public List<Column> getInnerKeyColumns() {
+        return innerKeyColumns;
+    }
+
+    /**
+     * Returns the conjuncts of the join condition which are not equi-join keys.
+     * @return The residual condition, or null if there is none.
+     */
+    public Expression getResidualCondition() {
+        return residualCondition;
+    }
+}
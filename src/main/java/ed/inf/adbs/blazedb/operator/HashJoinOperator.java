@@ -0,0 +1,211 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The HashJoinOperator implements the in-memory hash join algorithm for equi-join conditions.
+ * On the first call to getNextTuple(), all tuples of the inner child are read once and
+ * inserted into a hash table keyed on the inner join columns (build phase).
+ * Each outer tuple is then used to look up its matching inner tuples (probe phase),
+ * so the cost is linear in the input sizes instead of |outer| x |inner| comparisons.
+ * Conjuncts of the join condition that are not equi-join keys are evaluated as a residual
+ * condition on every combined tuple.
+ * The output is identical to the tuple nested loop join, including the tuple order,
+ * because matches for each outer tuple are returned in the order of the inner child.
+ * Once the hash table is built, a Bloom filter on every key column is pushed down to the scan
+ * of the outer child producing that column, so that outer rows without a match are dropped
+ * before they are turned into tuples and passed through the operators in between.
+ * @see JoinOperator
+ * @see ed.inf.adbs.blazedb.JoinKeyExtractor
+ */
+public class HashJoinOperator extends JoinOperator {
+
+    private final List<Column> outerKeyColumns;
+    private final List<Column> innerKeyColumns;
+    private final Expression residualCondition;
+
+    private List<Integer> outerKeyIndices;
+    private List<Integer> innerKeyIndices;
+
+    // Inner tuples grouped by their join key values
+    private Map<List<Integer>, List<Tuple>> hashTable;
+    private boolean built;
+
+    // Matching inner tuples for the current outer tuple
+    private List<Tuple> currentMatches;
+    private int matchIndex;
+
+    /**
+     * Constructs a HashJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator, used to probe the hash table.
+     * @param innerChild The inner (right) child operator, used to build the hash table.
+     * @param expression The complete join condition.
+     * @param outerKeyColumns The key columns from the outer side, parallel to innerKeyColumns.
+     * @param innerKeyColumns The key columns from the inner side, parallel to outerKeyColumns.
+     * @param residualCondition The conjuncts which are not equi-join keys, or null if there are none.
+     */
+    public HashJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                            List<Column> outerKeyColumns, List<Column> innerKeyColumns,
+                            Expression residualCondition) {
+        super(outerChild, innerChild, expression);
+        this.outerKeyColumns = outerKeyColumns;
+        this.innerKeyColumns = innerKeyColumns;
+        this.residualCondition = residualCondition;
+        this.built = false;
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * Builds the hash table on the first call, then probes it with outer tuples
+     * until a combined tuple satisfying the residual condition is found.
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!built) {
+            buildHashTable();
+        }
+
+        while (true) {
+            if (currentMatches != null && matchIndex < currentMatches.size()) {
+                Tuple innerTuple = currentMatches.get(matchIndex);
+                matchIndex++;
+
+                Tuple combined = combineTuples(currentOuterTuple, innerTuple);
+                if (residualCondition == null || evaluator.evaluate(residualCondition, combined)) {
+                    return combined;
+                }
+                continue;
+            }
+
+            currentOuterTuple = outerChild.getNextTuple();
+            if (currentOuterTuple == null) {
+                currentMatches = null;
+                return null;
+            }
+
+            currentMatches = hashTable.get(currentOuterTuple.getAttributes(outerKeyIndices));
+            matchIndex = 0;
+        }
+    }
+
+    /**
+     * Reads every tuple from the inner child and groups them by join key,
+     * then pushes Bloom filters on the keys down into the outer child.
+     * Key column indices are resolved here rather than in the constructor,
+     * since optimisations such as projection push down may change the child schemas.
+     */
+    private void buildHashTable() {
+        outerKeyIndices = resolveColumnIndices(outerKeyColumns, outerChild.propagateSchemaId(), null);
+        innerKeyIndices = resolveColumnIndices(innerKeyColumns, child.propagateSchemaId(), null);
+
+        hashTable = new HashMap<>();
+        Tuple innerTuple;
+        while ((innerTuple = child.getNextTuple()) != null) {
+            hashTable.computeIfAbsent(innerTuple.getAttributes(innerKeyIndices), k -> new ArrayList<>())
+                    .add(innerTuple);
+        }
+
+        if (Constants.useBloomFilterPushdown) {
+            List<BloomFilter> filters = createRuntimeFilters(outerKeyColumns.size(), hashTable.size());
+            for (List<Integer> key : hashTable.keySet()) {
+                addToRuntimeFilters(filters, key);
+            }
+            pushRuntimeFilters(outerKeyColumns, filters);
+        }
+
+        currentMatches = null;
+        matchIndex = 0;
+        built = true;
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Only the outer child is reset; the hash table already holds the inner input,
+     * so the inner child does not need to be read again.
+     */
+    @Override
+    public void reset() {
+        outerChild.reset();
+        currentOuterTuple = null;
+        currentMatches = null;
+        matchIndex = 0;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The hash table is rebuilt from the new child on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        built = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The key column indices are resolved again when the hash table is rebuilt.
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        built = false;
+    }
+
+    /**
+     * The inner child is read only once, to build the hash table.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the scans the Bloom filters on the build keys are pushed down to.
+     * @return The scan for every outer key column that can be filtered, or an empty map
+     * if runtime filter push down is disabled.
+     */
+    @Override
+    public Map<Column, ScanOperator> getRuntimeFilterTargets() {
+        if (!Constants.useBloomFilterPushdown) {
+            return Collections.emptyMap();
+        }
+        return findRuntimeFilterTargets(outerKeyColumns);
+    }
+
+    /**
+     * Returns the key columns from the outer side of the join.
+     * @return The outer key columns.
+     */
+    public List<Column> getOuterKeyColumns() {
+        return outerKeyColumns;
+    }
+
+    /**
+     * Returns the key columns from the inner side of the join.
+     * @return The inner key columns.
+     */
+    public List<Column> getInnerKeyColumns() {
+        return innerKeyColumns;
+    }
+
+    /**
+     * Returns the conjuncts of the join condition which are not equi-join keys.
+     * @return The residual condition, or null if there is none.
+     */
+    public Expression getResidualCondition() {
+        return residualCondition;
+    }
+}
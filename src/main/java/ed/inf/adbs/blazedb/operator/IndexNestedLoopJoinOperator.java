@@ -0,0 +1,191 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.LookupIndex;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The IndexNestedLoopJoinOperator implements the index nested loop join algorithm for equi-joins.
+ * For each outer tuple, the matching rows of the inner table are looked up in an index on the
+ * inner join column, and only those rows are read from disk, instead of rescanning the whole
+ * inner table. The column must have a persistent hash or B+tree index, see {@link DBCatalog#getLookupIndex};
+ * a hash index is preferred.
+ * The inner child must be a ScanOperator, optionally below selections and projections pushed
+ * down by the optimizer; the scan is switched to lookup mode for every outer tuple, so the
+ * operators above it filter and project the fetched rows as usual.
+ * The complete join condition is evaluated on every combined tuple, which covers any further
+ * equi-join keys and non-equi conjuncts.
+ * The output is identical to the tuple nested loop join, including the tuple order,
+ * because the index returns the matches for each outer tuple in file order.
+ * This is worthwhile when the outer input is small, e.g. after a selective selection.
+ * @see JoinOperator
+ * @see ScanOperator#lookup(List)
+ */
+public class IndexNestedLoopJoinOperator extends JoinOperator {
+
+    private final Column outerKeyColumn;
+    private final Column innerKeyColumn;
+
+    private int outerKeyIndex;
+    private ScanOperator innerScan;
+    private LookupIndex index;
+    private boolean initialized;
+
+    /**
+     * Constructs an IndexNestedLoopJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator.
+     * @param innerChild The inner (right) child operator, a scan optionally below selections and projections.
+     * @param expression The complete join condition.
+     * @param outerKeyColumn The key column from the outer side, used to probe the index.
+     * @param innerKeyColumn The indexed key column of the inner table.
+     */
+    public IndexNestedLoopJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                                       Column outerKeyColumn, Column innerKeyColumn) {
+        super(outerChild, innerChild, expression);
+        this.outerKeyColumn = outerKeyColumn;
+        this.innerKeyColumn = innerKeyColumn;
+        this.initialized = false;
+    }
+
+    /**
+     * Finds the scan at the bottom of an inner child made of selections and projections.
+     * A scan sampling its table is not used, since lookups would return rows outside the sample.
+     * @param innerChild The inner child operator of a join.
+     * @return The scan, or null if the inner child has any other shape or samples its table.
+     */
+    public static ScanOperator findLookupScan(Operator innerChild) {
+        Operator op = innerChild;
+        while (op instanceof SelectOperator || op instanceof ProjectOperator) {
+            op = op.getChild();
+        }
+        return op instanceof ScanOperator && !(op instanceof SampleScanOperator) ? (ScanOperator) op : null;
+    }
+
+    /**
+     * Resolves the outer key column and loads the index on the inner key column.
+     * This is done on the first call to getNextTuple() since the child operators
+     * may still be replaced during query optimisation.
+     */
+    private void initialize() {
+        outerKeyIndex = resolveColumnIndices(Collections.singletonList(outerKeyColumn),
+                outerChild.propagateSchemaId(), null).get(0);
+
+        innerScan = findLookupScan(child);
+        if (innerScan == null) {
+            throw new RuntimeException("Index nested loop join requires a scan as inner child");
+        }
+
+        index = DBCatalog.getInstance().getLookupIndex(innerScan.getTableName(), innerKeyColumn.getColumnName());
+        if (index == null) {
+            throw new RuntimeException("Column " + innerKeyColumn + " of table " + innerScan.getTableName() + " has no index");
+        }
+
+        currentOuterTuple = null;
+        initialized = true;
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * 1. Read the next outer tuple and look up its key in the index
+     * 2. Point the inner scan at the matching rows
+     * 3. Return combined tuples that satisfy the join condition
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!initialized) {
+            initialize();
+        }
+
+        while (true) {
+            if (currentOuterTuple != null) {
+                Tuple innerTuple = child.getNextTuple();
+                if (innerTuple != null) {
+                    Tuple combined = combineTuples(currentOuterTuple, innerTuple);
+                    if (expression == null || evaluator.evaluate(expression, combined)) {
+                        return combined;
+                    }
+                    continue;
+                }
+            }
+
+            currentOuterTuple = outerChild.getNextTuple();
+            if (currentOuterTuple == null) {
+                return null;
+            }
+            innerScan.lookup(index.lookup(currentOuterTuple.getAttribute(outerKeyIndex)));
+        }
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Only the outer child is reset; the inner scan is pointed at new rows for every outer tuple.
+     */
+    @Override
+    public void reset() {
+        outerChild.reset();
+        currentOuterTuple = null;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The inner scan is located again on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        initialized = false;
+    }
+
+    /**
+     * Sets the outer child operator of this join.
+     * The outer key column is resolved again on the next call to getNextTuple().
+     * @param outerChild The new outer child operator
+     */
+    @Override
+    public void setOuterChild(Operator outerChild) {
+        super.setOuterChild(outerChild);
+        initialized = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The outer key column is resolved again on the next call to getNextTuple().
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        initialized = false;
+    }
+
+    /**
+     * Only the matching inner rows are read for each outer tuple, never the whole inner child.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the key column from the outer side of the join.
+     * @return The outer key column.
+     */
+    public Column getOuterKeyColumn() {
+        return outerKeyColumn;
+    }
+
+    /**
+     * Returns the indexed key column of the inner table.
+     * @return The inner key column.
+     */
+    public Column getInnerKeyColumn() {
+        return innerKeyColumn;
+    }
+}
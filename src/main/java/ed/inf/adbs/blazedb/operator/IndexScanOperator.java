@@ -0,0 +1,206 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BPlusTreeIndex;
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.HashIndex;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The IndexScanOperator class is a scan which only returns the rows of a table whose value in
+ * an indexed column is in a range, found in a {@link BPlusTreeIndex} on the column, or whose
+ * value equals a key, found in a {@link HashIndex} on the column.
+ * With a clustered B+tree index, the matching rows are consecutive in the data file: the scan
+ * starts reading at the first of them and stops at the first row past the range.
+ * With an unclustered B+tree index, the offsets of the matching rows are collected from the
+ * leaves of the index, sorted into file order and read one by one in lookup mode; the offsets
+ * of the rows holding the key in a hash index are read the same way.
+ * Either way, the rows are returned in the order of the data file, like a full scan would.
+ * The optimizer uses an index scan in place of a selection on a scan when few rows are
+ * estimated to match, see QueryPlanOptimizer.
+ * @see ScanOperator
+ */
+public class IndexScanOperator extends ScanOperator {
+
+    private final BPlusTreeIndex index;
+    private final HashIndex hashIndex;
+    private final long lowerBound;
+    private final long upperBound;
+    private final Path tablePath;
+
+    // Whether the scan has looked up its range since it was created or reset
+    private boolean opened;
+
+    // Clustered index: the reader of the rows in the range
+    private BufferedReader rangeReader;
+
+    /**
+     * Construct an index scan of the rows of a table with keys in an inclusive range.
+     * @param tableName The name of the database table this operator scans.
+     * @param index The index on a column of the table.
+     * @param lowerBound The smallest key to return.
+     * @param upperBound The largest key to return.
+     */
+    public IndexScanOperator(String tableName, BPlusTreeIndex index, long lowerBound, long upperBound) {
+        super(tableName, false);
+        this.index = index;
+        this.hashIndex = null;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+    }
+
+    /**
+     * Construct a point lookup of the rows of a table holding a key.
+     * @param tableName The name of the database table this operator scans.
+     * @param hashIndex The hash index on a column of the table.
+     * @param key The key to return the rows of.
+     */
+    public IndexScanOperator(String tableName, HashIndex hashIndex, int key) {
+        super(tableName, false);
+        this.index = null;
+        this.hashIndex = hashIndex;
+        this.lowerBound = key;
+        this.upperBound = key;
+        tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+    }
+
+    /**
+     * Looks up the range in the index on the first call after the scan is created or reset.
+     * A clustered scan opens a reader at the first matching row; an unclustered scan or a hash
+     * lookup switches to lookup mode with the offsets of all matching rows in file order.
+     * @throws IOException If the index or the data file cannot be read.
+     */
+    private void open() throws IOException {
+        opened = true;
+        if (hashIndex != null) {
+            lookup(hashIndex.lookup((int) lowerBound));
+        } else if (index.isClustered()) {
+            long offset = index.findFirstOffset(lowerBound, upperBound);
+            if (offset != -1) {
+                rangeReader = new BufferedReader(new InputStreamReader(
+                        BufferPool.getInstance().newInputStream(tablePath, offset), StandardCharsets.UTF_8));
+            }
+        } else {
+            List<Long> offsets = new ArrayList<>(index.lookupRange(lowerBound, upperBound));
+            Collections.sort(offsets);
+            lookup(offsets);
+        }
+    }
+
+    /**
+     * Retrieves the next row in the range of the index.
+     * Rows rejected by a runtime filter are skipped.
+     * @return The next matching tuple, or null if all matching rows have been returned.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            if (!opened && !isLookupMode()) {
+                open();
+            }
+            if (isLookupMode()) {
+                return super.getNextTuple();
+            }
+
+            while (rangeReader != null) {
+                String line = rangeReader.readLine();
+                if (line == null) { // END OF FILE
+                    closeReader();
+                    return null;
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] values = line.split(",\\s*");
+                int[] row = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    row[i] = Integer.parseInt(values[i].trim());
+                }
+                if (row[index.getColumnIndex()] > upperBound) { // past the range
+                    closeReader();
+                    return null;
+                }
+                if (passesRuntimeFilters(row)) {
+                    List<Integer> attributes = new ArrayList<>(row.length);
+                    for (int value : row) {
+                        attributes.add(value);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Restarts the scan at the first row of the range on the next call to getNextTuple().
+     */
+    @Override
+    protected void openReader() {
+        closeReader();
+        opened = false;
+    }
+
+    /**
+     * Close the reader of a clustered scan.
+     */
+    @Override
+    protected void closeReader() {
+        try {
+            if (rangeReader != null) {
+                rangeReader.close();
+                rangeReader = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing reader for table " + getTableName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Get the B+tree index this scan reads.
+     * @return The index, or null for a lookup in a hash index.
+     */
+    public BPlusTreeIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the hash index this scan reads.
+     * @return The index, or null for a scan of a B+tree index.
+     */
+    public HashIndex getHashIndex() {
+        return hashIndex;
+    }
+
+    /**
+     * Get the smallest key this scan returns.
+     * @return The inclusive lower bound of the range.
+     */
+    public long getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Get the largest key this scan returns.
+     * @return The inclusive upper bound of the range.
+     */
+    public long getUpperBound() {
+        return upperBound;
+    }
+}
@@ -2,26 +2,32 @@ package ed.inf.adbs.blazedb.operator;
 
 import ed.inf.adbs.blazedb.*;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * The JoinOperator implements the tuple nested loop join algorithm for relational query processing.
- * This is the only binary operator implemented.
+ * It is the base class of all binary join operators, which reuse its schema handling
+ * and only replace the strategy used to find matching tuples.
  * This class joins tuples from two input operators (outer and inner) based on an optional join condition.
  * If no join condition is provided, the operator performs a cross product of the two inputs.
  * @see Operator
  * @see ExpressionEvaluator
  */
 public class JoinOperator extends Operator {
-    private Operator outerChild;
-    private Expression expression;
-    private ExpressionEvaluator evaluator;
+    protected Operator outerChild;
+    protected Expression expression;
+    protected ExpressionEvaluator evaluator;
 
-    private Tuple currentOuterTuple; // used to track progress
+    protected Tuple currentOuterTuple; // used to track progress
 
+    // Runtime filters pushed down by this join
+    private final RuntimeFilterPushdown runtimeFilters = new RuntimeFilterPushdown();
 
 
     /**
@@ -129,13 +135,22 @@ public class JoinOperator extends Operator {
      * @param rightTuple The tuple from the inner child
      * @return A new tuple containing all attributes from both input tuples
      */
-    private Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
+    protected Tuple combineTuples(Tuple leftTuple, Tuple rightTuple) {
         ArrayList<Integer> combinedAttributes = new ArrayList<>();
         combinedAttributes.addAll(leftTuple.getTuple());
         combinedAttributes.addAll(rightTuple.getTuple());
         return new Tuple(combinedAttributes);
     }
 
+    /**
+     * Get the inputs of this join: the inner child, followed by the outer child.
+     * @return The inner and outer child.
+     */
+    @Override
+    public List<Operator> getChildren() {
+        return Arrays.asList(child, outerChild);
+    }
+
     /**
      * Returns the outer child operator of this join.
      * @return The outer (left) child operator
@@ -168,7 +183,7 @@ public class JoinOperator extends Operator {
      * Updates the join condition evaluator when child operators change.
      * This ensures correct schema resolution for the join condition.
      */
-    private void updateJoinCondition() {
+    protected void updateJoinCondition() {
         if (this.expression == null) return;
 
         // Update schema ID for the evaluator
@@ -272,8 +287,12 @@ public class JoinOperator extends Operator {
         // First determine if this is a temp schema that represents a base table
         String originalTableName = null;
         if (sourceSchemaId.startsWith(Constants.INTERMEDIATE_SCHEMA_PREFIX)) {
-            // Try to find original table through parent schemas
+            // Try to find original table through parent schemas,
+            // following passthrough operators such as Materialize(Select(Scan))
             String parentId = DBCatalog.getInstance().getParentSchemaId(sourceSchemaId);
+            while (parentId != null && parentId.startsWith(Constants.INTERMEDIATE_SCHEMA_PREFIX)) {
+                parentId = DBCatalog.getInstance().getParentSchemaId(parentId);
+            }
             if (parentId != null && !parentId.startsWith(Constants.INTERMEDIATE_SCHEMA_PREFIX)) {
                 originalTableName = parentId;
             }
@@ -323,6 +342,111 @@ public class JoinOperator extends Operator {
         return expression;
     }
 
+    /**
+     * All matches for an outer tuple are returned before the next outer tuple is read,
+     * so the order of the outer child is preserved.
+     * @return The output order of the outer child operator.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return outerChild.getOutputOrder();
+    }
+
+    /**
+     * Checks if this join reads its inner child more than once, i.e. resets it while
+     * iterating over the outer child.
+     * @see ed.inf.adbs.blazedb.QueryPlanOptimizer used to decide where to cache the inner child.
+     * @return true, since the inner child is rescanned for every outer tuple.
+     */
+    public boolean rescansInnerChild() {
+        return true;
+    }
+
+    /**
+     * Finds the scans below the outer child that produce the given outer key columns.
+     * The search descends through selections, projections, materialisations, sorts and both
+     * sides of other joins (the outer side of semi-joins), which all only drop or reorder rows
+     * of their inputs. Every row
+     * reaching this join from such a scan must match its key, so a scan can drop rows whose key
+     * is not on the build side without changing the result.
+     * Aggregations and duplicate elimination are not descended into.
+     * @param outerKeyColumns The outer key columns of this join.
+     * @return The scan for every key column whose table was found, in key order.
+     */
+    protected Map<Column, ScanOperator> findRuntimeFilterTargets(List<Column> outerKeyColumns) {
+        return RuntimeFilterPushdown.findTargets(outerChild, outerKeyColumns);
+    }
+
+    /**
+     * Finds the scan of a table in a subtree, along the operators that preserve row identity.
+     * @param op The root of the subtree.
+     * @param tableName The table to find.
+     * @return The scan of the table, or null if it was not found.
+     */
+    static ScanOperator findScan(Operator op, String tableName) {
+        if (op instanceof ScanOperator) {
+            return tableName.equals(((ScanOperator) op).getTableName()) ? (ScanOperator) op : null;
+        }
+        if (op instanceof SemiJoinOperator) {
+            // The inner child of a semi-join only decides which outer rows are kept
+            return findScan(((JoinOperator) op).getOuterChild(), tableName);
+        }
+        if (op instanceof JoinOperator) {
+            ScanOperator scan = findScan(((JoinOperator) op).getOuterChild(), tableName);
+            return scan != null ? scan : findScan(op.getChild(), tableName);
+        }
+        if (op instanceof SelectOperator || op instanceof ProjectOperator || op instanceof MaterializeOperator
+                || op instanceof SortOperator || op instanceof StarJoinOperator) {
+            for (Operator input : op.getChildren()) {
+                ScanOperator scan = findScan(input, tableName);
+                if (scan != null) {
+                    return scan;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates one empty Bloom filter for each join key column.
+     * @param numKeyColumns The number of join key columns.
+     * @param expectedKeys The expected number of distinct build keys.
+     * @return The new filters, parallel to the key columns.
+     */
+    protected static List<BloomFilter> createRuntimeFilters(int numKeyColumns, int expectedKeys) {
+        List<BloomFilter> filters = new ArrayList<>(numKeyColumns);
+        for (int i = 0; i < numKeyColumns; i++) {
+            filters.add(new BloomFilter(expectedKeys, Constants.BLOOM_FILTER_BITS_PER_KEY));
+        }
+        return filters;
+    }
+
+    /**
+     * Adds the values of a build key to the filters of its columns.
+     * @param filters The filters, parallel to the key columns.
+     * @param key The join key values.
+     */
+    protected static void addToRuntimeFilters(List<BloomFilter> filters, List<Integer> key) {
+        for (int i = 0; i < filters.size(); i++) {
+            filters.get(i).add(key.get(i));
+        }
+    }
+
+    /**
+     * Pushes Bloom filters on the build keys down to the scans producing the outer key columns,
+     * replacing any filters pushed earlier by this join.
+     * This must happen after the build side has been read completely, and before the outer
+     * child is read, so that the scans of the probe side drop rows without a possible match.
+     * A separate filter is used for every key column, so that keys from different outer tables
+     * can all be filtered.
+     * @param outerKeyColumns The outer key columns of this join.
+     * @param filters The filters over the build keys, parallel to the outer key columns.
+     */
+    protected void pushRuntimeFilters(List<Column> outerKeyColumns, List<BloomFilter> filters) {
+        runtimeFilters.withdraw();
+        runtimeFilters.push(outerKeyColumns, filters, findRuntimeFilterTargets(outerKeyColumns));
+    }
+
     /**
      * Recursively update schema information from bottom up.
      * First update both child operators.
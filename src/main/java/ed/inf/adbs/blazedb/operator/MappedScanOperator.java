@@ -0,0 +1,269 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * The MappedScanOperator performs a full table scan over the CSV data file of a table by
+ * memory-mapping the file and parsing the integer values directly from the mapped bytes
+ * with a {@link RowParser}, without building a String for each line.
+ * Files larger than the mapped region size are mapped one region at a time; a row crossing
+ * the end of a region is parsed again from a new region starting at the row.
+ * The file is opened and mapped on the first call to getNextTuple(), and closed again at the end
+ * of the scan, so that a plan which is built but not run, or has finished, holds no open file.
+ * A reset() before the end only rewinds the position in the mapped region, unless the file has grown.
+ * Lookup mode parses the rows at the given offsets from the mapped file as well, and blocks of rows
+ * skipped using the zone map are skipped by moving to the offset of the next block to read.
+ * The mapped file is read from the operating system's page cache without being copied, so this
+ * scan does not read the CSV file through the {@link ed.inf.adbs.blazedb.BufferPool}.
+ * @see ScanOperator
+ */
+public class MappedScanOperator extends ScanOperator {
+
+    // Results of parsing one line from the current region
+    private static final int ROW = 0;
+    private static final int END_OF_FILE = 1;
+    private static final int END_OF_REGION = 2;
+
+    private final Path tablePath;
+    private final int numColumns;
+    private final long regionSize;
+    private FileChannel channel;
+    private long fileSize;
+    private boolean started;
+
+    // The mapped part of the file, and the file offset it starts at
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    // Parser of the mapped bytes, values of the last parsed row, and the region position of the row that did not fit
+    private final RowParser parser;
+    private final int[] rowValues;
+    private int incompleteLineStart;
+
+    /**
+     * Construct a memory-mapped scan operator for the given table.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public MappedScanOperator(String tableName) {
+        this(tableName, Constants.MAPPED_REGION_SIZE);
+    }
+
+    /**
+     * Construct a memory-mapped scan operator for the given table, mapping at most the given
+     * number of bytes of the file at a time.
+     * @param tableName The name of the database table this operator scans.
+     * @param regionSize The maximum size in bytes of a mapped region, larger than any row.
+     */
+    public MappedScanOperator(String tableName, int regionSize) {
+        super(tableName, false);
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("Mapped region size must be positive, got " + regionSize);
+        }
+        this.tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+        this.numColumns = DBCatalog.getInstance().getDBSchemata(tableName).size();
+        this.regionSize = regionSize;
+        this.parser = new RowParser(numColumns, tableName);
+        this.rowValues = parser.getValues();
+    }
+
+    /**
+     * Restarts the scan from the start of the file; the file is mapped by the next call to getNextTuple().
+     */
+    @Override
+    protected void openReader() {
+        started = false;
+    }
+
+    /**
+     * Maps the start of the data file, opening it if it was closed, or rewinds the mapped region
+     * if it already maps the start of the file and the file has not grown.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    private void mapFile() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(tablePath, StandardOpenOption.READ);
+            region = null;
+        }
+        long size = channel.size();
+        if (region != null && regionStart == 0 && size == fileSize) {
+            region.position(0);
+        } else {
+            fileSize = size;
+            mapRegion(0);
+        }
+    }
+
+    /**
+     * Maps the region of the file starting at the given offset.
+     * @param start The file offset of the first mapped byte.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void mapRegion(long start) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, fileSize - start));
+        regionStart = start;
+    }
+
+    /**
+     * Retrieves the next tuple by parsing the next line of the mapped file.
+     * Rows rejected by a runtime filter are skipped.
+     * If the end of the file is reached, the file is closed, and null is returned.
+     * @return The next tuple, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        try {
+            if (isLookupMode()) {
+                if (channel == null) {
+                    mapFile();
+                }
+                long offset;
+                while ((offset = nextLookupOffset()) != -1) {
+                    seek(offset);
+                    if (readRow() && passesRuntimeFilters(rowValues)) {
+                        return toTuple();
+                    }
+                }
+                return null;
+            }
+
+            if (!started) {
+                started = true;
+                mapFile();
+            } else if (channel == null) {
+                return null; // the end of the file was reached
+            }
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    long offset = getScanOffset();
+                    if (offset == -1) {
+                        seek(fileSize - 1); // all remaining blocks were skipped
+                        region.position(region.limit());
+                    } else {
+                        seek(offset);
+                    }
+                }
+                if (!readRow()) { // END OF FILE
+                    closeReader();
+                    return null;
+                }
+                countScannedRow();
+                if (passesRuntimeFilters(rowValues)) {
+                    return toTuple();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Moves the position to the given file offset, mapping a new region if it is not in the current one.
+     * @param offset The file offset of the start of a row.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void seek(long offset) throws IOException {
+        if (offset < regionStart || offset >= regionStart + region.limit()) {
+            mapRegion(offset);
+        }
+        region.position((int) (offset - regionStart));
+    }
+
+    /**
+     * Parses the next row into rowValues, mapping the next region when a row crosses the end
+     * of the current one.
+     * @return true if a row was parsed, false at the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private boolean readRow() throws IOException {
+        int result;
+        while ((result = parseLine()) == END_OF_REGION) {
+            if (incompleteLineStart == 0) {
+                throw new RuntimeException("Row of table " + getTableName() + " is larger than the mapped region");
+            }
+            mapRegion(regionStart + incompleteLineStart);
+        }
+        return result == ROW;
+    }
+
+    /**
+     * Parses the next non-blank line of the current region into rowValues.
+     * @return ROW if a line was parsed, END_OF_FILE if there are no more lines,
+     * or END_OF_REGION if the line continues in the next region.
+     */
+    private int parseLine() {
+        int pos = region.position();
+        int limit = region.limit();
+        int lineStart = pos;
+
+        while (pos < limit) {
+            byte b = region.get(pos++);
+            if (parser.accept(b)) {
+                region.position(pos);
+                return ROW;
+            }
+            if (b == '\n') {
+                lineStart = pos; // skip blank lines
+            }
+        }
+
+        if (regionStart + limit < fileSize) {
+            // The line is parsed again from its start in the next region
+            parser.reset();
+            incompleteLineStart = lineStart;
+            return END_OF_REGION;
+        }
+
+        region.position(pos);
+        return parser.finish() ? ROW : END_OF_FILE; // last line without trailing newline
+    }
+
+    /**
+     * Builds a tuple from the values of the last parsed row.
+     * @return The tuple holding the values.
+     */
+    private Tuple toTuple() {
+        ArrayList<Integer> attributes = new ArrayList<>(numColumns);
+        for (int value : rowValues) {
+            attributes.add(value);
+        }
+        return new Tuple(attributes);
+    }
+
+    /**
+     * The mapped file is read from the page cache of the operating system instead.
+     * @return false
+     */
+    @Override
+    public boolean readsThroughBufferPool() {
+        return false;
+    }
+
+    /**
+     * Close the channel of the data file and release the mapped region.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                region = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing data file for table " + getTableName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
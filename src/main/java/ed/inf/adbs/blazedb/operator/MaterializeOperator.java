@@ -0,0 +1,181 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MaterializeOperator caches the output of its child operator in memory.
+ * On the first call to getNextTuple(), all tuples of the child are read once and stored
+ * row by row in a single primitive int array, which avoids keeping a Tuple and a list of
+ * boxed Integers alive for every row.
+ * Later calls to reset() only rewind the cursor, so the child is never read again.
+ * It is placed above the inner child of nested loop joins when that child is more expensive
+ * to rescan than a plain scan, e.g. a selection, so that parsing and predicate evaluation
+ * are done once rather than once per outer tuple (or block).
+ * @see ed.inf.adbs.blazedb.QueryPlanOptimizer inserts this operator.
+ */
+public class MaterializeOperator extends Operator {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Attribute values of all buffered rows, stored consecutively
+    private int[] buffer;
+    private int arity;
+    private int rowCount;
+    private int currentRow;
+    private boolean materialized;
+
+    /**
+     * Constructs a MaterializeOperator over the given child operator.
+     * @param child The child operator whose output is cached
+     */
+    public MaterializeOperator(Operator child) {
+        this.child = child;
+        this.materialized = false;
+        this.currentRow = 0;
+
+        // Ensure child schema is registered
+        this.child.ensureSchemaRegistered();
+
+        // Register our schema
+        registerSchema();
+    }
+
+    /**
+     * Returns the next cached tuple.
+     * On first call, reads all tuples from the child into the buffer.
+     * @return The next tuple, or null if all cached tuples have been returned
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!materialized) {
+            materialize();
+        }
+
+        if (currentRow >= rowCount) {
+            return null;
+        }
+
+        List<Integer> attributes = new ArrayList<>(arity);
+        int offset = currentRow * arity;
+        for (int i = 0; i < arity; i++) {
+            attributes.add(buffer[offset + i]);
+        }
+        currentRow++;
+        return new Tuple(attributes);
+    }
+
+    /**
+     * Reads every tuple from the child and appends its attributes to the buffer.
+     * The number of attributes per row is taken from the first tuple.
+     */
+    private void materialize() {
+        buffer = new int[INITIAL_CAPACITY];
+        arity = 0;
+        rowCount = 0;
+
+        Tuple tuple;
+        while ((tuple = child.getNextTuple()) != null) {
+            List<Integer> attributes = tuple.getTuple();
+            if (rowCount == 0) {
+                arity = attributes.size();
+            }
+
+            int offset = rowCount * arity;
+            if (offset + arity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, offset + arity));
+            }
+            for (int i = 0; i < arity; i++) {
+                buffer[offset + i] = attributes.get(i);
+            }
+            rowCount++;
+        }
+
+        currentRow = 0;
+        materialized = true;
+    }
+
+    /**
+     * Resets the operator to its initial state.
+     * After reset, the next call to getNextTuple() returns the first cached tuple again.
+     * Note that this does not reread tuples from the child operator.
+     */
+    @Override
+    public void reset() {
+        currentRow = 0;
+    }
+
+    /**
+     * Sets the child operator.
+     * The new child is read again on the next call to getNextTuple().
+     * @param child The new child operator
+     */
+    @Override
+    public void setChild(Operator child) {
+        super.setChild(child);
+        materialized = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The child is read again on the next call to getNextTuple().
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        materialized = false;
+    }
+
+    /**
+     * Get the number of buffered rows.
+     * @return The number of rows read from the child, or 0 if not materialized yet.
+     */
+    public int getRowCount() {
+        return materialized ? rowCount : 0;
+    }
+
+    /**
+     * Propagates the schema ID of this operator.
+     * @return The schema ID, identical in structure to the child's schema
+     */
+    @Override
+    public String propagateSchemaId() {
+        ensureSchemaRegistered();
+        return intermediateSchemaId;
+    }
+
+    /**
+     * Cached tuples are returned in the order of the child.
+     * @return The output order of the child operator.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return child.getOutputOrder();
+    }
+
+    /**
+     * Registers the schema for this operator.
+     * Creates a schema identical to the child operator's schema, since caching
+     * changes neither the structure nor the order of tuples.
+     */
+    @Override
+    protected void registerSchema() {
+        if (schemaRegistered) return;
+
+        Map<String, String> transformationDetails = new HashMap<>();
+        transformationDetails.put("materialize", "true");
+
+        intermediateSchemaId = registerPassthroughSchema(
+                child,
+                transformationDetails
+        );
+
+        schemaRegistered = true;
+    }
+}
@@ -1,5 +1,6 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ColumnIdentity;
 import ed.inf.adbs.blazedb.Constants;
 import ed.inf.adbs.blazedb.DBCatalog;
 import ed.inf.adbs.blazedb.SchemaTransformationType;
@@ -7,6 +8,7 @@ import ed.inf.adbs.blazedb.Tuple;
 import net.sf.jsqlparser.schema.Column;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,6 +79,25 @@ public abstract class Operator {
         return child != null;
     }
 
+    /**
+     * Get all inputs of this operator, used to walk the query plan.
+     * Operators with several inputs override this to return the child first,
+     * followed by their other inputs.
+     * @return The inputs of this operator, empty for leaf operators.
+     */
+    public List<Operator> getChildren() {
+        return hasChild() ? Collections.singletonList(child) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the runtime filters this operator pushes down into its inputs, as the probe side
+     * key column of every filter and the scan that applies it.
+     * @return An empty map, since only hash based joins build runtime filters.
+     */
+    public Map<Column, ScanOperator> getRuntimeFilterTargets() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Set the child of this operator.
      * @see ed.inf.adbs.blazedb.QueryPlanOptimizer used during optimisations.
@@ -86,6 +107,37 @@ public abstract class Operator {
         this.child = child;
     }
 
+    /**
+     * Returns the columns the output of this operator is known to be sorted on (ascending),
+     * in order of precedence.
+     * Operators that do not guarantee any order return an empty list.
+     * @see ed.inf.adbs.blazedb.QueryPlanOptimizer used to remove redundant sorts.
+     * @return The list of columns the output is sorted on.
+     */
+    public List<Column> getOutputOrder() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks if the output of this operator is already sorted on the given columns,
+     * i.e. the given columns are a prefix of {@link #getOutputOrder()}.
+     * @param columns The columns to check, in order of precedence.
+     * @return true if the output is sorted on the given columns, false otherwise.
+     */
+    public boolean isOrderedBy(List<Column> columns) {
+        List<Column> outputOrder = getOutputOrder();
+        if (columns.isEmpty() || columns.size() > outputOrder.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (!new ColumnIdentity(columns.get(i)).equals(new ColumnIdentity(outputOrder.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Register this operator's schema transformation.
      * @see ed.inf.adbs.blazedb.DBCatalog update the information in this class.
@@ -0,0 +1,403 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.ZoneMap;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ParallelScanOperator performs a full table scan over the CSV data file of a table by
+ * splitting the file into byte ranges which start and end at line boundaries, and parsing the
+ * ranges concurrently on a pool of worker threads shared by all parallel scans.
+ * The parent pulls tuples with getNextTuple() as from any other scan: the parsed values of a
+ * range are handed to the scan's thread, which applies the runtime filters and builds the tuples.
+ * At most Constants.PARALLEL_SCAN_QUEUE_SIZE ranges are parsed or waiting to be returned at a
+ * time, so the memory used by a scan is bounded however far the workers get ahead of the parent.
+ * The tuples are returned in file order if the scan preserves order, otherwise the ranges are
+ * returned in the order the workers finish them, which only keeps the order within a range.
+ * Workers never wait for the parent, so scans sharing the pool cannot block each other.
+ * The workers read their ranges through the shared {@link BufferPool}, and parse them concurrently.
+ * If the table has a zone map and the scan predicate bounds its columns, the ranges are made of
+ * the blocks which may hold matching rows, and the other blocks are not read.
+ * Lookup mode reads the rows at the given offsets on the scan's thread, as in {@link ScanOperator}.
+ * @see ScanOperator
+ */
+public class ParallelScanOperator extends ScanOperator {
+
+    private static ExecutorService workerPool;
+
+    private final Path tablePath;
+    private final int numColumns;
+    private final boolean preserveOrder;
+    private final long rangeSize;
+
+    // Byte ranges of the file, computed when the scan starts, and the next one to hand to a worker
+    private List<long[]> ranges;
+    private int nextRange;
+
+    // Ranges handed to workers: in range order if order is preserved, by completion otherwise
+    private final Deque<Future<ParsedRange>> pendingRanges;
+    private CompletionService<ParsedRange> completedRanges;
+    private int rangesInFlight;
+
+    // The range whose tuples are being returned, and the next row to return from it
+    private ParsedRange currentRange;
+    private int currentRow;
+    private final int[] rowValues;
+
+    /**
+     * The values of the rows of a range, row after row.
+     */
+    static class ParsedRange {
+        final int[] values;
+        final int rowCount;
+
+        ParsedRange(int[] values, int rowCount) {
+            this.values = values;
+            this.rowCount = rowCount;
+        }
+    }
+
+    /**
+     * Construct a parallel scan operator for the given table, using the default range size and
+     * preserving order as configured in Constants.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public ParallelScanOperator(String tableName) {
+        this(tableName, Constants.PARALLEL_SCAN_PRESERVE_ORDER, Constants.PARALLEL_SCAN_RANGE_SIZE);
+    }
+
+    /**
+     * Construct a parallel scan operator for the given table.
+     * @param tableName The name of the database table this operator scans.
+     * @param preserveOrder Whether tuples are returned in file order, or in the order ranges are parsed.
+     * @param rangeSize The number of bytes of the file parsed by a worker at a time; ranges are
+     *                  extended to the end of the line they end in.
+     */
+    public ParallelScanOperator(String tableName, boolean preserveOrder, long rangeSize) {
+        super(tableName, false);
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("Parallel scan range size must be positive, got " + rangeSize);
+        }
+        this.tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+        this.numColumns = DBCatalog.getInstance().getDBSchemata(tableName).size();
+        this.preserveOrder = preserveOrder;
+        this.rangeSize = rangeSize;
+        this.pendingRanges = new ArrayDeque<>();
+        this.rowValues = new int[numColumns];
+    }
+
+    /**
+     * Returns the pool of worker threads shared by all parallel scans, creating it on first use.
+     * The threads are daemon threads, so that a scan which is not closed does not keep the program running.
+     * @return The worker pool.
+     */
+    private static synchronized ExecutorService getWorkerPool() {
+        if (workerPool == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            workerPool = Executors.newFixedThreadPool(Constants.PARALLEL_SCAN_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "parallel-scan-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return workerPool;
+    }
+
+    /**
+     * Abandons the ranges handed to workers, so that the scan starts again from the first range.
+     */
+    @Override
+    protected void openReader() {
+        cancelRanges();
+        ranges = null;
+    }
+
+    /**
+     * Retrieves the next tuple from the range being returned, waiting for the next range when it
+     * is exhausted. Rows rejected by a runtime filter are skipped.
+     * @return The next tuple, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            return super.getNextTuple();
+        }
+
+        try {
+            if (ranges == null) {
+                startScan();
+            }
+
+            while (true) {
+                if (currentRange == null || currentRow == currentRange.rowCount) {
+                    currentRange = nextParsedRange();
+                    currentRow = 0;
+                    if (currentRange == null) { // END OF FILE
+                        return null;
+                    }
+                    continue;
+                }
+
+                System.arraycopy(currentRange.values, currentRow * numColumns, rowValues, 0, numColumns);
+                currentRow++;
+                if (passesRuntimeFilters(rowValues)) {
+                    ArrayList<Integer> attributes = new ArrayList<>(numColumns);
+                    for (int value : rowValues) {
+                        attributes.add(value);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            System.err.println("Error reading tuple: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Splits the file into ranges and hands the first ones to the workers.
+     * @throws IOException If the file cannot be read.
+     */
+    private void startScan() throws IOException {
+        ranges = usesZoneMap() ? splitMatchingBlocks() : splitFile(tablePath, rangeSize);
+        nextRange = 0;
+        completedRanges = preserveOrder ? null : new ExecutorCompletionService<>(getWorkerPool());
+        rangesInFlight = 0;
+        currentRange = null;
+        submitRanges();
+    }
+
+    /**
+     * Hands ranges to the workers until the maximum number of ranges is in flight.
+     */
+    private void submitRanges() {
+        while (rangesInFlight < Constants.PARALLEL_SCAN_QUEUE_SIZE && nextRange < ranges.size()) {
+            long[] range = ranges.get(nextRange++);
+            if (preserveOrder) {
+                pendingRanges.add(getWorkerPool().submit(() -> parseRange(range[0], range[1])));
+            } else {
+                completedRanges.submit(() -> parseRange(range[0], range[1]));
+            }
+            rangesInFlight++;
+        }
+    }
+
+    /**
+     * Waits for the next range to return, and hands another range to the workers in its place.
+     * @return The parsed range, or null if every range has been returned.
+     */
+    private ParsedRange nextParsedRange() throws InterruptedException, ExecutionException {
+        if (rangesInFlight == 0) {
+            return null;
+        }
+        ParsedRange parsedRange = preserveOrder ? pendingRanges.poll().get() : completedRanges.take().get();
+        rangesInFlight--;
+        submitRanges();
+        return parsedRange;
+    }
+
+    /**
+     * Abandons the ranges in flight; workers finish parsing them, but their results are dropped.
+     */
+    private void cancelRanges() {
+        for (Future<ParsedRange> future : pendingRanges) {
+            future.cancel(false);
+        }
+        pendingRanges.clear();
+        completedRanges = null;
+        rangesInFlight = 0;
+        currentRange = null;
+    }
+
+    /**
+     * Splits a whole file into ranges of about rangeSize bytes, each ending after a line separator.
+     * @param tablePath The location of the CSV data file.
+     * @param rangeSize The number of bytes of a range, before it is extended to the end of its last line.
+     * @return The start and end offset of every range.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<long[]> splitFile(Path tablePath, long rangeSize) throws IOException {
+        List<long[]> fileRanges = new ArrayList<>();
+        long fileSize = Files.size(tablePath);
+        long start = 0;
+        while (start < fileSize) {
+            long end = start + rangeSize >= fileSize ? fileSize : findLineStart(tablePath, start + rangeSize, fileSize);
+            fileRanges.add(new long[]{start, end});
+            start = end;
+        }
+        return fileRanges;
+    }
+
+    /**
+     * Finds the start of the first line starting at or after the given offset.
+     * @param tablePath The location of the CSV data file, read through the buffer pool.
+     * @param offset The offset to search from.
+     * @param fileSize The size of the file.
+     * @return The offset following the first line separator at or after offset - 1, or the file size.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long findLineStart(Path tablePath, long offset, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Constants.BINARY_PAGE_SIZE);
+        long position = offset - 1;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = BufferPool.getInstance().read(tablePath, position, buffer);
+            if (read == -1) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Splits the blocks of the zone map which may hold rows satisfying the scan predicate into
+     * ranges of consecutive blocks of about rangeSize bytes; the other blocks are skipped.
+     * @return The start and end offset of every range.
+     * @throws IOException If the file cannot be read.
+     */
+    private List<long[]> splitMatchingBlocks() throws IOException {
+        ZoneMap zoneMap = DBCatalog.getInstance().getZoneMap(getTableName());
+        long fileSize = Files.size(tablePath);
+
+        List<long[]> blockRanges = new ArrayList<>();
+        long[] range = null;
+        int skipped = 0;
+        for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+            if (!getScanFilter().mightMatch(zoneMap, block)) {
+                skipped++;
+                range = null;
+                continue;
+            }
+            long start = zoneMap.getBlockOffset(block);
+            long end = block + 1 < zoneMap.getBlockCount() ? zoneMap.getBlockOffset(block + 1) : fileSize;
+            if (range != null && range[1] - range[0] < rangeSize) {
+                range[1] = end;
+            } else {
+                range = new long[]{start, end};
+                blockRanges.add(range);
+            }
+        }
+        countSkippedBlocks(skipped);
+        return blockRanges;
+    }
+
+    /**
+     * Reads and parses the rows of a range of the file; called by a worker.
+     * @param start The offset of the first line of the range.
+     * @param end The offset following the last line of the range.
+     * @return The values of the rows of the range.
+     * @throws IOException If the file cannot be read.
+     */
+    private ParsedRange parseRange(long start, long end) throws IOException {
+        return parseRange(tablePath, start, end, numColumns, getTableName());
+    }
+
+    /**
+     * Reads and parses the rows of a range of a CSV data file, reading it through the buffer pool.
+     * @param tablePath The location of the CSV data file.
+     * @param start The offset of the first line of the range.
+     * @param end The offset following the last line of the range.
+     * @param numColumns The number of columns of the table.
+     * @param tableName The name of the table, for error messages.
+     * @return The values of the rows of the range.
+     * @throws IOException If the file cannot be read.
+     */
+    static ParsedRange parseRange(Path tablePath, long start, long end, int numColumns, String tableName)
+            throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        BufferPool.getInstance().read(tablePath, start, buffer); // reads less if the file was truncated
+        return parseRows(bytes, buffer.position(), numColumns, tableName);
+    }
+
+    /**
+     * Parses the non-blank lines of a range of the file into integer values with a {@link RowParser}.
+     * @param bytes The bytes of the range.
+     * @param length The number of bytes read.
+     * @param numColumns The number of columns of the table.
+     * @param tableName The name of the table, for error messages.
+     * @return The values of the rows of the range.
+     */
+    private static ParsedRange parseRows(byte[] bytes, int length, int numColumns, String tableName) {
+        RowParser parser = new RowParser(numColumns, tableName);
+        int[] values = new int[Math.max(numColumns, length / 8)];
+        int count = 0;
+
+        for (int pos = 0; pos <= length; pos++) {
+            boolean rowEnded = pos < length ? parser.accept(bytes[pos]) : parser.finish();
+            if (rowEnded) {
+                if (count + numColumns > values.length) {
+                    values = Arrays.copyOf(values, Math.max(values.length * 2, count + numColumns));
+                }
+                System.arraycopy(parser.getValues(), 0, values, count, numColumns);
+                count += numColumns;
+            }
+        }
+        return new ParsedRange(values, count / numColumns);
+    }
+
+    /**
+     * Checks whether the scan returns the tuples in file order.
+     * @return true if order is preserved, false if ranges are returned in the order they are parsed.
+     */
+    public boolean preservesOrder() {
+        return preserveOrder;
+    }
+
+    /**
+     * The sort order of the table only holds if the ranges are returned in file order.
+     * @return The sort columns of the table if order is preserved, an empty list otherwise.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return preserveOrder ? super.getOutputOrder() : Collections.emptyList();
+    }
+
+    /**
+     * Abandon the ranges in flight, and close the reader used in lookup mode.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        cancelRanges();
+        ranges = null;
+    }
+}
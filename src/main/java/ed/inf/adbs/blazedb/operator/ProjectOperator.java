@@ -1,5 +1,6 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.ColumnIdentity;
 import ed.inf.adbs.blazedb.DBCatalog;
 import ed.inf.adbs.blazedb.ExpressionEvaluator;
 import ed.inf.adbs.blazedb.SchemaTransformationType;
@@ -9,8 +10,10 @@ import net.sf.jsqlparser.schema.Column;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This operator performs projection (π) in relational algebra,
@@ -148,6 +151,28 @@ public class ProjectOperator extends Operator {
         return columns;
     }
 
+    /**
+     * Projection preserves the order of the child, but only for the leading sort columns
+     * that are retained by this projection.
+     * @return The prefix of the child's output order that is still present in the output.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        Set<ColumnIdentity> retained = new HashSet<>();
+        for (Column column : columns) {
+            retained.add(new ColumnIdentity(column));
+        }
+
+        List<Column> outputOrder = new ArrayList<>();
+        for (Column column : child.getOutputOrder()) {
+            if (!retained.contains(new ColumnIdentity(column))) {
+                break;
+            }
+            outputOrder.add(column);
+        }
+        return outputOrder;
+    }
+
     /**
      * Recursively update schema from bottom up
      * For project operator, it is crucial to reset the flag.
@@ -0,0 +1,226 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleComparator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The RangeJoinOperator implements a band join for inequality join conditions,
+ * such as Student.C < Course.E or Course.E BETWEEN Student.C AND Student.D.
+ * On the first call to getNextTuple(), all tuples of the inner child are read once and
+ * sorted on the compared inner column. For each outer tuple, the lower and upper bounds
+ * given by its outer columns are located with binary search, and only the inner tuples
+ * between them are combined with it.
+ * The cost is therefore O(|inner| log |inner| + |outer| log |inner| + output),
+ * instead of |outer| x |inner| evaluations of the join condition.
+ * The complete join condition is still evaluated on every candidate tuple, which covers
+ * conjuncts on other columns.
+ * Matches for each outer tuple are returned in the order of the inner column, so the
+ * output follows the order of the outer child.
+ * @see JoinOperator
+ * @see ed.inf.adbs.blazedb.RangeConditionExtractor
+ */
+public class RangeJoinOperator extends JoinOperator {
+
+    private final Column innerColumn;
+    private final Column lowerBound;
+    private final boolean lowerInclusive;
+    private final Column upperBound;
+    private final boolean upperInclusive;
+
+    private int lowerBoundIndex;
+    private int upperBoundIndex;
+
+    // Inner tuples sorted on the inner column, and the sorted values of that column
+    private List<Tuple> sortedInner;
+    private int[] sortedKeys;
+    private boolean built;
+
+    // Range of candidate inner tuples for the current outer tuple
+    private int candidateIndex;
+    private int candidateEnd;
+
+    /**
+     * Constructs a RangeJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator.
+     * @param innerChild The inner (right) child operator, sorted on the inner column in memory.
+     * @param expression The complete join condition.
+     * @param innerColumn The inner column the bounds apply to.
+     * @param lowerBound The outer column giving the lower bound of the inner column, or null for none.
+     * @param lowerInclusive Whether the inner column may be equal to the lower bound.
+     * @param upperBound The outer column giving the upper bound of the inner column, or null for none.
+     * @param upperInclusive Whether the inner column may be equal to the upper bound.
+     */
+    public RangeJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                             Column innerColumn, Column lowerBound, boolean lowerInclusive,
+                             Column upperBound, boolean upperInclusive) {
+        super(outerChild, innerChild, expression);
+        this.innerColumn = innerColumn;
+        this.lowerBound = lowerBound;
+        this.lowerInclusive = lowerInclusive;
+        this.upperBound = upperBound;
+        this.upperInclusive = upperInclusive;
+        this.built = false;
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * Sorts the inner child on the first call, then for each outer tuple
+     * scans only the inner tuples within its bounds.
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!built) {
+            buildSortedInner();
+        }
+
+        while (true) {
+            if (currentOuterTuple != null && candidateIndex < candidateEnd) {
+                Tuple combined = combineTuples(currentOuterTuple, sortedInner.get(candidateIndex));
+                candidateIndex++;
+                if (evaluator.evaluate(expression, combined)) {
+                    return combined;
+                }
+                continue;
+            }
+
+            currentOuterTuple = outerChild.getNextTuple();
+            if (currentOuterTuple == null) {
+                return null;
+            }
+
+            candidateIndex = 0;
+            candidateEnd = sortedKeys.length;
+            if (lowerBound != null) {
+                int bound = currentOuterTuple.getAttribute(lowerBoundIndex);
+                candidateIndex = lowerInclusive ? firstAtLeast(bound) : firstAtLeast((long) bound + 1);
+            }
+            if (upperBound != null) {
+                int bound = currentOuterTuple.getAttribute(upperBoundIndex);
+                candidateEnd = upperInclusive ? firstAtLeast((long) bound + 1) : firstAtLeast(bound);
+            }
+        }
+    }
+
+    /**
+     * Reads every tuple from the inner child and sorts them on the inner column.
+     * Column indices are resolved here rather than in the constructor,
+     * since optimisations such as projection push down may change the child schemas.
+     */
+    private void buildSortedInner() {
+        String outerSchemaId = outerChild.propagateSchemaId();
+        if (lowerBound != null) {
+            lowerBoundIndex = resolveColumnIndices(Collections.singletonList(lowerBound), outerSchemaId, null).get(0);
+        }
+        if (upperBound != null) {
+            upperBoundIndex = resolveColumnIndices(Collections.singletonList(upperBound), outerSchemaId, null).get(0);
+        }
+        List<Integer> innerIndices = resolveColumnIndices(Collections.singletonList(innerColumn),
+                child.propagateSchemaId(), null);
+
+        sortedInner = new ArrayList<>();
+        Tuple innerTuple;
+        while ((innerTuple = child.getNextTuple()) != null) {
+            sortedInner.add(innerTuple);
+        }
+        sortedInner.sort(new TupleComparator(innerIndices)); // stable, ties keep the inner order
+
+        int innerIndex = innerIndices.get(0);
+        sortedKeys = new int[sortedInner.size()];
+        for (int i = 0; i < sortedKeys.length; i++) {
+            sortedKeys[i] = sortedInner.get(i).getAttribute(innerIndex);
+        }
+
+        currentOuterTuple = null;
+        candidateIndex = 0;
+        candidateEnd = 0;
+        built = true;
+    }
+
+    /**
+     * Binary search for the first position whose key is not smaller than the given value.
+     * The value is a long so that bound + 1 cannot overflow.
+     * @param value The value to search for.
+     * @return The first index with sortedKeys[index] >= value, or the number of keys if there is none.
+     */
+    private int firstAtLeast(long value) {
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedKeys[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Only the outer child is reset; the sorted inner tuples are kept in memory.
+     */
+    @Override
+    public void reset() {
+        outerChild.reset();
+        currentOuterTuple = null;
+        candidateIndex = 0;
+        candidateEnd = 0;
+    }
+
+    /**
+     * Sets the outer child operator of this join.
+     * The bound columns are resolved again on the next call to getNextTuple().
+     * @param outerChild The new outer child operator
+     */
+    @Override
+    public void setOuterChild(Operator outerChild) {
+        super.setOuterChild(outerChild);
+        built = false;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The inner child is read and sorted again on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        built = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The column indices are resolved again on the next call to getNextTuple().
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        built = false;
+    }
+
+    /**
+     * The inner child is read only once, into the sorted buffer.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the inner column the bounds apply to.
+     * @return The inner column.
+     */
+    public Column getInnerColumn() {
+        return innerColumn;
+    }
+}
@@ -0,0 +1,380 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReadAheadScanOperator performs a full table scan over the CSV data file of a table while a
+ * loader on a background thread reads the file ahead of it, so that reading the next chunk of
+ * the file overlaps with parsing the previous one instead of alternating with it.
+ * The scan owns a fixed number of chunk buffers, its depth: the loader fills free buffers with
+ * consecutive chunks of the file and queues them, and the scan parses the queued chunks in order
+ * and hands each buffer back to the loader once it is parsed. With a depth of 2 the scan is
+ * double-buffered; a larger depth lets the loader get further ahead of bursts of slow parsing.
+ * Rows crossing the end of a chunk are continued in the next chunk.
+ * The scan measures the time it stalls waiting for a chunk, and the time the loader spends
+ * reading and waiting for a free buffer: a scan which stalls often is I/O bound, while a
+ * loader which mostly waits for buffers means the parsing, or the plan above the scan, is the
+ * bottleneck.
+ * If the table has a zone map, the loader is restarted at the next block which may hold matching
+ * rows, so skipped blocks are not read. reset() restarts the loader at the start of the file.
+ * The loader reads the file through the shared {@link ed.inf.adbs.blazedb.BufferPool}, which
+ * stays usable when a loader is stopped by an interrupt; lookup mode reads the rows at the given
+ * offsets on the scan's thread, as in {@link ScanOperator}.
+ * @see ScanOperator
+ */
+public class ReadAheadScanOperator extends ScanOperator {
+
+    private static ExecutorService loaderPool;
+
+    private final Path tablePath;
+    private final int numColumns;
+    private final int chunkSize;
+    private final int depth;
+
+    // The running loader, the buffers it may fill and the chunks it has filled
+    private Future<?> loader;
+    private BlockingQueue<byte[]> freeChunks;
+    private BlockingQueue<Chunk> filledChunks;
+    private boolean started;
+
+    // The chunk being parsed, and the position of the next byte to parse in it
+    private byte[] chunk;
+    private int chunkLength;
+    private int chunkPos;
+    private boolean lastChunk;
+    private final RowParser parser;
+    private final int[] rowValues;
+
+    // Time the scan waited for chunks, and the loader spent reading and waiting for free buffers
+    private long chunkCount;
+    private long stallCount;
+    private long stallNanos;
+    private final AtomicLong readNanos = new AtomicLong();
+    private final AtomicLong loaderWaitNanos = new AtomicLong();
+
+    /**
+     * A chunk of the file filled by the loader, or the error which stopped it.
+     */
+    private static class Chunk {
+        final byte[] bytes;
+        final int length;
+        final boolean last;
+        final IOException error;
+
+        Chunk(byte[] bytes, int length, boolean last, IOException error) {
+            this.bytes = bytes;
+            this.length = length;
+            this.last = last;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Construct a read-ahead scan operator for the given table, using the chunk size and depth
+     * configured in Constants.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public ReadAheadScanOperator(String tableName) {
+        this(tableName, Constants.READ_AHEAD_CHUNK_SIZE, Constants.READ_AHEAD_DEPTH);
+    }
+
+    /**
+     * Construct a read-ahead scan operator for the given table.
+     * @param tableName The name of the database table this operator scans.
+     * @param chunkSize The number of bytes of the file read by the loader at a time.
+     * @param depth The number of chunk buffers, i.e. how many chunks the loader may read ahead.
+     */
+    public ReadAheadScanOperator(String tableName, int chunkSize, int depth) {
+        super(tableName, false);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Read-ahead chunk size must be positive, got " + chunkSize);
+        }
+        if (depth < 1) {
+            throw new IllegalArgumentException("Read-ahead depth must be positive, got " + depth);
+        }
+        this.tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+        this.numColumns = DBCatalog.getInstance().getDBSchemata(tableName).size();
+        this.chunkSize = chunkSize;
+        this.depth = depth;
+        this.parser = new RowParser(numColumns, tableName);
+        this.rowValues = parser.getValues();
+    }
+
+    /**
+     * Returns the pool of loader threads shared by all read-ahead scans, creating it on first use.
+     * A loader blocks while its buffers are full, so the pool has a thread per running loader.
+     * The threads are daemon threads, so that a scan which is not closed does not keep the program running.
+     * @return The loader pool.
+     */
+    private static synchronized ExecutorService getLoaderPool() {
+        if (loaderPool == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            loaderPool = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "read-ahead-loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return loaderPool;
+    }
+
+    /**
+     * Stops the loader, so that the scan starts again from the start of the file.
+     */
+    @Override
+    protected void openReader() {
+        stopLoader();
+        started = false;
+    }
+
+    /**
+     * Retrieves the next tuple by parsing the next line of the chunks read ahead by the loader.
+     * Rows rejected by a runtime filter are skipped.
+     * @return The next tuple, or null if there are no more tuples.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            return super.getNextTuple();
+        }
+
+        try {
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    startLoader(getScanOffset());
+                } else if (!started) {
+                    startLoader(0);
+                }
+                if (!readRow()) {
+                    return null;
+                }
+                countScannedRow();
+                if (passesRuntimeFilters(rowValues)) {
+                    ArrayList<Integer> attributes = new ArrayList<>(numColumns);
+                    for (int value : rowValues) {
+                        attributes.add(value);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new loader reading the file from the given offset, abandoning the running one.
+     * @param offset The byte offset of the start of a row, or -1 to read nothing more.
+     * @throws IOException If the size of the file cannot be read.
+     */
+    private void startLoader(long offset) throws IOException {
+        stopLoader();
+        started = true;
+        chunk = null;
+        chunkLength = 0;
+        chunkPos = 0;
+        parser.reset();
+        lastChunk = offset == -1;
+        if (lastChunk) {
+            return; // all remaining blocks were skipped
+        }
+
+        // Small files, or the end of a file, do not need full-size buffers
+        int bufferSize = (int) Math.max(1, Math.min(chunkSize, Files.size(tablePath) - offset + 1));
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(depth);
+        BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        freeChunks = free;
+        filledChunks = filled;
+        loader = getLoaderPool().submit(() -> loadChunks(offset, free, filled));
+    }
+
+    /**
+     * Interrupts the running loader, if any; the chunks it has read are dropped.
+     */
+    private void stopLoader() {
+        if (loader != null) {
+            loader.cancel(true);
+            loader = null;
+        }
+        freeChunks = null;
+        filledChunks = null;
+    }
+
+    /**
+     * Fills free buffers with consecutive chunks of the file until its end; run by a loader thread.
+     * The chunks are copied from the pages of the BufferPool.
+     * @param start The byte offset of the first chunk.
+     * @param free The buffers handed back by the scan.
+     * @param filled The chunks ready to be parsed, in file order.
+     */
+    private void loadChunks(long start, BlockingQueue<byte[]> free, BlockingQueue<Chunk> filled) {
+        try {
+            BufferPool pool = BufferPool.getInstance();
+            long position = start;
+            boolean last = false;
+            while (!last) {
+                long waitStart = System.nanoTime();
+                byte[] buffer = free.take();
+                long readStart = System.nanoTime();
+                loaderWaitNanos.addAndGet(readStart - waitStart);
+
+                ByteBuffer target = ByteBuffer.wrap(buffer);
+                pool.read(tablePath, position, target);
+                last = target.hasRemaining(); // the pool only reads less than asked at the end of the file
+                readNanos.addAndGet(System.nanoTime() - readStart);
+                position += target.position();
+                filled.put(new Chunk(buffer, target.position(), last, null));
+            }
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            // The scan was reset or closed
+        } catch (IOException e) {
+            filled.offer(new Chunk(null, 0, true, e));
+        }
+    }
+
+    /**
+     * Hands the parsed chunk back to the loader and waits for the next one.
+     * @return true if a chunk is ready to be parsed, false at the end of the file.
+     * @throws IOException If the loader failed to read the file.
+     * @throws InterruptedException If the scan's thread is interrupted while waiting.
+     */
+    private boolean nextChunk() throws IOException, InterruptedException {
+        if (chunk != null) {
+            freeChunks.add(chunk);
+            chunk = null;
+        }
+        if (lastChunk) {
+            return false;
+        }
+
+        Chunk next = filledChunks.poll();
+        if (next == null) {
+            long waitStart = System.nanoTime();
+            next = filledChunks.take();
+            stallNanos += System.nanoTime() - waitStart;
+            stallCount++;
+        }
+        if (next.error != null) {
+            lastChunk = true;
+            throw next.error;
+        }
+        chunk = next.bytes;
+        chunkLength = next.length;
+        chunkPos = 0;
+        lastChunk = next.last;
+        chunkCount++;
+        return true;
+    }
+
+    /**
+     * Parses the next non-blank line into rowValues with the RowParser, moving to the next chunk
+     * when a line continues past the end of the current one.
+     * @return true if a row was parsed, false at the end of the file.
+     * @throws IOException If the loader failed to read the file.
+     * @throws InterruptedException If the scan's thread is interrupted while waiting for a chunk.
+     */
+    private boolean readRow() throws IOException, InterruptedException {
+        while (true) {
+            if (chunkPos == chunkLength) {
+                if (!nextChunk()) {
+                    break;
+                }
+                continue;
+            }
+            if (parser.accept(chunk[chunkPos++])) {
+                return true;
+            }
+        }
+        return parser.finish(); // last line without trailing newline
+    }
+
+    /**
+     * Stop the loader.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        stopLoader();
+    }
+
+    /**
+     * Get the number of chunk buffers of the scan.
+     * @return The depth of the read-ahead.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of bytes read by the loader at a time.
+     * @return The chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the number of chunks parsed since the scan was created.
+     * @return The number of chunks.
+     */
+    public long getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Get the number of times the scan had to wait for the loader to read a chunk.
+     * @return The number of stalls.
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Get the time the scan spent waiting for the loader to read a chunk since it was created.
+     * @return The stall time in nanoseconds.
+     */
+    public long getStallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * Get the time the loaders of the scan spent reading the file.
+     * @return The read time in nanoseconds.
+     */
+    public long getReadNanos() {
+        return readNanos.get();
+    }
+
+    /**
+     * Get the time the loaders of the scan spent waiting for the scan to hand back a buffer.
+     * @return The wait time in nanoseconds.
+     */
+    public long getLoaderWaitNanos() {
+        return loaderWaitNanos.get();
+    }
+}
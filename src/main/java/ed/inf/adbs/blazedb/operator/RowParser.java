@@ -0,0 +1,143 @@
+package ed.inf.adbs.blazedb.operator;
+
+/**
+ * The RowParser parses the rows of a CSV data file into integer values one byte at a time,
+ * without building a String for each line or splitting it with a regular expression.
+ * The scans reading the file in chunks or mapped regions feed it the bytes of the file,
+ * so a row may continue from one chunk into the next.
+ * Values are checked as strictly as Integer.parseInt() checks them: a minus sign is only
+ * accepted before the first digit of a value, and a value outside the int range is rejected
+ * with a NumberFormatException. Values are accumulated as negative numbers, so that
+ * Integer.MIN_VALUE can be parsed.
+ * Blank lines are skipped, and the last line of the file may lack a trailing newline, see finish().
+ * @see MappedScanOperator
+ * @see ParallelScanOperator
+ * @see ReadAheadScanOperator
+ */
+final class RowParser {
+
+    private final int numColumns;
+    private final String tableName;
+    private final int[] values;
+
+    // The position in the current row, and the negated digits of the current value
+    private int column;
+    private int value;
+    private boolean negative;
+    private boolean hasDigits;
+    private boolean valueEnded;
+    private boolean blank = true;
+
+    /**
+     * Constructs a parser for the rows of a table.
+     * @param numColumns The number of values of every row.
+     * @param tableName The name of the table, for error messages.
+     */
+    RowParser(int numColumns, String tableName) {
+        this.numColumns = numColumns;
+        this.tableName = tableName;
+        this.values = new int[numColumns];
+    }
+
+    /**
+     * Parses the next byte of the file.
+     * @param b The byte.
+     * @return true if the byte ended a row, whose values are then returned by getValues(), false otherwise.
+     * @throws NumberFormatException If a value is out of the int range or has a misplaced minus sign.
+     */
+    boolean accept(byte b) {
+        if (b >= '0' && b <= '9') {
+            int digit = b - '0';
+            if (valueEnded) {
+                throw new NumberFormatException("Unexpected digit after a value in data file of table " + tableName);
+            }
+            if (value < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Value out of int range in data file of table " + tableName);
+            }
+            value = value * 10 - digit;
+            hasDigits = true;
+            blank = false;
+        } else if (b == ',') {
+            storeValue();
+            blank = false;
+        } else if (b == '\n') {
+            return !blank && endRow(); // skip blank lines
+        } else if (b == '-') {
+            if (negative || hasDigits || valueEnded) {
+                throw new NumberFormatException("Misplaced '-' in data file of table " + tableName);
+            }
+            negative = true;
+            blank = false;
+        } else if (b == ' ' || b == '\t' || b == '\r') {
+            valueEnded = negative || hasDigits;
+        } else {
+            throw new RuntimeException("Unexpected character '" + (char) b + "' in data file of table " + tableName);
+        }
+        return false;
+    }
+
+    /**
+     * Ends the input at the end of the file, completing a last line without trailing newline.
+     * @return true if a last row was parsed, false if the rest of the input was blank.
+     */
+    boolean finish() {
+        return !blank && endRow();
+    }
+
+    /**
+     * Discards the part of the current row parsed so far, e.g. to parse it again from its start.
+     */
+    void reset() {
+        column = 0;
+        clearValue();
+        blank = true;
+    }
+
+    /**
+     * Get the values of the row ended by the last call to accept() or finish() returning true.
+     * The array is reused for the next row.
+     * @return The values of the row.
+     */
+    int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Stores the current value in the row.
+     */
+    private void storeValue() {
+        if (!hasDigits) {
+            throw new RuntimeException("Missing value in data file of table " + tableName);
+        }
+        if (!negative && value == Integer.MIN_VALUE) {
+            throw new NumberFormatException("Value out of int range in data file of table " + tableName);
+        }
+        if (column == numColumns) {
+            throw new RuntimeException("Row of table " + tableName + " has more than " + numColumns + " values");
+        }
+        values[column++] = negative ? value : -value;
+        clearValue();
+    }
+
+    /**
+     * Stores the last value of the row, and checks that the row has a value for every column.
+     * @return true
+     */
+    private boolean endRow() {
+        storeValue();
+        if (column != numColumns) {
+            throw new RuntimeException("Row of table " + tableName + " has " + column
+                    + " values, expected " + numColumns);
+        }
+        column = 0;
+        blank = true;
+        return true;
+    }
+
+    private void clearValue() {
+        value = 0;
+        negative = false;
+        hasDigits = false;
+        valueEnded = false;
+    }
+}
@@ -0,0 +1,71 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The RuntimeFilterPushdown keeps track of the Bloom filters a join has pushed down to the scans
+ * of its probe side, so that the join can withdraw them before it pushes new ones, e.g. when it
+ * builds its hash table again after a schema update.
+ * It is shared by the binary joins, see {@link JoinOperator}, and the {@link StarJoinOperator}.
+ */
+final class RuntimeFilterPushdown {
+
+    // Runtime filters pushed down, and the scans they were added to
+    private final List<BloomFilter> pushedFilters = new ArrayList<>();
+    private final List<ScanOperator> pushedFilterScans = new ArrayList<>();
+
+    /**
+     * Finds the scans below a probe input that produce the given key columns.
+     * @param input The probe input of the join.
+     * @param keyColumns The key columns of the join on the probe side.
+     * @return The scan for every key column whose table was found, in key order.
+     * @see JoinOperator#findScan(Operator, String)
+     */
+    static Map<Column, ScanOperator> findTargets(Operator input, List<Column> keyColumns) {
+        Map<Column, ScanOperator> targets = new LinkedHashMap<>();
+        for (Column column : keyColumns) {
+            if (column.getTable() == null || column.getTable().getName() == null) {
+                continue;
+            }
+            ScanOperator scan = JoinOperator.findScan(input, column.getTable().getName());
+            if (scan != null) {
+                targets.put(column, scan);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Adds the filters on key columns to the scans producing them.
+     * @param keyColumns The key columns of the join on the probe side.
+     * @param filters The filters over the build keys, parallel to the key columns.
+     * @param targets The scan for every key column that can be filtered, see findTargets().
+     */
+    void push(List<Column> keyColumns, List<BloomFilter> filters, Map<Column, ScanOperator> targets) {
+        for (int i = 0; i < keyColumns.size(); i++) {
+            ScanOperator scan = targets.get(keyColumns.get(i));
+            if (scan != null) {
+                scan.addRuntimeFilter(keyColumns.get(i), filters.get(i));
+                pushedFilters.add(filters.get(i));
+                pushedFilterScans.add(scan);
+            }
+        }
+    }
+
+    /**
+     * Removes the filters pushed down so far from their scans.
+     */
+    void withdraw() {
+        for (int i = 0; i < pushedFilters.size(); i++) {
+            pushedFilterScans.get(i).removeRuntimeFilter(pushedFilters.get(i));
+        }
+        pushedFilters.clear();
+        pushedFilterScans.clear();
+    }
+}
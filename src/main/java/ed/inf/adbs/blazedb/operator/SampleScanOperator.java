@@ -0,0 +1,178 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Constants;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The SampleScanOperator scans a random sample of a table, for queries whose FROM clause samples
+ * the table, e.g. {@code FROM Student TABLESAMPLE BERNOULLI (1)}.
+ * Two sampling methods are supported:
+ * - BERNOULLI keeps every row independently with the sampling probability. The rows are still
+ *   read, but the rows left out are not parsed.
+ * - SYSTEM keeps or leaves out whole blocks of rows with the sampling probability. If the table
+ *   has a zone map, its blocks are sampled and the blocks left out are not read at all;
+ *   otherwise blocks of Constants.ZONE_MAP_BLOCK_ROWS consecutive rows are sampled.
+ * Block sampling reads much less of the file, but rows of a block are sampled together, so its
+ * estimates are less accurate if the table is clustered on the aggregated values.
+ * The sample is drawn from a seeded random generator, which is seeded again on reset(), so a scan
+ * returns the same sample every time, e.g. as the inner input of a join. The seed is given by a
+ * REPEATABLE clause, or chosen at random.
+ * A {@link SumOperator} above the scan scales its sums up by the inverse of the sampling fraction.
+ * @see ScanOperator
+ */
+public class SampleScanOperator extends ScanOperator {
+
+    /**
+     * The sampling methods of a TABLESAMPLE clause.
+     */
+    public enum Method {
+
+        // every row is kept independently
+        BERNOULLI,
+
+        // every block of rows is kept independently
+        SYSTEM
+    }
+
+    private final Method method;
+    private final double percentage;
+    private final long seed;
+    private Random random;
+
+    // Block sampling: the block of the current row, and without a zone map whether it is kept
+    private long currentBlock;
+    private boolean blockSampled;
+
+    /**
+     * Construct a sampling scan operator for the given table.
+     * @param tableName The name of the database table this operator scans.
+     * @param method The sampling method.
+     * @param percentage The percentage of the rows (or blocks) to sample, greater than 0 and at most 100.
+     * @param seed The seed of the random generator, or null to choose one at random.
+     */
+    public SampleScanOperator(String tableName, Method method, double percentage, Long seed) {
+        super(tableName);
+        if (!(percentage > 0 && percentage <= 100)) {
+            throw new IllegalArgumentException("Sampling percentage must be in (0, 100], got " + percentage);
+        }
+        this.method = method;
+        this.percentage = percentage;
+        this.seed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+        this.random = new Random(this.seed);
+
+        // Loads the zone map of the table, whose blocks are sampled by the SYSTEM method
+        setScanPredicate(null);
+    }
+
+    /**
+     * Get the sampling method.
+     * @return BERNOULLI or SYSTEM.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the percentage of the rows (or blocks) sampled.
+     * @return The percentage, greater than 0 and at most 100.
+     */
+    public double getPercentage() {
+        return percentage;
+    }
+
+    /**
+     * Get the probability of a row to be in the sample.
+     * @return The sampling fraction, greater than 0 and at most 1.
+     */
+    public double getSamplingFraction() {
+        return percentage / 100;
+    }
+
+    /**
+     * Get the seed of the random generator drawing the sample.
+     * @return The seed given by the REPEATABLE clause, or the one chosen at random.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the sampling unit of the row returned last, i.e. the unit which was drawn to keep it.
+     * Rows of the same unit are in the sample together.
+     * @return The row number for BERNOULLI sampling, the block number for SYSTEM sampling.
+     */
+    public long getSampleUnit() {
+        return method == Method.BERNOULLI ? getScanRow() : currentBlock;
+    }
+
+    /**
+     * Draws whether the next row or block is in the sample.
+     * @return true with the sampling probability.
+     */
+    private boolean sample() {
+        return random.nextDouble() * 100 < percentage;
+    }
+
+    /**
+     * SYSTEM sampling reads the blocks of the zone map that are in the sample.
+     * Every block is drawn, whether or not the scan predicate rules it out, so that the sample
+     * does not depend on the predicate.
+     * @param block The block number.
+     * @return true if the block is in the sample and may satisfy the scan predicate.
+     */
+    @Override
+    protected boolean readsBlock(int block) {
+        if (method == Method.SYSTEM) {
+            boolean sampled = sample();
+            if (sampled && super.readsBlock(block)) {
+                currentBlock = block;
+                return true;
+            }
+            return false;
+        }
+        return super.readsBlock(block);
+    }
+
+    /**
+     * SYSTEM sampling skips blocks of the zone map.
+     * @return true for SYSTEM sampling, false for BERNOULLI sampling.
+     */
+    @Override
+    protected boolean skipsBlocks() {
+        return method == Method.SYSTEM;
+    }
+
+    /**
+     * Draws whether the row just read is in the sample: BERNOULLI sampling draws every row,
+     * SYSTEM sampling without a zone map draws the first row of every block and keeps or leaves
+     * out the rest of the block with it. Rows of blocks read using the zone map are all kept.
+     * @return true if the row is returned, false if it is left out.
+     */
+    @Override
+    protected boolean keepsRow() {
+        if (method == Method.BERNOULLI) {
+            return sample();
+        }
+        if (usesZoneMap()) {
+            return true;
+        }
+        if ((getScanRow() - 1) % Constants.ZONE_MAP_BLOCK_ROWS == 0) {
+            currentBlock = (getScanRow() - 1) / Constants.ZONE_MAP_BLOCK_ROWS;
+            blockSampled = sample();
+        }
+        return blockSampled;
+    }
+
+    /**
+     * Resets the scan, and seeds the random generator again so that the same sample is returned.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        random = new Random(seed);
+        currentBlock = 0;
+        blockSampled = false;
+    }
+}
@@ -1,19 +1,47 @@
 package ed.inf.adbs.blazedb.operator;
 
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.BufferPool;
+import ed.inf.adbs.blazedb.Constants;
 import ed.inf.adbs.blazedb.Tuple;
 import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.ZoneMap;
+import ed.inf.adbs.blazedb.ZoneMapFilter;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The ScanOperator class is a leaf-level operator within the BlazeDB query execution plan.
  * It performs a full table scan by sequentially reading tuples directly from a database file,
  * according to the iterator model specified by the coursework requirements.
  * The ScanOperator has no child operators, as it directly interacts with stored database tables.
+ * A scan can also be switched to lookup mode, in which it only returns the rows starting at given
+ * byte offsets, e.g. the matches found in a {@link ed.inf.adbs.blazedb.LookupIndex}.
+ * Joins may push runtime filters down to the scan; a row whose value in a filtered column is
+ * not in the filter is skipped right after the line is split, before a tuple is built for it.
+ * The optimizer may also hand the selection condition on the table to the scan; if the table has
+ * a {@link ZoneMap}, blocks of rows whose column ranges cannot satisfy the condition are skipped
+ * without being read. The selection above the scan still filters the rows that are read.
+ * The data file is read through the shared {@link BufferPool}, so that a table scanned repeatedly,
+ * e.g. as the inner input of a join, is only read from disk once while it fits into the pool.
+ * If the data file has been sorted by {@link ed.inf.adbs.blazedb.TableClusterer}, the scan reports
+ * the recorded sort order as its output order.
+ * Subclasses may read the table in other ways, see {@link BinaryScanOperator}, {@link MappedScanOperator}
+ * and {@link ParallelScanOperator}.
  * @see Operator
  */
 public class ScanOperator extends Operator {
@@ -22,11 +50,54 @@ public class ScanOperator extends Operator {
     private final String tableName;
     private BufferedReader reader;
 
+    // Lookup mode: only the rows at these byte offsets are returned
+    private List<Long> lookupOffsets;
+    private int lookupIndex;
+    private byte[] lineBuffer;
+
+    // Runtime filters pushed down by joins, and the number of rows they have removed
+    private final List<RuntimeFilter> runtimeFilters = new ArrayList<>();
+    private long runtimeFilteredRows;
+
+    // Zone map filtering: the condition handed down by the optimizer, and the position of the scan
+    private Expression scanPredicate;
+    private ZoneMap zoneMap;
+    private ZoneMapFilter scanFilter;
+    private long scanRow;
+    private int nextBlock;
+    private long nextBlockRow;
+    private long skippedBlocks;
+
+    /**
+     * A Bloom filter on a column of the scanned table.
+     */
+    private static class RuntimeFilter {
+        final Column column;
+        final int columnIndex;
+        final BloomFilter filter;
+
+        RuntimeFilter(Column column, int columnIndex, BloomFilter filter) {
+            this.column = column;
+            this.columnIndex = columnIndex;
+            this.filter = filter;
+        }
+    }
+
     /**
      * Construct a scan operator for the given table.
      * @param tableName The name of the database table this operator scans.
      */
     public ScanOperator(String tableName) {
+        this(tableName, true);
+    }
+
+    /**
+     * Construct a scan operator for the given table, without opening the reader if a subclass
+     * reads the table from another file. Lookup mode always reads the CSV file.
+     * @param tableName The name of the database table this operator scans.
+     * @param openReader Whether to open the reader of the CSV file for a full scan.
+     */
+    protected ScanOperator(String tableName, boolean openReader) {
         this.tableName = tableName;
         tablePath = DBCatalog.getInstance().getDBLocation(tableName);
         child = null; // Scan cannot have child operator
@@ -34,43 +105,381 @@ public class ScanOperator extends Operator {
         this.schemaRegistered = true;
         this.intermediateSchemaId = tableName; //Scan never transform schema
 
-        openReader();
+        if (tablePath != null) {
+            BufferPool.getInstance().refresh(tablePath);
+        }
+        if (openReader) {
+            openReader();
+        }
     }
 
     /**
-     * Open up a buffered reader for the table this operator scan.
+     * Open up a buffered reader for the table this operator scan, reading through the buffer pool.
      */
-    private void openReader() {
-        try {
-            reader = Files.newBufferedReader(tablePath);
-        } catch (IOException e) {
-            System.err.println("Failed to open reader for table " + tableName + ": " + e.getMessage());
-            e.printStackTrace();
-        }
+    protected void openReader() {
+        reader = newReader(0);
+    }
+
+    /**
+     * Creates a buffered reader of the CSV file which reads its pages through the buffer pool.
+     * @param offset The byte offset of the first character to read.
+     * @return The reader.
+     */
+    private BufferedReader newReader(long offset) {
+        return new BufferedReader(new InputStreamReader(
+                BufferPool.getInstance().newInputStream(tablePath, offset), StandardCharsets.UTF_8));
     }
 
     /**
      * Retrieves the next tuple from the table by reading the next line from the CSV file.
+     * Rows rejected by a runtime filter are skipped.
      * If the end of the file is reached, the reader is closed, and null is returned.
      * @return
      */
     @Override
     public Tuple getNextTuple() {
+        if (lookupOffsets != null) {
+            return getNextLookupTuple();
+        }
+
         try {
-            String line = reader.readLine();
-            if (line == null) { // END OF FILE
-                closeReader();
-                return null;
+            while (true) {
+                if (skipUnmatchedBlocks()) {
+                    seekReader(getScanOffset());
+                }
+                String line = reader.readLine();
+                if (line == null) { // END OF FILE
+                    closeReader();
+                    return null;
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                countScannedRow();
+                if (!keepsRow()) {
+                    continue;
+                }
+
+                String[] values = line.split(",\\s*"); // parse the line
+                if (passesRuntimeFilters(values)) {
+                    //tupleCounter ++;
+                    return toTuple(values);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the reader by one starting at the given offset of the CSV file.
+     * @param offset The byte offset of the start of a row, or -1 for the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private void seekReader(long offset) throws IOException {
+        reader.close();
+        reader = newReader(offset == -1 ? Files.size(tablePath) : offset);
+    }
+
+    /**
+     * Builds a tuple from the attribute values of a line of the CSV file.
+     * @param values The comma-separated attribute values.
+     * @return The tuple holding the parsed values.
+     */
+    private static Tuple toTuple(String[] values) {
+        ArrayList<Integer> attributes = new ArrayList<>(values.length);
+        for (String value : values) {
+            attributes.add(Integer.parseInt(value.trim()));
+        }
+        return new Tuple(attributes);
+    }
+
+    /**
+     * Checks a row against the runtime filters, parsing only the filtered columns.
+     * @param values The comma-separated attribute values of the row.
+     * @return true if the row may have a match in every filter, false if it can be skipped.
+     */
+    private boolean passesRuntimeFilters(String[] values) {
+        for (RuntimeFilter runtimeFilter : runtimeFilters) {
+            if (!runtimeFilter.filter.mightContain(Integer.parseInt(values[runtimeFilter.columnIndex].trim()))) {
+                runtimeFilteredRows++;
+                return false;
             }
+        }
+        return true;
+    }
 
-            String[] values = line.split(",\\s*"); // parse the line
-            ArrayList<Integer> attributes = new ArrayList<>();
-            for (String value : values) {
-                attributes.add(Integer.parseInt(value.trim()));
+    /**
+     * Checks a row of decoded values against the runtime filters.
+     * @param values The attribute values of the row.
+     * @return true if the row may have a match in every filter, false if it can be skipped.
+     */
+    protected boolean passesRuntimeFilters(int[] values) {
+        for (RuntimeFilter runtimeFilter : runtimeFilters) {
+            if (!runtimeFilter.filter.mightContain(values[runtimeFilter.columnIndex])) {
+                runtimeFilteredRows++;
+                return false;
             }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a runtime filter on a column of the scanned table.
+     * From the next row on, rows whose value in the column is not in the filter are skipped.
+     * The filter stays in place across calls to reset() until it is removed.
+     * @param column The filtered column of this table.
+     * @param filter The filter holding the values that may have a match.
+     */
+    public void addRuntimeFilter(Column column, BloomFilter filter) {
+        Map<String, Integer> schema = DBCatalog.getInstance().getDBSchemata(tableName);
+        Integer columnIndex = schema.get(column.getColumnName().toLowerCase());
+        if (columnIndex == null) {
+            throw new IllegalArgumentException("Column " + column + " not found in table " + tableName);
+        }
+        runtimeFilters.add(new RuntimeFilter(column, columnIndex, filter));
+    }
+
+    /**
+     * Removes a runtime filter, e.g. when the join that created it builds a new one.
+     * @param filter The filter to remove.
+     */
+    public void removeRuntimeFilter(BloomFilter filter) {
+        runtimeFilters.removeIf(runtimeFilter -> runtimeFilter.filter == filter);
+    }
+
+    /**
+     * Get the columns this scan currently filters on.
+     * @return The filtered columns, in the order the filters were added.
+     */
+    public List<Column> getRuntimeFilterColumns() {
+        List<Column> columns = new ArrayList<>(runtimeFilters.size());
+        for (RuntimeFilter runtimeFilter : runtimeFilters) {
+            columns.add(runtimeFilter.column);
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Get the number of rows skipped by runtime filters since the scan was created.
+     * @return The number of filtered rows.
+     */
+    public long getRuntimeFilteredRowCount() {
+        return runtimeFilteredRows;
+    }
+
+    /**
+     * Hands the selection condition on this table to the scan, so that the blocks of the table's
+     * zone map whose column ranges cannot satisfy it are skipped in a full scan.
+     * Only comparisons of columns with constants are used; the condition still has to be
+     * evaluated on the rows that are returned. Without a zone map, the condition has no effect.
+     * @param condition The selection condition, or null to scan every block.
+     */
+    public void setScanPredicate(Expression condition) {
+        scanPredicate = condition;
+        scanFilter = null;
+        zoneMap = null;
+        if (condition != null) {
+            ZoneMapFilter filter = new ZoneMapFilter(tableName, condition);
+            if (filter.hasBounds()) {
+                scanFilter = filter;
+            }
+        }
+        if ((scanFilter != null || skipsBlocks()) && Constants.useZoneMaps) {
+            zoneMap = DBCatalog.getInstance().getZoneMap(tableName);
+        }
+        resetScanPosition();
+    }
+
+    /**
+     * Get the selection condition handed to the scan.
+     * @return The condition, or null if none was set.
+     */
+    public Expression getScanPredicate() {
+        return scanPredicate;
+    }
+
+    /**
+     * Checks whether blocks of rows are skipped using a zone map.
+     * @return true if the scan has a zone map and a condition bounding one of its columns, false otherwise.
+     */
+    public boolean usesZoneMap() {
+        return zoneMap != null;
+    }
 
-            //tupleCounter ++;
-            return new Tuple(attributes);
+    /**
+     * Checks whether this scan reads its table through the shared {@link BufferPool}.
+     * @return true, unless a subclass reads the table file by other means.
+     */
+    public boolean readsThroughBufferPool() {
+        return true;
+    }
+
+    /**
+     * Get the ranges of the columns of this table which may satisfy the scan predicate.
+     * @return The column ranges, or null if the scan predicate does not compare any column with a constant.
+     */
+    protected ZoneMapFilter getScanFilter() {
+        return scanFilter;
+    }
+
+    /**
+     * Get the number of blocks skipped using the zone map since the scan was created.
+     * @return The number of skipped blocks.
+     */
+    public long getSkippedBlockCount() {
+        return skippedBlocks;
+    }
+
+    /**
+     * Skips the blocks which cannot hold a row satisfying the scan predicate, if the next row to
+     * read is the first row of a block. A full scan calls this before reading every row, and moves
+     * to getScanRow() (or getScanOffset() in the CSV file) if it returns true.
+     * @return true if blocks were skipped, false if the scan continues at the next row.
+     */
+    protected boolean skipUnmatchedBlocks() {
+        if (zoneMap == null || scanRow != nextBlockRow) {
+            return false;
+        }
+
+        int block = nextBlock;
+        while (block < zoneMap.getBlockCount() && !readsBlock(block)) {
+            block++;
+        }
+        int skipped = block - nextBlock;
+        skippedBlocks += skipped;
+
+        // The rows of the matching block are read; the next check is at the start of the block after it
+        if (block < zoneMap.getBlockCount()) {
+            scanRow = zoneMap.getFirstRow(block);
+            nextBlock = block + 1;
+            nextBlockRow = nextBlock < zoneMap.getBlockCount() ? zoneMap.getFirstRow(nextBlock) : Long.MAX_VALUE;
+        } else {
+            scanRow = zoneMap.getTotalRowCount();
+            nextBlock = block;
+            nextBlockRow = Long.MAX_VALUE;
+        }
+        return skipped > 0;
+    }
+
+    /**
+     * Checks whether a full scan reads a block of the zone map, i.e. whether its column ranges may
+     * satisfy the scan predicate. Blocks are checked in order, once per scan.
+     * @param block The block number.
+     * @return true if the rows of the block are read, false if the block is skipped.
+     */
+    protected boolean readsBlock(int block) {
+        return scanFilter == null || scanFilter.mightMatch(zoneMap, block);
+    }
+
+    /**
+     * Checks whether the scan skips blocks of the zone map other than those ruled out by the
+     * scan predicate, so that the zone map is loaded even without a predicate.
+     * @return false; subclasses skipping blocks by readsBlock() return true.
+     */
+    protected boolean skipsBlocks() {
+        return false;
+    }
+
+    /**
+     * Checks whether a full scan returns the row it has just read, before the row is parsed.
+     * @return true; subclasses returning only some rows, e.g. a sample, may return false.
+     */
+    protected boolean keepsRow() {
+        return true;
+    }
+
+    /**
+     * Counts blocks of the zone map skipped by a subclass which does not use skipUnmatchedBlocks().
+     * @param blocks The number of skipped blocks.
+     */
+    protected void countSkippedBlocks(int blocks) {
+        skippedBlocks += blocks;
+    }
+
+    /**
+     * Counts a row read by a full scan, whether or not it is returned.
+     */
+    protected void countScannedRow() {
+        scanRow++;
+    }
+
+    /**
+     * Get the position of the next row a full scan reads.
+     * @return The row number, starting at 0.
+     */
+    protected long getScanRow() {
+        return scanRow;
+    }
+
+    /**
+     * Get the byte offset in the CSV file of the next row a full scan reads, after blocks were skipped.
+     * @return The byte offset of the row, or -1 if all remaining blocks were skipped.
+     */
+    protected long getScanOffset() {
+        return scanRow < zoneMap.getTotalRowCount() ? zoneMap.getBlockOffset(nextBlock - 1) : -1;
+    }
+
+    /**
+     * Moves the zone map position back to the first row.
+     */
+    private void resetScanPosition() {
+        scanRow = 0;
+        nextBlock = 0;
+        nextBlockRow = 0;
+    }
+
+    /**
+     * Switches the scan to lookup mode, in which getNextTuple() returns the rows
+     * starting at the given byte offsets, in the given order, and then null.
+     * Calling this again replaces the offsets; calling reset() returns to a full scan.
+     * @param offsets The byte offsets of the rows to return.
+     */
+    public void lookup(List<Long> offsets) {
+        this.lookupOffsets = offsets;
+        this.lookupIndex = 0;
+    }
+
+    /**
+     * Checks whether the scan is in lookup mode.
+     * @return true if getNextTuple() returns the rows at the lookup offsets, false for a full scan.
+     */
+    protected boolean isLookupMode() {
+        return lookupOffsets != null;
+    }
+
+    /**
+     * Moves to the next lookup offset.
+     * @return The byte offset of the next row to return in lookup mode, or -1 if all offsets have been read.
+     */
+    protected long nextLookupOffset() {
+        if (lookupIndex == lookupOffsets.size()) {
+            return -1;
+        }
+        return lookupOffsets.get(lookupIndex++);
+    }
+
+    /**
+     * Reads the row at the next lookup offset.
+     * @return The tuple at the next offset, or null if all offsets have been read.
+     */
+    private Tuple getNextLookupTuple() {
+        try {
+            long offset;
+            while ((offset = nextLookupOffset()) != -1) {
+                if (lineBuffer == null) {
+                    lineBuffer = new byte[256];
+                }
+
+                String line = readLineAt(offset);
+                String[] values = line.split(",\\s*");
+                if (passesRuntimeFilters(values)) {
+                    return toTuple(values);
+                }
+            }
+            return null;
         } catch (IOException e) {
             System.err.println("Error reading tuple: " + e.getMessage());
             e.printStackTrace();
@@ -78,12 +487,42 @@ public class ScanOperator extends Operator {
         }
     }
 
+    /**
+     * Reads a single line of the data file starting at the given offset, through the buffer pool.
+     * @param offset The byte offset of the start of the line.
+     * @return The line without its line separator.
+     * @throws IOException If the file cannot be read.
+     */
+    private String readLineAt(long offset) throws IOException {
+        BufferPool bufferPool = BufferPool.getInstance();
+        int length = 0;
+        while (true) {
+            int read = bufferPool.read(tablePath, offset + length, ByteBuffer.wrap(lineBuffer, length, lineBuffer.length - length));
+            if (read == -1) {
+                break; // last line without trailing newline
+            }
+            for (int i = length; i < length + read; i++) {
+                if (lineBuffer[i] == '\n') {
+                    return new String(lineBuffer, 0, i).trim();
+                }
+            }
+            length += read;
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+            }
+        }
+        return new String(lineBuffer, 0, length).trim();
+    }
+
     /**
      * Resets the ScanOperator state by re-opening the file reader.
-     * This method allows the scan to restart iteration from the beginning of the file.
+     * This method allows the scan to restart iteration from the beginning of the file,
+     * leaving lookup mode if it was used.
      */
     @Override
     public void reset() {
+        lookupOffsets = null;
+        resetScanPosition();
         try {
             if (reader != null) {
                 reader.close();
@@ -107,7 +546,7 @@ public class ScanOperator extends Operator {
     /**
      * Close the reader used.
      */
-    private void closeReader() {
+    protected void closeReader() {
         try {
             if (reader != null) {
                 reader.close();
@@ -126,6 +565,20 @@ public class ScanOperator extends Operator {
         closeReader();
     }
 
+    /**
+     * A full scan returns the rows in the order of the data file, so its output is sorted on
+     * the sort order recorded for the table in the catalog, if any.
+     * @return The sort columns of the table, or an empty list if the table is not known to be sorted.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        List<Column> outputOrder = new ArrayList<>();
+        for (String columnName : DBCatalog.getInstance().getSortOrder(tableName)) {
+            outputOrder.add(new Column(new Table(tableName), columnName));
+        }
+        return outputOrder;
+    }
+
     /**
      * Trivial implementation since scan does not alter schema.
      */
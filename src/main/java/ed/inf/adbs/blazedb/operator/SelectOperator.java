@@ -3,8 +3,10 @@ package ed.inf.adbs.blazedb.operator;
 import ed.inf.adbs.blazedb.ExpressionEvaluator;
 import ed.inf.adbs.blazedb.Tuple;
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -89,6 +91,15 @@ public class SelectOperator extends Operator {
         return expression;
     }
 
+    /**
+     * Selection only removes tuples, so the order of the child is preserved.
+     * @return The output order of the child operator.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return child.getOutputOrder();
+    }
+
     /**
      * Register the selection condition of this operator.
      * The select operator does not alter schema, but the selection conditon is
@@ -0,0 +1,201 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SemiJoinOperator implements the hash semi-join for equi-join conditions.
+ * It returns every tuple of the outer child which has at least one match in the inner child,
+ * exactly once and unchanged, so no combined tuples are built and the output schema is the
+ * schema of the outer child.
+ * On the first call to getNextTuple(), the inner child is read once and only the distinct
+ * values of its join keys are kept in a hash set; outer tuples are then streamed and checked
+ * against the set, so the order of the outer child is preserved.
+ * A Bloom filter on the keys is pushed down into the outer child, as for the hash join.
+ * The optimizer uses it in place of a join when no columns of one side are needed above the
+ * join and duplicates do not matter above it (DISTINCT, or GROUP BY without SUM), since a
+ * semi-join does not repeat an outer tuple for each of its matches.
+ * The join condition must consist of equi-join keys only.
+ * @see HashJoinOperator
+ * @see ed.inf.adbs.blazedb.QueryPlanOptimizer
+ */
+public class SemiJoinOperator extends JoinOperator {
+
+    private final List<Column> outerKeyColumns;
+    private final List<Column> innerKeyColumns;
+
+    private List<Integer> outerKeyIndices;
+
+    // Distinct join key values of the inner child
+    private Set<List<Integer>> innerKeys;
+    private boolean built;
+
+    /**
+     * Constructs a SemiJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator, whose matching tuples are returned.
+     * @param innerChild The inner (right) child operator, only used for its join key values.
+     * @param expression The complete join condition, a conjunction of the key equalities.
+     * @param outerKeyColumns The key columns from the outer side, parallel to innerKeyColumns.
+     * @param innerKeyColumns The key columns from the inner side, parallel to outerKeyColumns.
+     */
+    public SemiJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                            List<Column> outerKeyColumns, List<Column> innerKeyColumns) {
+        super(outerChild, innerChild, expression);
+        this.outerKeyColumns = outerKeyColumns;
+        this.innerKeyColumns = innerKeyColumns;
+        this.built = false;
+    }
+
+    /**
+     * Returns the next outer tuple with a match in the inner child.
+     * Reads the inner join keys into a hash set on the first call.
+     * @return The next matching outer tuple, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!built) {
+            buildKeySet();
+        }
+
+        while ((currentOuterTuple = outerChild.getNextTuple()) != null) {
+            if (innerKeys.contains(currentOuterTuple.getAttributes(outerKeyIndices))) {
+                return currentOuterTuple;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads every tuple from the inner child and keeps its distinct join keys,
+     * then pushes Bloom filters on the keys down into the outer child.
+     * Key column indices are resolved here rather than in the constructor,
+     * since optimisations such as projection push down may change the child schemas.
+     */
+    private void buildKeySet() {
+        outerKeyIndices = resolveColumnIndices(outerKeyColumns, outerChild.propagateSchemaId(), null);
+        List<Integer> innerKeyIndices = resolveColumnIndices(innerKeyColumns, child.propagateSchemaId(), null);
+
+        innerKeys = new HashSet<>();
+        Tuple innerTuple;
+        while ((innerTuple = child.getNextTuple()) != null) {
+            innerKeys.add(innerTuple.getAttributes(innerKeyIndices));
+        }
+
+        if (Constants.useBloomFilterPushdown) {
+            List<BloomFilter> filters = createRuntimeFilters(outerKeyColumns.size(), innerKeys.size());
+            for (List<Integer> key : innerKeys) {
+                addToRuntimeFilters(filters, key);
+            }
+            pushRuntimeFilters(outerKeyColumns, filters);
+        }
+
+        currentOuterTuple = null;
+        built = true;
+    }
+
+    /**
+     * Resets the semi-join to its initial state.
+     * Only the outer child is reset; the inner join keys are kept in memory.
+     */
+    @Override
+    public void reset() {
+        outerChild.reset();
+        currentOuterTuple = null;
+    }
+
+    /**
+     * Registers the schema of this operator, which is the schema of the outer child
+     * since outer tuples are returned unchanged.
+     */
+    @Override
+    protected void registerSchema() {
+        if (schemaRegistered) return;
+
+        Map<String, String> transformationDetails = new HashMap<>();
+        transformationDetails.put("semi_join_condition", expression.toString());
+
+        intermediateSchemaId = registerPassthroughSchema(outerChild, transformationDetails);
+
+        schemaRegistered = true;
+    }
+
+    /**
+     * Sets the outer child operator of this join.
+     * The outer key columns are resolved again on the next call to getNextTuple().
+     * @param outerChild The new outer child operator
+     */
+    @Override
+    public void setOuterChild(Operator outerChild) {
+        super.setOuterChild(outerChild);
+        built = false;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The key set is rebuilt from the new child on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        built = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The key column indices are resolved again when the key set is rebuilt.
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        built = false;
+    }
+
+    /**
+     * The inner child is read only once, to collect its join keys.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the scans the Bloom filters on the inner keys are pushed down to.
+     * @return The scan for every outer key column that can be filtered, or an empty map
+     * if runtime filter push down is disabled.
+     */
+    @Override
+    public Map<Column, ScanOperator> getRuntimeFilterTargets() {
+        if (!Constants.useBloomFilterPushdown) {
+            return Collections.emptyMap();
+        }
+        return findRuntimeFilterTargets(outerKeyColumns);
+    }
+
+    /**
+     * Returns the key columns from the outer side of the join.
+     * @return The outer key columns.
+     */
+    public List<Column> getOuterKeyColumns() {
+        return outerKeyColumns;
+    }
+
+    /**
+     * Returns the key columns from the inner side of the join.
+     * @return The inner key columns.
+     */
+    public List<Column> getInnerKeyColumns() {
+        return innerKeyColumns;
+    }
+}
@@ -0,0 +1,366 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.DBCatalog;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.operator.ParallelScanOperator.ParsedRange;
+import net.sf.jsqlparser.schema.Column;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SharedScanOperator performs a full table scan over the CSV data file of a table by
+ * attaching to the pass over the file shared by all shared scans of the table which are running
+ * at the same time, e.g. in queries run concurrently by {@link ed.inf.adbs.blazedb.QueryBatch}.
+ * The file is split into chunks at line boundaries. The pass reads and parses each chunk once,
+ * and keeps the most recently read chunks in a window, from which the other scans attached to the
+ * pass take them; the scan asking for the next chunk of the pass reads it, while the others wait
+ * for it. Chunks are read through the shared {@link ed.inf.adbs.blazedb.BufferPool}, as in
+ * {@link ParallelScanOperator}. A scan which falls so far behind that its next chunk has left
+ * the window reads it on its own, so that a scan is never held up by a slower one.
+ * A scan attaches when it returns its first tuple. If another scan of the table is in flight, it
+ * starts at the oldest chunk in the window, reads to the end of the file, and then wraps around
+ * to read the chunks from the start of the file up to where it attached. The tuples are therefore
+ * not in file order, and the scan reports no output order. A scan detaches when it has read every
+ * chunk, or when it is reset or closed; the pass ends when its last scan detaches, and a pass over
+ * a data file which has changed since it started is not joined by new scans.
+ * A shared pass reads every chunk for all of its scans, so blocks of rows are not skipped using
+ * the zone map. Lookup mode reads the rows at the given offsets on the scan's thread, as in
+ * {@link ScanOperator}.
+ * Shared scans are only planned while sharing is enabled, since a query running on its own
+ * gains nothing from it.
+ * @see ScanOperator
+ */
+public class SharedScanOperator extends ScanOperator {
+
+    // The pass over each data file in flight, and whether the planner creates shared scans
+    private static final Map<Path, SharedPass> activePasses = new HashMap<>();
+    private static volatile boolean sharingEnabled;
+
+    private final Path tablePath;
+    private final int numColumns;
+    private final int chunkSize;
+    private final int windowChunks;
+
+    // The pass the scan is attached to, the next chunk it reads and the number of chunks it has left
+    private SharedPass pass;
+    private boolean finished;
+    private int startChunk;
+    private int nextChunk;
+    private int remainingChunks;
+
+    // The chunk whose tuples are being returned, and the next row to return from it
+    private ParsedRange currentChunk;
+    private int currentRow;
+    private final int[] rowValues;
+
+    // The chunks taken from the window, and those the scan read itself for the pass or on its own
+    private long sharedChunkCount;
+    private long passChunkCount;
+    private long privateChunkCount;
+
+    /**
+     * A pass over a data file shared by the scans attached to it.
+     * All fields are guarded by the pass itself.
+     */
+    private static class SharedPass {
+        final Path tablePath;
+        final List<long[]> chunks;
+        final long fileSize;
+        final FileTime lastModified;
+
+        // The most recently read chunks by chunk number, oldest first, and the next chunk of the pass
+        final LinkedHashMap<Integer, ParsedRange> window = new LinkedHashMap<>();
+        int readPosition;
+        boolean reading;
+        int attachedScans;
+
+        SharedPass(Path tablePath, List<long[]> chunks, long fileSize, FileTime lastModified) {
+            this.tablePath = tablePath;
+            this.chunks = chunks;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Checks whether the data file still has the size and modification time it had when the pass started.
+         * @return true if the chunks of the pass are those of the data file, false otherwise.
+         */
+        boolean isCurrent() throws IOException {
+            return Files.size(tablePath) == fileSize && Files.getLastModifiedTime(tablePath).equals(lastModified);
+        }
+    }
+
+    /**
+     * Construct a shared scan operator for the given table, using the chunk size and window
+     * configured in Constants.
+     * @param tableName The name of the database table this operator scans.
+     */
+    public SharedScanOperator(String tableName) {
+        this(tableName, Constants.SHARED_SCAN_CHUNK_SIZE, Constants.SHARED_SCAN_WINDOW_CHUNKS);
+    }
+
+    /**
+     * Construct a shared scan operator for the given table. Scans of the same table attached to
+     * the same pass use the chunk size and window of the scan which started the pass.
+     * @param tableName The name of the database table this operator scans.
+     * @param chunkSize The number of bytes of the file read at a time; chunks are extended to
+     *                  the end of the line they end in.
+     * @param windowChunks The number of most recently read chunks kept for the attached scans.
+     */
+    public SharedScanOperator(String tableName, int chunkSize, int windowChunks) {
+        super(tableName, false);
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Shared scan chunk size must be positive, got " + chunkSize);
+        }
+        if (windowChunks < 1) {
+            throw new IllegalArgumentException("Shared scan window must hold at least one chunk, got " + windowChunks);
+        }
+        this.tablePath = DBCatalog.getInstance().getDBLocation(tableName);
+        this.numColumns = DBCatalog.getInstance().getDBSchemata(tableName).size();
+        this.chunkSize = chunkSize;
+        this.windowChunks = windowChunks;
+        this.rowValues = new int[numColumns];
+    }
+
+    /**
+     * Enables or disables planning shared scans for the CSV data files of large tables.
+     * @param enabled Whether the planner creates shared scans.
+     */
+    public static void setSharingEnabled(boolean enabled) {
+        sharingEnabled = enabled;
+    }
+
+    /**
+     * Checks whether the planner creates shared scans.
+     * @return true if sharing is enabled, false otherwise.
+     */
+    public static boolean isSharingEnabled() {
+        return sharingEnabled;
+    }
+
+    /**
+     * Detaches the scan from its pass, so that it attaches to a pass again on the next tuple.
+     */
+    @Override
+    protected void openReader() {
+        detach();
+        finished = false;
+    }
+
+    /**
+     * Retrieves the next tuple from the chunk being returned, taking the next chunk from the pass
+     * when it is exhausted. Rows rejected by a runtime filter are skipped.
+     * @return The next tuple, or null if every chunk of the file has been returned.
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (isLookupMode()) {
+            return super.getNextTuple();
+        }
+
+        try {
+            while (true) {
+                if (currentChunk == null || currentRow == currentChunk.rowCount) {
+                    if (finished) {
+                        return null;
+                    }
+                    if (pass == null) {
+                        attach();
+                    }
+                    if (remainingChunks == 0) { // END OF FILE
+                        detach();
+                        finished = true;
+                        return null;
+                    }
+                    currentChunk = takeChunk(nextChunk);
+                    currentRow = 0;
+                    nextChunk = (nextChunk + 1) % pass.chunks.size();
+                    remainingChunks--;
+                    continue;
+                }
+
+                System.arraycopy(currentChunk.values, currentRow * numColumns, rowValues, 0, numColumns);
+                currentRow++;
+                if (passesRuntimeFilters(rowValues)) {
+                    ArrayList<Integer> attributes = new ArrayList<>(numColumns);
+                    for (int value : rowValues) {
+                        attributes.add(value);
+                    }
+                    return new Tuple(attributes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading tuple: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Attaches the scan to the pass over the data file in flight, starting a new pass if there
+     * is none or the file has changed since it started. The scan starts at the oldest chunk in
+     * the window of the pass, or at the next chunk the pass reads if the window is empty.
+     * @throws IOException If the file cannot be read.
+     */
+    private void attach() throws IOException {
+        synchronized (activePasses) {
+            SharedPass activePass = activePasses.get(tablePath);
+            if (activePass == null || !activePass.isCurrent()) {
+                activePass = new SharedPass(tablePath, ParallelScanOperator.splitFile(tablePath, chunkSize),
+                        Files.size(tablePath), Files.getLastModifiedTime(tablePath));
+                activePasses.put(tablePath, activePass);
+            }
+            pass = activePass;
+            synchronized (pass) {
+                pass.attachedScans++;
+                startChunk = pass.window.isEmpty() ? pass.readPosition : pass.window.keySet().iterator().next();
+            }
+        }
+        nextChunk = startChunk;
+        remainingChunks = pass.chunks.size();
+    }
+
+    /**
+     * Detaches the scan from its pass, ending the pass if no other scan is attached to it.
+     */
+    private void detach() {
+        if (pass == null) {
+            return;
+        }
+        synchronized (activePasses) {
+            synchronized (pass) {
+                pass.attachedScans--;
+                if (pass.attachedScans == 0 && activePasses.get(tablePath) == pass) {
+                    activePasses.remove(tablePath);
+                }
+            }
+        }
+        pass = null;
+        currentChunk = null;
+    }
+
+    /**
+     * Takes a chunk from the window of the pass, waiting if another scan is reading it for the pass.
+     * If the chunk is the next one of the pass, this scan reads it for the pass and adds it to the
+     * window; if it has already left the window, this scan reads it on its own.
+     * @param chunk The number of the chunk.
+     * @return The parsed rows of the chunk.
+     * @throws IOException If the file cannot be read.
+     * @throws InterruptedException If the scan's thread is interrupted while waiting.
+     */
+    private ParsedRange takeChunk(int chunk) throws IOException, InterruptedException {
+        boolean readForPass;
+        synchronized (pass) {
+            while (pass.reading && chunk == pass.readPosition) {
+                pass.wait();
+            }
+            ParsedRange windowChunk = pass.window.get(chunk);
+            if (windowChunk != null) {
+                sharedChunkCount++;
+                return windowChunk;
+            }
+            readForPass = chunk == pass.readPosition;
+            if (readForPass) {
+                pass.reading = true;
+            }
+        }
+
+        long[] range = pass.chunks.get(chunk);
+        if (!readForPass) {
+            privateChunkCount++;
+            return ParallelScanOperator.parseRange(tablePath, range[0], range[1], numColumns, getTableName());
+        }
+
+        ParsedRange parsedChunk = null;
+        try {
+            parsedChunk = ParallelScanOperator.parseRange(tablePath, range[0], range[1], numColumns, getTableName());
+            passChunkCount++;
+            return parsedChunk;
+        } finally {
+            synchronized (pass) {
+                if (parsedChunk != null) {
+                    pass.window.put(chunk, parsedChunk);
+                    while (pass.window.size() > windowChunks) {
+                        pass.window.remove(pass.window.keySet().iterator().next());
+                    }
+                    pass.readPosition = (chunk + 1) % pass.chunks.size();
+                }
+                pass.reading = false;
+                pass.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Detach from the pass.
+     */
+    @Override
+    protected void closeReader() {
+        super.closeReader();
+        detach();
+    }
+
+    /**
+     * A shared pass reads every chunk for all of its scans, so blocks are never skipped.
+     * @return false
+     */
+    @Override
+    public boolean usesZoneMap() {
+        return false;
+    }
+
+    /**
+     * A scan attaching to a pass in flight starts in the middle of the file, so its tuples are
+     * not in the order of the data file.
+     * @return An empty list.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the number of the chunk the scan started at when it last attached to a pass.
+     * @return The chunk number, 0 if the scan started a new pass or has not attached yet.
+     */
+    public int getStartChunk() {
+        return startChunk;
+    }
+
+    /**
+     * Get the number of chunks the scan took from the window, read by another scan of the pass.
+     * @return The number of shared chunks.
+     */
+    public long getSharedChunkCount() {
+        return sharedChunkCount;
+    }
+
+    /**
+     * Get the number of chunks the scan read for its pass, which may be shared with other scans.
+     * @return The number of chunks read for the pass.
+     */
+    public long getPassChunkCount() {
+        return passChunkCount;
+    }
+
+    /**
+     * Get the number of chunks the scan read on its own, after they had left the window of the pass.
+     * @return The number of chunks read on its own.
+     */
+    public long getPrivateChunkCount() {
+        return privateChunkCount;
+    }
+}
@@ -0,0 +1,258 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.ColumnIdentity;
+import ed.inf.adbs.blazedb.Tuple;
+import ed.inf.adbs.blazedb.TupleComparator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SortMergeJoinOperator implements the sort-merge join algorithm for equi-join conditions.
+ * Both inputs are sorted on their join keys, using a SortOperator unless the child is already
+ * ordered on the keys, and then merged in a single pass over each input.
+ * Runs of inner tuples with the same key are handled with mark/restore: the run is marked by
+ * buffering it when it is first reached, and restored for every outer tuple with the same key.
+ * Only the current run is held in memory by the merge itself, so memory use does not depend on
+ * a hash table fitting in memory.
+ * Key comparisons are done with a {@link TupleComparator} across the two input schemas.
+ * The output is sorted on the join keys, which allows the optimizer to drop a sort on these keys.
+ * @see JoinOperator
+ * @see SortOperator
+ */
+public class SortMergeJoinOperator extends JoinOperator {
+
+    private final List<Column> outerKeyColumns;
+    private final List<Column> innerKeyColumns;
+    private final Expression residualCondition;
+
+    // Inputs ordered on the join keys, either the children themselves or sorts over them
+    private Operator sortedOuter;
+    private Operator sortedInner;
+
+    private TupleComparator outerInnerComparator;
+    private TupleComparator innerComparator;
+    private boolean initialized;
+
+    // The first inner tuple not yet placed in a run
+    private Tuple nextInnerTuple;
+
+    // The marked run of inner tuples sharing the same key, restored for each matching outer tuple
+    private final List<Tuple> innerRun;
+    private int runIndex;
+
+    /**
+     * Constructs a SortMergeJoinOperator over the given children.
+     * @param outerChild The outer (left) child operator.
+     * @param innerChild The inner (right) child operator.
+     * @param expression The complete join condition.
+     * @param outerKeyColumns The key columns from the outer side, parallel to innerKeyColumns.
+     * @param innerKeyColumns The key columns from the inner side, parallel to outerKeyColumns.
+     * @param residualCondition The conjuncts which are not equi-join keys, or null if there are none.
+     */
+    public SortMergeJoinOperator(Operator outerChild, Operator innerChild, Expression expression,
+                                 List<Column> outerKeyColumns, List<Column> innerKeyColumns,
+                                 Expression residualCondition) {
+        super(outerChild, innerChild, expression);
+        this.outerKeyColumns = outerKeyColumns;
+        this.innerKeyColumns = innerKeyColumns;
+        this.residualCondition = residualCondition;
+        this.innerRun = new ArrayList<>();
+        this.initialized = false;
+    }
+
+    /**
+     * Prepares both sorted inputs and the key comparators.
+     * This is done on the first call to getNextTuple() since the child operators
+     * may still be replaced during query optimisation.
+     */
+    private void initialize() {
+        sortedOuter = outerChild.isOrderedBy(outerKeyColumns) ? outerChild : new SortOperator(outerChild, outerKeyColumns);
+        sortedInner = child.isOrderedBy(innerKeyColumns) ? child : new SortOperator(child, innerKeyColumns);
+
+        List<Integer> outerKeyIndices = resolveColumnIndices(outerKeyColumns, sortedOuter.propagateSchemaId(), null);
+        List<Integer> innerKeyIndices = resolveColumnIndices(innerKeyColumns, sortedInner.propagateSchemaId(), null);
+        outerInnerComparator = new TupleComparator(outerKeyIndices, innerKeyIndices);
+        innerComparator = new TupleComparator(innerKeyIndices);
+
+        currentOuterTuple = sortedOuter.getNextTuple();
+        nextInnerTuple = sortedInner.getNextTuple();
+        innerRun.clear();
+        runIndex = 0;
+        initialized = true;
+    }
+
+    /**
+     * Returns the next tuple in the join result by merging the two sorted inputs.
+     * 1. If the current outer tuple matches the marked inner run, return its next combination
+     * 2. Once the run is exhausted, advance the outer input and restore the run
+     * 3. Otherwise, advance whichever input has the smaller key until the keys match
+     *    and mark the new inner run
+     * @return A combined tuple that satisfies the join condition, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!initialized) {
+            initialize();
+        }
+
+        while (currentOuterTuple != null) {
+            if (!innerRun.isEmpty() && outerInnerComparator.compare(currentOuterTuple, innerRun.get(0)) == 0) {
+                if (runIndex < innerRun.size()) {
+                    Tuple combined = combineTuples(currentOuterTuple, innerRun.get(runIndex));
+                    runIndex++;
+                    if (residualCondition == null || evaluator.evaluate(residualCondition, combined)) {
+                        return combined;
+                    }
+                    continue;
+                }
+
+                // Restore the run for the next outer tuple, which may share the same key
+                currentOuterTuple = sortedOuter.getNextTuple();
+                runIndex = 0;
+                continue;
+            }
+
+            // The current outer tuple is past the marked run, find the next matching run
+            innerRun.clear();
+            runIndex = 0;
+
+            while (nextInnerTuple != null && outerInnerComparator.compare(currentOuterTuple, nextInnerTuple) > 0) {
+                nextInnerTuple = sortedInner.getNextTuple();
+            }
+            if (nextInnerTuple == null) {
+                return null; // no remaining inner tuple can match
+            }
+
+            if (outerInnerComparator.compare(currentOuterTuple, nextInnerTuple) < 0) {
+                currentOuterTuple = sortedOuter.getNextTuple();
+                continue;
+            }
+
+            // Keys are equal, mark the run of inner tuples with this key
+            Tuple runStart = nextInnerTuple;
+            while (nextInnerTuple != null && innerComparator.compare(runStart, nextInnerTuple) == 0) {
+                innerRun.add(nextInnerTuple);
+                nextInnerTuple = sortedInner.getNextTuple();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Both sorted inputs are reset, which for a SortOperator only rewinds its buffer.
+     */
+    @Override
+    public void reset() {
+        if (initialized) {
+            sortedOuter.reset();
+            sortedInner.reset();
+            currentOuterTuple = sortedOuter.getNextTuple();
+            nextInnerTuple = sortedInner.getNextTuple();
+            innerRun.clear();
+            runIndex = 0;
+        } else {
+            super.reset();
+        }
+    }
+
+    /**
+     * Sets the outer child operator of this join.
+     * The sorted inputs are prepared again on the next call to getNextTuple().
+     * @param outerChild The new outer child operator
+     */
+    @Override
+    public void setOuterChild(Operator outerChild) {
+        super.setOuterChild(outerChild);
+        initialized = false;
+    }
+
+    /**
+     * Sets the inner child operator of this join.
+     * The sorted inputs are prepared again on the next call to getNextTuple().
+     * @param innerChild The new inner child operator
+     */
+    @Override
+    public void setChild(Operator innerChild) {
+        super.setChild(innerChild);
+        initialized = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up.
+     * The key column indices are resolved again when the sorted inputs are prepared.
+     */
+    @Override
+    public void updateSchema() {
+        super.updateSchema();
+        initialized = false;
+    }
+
+    /**
+     * The output is sorted on the outer join keys.
+     * @return The outer key columns.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return outerKeyColumns;
+    }
+
+    /**
+     * Since outer and inner keys are equal in every output tuple, the output is also
+     * ordered on the inner key columns, or any mix of the two.
+     * @param columns The columns to check, in order of precedence.
+     * @return true if the output is sorted on the given columns, false otherwise.
+     */
+    @Override
+    public boolean isOrderedBy(List<Column> columns) {
+        if (columns.isEmpty() || columns.size() > outerKeyColumns.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnIdentity column = new ColumnIdentity(columns.get(i));
+            if (!column.equals(new ColumnIdentity(outerKeyColumns.get(i)))
+                    && !column.equals(new ColumnIdentity(innerKeyColumns.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The inner child is read only once, through a sort if it is not already ordered.
+     * @return false.
+     */
+    @Override
+    public boolean rescansInnerChild() {
+        return false;
+    }
+
+    /**
+     * Returns the key columns from the outer side of the join.
+     * @return The outer key columns.
+     */
+    public List<Column> getOuterKeyColumns() {
+        return outerKeyColumns;
+    }
+
+    /**
+     * Returns the key columns from the inner side of the join.
+     * @return The inner key columns.
+     */
+    public List<Column> getInnerKeyColumns() {
+        return innerKeyColumns;
+    }
+
+    /**
+     * Returns the conjuncts of the join condition which are not equi-join keys.
+     * @return The residual condition, or null if there is none.
+     */
+    public Expression getResidualCondition() {
+        return residualCondition;
+    }
+}
@@ -180,4 +180,13 @@ public class SortOperator extends Operator {
     public List<Column> getSortColumns() {
         return sortColumns;
     }
+
+    /**
+     * The output is sorted on the sort columns.
+     * @return The sort columns.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return sortColumns;
+    }
 }
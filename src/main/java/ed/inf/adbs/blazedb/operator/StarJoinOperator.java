@@ -0,0 +1,340 @@
+package ed.inf.adbs.blazedb.operator;
+
+import ed.inf.adbs.blazedb.BloomFilter;
+import ed.inf.adbs.blazedb.Constants;
+import ed.inf.adbs.blazedb.ExpressionEvaluator;
+import ed.inf.adbs.blazedb.Tuple;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.schema.Column;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StarJoinOperator implements a multi-way hash join for star-shaped queries, in which a
+ * fact input is joined with several dimension inputs, each on its own key columns of the fact input.
+ * It replaces a left-deep chain of {@link HashJoinOperator}s whose outer keys all come from the
+ * input at the bottom of the chain (the fact input), and whose inner children are the dimensions.
+ * On the first call to getNextTuple(), a hash table is built on every dimension (build phase).
+ * Each fact tuple then probes all dimension hash tables at once; if any dimension has no match
+ * the tuple is dropped immediately, and otherwise one output tuple is built for every combination
+ * of matches, without creating the intermediate combined tuples of the binary joins.
+ * The output is identical to the replaced chain, including the tuple order and the schema:
+ * for each fact tuple, combinations are returned with the matches of the last dimension
+ * varying fastest, and the schema of the top join of the chain is reused.
+ * Residual conditions of the replaced joins are evaluated on the complete output tuple.
+ * Like the hash join, Bloom filters on the dimension keys are pushed down into the fact input.
+ * @see HashJoinOperator
+ * @see ed.inf.adbs.blazedb.QueryPlanOptimizer creates this operator.
+ */
+public class StarJoinOperator extends Operator {
+
+    // The replaced hash joins, from the bottom of the chain to the top
+    private final List<HashJoinOperator> joins;
+    private final List<Operator> dimensions;
+    private final Expression residualCondition;
+    private ExpressionEvaluator evaluator;
+
+    private List<List<Integer>> factKeyIndices;
+    private int factArity;
+
+    // Dimension tuples grouped by their join key values, one table per dimension
+    private List<Map<List<Integer>, List<Tuple>>> hashTables;
+    private boolean built;
+
+    // Matches of the current fact tuple in every dimension, and the current combination
+    private Tuple currentFactTuple;
+    private List<List<Tuple>> currentMatches;
+    private int[] matchIndices;
+
+    // Runtime filters pushed down by this join
+    private final RuntimeFilterPushdown runtimeFilters = new RuntimeFilterPushdown();
+
+    /**
+     * Constructs a StarJoinOperator replacing a chain of hash joins.
+     * @param joins The hash joins of the chain, from the bottom to the top; every join must be the
+     *              outer child of the next one, and at least two joins are required.
+     */
+    public StarJoinOperator(List<HashJoinOperator> joins) {
+        if (joins.size() < 2) {
+            throw new IllegalArgumentException("Star join requires at least two joins, got " + joins.size());
+        }
+        for (int i = 1; i < joins.size(); i++) {
+            if (joins.get(i).getOuterChild() != joins.get(i - 1)) {
+                throw new IllegalArgumentException("Joins do not form a left-deep chain");
+            }
+        }
+
+        this.joins = new ArrayList<>(joins);
+        this.child = joins.get(0).getOuterChild();
+        this.dimensions = new ArrayList<>();
+        Expression residual = null;
+        for (HashJoinOperator join : joins) {
+            dimensions.add(join.getChild());
+            if (join.getResidualCondition() != null) {
+                residual = residual == null ? join.getResidualCondition()
+                        : new AndExpression(residual, join.getResidualCondition());
+            }
+        }
+        this.residualCondition = residual;
+        this.built = false;
+
+        registerSchema();
+        this.evaluator = new ExpressionEvaluator(intermediateSchemaId);
+    }
+
+    /**
+     * Returns the next tuple in the join result.
+     * Builds the dimension hash tables on the first call, then moves to the next combination
+     * of matches for the current fact tuple, or to the next fact tuple matching every dimension.
+     * @return A combined tuple that satisfies the join conditions, or null if no more matching tuples
+     */
+    @Override
+    public Tuple getNextTuple() {
+        if (!built) {
+            buildHashTables();
+        }
+
+        while (true) {
+            if (currentFactTuple != null) {
+                Tuple combined = combineCurrentMatches();
+                advanceMatchIndices();
+                if (residualCondition == null || evaluator.evaluate(residualCondition, combined)) {
+                    return combined;
+                }
+                continue;
+            }
+
+            if (!nextFactTuple()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads fact tuples until one has at least one match in every dimension.
+     * @return true if such a fact tuple was found, false if the fact input is exhausted
+     */
+    private boolean nextFactTuple() {
+        Tuple factTuple;
+        while ((factTuple = child.getNextTuple()) != null) {
+            boolean matchesAll = true;
+            for (int d = 0; d < hashTables.size(); d++) {
+                List<Tuple> matches = hashTables.get(d).get(factTuple.getAttributes(factKeyIndices.get(d)));
+                if (matches == null) {
+                    matchesAll = false;
+                    break;
+                }
+                currentMatches.set(d, matches);
+            }
+
+            if (matchesAll) {
+                currentFactTuple = factTuple;
+                factArity = factTuple.getTuple().size();
+                Arrays.fill(matchIndices, 0);
+                return true;
+            }
+        }
+        currentFactTuple = null;
+        return false;
+    }
+
+    /**
+     * Builds the output tuple for the current fact tuple and combination of matches.
+     * @return The fact attributes followed by the attributes of every dimension match.
+     */
+    private Tuple combineCurrentMatches() {
+        int size = factArity;
+        for (int d = 0; d < matchIndices.length; d++) {
+            size += currentMatches.get(d).get(matchIndices[d]).getTuple().size();
+        }
+
+        ArrayList<Integer> attributes = new ArrayList<>(size);
+        attributes.addAll(currentFactTuple.getTuple());
+        for (int d = 0; d < matchIndices.length; d++) {
+            attributes.addAll(currentMatches.get(d).get(matchIndices[d]).getTuple());
+        }
+        return new Tuple(attributes);
+    }
+
+    /**
+     * Moves to the next combination of matches, with the last dimension varying fastest,
+     * or to the next fact tuple once all combinations have been returned.
+     */
+    private void advanceMatchIndices() {
+        for (int d = matchIndices.length - 1; d >= 0; d--) {
+            matchIndices[d]++;
+            if (matchIndices[d] < currentMatches.get(d).size()) {
+                return;
+            }
+            matchIndices[d] = 0;
+        }
+        currentFactTuple = null;
+    }
+
+    /**
+     * Reads every dimension into a hash table on its join keys, then pushes Bloom filters
+     * on the keys down into the fact input.
+     * Key column indices are resolved here rather than in the constructor,
+     * since optimisations such as projection push down may change the child schemas.
+     */
+    private void buildHashTables() {
+        String factSchemaId = child.propagateSchemaId();
+        factKeyIndices = new ArrayList<>();
+        hashTables = new ArrayList<>();
+
+        for (int d = 0; d < joins.size(); d++) {
+            HashJoinOperator join = joins.get(d);
+            Operator dimension = dimensions.get(d);
+            factKeyIndices.add(resolveColumnIndices(join.getOuterKeyColumns(), factSchemaId, null));
+            List<Integer> dimensionKeyIndices = resolveColumnIndices(join.getInnerKeyColumns(),
+                    dimension.propagateSchemaId(), null);
+
+            Map<List<Integer>, List<Tuple>> hashTable = new HashMap<>();
+            Tuple tuple;
+            while ((tuple = dimension.getNextTuple()) != null) {
+                hashTable.computeIfAbsent(tuple.getAttributes(dimensionKeyIndices), k -> new ArrayList<>()).add(tuple);
+            }
+            hashTables.add(hashTable);
+        }
+
+        if (Constants.useBloomFilterPushdown) {
+            pushRuntimeFilters();
+        }
+
+        currentFactTuple = null;
+        currentMatches = new ArrayList<>(Collections.nCopies(joins.size(), (List<Tuple>) null));
+        matchIndices = new int[joins.size()];
+        built = true;
+    }
+
+    /**
+     * Pushes a Bloom filter on every dimension key column down to the scan producing the
+     * matching fact column, replacing any filters pushed earlier by this join.
+     */
+    private void pushRuntimeFilters() {
+        runtimeFilters.withdraw();
+        for (int d = 0; d < joins.size(); d++) {
+            List<Column> factKeyColumns = joins.get(d).getOuterKeyColumns();
+            List<BloomFilter> filters = JoinOperator.createRuntimeFilters(factKeyColumns.size(), hashTables.get(d).size());
+            for (List<Integer> key : hashTables.get(d).keySet()) {
+                JoinOperator.addToRuntimeFilters(filters, key);
+            }
+
+            runtimeFilters.push(factKeyColumns, filters, RuntimeFilterPushdown.findTargets(child, factKeyColumns));
+        }
+    }
+
+    /**
+     * Returns the runtime filters this join pushes down into the fact input, as the fact
+     * key column of every filter and the scan that applies it.
+     * @return The scan for every fact key column that can be filtered, or an empty map
+     * if runtime filter push down is disabled.
+     */
+    @Override
+    public Map<Column, ScanOperator> getRuntimeFilterTargets() {
+        if (!Constants.useBloomFilterPushdown) {
+            return Collections.emptyMap();
+        }
+        Map<Column, ScanOperator> targets = new LinkedHashMap<>();
+        for (HashJoinOperator join : joins) {
+            targets.putAll(RuntimeFilterPushdown.findTargets(child, join.getOuterKeyColumns()));
+        }
+        return targets;
+    }
+
+    /**
+     * Resets the join to its initial state.
+     * Only the fact input is reset; the hash tables already hold the dimensions.
+     */
+    @Override
+    public void reset() {
+        child.reset();
+        currentFactTuple = null;
+    }
+
+    /**
+     * Propagates the identifier of the joined schema, which is the schema of the top join
+     * of the replaced chain since the output tuples have the same layout.
+     * @return The unique identifier for the joined schema.
+     */
+    @Override
+    public String propagateSchemaId() {
+        ensureSchemaRegistered();
+        return intermediateSchemaId;
+    }
+
+    /**
+     * Registers the schema of this operator by reusing the schema of the replaced chain,
+     * so operators above which already resolved their columns against it stay valid.
+     */
+    @Override
+    protected void registerSchema() {
+        if (schemaRegistered) return;
+
+        intermediateSchemaId = joins.get(joins.size() - 1).propagateSchemaId();
+
+        schemaRegistered = true;
+    }
+
+    /**
+     * Sets the fact input of this join.
+     * The replaced chain is updated as well, since it provides the schema.
+     * @param child The new fact input
+     */
+    @Override
+    public void setChild(Operator child) {
+        this.child = child;
+        joins.get(0).setOuterChild(child);
+        built = false;
+    }
+
+    /**
+     * Recursively update schema information from bottom up, through the replaced chain
+     * whose children are the fact input and the dimensions of this join.
+     */
+    @Override
+    public void updateSchema() {
+        joins.get(joins.size() - 1).updateSchema();
+        schemaRegistered = false;
+        registerSchema();
+        this.evaluator = new ExpressionEvaluator(intermediateSchemaId);
+        built = false;
+    }
+
+    /**
+     * All matches for a fact tuple are returned before the next fact tuple is read,
+     * so the order of the fact input is preserved.
+     * @return The output order of the fact input.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        return child.getOutputOrder();
+    }
+
+    /**
+     * Returns the dimension inputs of this join.
+     * @return The dimensions, in the order their attributes appear in the output.
+     */
+    public List<Operator> getDimensions() {
+        return Collections.unmodifiableList(dimensions);
+    }
+
+    /**
+     * Get the inputs of this join: the fact input, followed by the dimensions.
+     * @return The fact input and the dimensions.
+     */
+    @Override
+    public List<Operator> getChildren() {
+        List<Operator> children = new ArrayList<>(dimensions.size() + 1);
+        children.add(child);
+        children.addAll(dimensions);
+        return children;
+    }
+}
@@ -12,6 +12,19 @@ import java.util.*;
  * The SumOperator implements the GROUP BY operation with SUM aggregation in SQL.
  * It is a blocking operator that reads all tuples from its child, groups them
  * by the specified columns, and calculates SUM aggregates for each group.
+ * If the child is already sorted on the group by columns, e.g. a scan of a clustered table,
+ * the rows of a group are consecutive and the operator streams instead: it aggregates one group
+ * at a time and returns it when the next group starts, without holding all groups in memory.
+ * The groups are then returned in the order of the child.
+ * If tables are sampled below the operator, e.g. by {@code TABLESAMPLE BERNOULLI (1)}, the sums are
+ * estimates of the sums over the full tables: they are scaled up by the inverse of the sampling
+ * fraction, the product of the fractions of all {@link SampleScanOperator}s below. For every group,
+ * an error bound of each estimate is computed, Constants.SAMPLE_ERROR_BOUND_Z standard errors of the
+ * Horvitz-Thompson estimator sqrt((1 - f) * sum(t^2)) / f for a sampling fraction f, where t are
+ * the sums of the group over the sampled units: the rows of a BERNOULLI sample, the blocks of a
+ * SYSTEM sample. The units are known if the sampled scan is below the operator through selections
+ * and projections only; otherwise, e.g. if a sampled table is joined, every input tuple is taken
+ * as a unit, which understates the error if tuples of a unit are correlated.
  */
 public class SumOperator extends Operator {
 
@@ -36,9 +49,64 @@ public class SumOperator extends Operator {
     // Flag to track if all input has been processed
     private boolean processed;
 
+    // Streaming aggregation: whether it is used, and the first tuple of the next group
+    private boolean streaming;
+    private Tuple nextGroupTuple;
+
+    // Sampling: the fraction of the rows of the input read, the scan telling the sampling unit
+    // of a tuple, the sums of the groups by unit, and the error bounds of the groups returned so far
+    private double samplingFraction = 1;
+    private SampleScanOperator unitScan;
+    private long tupleUnit;
+    private Map<List<Integer>, SampleSums> groupSamples;
+    private Map<List<Integer>, List<Double>> errorBounds;
+
     private String intermediateSchemaId;
     private boolean schemaRegistered = false;
 
+    /**
+     * The sums of the SUM expressions of a group over the sampling units of a sampled input.
+     * The tuples of a unit are consecutive, so only the sums of the current unit are kept,
+     * and their squares are added up when the next unit starts.
+     */
+    private static class SampleSums {
+        private long unit = -1;
+        private final double[] unitSums;
+        private final double[] squares;
+
+        SampleSums(int expressions) {
+            unitSums = new double[expressions];
+            squares = new double[expressions];
+        }
+
+        /**
+         * Moves to the unit of the next tuple of the group, closing the current unit if it differs.
+         * @param tupleUnit The sampling unit of the tuple
+         */
+        void startTuple(long tupleUnit) {
+            if (tupleUnit != unit) {
+                for (int i = 0; i < unitSums.length; i++) {
+                    squares[i] += unitSums[i] * unitSums[i];
+                    unitSums[i] = 0;
+                }
+                unit = tupleUnit;
+            }
+        }
+
+        void add(int expression, int value) {
+            unitSums[expression] += value;
+        }
+
+        /**
+         * Get the sum of squares of the sums of a SUM expression over the units, including the current one.
+         * @param expression The index of the SUM expression
+         * @return The sum of squares
+         */
+        double getSquares(int expression) {
+            return squares[expression] + unitSums[expression] * unitSums[expression];
+        }
+    }
+
     /**
      * Constructs a SumOperator with the specified child operator, grouping columns,
      * SUM expressions, and output columns.
@@ -57,6 +125,8 @@ public class SumOperator extends Operator {
         this.outputIndices = new ArrayList<>();
         this.evaluators = new ArrayList<>();
         this.groupAggregates = new HashMap<>();
+        this.groupSamples = new HashMap<>();
+        this.errorBounds = new LinkedHashMap<>();
         this.processed = false;
 
 
@@ -111,45 +181,145 @@ public class SumOperator extends Operator {
      */
     @Override
     public Tuple getNextTuple() {
-        // Process all tuples from child on first call
+        // Process all tuples from child on first call, or only the first one when streaming
         if (!processed) {
-            processChildTuples();
+            if (isStreaming()) {
+                startStreaming();
+            } else {
+                processChildTuples();
+            }
+        }
+
+        if (streaming) {
+            return nextStreamedGroup();
         }
 
         // Return the next result if available
         if (resultIterator.hasNext()) {
             Map.Entry<List<Integer>, List<Integer>> entry = resultIterator.next();
-            List<Integer> groupKeys = entry.getKey();
-            List<Integer> aggregateValues = entry.getValue();
+            return buildResultTuple(entry.getKey(), entry.getValue(), groupSamples.get(entry.getKey()));
+        }
 
-            // Construct the result tuple from output columns and aggregate values
-            ArrayList<Integer> resultAttributes = new ArrayList<>();
+        return null;
+    }
 
-            // If no GROUP BY, just return aggregate values
-            if (groupByColumns.isEmpty()) {
-                resultAttributes.addAll(aggregateValues);
-                //tupleCounter++;
-                return new Tuple(resultAttributes);
+    /**
+     * Constructs a result tuple from the key and aggregate values of a group.
+     * If the input is sampled, the aggregate values are scaled up to estimates, and their error
+     * bounds are recorded.
+     * @param groupKeys The values of the group by columns
+     * @param aggregateValues The SUM aggregates of the group
+     * @param sample The sums of the group by sampling unit, or null if the input is not sampled
+     * @return The selected group by column values followed by the aggregate values
+     */
+    private Tuple buildResultTuple(List<Integer> groupKeys, List<Integer> aggregateValues, SampleSums sample) {
+        if (isApproximate()) {
+            List<Integer> estimates = new ArrayList<>(aggregateValues.size());
+            List<Double> bounds = new ArrayList<>(aggregateValues.size());
+            for (int i = 0; i < aggregateValues.size(); i++) {
+                // A cast saturates estimates beyond the integer range
+                estimates.add((int) Math.rint(aggregateValues.get(i) / samplingFraction));
+                bounds.add(Constants.SAMPLE_ERROR_BOUND_Z
+                        * Math.sqrt((1 - samplingFraction) * sample.getSquares(i)) / samplingFraction);
             }
+            aggregateValues = estimates;
+            errorBounds.put(groupKeys, bounds);
+        }
 
-            // Add selected group by columns to the result
-            for (Integer outputIndex : outputIndices) {
-                int groupKeyIndex = groupByIndices.indexOf(outputIndex);
-                if (groupKeyIndex != -1) {
-                    resultAttributes.add(groupKeys.get(groupKeyIndex));
-                } else {
-                    throw new RuntimeException("Output column not found in group by columns");
-                }
-            }
+        // Construct the result tuple from output columns and aggregate values
+        ArrayList<Integer> resultAttributes = new ArrayList<>();
 
-            // Add aggregate values to the result
+        // If no GROUP BY, just return aggregate values
+        if (groupByColumns.isEmpty()) {
             resultAttributes.addAll(aggregateValues);
-
             //tupleCounter++;
             return new Tuple(resultAttributes);
         }
 
-        return null;
+        // Add selected group by columns to the result
+        for (Integer outputIndex : outputIndices) {
+            int groupKeyIndex = groupByIndices.indexOf(outputIndex);
+            if (groupKeyIndex != -1) {
+                resultAttributes.add(groupKeys.get(groupKeyIndex));
+            } else {
+                throw new RuntimeException("Output column not found in group by columns");
+            }
+        }
+
+        // Add aggregate values to the result
+        resultAttributes.addAll(aggregateValues);
+
+        //tupleCounter++;
+        return new Tuple(resultAttributes);
+    }
+
+    /**
+     * Checks whether the groups can be aggregated one at a time, i.e. the output of the child is
+     * sorted on all group by columns, in any order, before any other column.
+     * @return true if streaming aggregation is used, false if all groups are hashed.
+     */
+    public boolean isStreaming() {
+        if (!Constants.useStreamingAggregation || groupByColumns.isEmpty()) {
+            return false;
+        }
+
+        Set<ColumnIdentity> groupBy = getGroupByIdentities();
+        List<Column> childOrder = child.getOutputOrder();
+        if (childOrder.size() < groupBy.size()) {
+            return false;
+        }
+        Set<ColumnIdentity> leadingColumns = new HashSet<>();
+        for (Column column : childOrder.subList(0, groupBy.size())) {
+            leadingColumns.add(new ColumnIdentity(column));
+        }
+        return leadingColumns.equals(groupBy);
+    }
+
+    /**
+     * Get the distinct group by columns, compared by table and column name.
+     * @return The set of group by column identities.
+     */
+    private Set<ColumnIdentity> getGroupByIdentities() {
+        Set<ColumnIdentity> groupBy = new HashSet<>();
+        for (Column column : groupByColumns) {
+            groupBy.add(new ColumnIdentity(column));
+        }
+        return groupBy;
+    }
+
+    /**
+     * Resolves the column indices and evaluators against the child and reads the first tuple.
+     */
+    private void startStreaming() {
+        prepareAggregation();
+        nextGroupTuple = child.getNextTuple();
+        nextTupleUnit();
+        streaming = true;
+        processed = true;
+    }
+
+    /**
+     * Aggregates the consecutive tuples of the next group, reading up to the first tuple of the
+     * group after it.
+     * @return The result tuple of the group, or null if all groups have been returned.
+     */
+    private Tuple nextStreamedGroup() {
+        if (nextGroupTuple == null) {
+            return null;
+        }
+
+        List<Integer> groupKey = extractGroupKey(nextGroupTuple);
+        List<Integer> aggregates = new ArrayList<>(Collections.nCopies(sumExpressions.size(), 0));
+        SampleSums sample = isApproximate() ? new SampleSums(sumExpressions.size()) : null;
+        Tuple tuple = nextGroupTuple;
+        do {
+            addToAggregates(aggregates, sample, tuple);
+            tuple = child.getNextTuple();
+            nextTupleUnit();
+        } while (tuple != null && extractGroupKey(tuple).equals(groupKey));
+        nextGroupTuple = tuple;
+
+        return buildResultTuple(groupKey, aggregates, sample);
     }
 
     /**
@@ -160,36 +330,28 @@ public class SumOperator extends Operator {
      * 2. Get or create aggregate values for this group
      * 3. Evaluate each SUM expression and add to the appropriate aggregate
      * After processing all tuples, an iterator is initialized to return the results.
+     * Column indices and evaluators are resolved again first, since the optimizer may have
+     * replaced the child (e.g. removed a projection below) after this operator was created.
      */
     private void processChildTuples() {
+        prepareAggregation();
+
         Tuple tuple;
         while ((tuple = child.getNextTuple()) != null) {
             // Extract group key values (empty list if no grouping)
-            List<Integer> groupKey = new ArrayList<>();
-            for (Integer index : groupByIndices) {
-                groupKey.add(tuple.getAttribute(index));
-            }
+            List<Integer> groupKey = extractGroupKey(tuple);
 
             // Get or create aggregates for this group
             List<Integer> aggregates = groupAggregates.computeIfAbsent(groupKey, k ->
                     new ArrayList<>(Collections.nCopies(sumExpressions.size(), 0)));
 
+            // Sums by sampling unit for the error bounds of sampled input
+            nextTupleUnit();
+            SampleSums sample = isApproximate() ? groupSamples.computeIfAbsent(groupKey, k ->
+                    new SampleSums(sumExpressions.size())) : null;
+
             // Update aggregate values for this group
-            for (int i = 0; i < sumExpressions.size(); i++) {
-                Expression sumExpr = sumExpressions.get(i);
-                ExpressionEvaluator evaluator = evaluators.get(i);
-
-                if (sumExpr instanceof Function) {
-                    Function function = (Function) sumExpr;
-                    if (Constants.SUM_FUNCTION_NAME.equalsIgnoreCase(function.getName())) {
-                        Expression innerExpr = (Expression) function.getParameters().get(0);
-                        // Evaluate the expression for this tuple
-                        int value = evaluator.evaluateValue(innerExpr, tuple);
-                        // Add to the current aggregate value
-                        aggregates.set(i, aggregates.get(i) + value);
-                    }
-                }
-            }
+            addToAggregates(aggregates, sample, tuple);
         }
 
         // Initialize iterator for returning results
@@ -197,6 +359,77 @@ public class SumOperator extends Operator {
         processed = true;
     }
 
+    /**
+     * Resolves the column indices and creates the evaluators against the current child,
+     * and finds the sampling fraction of the input and the scan telling the sampling units.
+     */
+    private void prepareAggregation() {
+        resolveColumnIndices();
+        samplingFraction = getSamplingFraction(child);
+        Operator op = child;
+        while (op instanceof SelectOperator || op instanceof ProjectOperator) {
+            op = op.getChild();
+        }
+        unitScan = op instanceof SampleScanOperator ? (SampleScanOperator) op : null;
+        tupleUnit = -1;
+        String schemaId = child.propagateSchemaId();
+        evaluators.clear();
+        for (int i = 0; i < sumExpressions.size(); i++) {
+            evaluators.add(new ExpressionEvaluator(schemaId));
+        }
+    }
+
+    /**
+     * Finds the sampling unit of the tuple just read from the child: the unit of the sampled row
+     * if it is known, or a new unit for every tuple otherwise.
+     */
+    private void nextTupleUnit() {
+        tupleUnit = unitScan != null ? unitScan.getSampleUnit() : tupleUnit + 1;
+    }
+
+    /**
+     * Extracts the values of the group by columns of a tuple.
+     * @param tuple The input tuple
+     * @return The group key, an empty list if there is no grouping
+     */
+    private List<Integer> extractGroupKey(Tuple tuple) {
+        List<Integer> groupKey = new ArrayList<>();
+        for (Integer index : groupByIndices) {
+            groupKey.add(tuple.getAttribute(index));
+        }
+        return groupKey;
+    }
+
+    /**
+     * Evaluates every SUM expression on a tuple and adds the values to the aggregates of its group.
+     * @param aggregates The aggregate values of the group of the tuple
+     * @param sample The sums by sampling unit of the group of the tuple, or null if the input is not sampled
+     * @param tuple The input tuple
+     */
+    private void addToAggregates(List<Integer> aggregates, SampleSums sample, Tuple tuple) {
+        if (sample != null) {
+            sample.startTuple(tupleUnit);
+        }
+        for (int i = 0; i < sumExpressions.size(); i++) {
+            Expression sumExpr = sumExpressions.get(i);
+            ExpressionEvaluator evaluator = evaluators.get(i);
+
+            if (sumExpr instanceof Function) {
+                Function function = (Function) sumExpr;
+                if (Constants.SUM_FUNCTION_NAME.equalsIgnoreCase(function.getName())) {
+                    Expression innerExpr = (Expression) function.getParameters().get(0);
+                    // Evaluate the expression for this tuple
+                    int value = evaluator.evaluateValue(innerExpr, tuple);
+                    // Add to the current aggregate value
+                    aggregates.set(i, aggregates.get(i) + value);
+                    if (sample != null) {
+                        sample.add(i, value);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Resets the operator to its initial state.
      * Clears all processed aggregates and resets the child operator.
@@ -206,7 +439,36 @@ public class SumOperator extends Operator {
     public void reset() {
         child.reset();
         groupAggregates.clear();
+        groupSamples.clear();
+        errorBounds.clear();
         processed = false;
+        streaming = false;
+        nextGroupTuple = null;
+    }
+
+    /**
+     * A streaming aggregation returns the groups in the order of the child, so its output is
+     * sorted on the leading group by columns which are output. A hash aggregation has no order.
+     * @return The prefix of the child's sort order on group by columns that is present in the output.
+     */
+    @Override
+    public List<Column> getOutputOrder() {
+        if (!isStreaming()) {
+            return Collections.emptyList();
+        }
+
+        Set<ColumnIdentity> retained = new HashSet<>();
+        for (Column column : outputColumns) {
+            retained.add(new ColumnIdentity(column));
+        }
+        List<Column> outputOrder = new ArrayList<>();
+        for (Column column : child.getOutputOrder().subList(0, getGroupByIdentities().size())) {
+            if (!retained.contains(new ColumnIdentity(column))) {
+                break;
+            }
+            outputOrder.add(column);
+        }
+        return outputOrder;
     }
 
     /**
@@ -299,4 +561,63 @@ public class SumOperator extends Operator {
 
         schemaRegistered = true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes the fraction of the rows of the tables below an operator that its output is drawn
+     * from, the product of the sampling fractions of the sampling scans below it.
+     * @param op The root of the (sub)plan.
+     * @return The sampling fraction, 1 if no table is sampled.
+     */
+    public static double getSamplingFraction(Operator op) {
+        double fraction = 1;
+        if (op instanceof SampleScanOperator) {
+            fraction *= ((SampleScanOperator) op).getSamplingFraction();
+        }
+        for (Operator input : op.getChildren()) {
+            fraction *= getSamplingFraction(input);
+        }
+        return fraction;
+    }
+
+    /**
+     * Checks whether the sums are estimated from a sample of the input, i.e. a table below the
+     * operator is sampled. This is known once the first tuple has been requested.
+     * @return true if the sums are scaled up estimates, false if they are exact.
+     */
+    public boolean isApproximate() {
+        return samplingFraction < 1;
+    }
+
+    /**
+     * Get the error bounds of the estimated sums of the groups returned so far, if the input is sampled.
+     * @return The error bounds of the SUM expressions of every group, by the values of the group by
+     * columns, in the order the groups were returned; empty if the sums are exact.
+     */
+    public Map<List<Integer>, List<Double>> getErrorBounds() {
+        return Collections.unmodifiableMap(errorBounds);
+    }
+
+    /**
+     * Get the columns this operator groups by.
+     * @return The group by columns, empty if there is no grouping.
+     */
+    public List<Column> getGroupByColumns() {
+        return groupByColumns;
+    }
+
+    /**
+     * Get the SUM aggregate expressions computed for every group.
+     * @return The SUM expressions, empty for a GROUP BY without aggregates.
+     */
+    public List<Expression> getSumExpressions() {
+        return sumExpressions;
+    }
+
+    /**
+     * Get the group by columns included in the output.
+     * @return The output columns.
+     */
+    public List<Column> getOutputColumns() {
+        return outputColumns;
+    }
+}
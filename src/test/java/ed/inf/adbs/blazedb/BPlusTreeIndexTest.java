@@ -0,0 +1,320 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BPlusTreeIndexTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    // Enough rows for three levels: B is row % 1000, so each value spans several leaves
+    private static final int TEST_TABLE_ROWS = 200000;
+    private static final int DISTINCT_B = 1000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B\n");
+            writer.write(EMPTY_TABLE + " X\n");
+        }
+
+        // A is unique and descending, B repeats with negative values, and there is a blank line
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write((TEST_TABLE_ROWS - i) + ", " + (i % DISTINCT_B - DISTINCT_B / 2) + "\n");
+                if (i == 10) {
+                    writer.write("\n");
+                }
+            }
+        }
+        Files.write(csvPath(EMPTY_TABLE), new byte[0]);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static BPlusTreeIndex build(String table, String column, boolean clustered) throws IOException {
+        Path indexPath = DBCatalog.getIndexPath(csvPath(table), column);
+        return BPlusTreeIndex.build(csvPath(table),
+                DBCatalog.getInstance().getDBSchemata(table).get(column.toLowerCase()), clustered, indexPath);
+    }
+
+    /**
+     * Appends rows to the data file of the test table, and returns the byte offset of every row.
+     */
+    private static long[] appendRows(List<int[]> rows) throws IOException {
+        long[] offsets = new long[rows.size()];
+        StringBuilder text = new StringBuilder();
+        long size = Files.size(csvPath(TEST_TABLE));
+        for (int r = 0; r < rows.size(); r++) {
+            offsets[r] = size + text.length();
+            text.append(rows.get(r)[0]).append(", ").append(rows.get(r)[1]).append("\n");
+        }
+        Files.write(csvPath(TEST_TABLE), text.toString().getBytes(), StandardOpenOption.APPEND);
+        return offsets;
+    }
+
+    private static int[] column(List<int[]> rows, int column) {
+        int[] values = new int[rows.size()];
+        for (int r = 0; r < values.length; r++) {
+            values[r] = rows.get(r)[column];
+        }
+        return values;
+    }
+
+    /**
+     * Checks that an index holds the same entries in the same leaves as one built from the data file.
+     */
+    private static void assertSameAsRebuilt(BPlusTreeIndex index, int column) throws IOException {
+        BPlusTreeIndex rebuilt = BPlusTreeIndex.build(csvPath(TEST_TABLE), column, false,
+                Paths.get(TEST_DB_DIR, "rebuilt.idx"));
+        assertEquals(rebuilt.getEntryCount(), index.getEntryCount());
+        assertEquals(rebuilt.getLeafCount(), index.getLeafCount());
+        assertEquals(rebuilt.getHeight(), index.getHeight());
+        assertEquals(rebuilt.lookupRange(Integer.MIN_VALUE, Integer.MAX_VALUE),
+                index.lookupRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        for (int key = -DISTINCT_B; key <= DISTINCT_B; key += 7) {
+            assertEquals(rebuilt.lookup(key), index.lookup(key));
+            assertEquals(rebuilt.countRange(key, key + 100), index.countRange(key, key + 100));
+        }
+    }
+
+    /**
+     * Returns the first value of the row at every offset, read directly from the data file.
+     */
+    private static List<Integer> firstValues(List<Long> offsets) throws IOException {
+        byte[] data = Files.readAllBytes(csvPath(TEST_TABLE));
+        List<Integer> values = new ArrayList<>();
+        for (long offset : offsets) {
+            int end = (int) offset;
+            while (data[end] != ',') {
+                end++;
+            }
+            values.add(Integer.parseInt(new String(data, (int) offset, end - (int) offset)));
+        }
+        return values;
+    }
+
+    @Test
+    public void testBuildAndOpen() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "A", false);
+
+        assertEquals(TEST_TABLE_ROWS, index.getEntryCount());
+        assertEquals((TEST_TABLE_ROWS + BPlusTreeIndex.LEAF_CAPACITY - 1) / BPlusTreeIndex.LEAF_CAPACITY, index.getLeafCount());
+        assertEquals(3, index.getHeight());
+        assertEquals(0, index.getColumnIndex());
+        assertFalse(index.isClustered());
+
+        BPlusTreeIndex reopened = BPlusTreeIndex.open(index.getIndexPath());
+        assertEquals(index.getEntryCount(), reopened.getEntryCount());
+        assertEquals(index.getHeight(), reopened.getHeight());
+    }
+
+    @Test
+    public void testLookupUniqueKeys() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "A", false);
+
+        for (int key : new int[]{1, 2, 340, 341, 12345, TEST_TABLE_ROWS}) {
+            List<Long> offsets = index.lookupRange(key, key);
+            assertEquals("Key " + key, 1, offsets.size());
+            assertEquals((Integer) key, firstValues(offsets).get(0));
+        }
+        assertTrue(index.lookupRange(0, 0).isEmpty());
+        assertTrue(index.lookupRange(TEST_TABLE_ROWS + 1, Long.MAX_VALUE).isEmpty());
+        assertTrue(index.lookupRange(5, 4).isEmpty());
+
+        List<Integer> range = firstValues(index.lookupRange(99990, 100009));
+        for (int i = 0; i < 20; i++) {
+            assertEquals((Integer) (99990 + i), range.get(i));
+        }
+        assertEquals(TEST_TABLE_ROWS, index.lookupRange(Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void testLookupDuplicateKeys() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "B", false);
+        int rowsPerValue = TEST_TABLE_ROWS / DISTINCT_B;
+
+        // Equal keys span several leaves, and their offsets are in file order
+        for (int key : new int[]{-DISTINCT_B / 2, -1, 0, 17, DISTINCT_B / 2 - 1}) {
+            List<Long> offsets = index.lookupRange(key, key);
+            assertEquals("Key " + key, rowsPerValue, offsets.size());
+            for (int i = 1; i < offsets.size(); i++) {
+                assertTrue(offsets.get(i - 1) < offsets.get(i));
+            }
+        }
+        assertEquals(10 * rowsPerValue, index.lookupRange(-5, 4).size());
+        assertEquals(index.lookupRange(-DISTINCT_B / 2, -DISTINCT_B / 2).get(0),
+                (Long) index.findFirstOffset(-DISTINCT_B, -DISTINCT_B / 2));
+        assertEquals(-1, index.findFirstOffset(DISTINCT_B, DISTINCT_B * 2));
+        assertEquals(index.lookupRange(3, 3).get(0), (Long) index.findFirstOffset(3, 10));
+    }
+
+    @Test
+    public void testEstimateSelectivity() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "B", false);
+
+        assertEquals(0.01, index.estimateSelectivity(0, 9), 1e-9);
+        assertEquals(0.5, index.estimateSelectivity(Long.MIN_VALUE, -1), 1e-9);
+        assertEquals(1.0, index.estimateSelectivity(Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+        assertEquals(0.0, index.estimateSelectivity(DISTINCT_B, Long.MAX_VALUE), 1e-9);
+        assertEquals(index.lookupRange(-123, 456).size(), index.countRange(-123, 456));
+    }
+
+    @Test
+    public void testClusteredBuildSortsDataFile() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "A", true);
+        assertTrue(index.isClustered());
+
+        List<Tuple> after = new ArrayList<>();
+        collect(new ScanOperator(TEST_TABLE), after);
+        assertEquals(TEST_TABLE_ROWS, after.size());
+        for (int i = 0; i < after.size(); i++) {
+            assertEquals(i + 1, (int) after.get(i).getTuple().get(0));
+        }
+
+        // Rows with equal keys keep their order, so the sort on B is stable
+        List<Tuple> before = after;
+        build(TEST_TABLE, "B", true);
+        List<Tuple> byB = new ArrayList<>();
+        collect(new ScanOperator(TEST_TABLE), byB);
+        for (int i = 0; i < TEST_TABLE_ROWS / DISTINCT_B; i++) {
+            assertEquals(before.get((i + 1) * DISTINCT_B - 1), byB.get(i));
+        }
+    }
+
+    @Test
+    public void testEmptyTable() throws IOException {
+        BPlusTreeIndex index = build(EMPTY_TABLE, "X", false);
+
+        assertEquals(0, index.getEntryCount());
+        assertEquals(1, index.getHeight());
+        assertTrue(index.lookupRange(Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        assertEquals(-1, index.findFirstOffset(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0.0, index.estimateSelectivity(0, 10), 1e-9);
+    }
+
+    @Test
+    public void testCatalogIgnoresStaleIndex() throws IOException {
+        assertNull(DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, "A"));
+
+        build(TEST_TABLE, "A", false);
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        assertNotNull(DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, "a"));
+        assertNull(DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, "B"));
+
+        // An index older than its data file is out of date
+        Path indexPath = DBCatalog.getIndexPath(csvPath(TEST_TABLE), "A");
+        Files.setLastModifiedTime(indexPath, FileTime.fromMillis(
+                Files.getLastModifiedTime(csvPath(TEST_TABLE)).toMillis() - 10000));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        assertNull(DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, "A"));
+    }
+
+    @Test
+    public void testInsertAfterLargestKey() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "A", true);
+        assertTrue(index.isClustered());
+
+        // Keys growing with the table fill up the last leaf and add leaves after it
+        List<int[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 3 * BPlusTreeIndex.LEAF_CAPACITY; i++) {
+            rows.add(new int[]{TEST_TABLE_ROWS + i, i % DISTINCT_B});
+        }
+        long[] offsets = appendRows(rows);
+        BPlusTreeIndex inserted = index.insert(column(rows, 0), offsets);
+
+        assertEquals(TEST_TABLE_ROWS + rows.size(), inserted.getEntryCount());
+        assertTrue("Ascending keys keep the data file sorted", inserted.isClustered());
+        assertEquals(offsets[5], inserted.findFirstOffset(TEST_TABLE_ROWS + 6, Integer.MAX_VALUE));
+        assertEquals(Long.valueOf(offsets[0]), inserted.lookup(TEST_TABLE_ROWS + 1).get(0));
+        assertSameAsRebuilt(inserted, 0);
+
+        // Equal keys after the largest one are still in order, but a smaller key later on is not
+        List<int[]> unsorted = new ArrayList<>();
+        unsorted.add(new int[]{TEST_TABLE_ROWS + rows.size() + 2, 0});
+        unsorted.add(new int[]{TEST_TABLE_ROWS + rows.size() + 1, 0});
+        inserted = inserted.insert(column(unsorted, 0), appendRows(unsorted));
+        assertFalse(inserted.isClustered());
+        assertSameAsRebuilt(inserted, 0);
+    }
+
+    @Test
+    public void testInsertMergesEntries() throws IOException {
+        BPlusTreeIndex index = build(TEST_TABLE, "B", false);
+
+        // Keys spread over the whole range are merged into the leaves, after the equal keys
+        List<int[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(new int[]{-i, (i * 37) % (2 * DISTINCT_B) - DISTINCT_B});
+        }
+        BPlusTreeIndex inserted = index.insert(column(rows, 1), appendRows(rows));
+
+        assertEquals(TEST_TABLE_ROWS + rows.size(), inserted.getEntryCount());
+        assertSameAsRebuilt(inserted, 1);
+        assertSame(inserted, inserted.insert(new int[0], new long[0]));
+    }
+
+    @Test
+    public void testInsertIntoEmptyIndex() throws IOException {
+        BPlusTreeIndex index = build(EMPTY_TABLE, "X", false);
+        BPlusTreeIndex inserted = index.insert(new int[]{5, 3, 5}, new long[]{0, 3, 6});
+
+        assertEquals(3, inserted.getEntryCount());
+        assertEquals(1, inserted.getHeight());
+        assertEquals(Arrays.asList(0L, 6L), inserted.lookup(5));
+        assertEquals(Arrays.asList(3L, 0L, 6L), inserted.lookupRange(0, 10));
+    }
+
+    private static void collect(Operator op, List<Tuple> tuples) {
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+    }
+}
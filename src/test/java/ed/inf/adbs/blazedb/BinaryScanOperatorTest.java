@@ -0,0 +1,203 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.BinaryScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+    private static final String CSV_ONLY_TABLE = "CsvOnlyTable";
+    private static final String[] TABLES = {TEST_TABLE, EMPTY_TABLE, CSV_ONLY_TABLE};
+
+    // 255 tuples of 4 columns fit into a 4096 byte page, so the test table spans 3 pages
+    private static final int TEST_TABLE_ROWS = 600;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C D\n");
+            writer.write(EMPTY_TABLE + " X Y Z\n");
+            writer.write(CSV_ONLY_TABLE + " X Y\n");
+        }
+
+        // Create test data file, including negative values
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + TEST_TABLE + ".csv"))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7) + ", " + (-i) + ", " + (i * 1000) + "\n");
+            }
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Create table without a binary copy
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + CSV_ONLY_TABLE + ".csv"))) {
+            writer.write("1, 2\n");
+        }
+
+        // Convert the first two tables to the binary format
+        assertEquals(TEST_TABLE_ROWS, BinaryTableConverter.convert(csvPath(TEST_TABLE), binaryPath(TEST_TABLE), 4));
+        assertEquals(0, BinaryTableConverter.convert(csvPath(EMPTY_TABLE), binaryPath(EMPTY_TABLE), 3));
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(DBCatalog.getIndexPath(csvPath(TEST_TABLE), "B"));
+        for (String table : TABLES) {
+            Files.deleteIfExists(csvPath(table));
+            Files.deleteIfExists(binaryPath(table));
+        }
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR, Constants.INDEX_DIRECTORY_NAME));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static Path binaryPath(String table) {
+        return Paths.get(DATA_DIR, table + Constants.BINARY_FILE_EXTENSION);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesCsvScan() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        List<Tuple> tuples = collect(new BinaryScanOperator(TEST_TABLE));
+
+        assertEquals("Binary scan should return the CSV rows in file order", expected, tuples);
+        assertEquals(TEST_TABLE_ROWS, tuples.size());
+        assertEquals(Arrays.asList(600, 5, -600, 600000), tuples.get(TEST_TABLE_ROWS - 1).getTuple());
+    }
+
+    @Test
+    public void testFixedSizePages() throws IOException {
+        assertEquals(255, BinaryTableConverter.getPageCapacity(4));
+        assertEquals("600 rows should be written to 3 pages", 3L * Constants.BINARY_PAGE_SIZE,
+                Files.size(binaryPath(TEST_TABLE)));
+        assertEquals("An empty table has no pages", 0L, Files.size(binaryPath(EMPTY_TABLE)));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        BinaryScanOperator scanOp = new BinaryScanOperator(EMPTY_TABLE);
+
+        assertNull("Should return null for empty table", scanOp.getNextTuple());
+        assertNull("Should keep returning null at the end of the table", scanOp.getNextTuple());
+    }
+
+    @Test
+    public void testReset() {
+        BinaryScanOperator scanOp = new BinaryScanOperator(TEST_TABLE);
+
+        List<Tuple> firstRun = collect(scanOp);
+        scanOp.reset();
+        List<Tuple> secondRun = collect(scanOp);
+
+        // Reset in the middle of the second page
+        scanOp.reset();
+        for (int i = 0; i < 300; i++) {
+            scanOp.getNextTuple();
+        }
+        scanOp.reset();
+        List<Tuple> thirdRun = collect(scanOp);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+        assertEquals("Should restart from the first page after a partial scan", firstRun, thirdRun);
+    }
+
+    @Test
+    public void testRuntimeFilter() {
+        BinaryScanOperator scanOp = new BinaryScanOperator(TEST_TABLE);
+        BloomFilter filter = new BloomFilter(2, Constants.BLOOM_FILTER_BITS_PER_KEY);
+        filter.add(10);
+        filter.add(500);
+        scanOp.addRuntimeFilter(new Column(new Table(TEST_TABLE), "A"), filter);
+
+        List<Tuple> tuples = collect(scanOp);
+
+        assertTrue("Rows with A = 10 and A = 500 should pass the filter", tuples.size() >= 2);
+        assertTrue("Most rows should be filtered", scanOp.getRuntimeFilteredRowCount() > TEST_TABLE_ROWS / 2);
+        assertEquals(TEST_TABLE_ROWS, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+    }
+
+    @Test
+    public void testLookupReadsIndexedRows() throws IOException {
+        BinaryScanOperator scanOp = new BinaryScanOperator(TEST_TABLE);
+        BPlusTreeIndex index = BPlusTreeIndex.build(csvPath(TEST_TABLE), 1, false,
+                DBCatalog.getIndexPath(csvPath(TEST_TABLE), "B"));
+
+        scanOp.lookup(index.lookup(0));
+        List<Tuple> tuples = collect(scanOp);
+
+        assertEquals("Rows 7, 14, ..., 595 have B = 0", 85, tuples.size());
+        assertEquals(Arrays.asList(7, 0, -7, 7000), tuples.get(0).getTuple());
+
+        scanOp.reset();
+        assertEquals("Reset should return to a full scan", TEST_TABLE_ROWS, collect(scanOp).size());
+    }
+
+    @Test
+    public void testCatalogPrefersBinaryFile() throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertEquals(binaryPath(TEST_TABLE), catalog.getBinaryLocation(TEST_TABLE));
+        assertNull("Table without a binary copy should be read from CSV", catalog.getBinaryLocation(CSV_ONLY_TABLE));
+
+        // A CSV file modified after the conversion makes the binary copy stale
+        Files.setLastModifiedTime(csvPath(TEST_TABLE),
+                FileTime.fromMillis(Files.getLastModifiedTime(binaryPath(TEST_TABLE)).toMillis() + 1000));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        assertNull("Stale binary file should be ignored", DBCatalog.getInstance().getBinaryLocation(TEST_TABLE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingBinaryFile() {
+        new BinaryScanOperator(CSV_ONLY_TABLE);
+    }
+}
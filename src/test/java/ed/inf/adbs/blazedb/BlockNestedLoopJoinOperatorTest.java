@@ -0,0 +1,187 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.BlockNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockNestedLoopJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String COURSES_TABLE = "Courses";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    /**
+     * A scan which counts how many times it is reset, i.e. how often the inner input is rescanned.
+     */
+    private static class CountingScanOperator extends ScanOperator {
+        private int resetCount = 0;
+
+        CountingScanOperator(String tableName) {
+            super(tableName);
+        }
+
+        @Override
+        public void reset() {
+            resetCount++;
+            super.reset();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid age\n");
+            writer.write(COURSES_TABLE + " cid capacity\n");
+            writer.write(EMPTY_TABLE + " sid name\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 20\n");
+            writer.write("2, 22\n");
+            writer.write("3, 19\n");
+            writer.write("4, 21\n");
+            writer.write("5, 23\n");
+        }
+
+        // Create Courses table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + COURSES_TABLE + ".csv"))) {
+            writer.write("1, 21\n");
+            writer.write("2, 19\n");
+            writer.write("3, 25\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + COURSES_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static HashSet<List<Integer>> asSet(List<Tuple> tuples) {
+        HashSet<List<Integer>> set = new HashSet<>();
+        for (Tuple t : tuples) {
+            set.add(t.getTuple());
+        }
+        return set;
+    }
+
+    @Test
+    public void testMatchesNestedLoopJoinForAllBlockSizes() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.age < Courses.capacity");
+        List<Tuple> expected = collect(new JoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(COURSES_TABLE), joinCondition));
+
+        for (int blockSize : new int[]{1, 2, 3, 5, 100}) {
+            BlockNestedLoopJoinOperator blockJoin = new BlockNestedLoopJoinOperator(
+                    new ScanOperator(STUDENTS_TABLE), new ScanOperator(COURSES_TABLE), joinCondition, blockSize);
+            List<Tuple> actual = collect(blockJoin);
+
+            assertEquals("Block size " + blockSize + " should produce the same number of tuples",
+                    expected.size(), actual.size());
+            assertEquals("Block size " + blockSize + " should produce the same tuples",
+                    asSet(expected), asSet(actual));
+        }
+    }
+
+    @Test
+    public void testInnerScannedOncePerBlock() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.age < Courses.capacity");
+        CountingScanOperator inner = new CountingScanOperator(COURSES_TABLE);
+        BlockNestedLoopJoinOperator blockJoin = new BlockNestedLoopJoinOperator(
+                new ScanOperator(STUDENTS_TABLE), inner, joinCondition, 2);
+
+        collect(blockJoin);
+
+        // 5 outer tuples in blocks of 2 require 3 scans of the inner table
+        assertEquals("Inner child should be rescanned once per block", 3, inner.resetCount);
+    }
+
+    @Test
+    public void testCrossProduct() {
+        BlockNestedLoopJoinOperator blockJoin = new BlockNestedLoopJoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(COURSES_TABLE), null, 2);
+
+        List<Tuple> tuples = collect(blockJoin);
+
+        assertEquals("Cross product should produce 5 x 3 tuples", 15, tuples.size());
+        assertEquals("Cross product should contain no duplicates", 15, asSet(tuples).size());
+    }
+
+    @Test
+    public void testEmptyInput() {
+        BlockNestedLoopJoinOperator emptyInner = new BlockNestedLoopJoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(EMPTY_TABLE), null, 2);
+        assertNull("Join with empty inner should produce null", emptyInner.getNextTuple());
+
+        BlockNestedLoopJoinOperator emptyOuter = new BlockNestedLoopJoinOperator(
+                new ScanOperator(EMPTY_TABLE), new ScanOperator(STUDENTS_TABLE), null, 2);
+        assertNull("Join with empty outer should produce null", emptyOuter.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.age < Courses.capacity");
+        BlockNestedLoopJoinOperator blockJoin = new BlockNestedLoopJoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(COURSES_TABLE), joinCondition, 2);
+
+        List<Tuple> firstRun = collect(blockJoin);
+        blockJoin.reset();
+        List<Tuple> secondRun = collect(blockJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBlockSize() {
+        new BlockNestedLoopJoinOperator(new ScanOperator(STUDENTS_TABLE), new ScanOperator(COURSES_TABLE), null, 0);
+    }
+}
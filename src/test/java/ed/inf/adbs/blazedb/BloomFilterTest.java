@@ -0,0 +1,56 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, 10);
+        for (int i = -500; i < 500; i++) {
+            filter.add(i * 7);
+        }
+        for (int i = -500; i < 500; i++) {
+            assertTrue("Added key " + (i * 7) + " must be found", filter.mightContain(i * 7));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10000, 10);
+        for (int i = 0; i < 10000; i++) {
+            filter.add(i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        // about 1% is expected with 10 bits per key
+        assertTrue("False positive rate too high: " + falsePositives, falsePositives < 3000);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        BloomFilter filter = new BloomFilter(0, 10);
+
+        assertEquals(64, filter.getNumBits());
+        assertFalse(filter.mightContain(0));
+        assertFalse(filter.mightContain(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testNumberOfHashFunctions() {
+        assertEquals(7, new BloomFilter(100, 10).getNumHashes());
+        assertEquals(1, new BloomFilter(100, 1).getNumHashes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBitsPerKey() {
+        new BloomFilter(100, 0);
+    }
+}
@@ -0,0 +1,304 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.BinaryScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ParallelScanOperator;
+import ed.inf.adbs.blazedb.operator.ReadAheadScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final Path PAGES_FILE = Paths.get(TEST_DB_DIR, "pages.dat");
+
+    private static final int PAGE_SIZE = Constants.BINARY_PAGE_SIZE;
+
+    // Two full pages and a partial one, every page filled with its number
+    private static final int PAGES_FILE_SIZE = 2 * PAGE_SIZE + 100;
+
+    private static final int TEST_TABLE_ROWS = 1000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath().toString()))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 5) + ", " + (-i) + "\n");
+            }
+        }
+
+        byte[] pages = new byte[PAGES_FILE_SIZE];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = (byte) (i / PAGE_SIZE);
+        }
+        Files.write(PAGES_FILE, pages);
+
+        // Initialize the database catalog, and a pool of three pages
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        BufferPool.resetBufferPool();
+        BufferPool.initBufferPool(3);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        BufferPool.resetBufferPool();
+
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath() {
+        return Paths.get(DATA_DIR, TEST_TABLE + ".csv");
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testPinPage() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+
+        ByteBuffer page = pool.pinPage(PAGES_FILE, 1);
+        assertEquals(PAGE_SIZE, page.limit());
+        assertEquals(1, page.get(0));
+        assertEquals(1, page.get(PAGE_SIZE - 1));
+        assertEquals(1, pool.getMissCount());
+
+        assertSame("Pinning a cached page should return its frame", page, pool.pinPage(PAGES_FILE, 1));
+        assertEquals(1, pool.getHitCount());
+        pool.unpinPage(page);
+        pool.unpinPage(page);
+
+        ByteBuffer lastPage = pool.pinPage(PAGES_FILE, 2);
+        assertEquals("Last page should only hold the rest of the file", 100, lastPage.limit());
+        assertEquals(2, lastPage.get(99));
+        pool.unpinPage(lastPage);
+
+        assertNull(pool.pinPage(PAGES_FILE, 3));
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpinUnpinnedPage() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        ByteBuffer page = pool.pinPage(PAGES_FILE, 0);
+        pool.unpinPage(page);
+        pool.unpinPage(page);
+    }
+
+    @Test
+    public void testReadAcrossPages() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE + 20);
+        assertEquals(PAGE_SIZE + 20, pool.read(PAGES_FILE, PAGE_SIZE - 10, buffer));
+        assertEquals(0, buffer.get(9));
+        assertEquals(1, buffer.get(10));
+        assertEquals(2, buffer.get(PAGE_SIZE + 10));
+
+        buffer.clear();
+        assertEquals("Read should stop at the end of the file", 50, pool.read(PAGES_FILE, PAGES_FILE_SIZE - 50, buffer));
+        buffer.clear();
+        assertEquals(-1, pool.read(PAGES_FILE, PAGES_FILE_SIZE, buffer));
+    }
+
+    @Test
+    public void testInputStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = BufferPool.getInstance().newInputStream(PAGES_FILE, 0)) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        assertArrayEquals(Files.readAllBytes(PAGES_FILE), bytes.toByteArray());
+    }
+
+    @Test
+    public void testClockEviction() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        for (int page = 0; page < 3; page++) {
+            pool.unpinPage(pool.pinPage(PAGES_FILE, page));
+        }
+        assertEquals(3, pool.getUsedFrameCount());
+        assertEquals(0, pool.getEvictionCount());
+
+        // The CSV page replaces the first page loaded; page 0 was not accessed since
+        pool.read(csvPath(), 0, ByteBuffer.allocate(10));
+        assertEquals(1, pool.getEvictionCount());
+        pool.read(PAGES_FILE, PAGE_SIZE, ByteBuffer.allocate(10));
+        assertEquals("Page 1 should still be cached", 1, pool.getEvictionCount());
+        pool.read(PAGES_FILE, 0, ByteBuffer.allocate(10));
+        assertEquals("Page 0 should be read again", 2, pool.getEvictionCount());
+        assertEquals(5, pool.getMissCount());
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void testPinnedPagesAreNotEvicted() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        ByteBuffer first = pool.pinPage(PAGES_FILE, 0);
+        ByteBuffer second = pool.pinPage(PAGES_FILE, 1);
+
+        // Only the third frame can be replaced
+        for (int i = 0; i < 5; i++) {
+            pool.read(PAGES_FILE, 2 * PAGE_SIZE, ByteBuffer.allocate(10));
+            pool.read(csvPath(), 0, ByteBuffer.allocate(10));
+        }
+        assertEquals(0, first.get(0));
+        assertEquals(1, second.get(0));
+
+        ByteBuffer third = pool.pinPage(PAGES_FILE, 2);
+        try {
+            pool.pinPage(csvPath(), 0);
+            fail("Pool with every page pinned should not accept another page");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        pool.unpinPage(third);
+        assertNotNull(pool.pinPage(csvPath(), 0));
+    }
+
+    @Test
+    public void testRefreshReadsChangedFile() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        assertEquals(0, pool.pinPage(PAGES_FILE, 0).get(0));
+
+        Files.write(PAGES_FILE, new byte[]{42, 43});
+        pool.refresh(PAGES_FILE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        assertEquals(2, pool.read(PAGES_FILE, 0, buffer));
+        assertEquals(42, buffer.get(0));
+    }
+
+    @Test
+    public void testInterruptedReadKeepsFileOpen() throws IOException {
+        BufferPool pool = BufferPool.getInstance();
+        pool.read(PAGES_FILE, 0, ByteBuffer.allocate(10));
+
+        Thread.currentThread().interrupt();
+        try {
+            pool.read(PAGES_FILE, PAGE_SIZE, ByteBuffer.allocate(10));
+            fail("Read on an interrupted thread should fail");
+        } catch (ClosedByInterruptException e) {
+            // expected
+        } finally {
+            Thread.interrupted();
+        }
+
+        // The file is opened again, and its cached page is still used
+        ByteBuffer buffer = ByteBuffer.allocate(10);
+        assertEquals(10, pool.read(PAGES_FILE, PAGE_SIZE, buffer));
+        assertEquals(1, buffer.get(0));
+        pool.read(PAGES_FILE, 0, ByteBuffer.allocate(10));
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void testParallelAndReadAheadScansReadThroughPool() {
+        BufferPool.resetBufferPool();
+        BufferPool.initBufferPool(100);
+        BufferPool pool = BufferPool.getInstance();
+
+        List<Tuple> expected = collect(new ParallelScanOperator(TEST_TABLE, true, 1000));
+        long misses = pool.getMissCount();
+        assertTrue(misses > 1);
+
+        ReadAheadScanOperator readAheadOp = new ReadAheadScanOperator(TEST_TABLE, 1000, 2);
+        assertEquals(expected, collect(readAheadOp));
+        assertEquals("Read-ahead scan should read every page from the pool", misses, pool.getMissCount());
+
+        // Stopping the loader with an interrupt leaves the pool usable
+        for (int i = 0; i < 10; i++) {
+            readAheadOp.reset();
+            readAheadOp.getNextTuple();
+        }
+        readAheadOp.reset();
+        assertEquals(expected, collect(readAheadOp));
+        assertEquals(expected, collect(new ScanOperator(TEST_TABLE)));
+        assertEquals(misses, pool.getMissCount());
+    }
+
+    @Test
+    public void testRescansHitThePool() {
+        BufferPool.resetBufferPool();
+        BufferPool.initBufferPool(100);
+        BufferPool pool = BufferPool.getInstance();
+
+        ScanOperator scanOp = new ScanOperator(TEST_TABLE);
+        List<Tuple> firstRun = collect(scanOp);
+        long misses = pool.getMissCount();
+        assertTrue(misses > 1);
+
+        scanOp.reset();
+        assertEquals(firstRun, collect(scanOp));
+        assertEquals("Rescan should read every page from the pool", misses, pool.getMissCount());
+        assertTrue(pool.getHitCount() >= misses);
+    }
+
+    @Test
+    public void testBinaryScanReadsThroughPool() throws IOException {
+        Path binaryPath = Paths.get(DATA_DIR, TEST_TABLE + Constants.BINARY_FILE_EXTENSION);
+        BinaryTableConverter.convert(csvPath(), binaryPath, 3);
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        BufferPool pool = BufferPool.getInstance();
+
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        long missesBefore = pool.getMissCount();
+        BinaryScanOperator scanOp = new BinaryScanOperator(TEST_TABLE);
+        assertEquals(expected, collect(scanOp));
+
+        // 340 rows of 3 columns fit into a page
+        assertEquals(3, pool.getMissCount() - missesBefore);
+
+        // The scan unpinned its last page, so the pool is not full of pinned pages
+        for (int page = 0; page < 3; page++) {
+            pool.unpinPage(pool.pinPage(PAGES_FILE, page));
+        }
+    }
+}
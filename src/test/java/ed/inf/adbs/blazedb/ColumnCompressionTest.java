@@ -0,0 +1,161 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ColumnCompressionTest {
+
+    private static final int COUNT = 1000;
+
+    /**
+     * Encodes values with the given encoding and returns the chunk without its length.
+     */
+    private static ByteBuffer encode(int[] values, ColumnEncoding encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnCompression.writeChunk(new DataOutputStream(bytes), values, values.length, encoding);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals("Chunk should be preceded by its length", buffer.capacity() - Integer.BYTES, buffer.getInt());
+        return buffer.slice();
+    }
+
+    private static int encodedSize(int[] values, ColumnEncoding encoding) throws IOException {
+        return encode(values, encoding).capacity();
+    }
+
+    private static int[] sequence() {
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = i;
+        }
+        return values;
+    }
+
+    private static int[] offsetSequence() {
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = 1000000 + (i * 37) % 100;
+        }
+        return values;
+    }
+
+    private static int[] runs() {
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = -5 + i / 250;
+        }
+        return values;
+    }
+
+    private static int[] fewDistinct() {
+        int[] distinct = {Integer.MIN_VALUE, -7, 0, 123456789, Integer.MAX_VALUE};
+        Random random = new Random(42);
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = distinct[random.nextInt(distinct.length)];
+        }
+        return values;
+    }
+
+    private static int[] randomValues() {
+        Random random = new Random(7);
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextInt();
+        }
+        return values;
+    }
+
+    @Test
+    public void testChoosesSmallestEncoding() {
+        assertEquals(ColumnEncoding.BIT_PACKED, ColumnCompression.chooseEncoding(sequence(), COUNT));
+        assertEquals(ColumnEncoding.FRAME_OF_REFERENCE, ColumnCompression.chooseEncoding(offsetSequence(), COUNT));
+        assertEquals(ColumnEncoding.RUN_LENGTH, ColumnCompression.chooseEncoding(runs(), COUNT));
+        assertEquals(ColumnEncoding.DICTIONARY, ColumnCompression.chooseEncoding(fewDistinct(), COUNT));
+        assertEquals(ColumnEncoding.FRAME_OF_REFERENCE, ColumnCompression.chooseEncoding(randomValues(), COUNT));
+    }
+
+    @Test
+    public void testEncodedSizes() throws IOException {
+        int plainSize = COUNT * Integer.BYTES;
+        // 10 bits per value for 0..999
+        assertTrue(encodedSize(sequence(), ColumnEncoding.BIT_PACKED) < plainSize / 3);
+        // 7 bits per offset from 1000000
+        assertTrue(encodedSize(offsetSequence(), ColumnEncoding.FRAME_OF_REFERENCE) < plainSize / 4);
+        // 4 runs
+        assertTrue(encodedSize(runs(), ColumnEncoding.RUN_LENGTH) < 64);
+        // 3 bits per dictionary position
+        assertTrue(encodedSize(fewDistinct(), ColumnEncoding.DICTIONARY) < plainSize / 8);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        int[][] datasets = {sequence(), offsetSequence(), runs(), fewDistinct(), randomValues(), {}, {42}};
+        for (int[] values : datasets) {
+            for (ColumnEncoding encoding : ColumnEncoding.values()) {
+                if (encoding == ColumnEncoding.BIT_PACKED && Arrays.stream(values).anyMatch(v -> v < 0)) {
+                    continue;
+                }
+                ByteBuffer chunk = encode(values, encoding);
+                assertEquals(encoding, ColumnCompression.getEncoding(chunk));
+                assertEquals(values.length, ColumnCompression.getValueCount(chunk));
+
+                int[] decoded = new int[values.length];
+                ColumnCompression.decode(chunk, decoded);
+                assertArrayEquals(encoding + " should decode the encoded values", values, decoded);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBitPackingRejectsNegativeValues() throws IOException {
+        encode(runs(), ColumnEncoding.BIT_PACKED);
+    }
+
+    @Test
+    public void testEvaluateRangeOnEncodedValues() throws IOException {
+        int[][] datasets = {sequence(), offsetSequence(), runs(), fewDistinct(), randomValues()};
+        long[][] ranges = {
+                {Long.MIN_VALUE, Long.MAX_VALUE},
+                {100, 200},
+                {1000050, Long.MAX_VALUE},
+                {Long.MIN_VALUE, -4},
+                {-7, -7},
+                {0, 123456789},
+                {5000, 4000},
+                {Integer.MAX_VALUE, Integer.MAX_VALUE}
+        };
+        for (int[] values : datasets) {
+            for (ColumnEncoding encoding : ColumnEncoding.values()) {
+                if (encoding == ColumnEncoding.BIT_PACKED && Arrays.stream(values).anyMatch(v -> v < 0)) {
+                    continue;
+                }
+                ByteBuffer chunk = encode(values, encoding);
+                for (long[] range : ranges) {
+                    boolean[] matches = new boolean[values.length];
+                    Arrays.fill(matches, true);
+                    matches[0] = false; // rows cleared by a previous condition stay cleared
+
+                    int matching = ColumnCompression.evaluateRange(chunk, range[0], range[1], matches);
+
+                    int expectedMatching = 0;
+                    for (int i = 0; i < values.length; i++) {
+                        boolean expected = i > 0 && values[i] >= range[0] && values[i] <= range[1];
+                        assertEquals(encoding + " " + Arrays.toString(range) + " row " + i, expected, matches[i]);
+                        if (expected) {
+                            expectedMatching++;
+                        }
+                    }
+                    assertEquals(expectedMatching, matching);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.ColumnarScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String COLUMNS_DIR = TEST_DB_DIR + "/" + Constants.COLUMNS_DIRECTORY_NAME;
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+    private static final String CSV_ONLY_TABLE = "CsvOnlyTable";
+    private static final String[] TABLES = {TEST_TABLE, EMPTY_TABLE, CSV_ONLY_TABLE};
+
+    // More rows than fit into the read buffer of a column
+    private static final int TEST_TABLE_ROWS = 2000;
+
+    @Before
+    public void setUp() throws Exception {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C D\n");
+            writer.write(EMPTY_TABLE + " X Y Z\n");
+            writer.write(CSV_ONLY_TABLE + " X Y\n");
+        }
+
+        // Create test data file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + TEST_TABLE + ".csv"))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7) + ", " + (-i) + ", " + (i * 1000) + "\n");
+            }
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Create table without column files
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + CSV_ONLY_TABLE + ".csv"))) {
+            writer.write("1, 2\n");
+        }
+
+        // Convert the first two tables to the columnar layout
+        assertEquals(TEST_TABLE_ROWS, ColumnarTableConverter.convert(csvPath(TEST_TABLE),
+                columnDirectory(TEST_TABLE), Arrays.asList("a", "b", "c", "d")));
+        assertEquals(0, ColumnarTableConverter.convert(csvPath(EMPTY_TABLE),
+                columnDirectory(EMPTY_TABLE), Arrays.asList("x", "y", "z")));
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(DBCatalog.getIndexPath(csvPath(TEST_TABLE), "A"));
+        for (String table : TABLES) {
+            Files.deleteIfExists(csvPath(table));
+        }
+        if (Files.exists(Paths.get(COLUMNS_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(COLUMNS_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR, Constants.INDEX_DIRECTORY_NAME));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static Path columnDirectory(String table) {
+        return Paths.get(COLUMNS_DIR, table);
+    }
+
+    private static Column column(String name) {
+        return new Column(new Table(TEST_TABLE), name);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesCsvScan() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+
+        assertEquals("Columnar scan should return the CSV rows in file order", expected, collect(scanOp));
+        assertEquals("Scan of all columns should keep the table schema", TEST_TABLE, scanOp.propagateSchemaId());
+    }
+
+    @Test
+    public void testReadsOnlyOutputColumns() throws Exception {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("D"), column("A"), column("D")));
+
+        // The files of the other columns are not needed
+        Files.delete(columnDirectory(TEST_TABLE).resolve("b" + Constants.COLUMN_FILE_EXTENSION));
+        Files.delete(columnDirectory(TEST_TABLE).resolve("c" + Constants.COLUMN_FILE_EXTENSION));
+
+        List<Tuple> tuples = collect(scanOp);
+
+        assertEquals(TEST_TABLE_ROWS, tuples.size());
+        assertEquals("Duplicate columns should be output once", Arrays.asList(1000, 1), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(2000000, 2000), tuples.get(TEST_TABLE_ROWS - 1).getTuple());
+    }
+
+    @Test
+    public void testProjectedSchema() throws Exception {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("C"), column("B")));
+        SelectOperator selectOp = new SelectOperator(scanOp,
+                CCJSqlParserUtil.parseExpression("TestTable.B = 3"));
+
+        List<Tuple> tuples = collect(selectOp);
+
+        assertEquals("Rows 3, 10, ..., 1998 should match", 286, tuples.size());
+        assertEquals(Arrays.asList(-3, 3), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(-10, 3), tuples.get(1).getTuple());
+    }
+
+    @Test
+    public void testRuntimeFilterOnUnreadColumn() {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("B")));
+        BloomFilter filter = new BloomFilter(1, Constants.BLOOM_FILTER_BITS_PER_KEY);
+        filter.add(42);
+        scanOp.addRuntimeFilter(column("A"), filter);
+
+        List<Tuple> tuples = collect(scanOp);
+
+        assertTrue("Row with A = 42 should pass the filter", tuples.contains(new Tuple(Arrays.asList(0))));
+        assertEquals(TEST_TABLE_ROWS, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+        assertTrue("Most rows should be filtered", tuples.size() < TEST_TABLE_ROWS / 10);
+    }
+
+    @Test
+    public void testReset() {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("C")));
+
+        List<Tuple> firstRun = collect(scanOp);
+        scanOp.reset();
+        for (int i = 0; i < 1500; i++) {
+            scanOp.getNextTuple();
+        }
+        scanOp.reset();
+        List<Tuple> secondRun = collect(scanOp);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+
+    @Test
+    public void testLookupIsProjected() throws IOException {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("D")));
+        BPlusTreeIndex index = BPlusTreeIndex.build(csvPath(TEST_TABLE), 0, false,
+                DBCatalog.getIndexPath(csvPath(TEST_TABLE), "A"));
+
+        scanOp.lookup(index.lookup(77));
+        List<Tuple> tuples = collect(scanOp);
+
+        assertEquals(1, tuples.size());
+        assertEquals(Arrays.asList(77000), tuples.get(0).getTuple());
+    }
+
+    @Test
+    public void testEmptyTable() {
+        ColumnarScanOperator scanOp = new ColumnarScanOperator(EMPTY_TABLE);
+
+        assertNull("Should return null for empty table", scanOp.getNextTuple());
+    }
+
+    @Test
+    public void testCatalogColumnarLocation() throws IOException {
+        assertEquals(columnDirectory(TEST_TABLE), DBCatalog.getInstance().getColumnarLocation(TEST_TABLE));
+        assertNull(DBCatalog.getInstance().getColumnarLocation(CSV_ONLY_TABLE));
+
+        // An incomplete set of column files is ignored
+        Files.delete(columnDirectory(TEST_TABLE).resolve("a" + Constants.COLUMN_FILE_EXTENSION));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        assertNull(DBCatalog.getInstance().getColumnarLocation(TEST_TABLE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingColumnFiles() {
+        new ColumnarScanOperator(CSV_ONLY_TABLE);
+    }
+}
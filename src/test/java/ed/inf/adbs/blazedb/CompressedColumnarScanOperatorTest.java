@@ -0,0 +1,250 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.CompressedColumnarScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressedColumnarScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String COLUMNS_DIR = TEST_DB_DIR + "/" + Constants.COLUMNS_DIRECTORY_NAME;
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String PLAIN_TABLE = "PlainTable";
+
+    // Rows span several chunks, the last one partly filled
+    private static final int TEST_TABLE_ROWS = 2 * Constants.COMPRESSED_CHUNK_ROWS + 1000;
+
+    @Before
+    public void setUp() throws Exception {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C D\n");
+            writer.write(PLAIN_TABLE + " X Y\n");
+        }
+
+        // Sorted, low-cardinality, run and wide-range columns, to use every encoding
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7 * 1000000) + ", " + (i / 3000 - 2) + ", " + (i * 99991 % 1000003 - 500000) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(PLAIN_TABLE).toString()))) {
+            writer.write("1, 2\n");
+        }
+
+        assertEquals(TEST_TABLE_ROWS, ColumnarTableConverter.convert(csvPath(TEST_TABLE),
+                Paths.get(COLUMNS_DIR, TEST_TABLE), Arrays.asList("a", "b", "c", "d"), true));
+        ColumnarTableConverter.convert(csvPath(PLAIN_TABLE), Paths.get(COLUMNS_DIR, PLAIN_TABLE),
+                Arrays.asList("x", "y"), false);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static Path columnFile(String column) {
+        return Paths.get(COLUMNS_DIR, TEST_TABLE, column + Constants.COMPRESSED_COLUMN_FILE_EXTENSION);
+    }
+
+    private static Column column(String name) {
+        return new Column(new Table(TEST_TABLE), name);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesCsvScan() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+
+        assertEquals("Compressed scan should return the CSV rows in file order", expected, collect(scanOp));
+        assertEquals(TEST_TABLE, scanOp.propagateSchemaId());
+    }
+
+    @Test
+    public void testFilesAreSmallerThanPlainColumns() throws IOException {
+        long plainSize = (long) TEST_TABLE_ROWS * Integer.BYTES;
+        assertTrue("Sorted column should be bit-packed", Files.size(columnFile("a")) < plainSize / 2);
+        assertTrue("Low-cardinality column should use a dictionary", Files.size(columnFile("b")) < plainSize / 8);
+        assertTrue("Column of runs should be run-length encoded", Files.size(columnFile("c")) < 200);
+    }
+
+    @Test
+    public void testReadsOnlyOutputColumns() throws Exception {
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("C"), column("A")));
+
+        Files.delete(columnFile("b"));
+        Files.delete(columnFile("d"));
+
+        List<Tuple> tuples = collect(scanOp);
+        assertEquals(TEST_TABLE_ROWS, tuples.size());
+        assertEquals(Arrays.asList(-2, 1), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(TEST_TABLE_ROWS / 3000 - 2, TEST_TABLE_ROWS), tuples.get(TEST_TABLE_ROWS - 1).getTuple());
+    }
+
+    @Test
+    public void testScanPredicateEvaluatedOnEncodedValues() throws Exception {
+        String[] conditions = {
+                "TestTable.A >= 4000 AND TestTable.A < 4200 AND TestTable.B = 3000000",
+                "TestTable.C = 0",
+                "TestTable.D > 400000 AND TestTable.B <= 2000000",
+                "TestTable.A > 100000",
+                "TestTable.A <> 5000 AND TestTable.C >= 1"
+        };
+        for (String condition : conditions) {
+            Expression expression = CCJSqlParserUtil.parseExpression(condition);
+            List<Tuple> expected = collect(new SelectOperator(new ScanOperator(TEST_TABLE), expression));
+
+            CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+            scanOp.setScanPredicate(expression);
+            assertEquals(condition, expected, collect(new SelectOperator(scanOp, expression)));
+        }
+    }
+
+    @Test
+    public void testScanPredicateSkipsRowsBeforeSelection() throws Exception {
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("D")));
+        scanOp.setScanPredicate(CCJSqlParserUtil.parseExpression("TestTable.A > 8000 AND TestTable.C = 0"));
+
+        // Without a selection above, only the rows in range are returned: C = 0 for rows 6000 to 8999
+        List<Tuple> tuples = collect(scanOp);
+        assertEquals(999, tuples.size());
+    }
+
+    @Test
+    public void testScanPredicateWithZoneMap() throws Exception {
+        ZoneMap.build(csvPath(TEST_TABLE), 4, 500).write(DBCatalog.getZoneMapPath(csvPath(TEST_TABLE)));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+
+        Expression expression = CCJSqlParserUtil.parseExpression("TestTable.A >= 4000 AND TestTable.A <= 4600");
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setScanPredicate(expression);
+        SelectOperator selectOp = new SelectOperator(scanOp, expression);
+
+        List<Tuple> tuples = collect(selectOp);
+        assertEquals(601, tuples.size());
+        assertEquals(Integer.valueOf(4000), tuples.get(0).getTuple().get(0));
+        assertTrue(scanOp.getSkippedBlockCount() > 0);
+
+        selectOp.reset();
+        assertEquals(tuples, collect(selectOp));
+    }
+
+    @Test
+    public void testRuntimeFilterOnUnreadColumn() {
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("C")));
+        BloomFilter filter = new BloomFilter(1, Constants.BLOOM_FILTER_BITS_PER_KEY);
+        filter.add(6500);
+        scanOp.addRuntimeFilter(column("A"), filter);
+
+        List<Tuple> tuples = collect(scanOp);
+
+        assertTrue("Row with A = 6500 should pass the filter", tuples.contains(new Tuple(Arrays.asList(0))));
+        assertEquals(TEST_TABLE_ROWS, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+        assertTrue("Most rows should be filtered", tuples.size() < TEST_TABLE_ROWS / 10);
+    }
+
+    @Test
+    public void testReset() {
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("D"), column("B")));
+
+        List<Tuple> firstRun = collect(scanOp);
+        scanOp.reset();
+        for (int i = 0; i < Constants.COMPRESSED_CHUNK_ROWS + 10; i++) {
+            scanOp.getNextTuple();
+        }
+        scanOp.reset();
+        List<Tuple> secondRun = collect(scanOp);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+
+    @Test
+    public void testLookupIsProjected() throws IOException {
+        CompressedColumnarScanOperator scanOp = new CompressedColumnarScanOperator(TEST_TABLE);
+        scanOp.setOutputColumns(Arrays.asList(column("B")));
+        BPlusTreeIndex index = BPlusTreeIndex.build(csvPath(TEST_TABLE), 0, false,
+                DBCatalog.getIndexPath(csvPath(TEST_TABLE), "A"));
+
+        scanOp.lookup(index.lookup(77));
+        List<Tuple> tuples = collect(scanOp);
+
+        assertEquals(Arrays.asList(new Tuple(Arrays.asList(0))), tuples);
+    }
+
+    @Test
+    public void testCatalogPrefersCompressedColumns() throws Exception {
+        assertTrue(DBCatalog.getInstance().isColumnarCompressed(TEST_TABLE));
+        assertFalse(DBCatalog.getInstance().isColumnarCompressed(PLAIN_TABLE));
+        assertNotNull(DBCatalog.getInstance().getColumnarLocation(PLAIN_TABLE));
+
+        Files.write(Paths.get(QUERY_FILE), "SELECT TestTable.A FROM TestTable WHERE TestTable.B = 0;".getBytes());
+        Operator plan = QueryPlanner.parseStatement(QUERY_FILE);
+        Operator op = plan;
+        while (!(op instanceof ScanOperator)) {
+            op = op.getChild();
+        }
+        assertTrue(op instanceof CompressedColumnarScanOperator);
+        assertEquals(TEST_TABLE_ROWS / 7, collect(plan).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlainColumnFiles() {
+        new CompressedColumnarScanOperator(PLAIN_TABLE);
+    }
+}
@@ -0,0 +1,189 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.GraceHashJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraceHashJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String ENROLLED_TABLE = "Enrolled";
+    private static final String SKEWED_TABLE = "Skewed";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid age\n");
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+            writer.write(SKEWED_TABLE + " sid value\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            for (int sid = 1; sid <= 20; sid++) {
+                writer.write(sid + ", " + (18 + sid % 7) + "\n");
+            }
+        }
+
+        // Create Enrolled table data, several enrolments per student and some without a student
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            for (int i = 0; i < 60; i++) {
+                writer.write((i * 7) % 25 + ", " + (100 + i % 5) + ", " + (i * 13) % 100 + "\n");
+            }
+        }
+
+        // Create a table where every row has the same key
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + SKEWED_TABLE + ".csv"))) {
+            for (int i = 0; i < 10; i++) {
+                writer.write("3, " + i + "\n");
+            }
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + SKEWED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a Grace hash join the same way the query planner does, with the given budget.
+     */
+    private GraceHashJoinOperator createGraceHashJoin(String outerTable, String innerTable, String condition,
+                                                      int memoryBudget, int numPartitions) throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        JoinKeyExtractor extractor = new JoinKeyExtractor(innerTable);
+        joinCondition.accept(extractor);
+
+        return new GraceHashJoinOperator(new ScanOperator(outerTable), new ScanOperator(innerTable), joinCondition,
+                extractor.getOuterKeys(), extractor.getInnerKeys(), extractor.getResidualCondition(),
+                memoryBudget, numPartitions);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static Map<Tuple, Integer> countTuples(List<Tuple> tuples) {
+        Map<Tuple, Integer> counts = new HashMap<>();
+        for (Tuple t : tuples) {
+            counts.merge(t, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static long countPartitionFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(f -> f.getFileName().toString().startsWith("blazedb-join-")).count();
+        }
+    }
+
+    private static List<Tuple> nestedLoopJoin(String outerTable, String innerTable, String condition) throws Exception {
+        return collect(new JoinOperator(new ScanOperator(outerTable), new ScanOperator(innerTable),
+                CCJSqlParserUtil.parseExpression(condition)));
+    }
+
+    @Test
+    public void testFitsInMemoryMatchesNestedLoopJoin() throws Exception {
+        String condition = "Students.sid = Enrolled.sid";
+        List<Tuple> expected = nestedLoopJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition);
+
+        List<Tuple> actual = collect(createGraceHashJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition, 1000, 4));
+
+        assertEquals("Join within the memory budget should keep the nested loop order", expected, actual);
+    }
+
+    @Test
+    public void testSpilledPartitionsMatchNestedLoopJoin() throws Exception {
+        String condition = "Students.sid = Enrolled.sid";
+        List<Tuple> expected = nestedLoopJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition);
+        long filesBefore = countPartitionFiles();
+
+        for (int budget : new int[]{1, 5, 20}) {
+            List<Tuple> actual = collect(createGraceHashJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition, budget, 3));
+
+            assertEquals("Budget " + budget + " should produce the same tuples",
+                    countTuples(expected), countTuples(actual));
+        }
+
+        assertEquals("Partition files should be deleted", filesBefore, countPartitionFiles());
+    }
+
+    @Test
+    public void testResidualCondition() throws Exception {
+        String condition = "Students.sid = Enrolled.sid AND Enrolled.grade > Students.age * 2";
+        List<Tuple> expected = nestedLoopJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition);
+
+        List<Tuple> actual = collect(createGraceHashJoin(STUDENTS_TABLE, ENROLLED_TABLE, condition, 4, 2));
+
+        assertEquals("Residual condition should be applied", countTuples(expected), countTuples(actual));
+    }
+
+    @Test
+    public void testSkewedKeyStopsRepartitioning() throws Exception {
+        String condition = "Students.sid = Skewed.sid";
+
+        // Every build tuple has the same key, so repartitioning never reduces the partition below the budget
+        List<Tuple> tuples = collect(createGraceHashJoin(STUDENTS_TABLE, SKEWED_TABLE, condition, 2, 2));
+
+        assertEquals("Skewed partition should still be joined", 10, tuples.size());
+        for (Tuple t : tuples) {
+            assertEquals(3, (int) t.getAttribute(0));
+        }
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        GraceHashJoinOperator join = createGraceHashJoin(STUDENTS_TABLE, ENROLLED_TABLE,
+                "Students.sid = Enrolled.sid", 5, 3);
+
+        List<Tuple> firstRun = collect(join);
+        join.reset();
+        List<Tuple> secondRun = collect(join);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+        assertTrue("Grace hash join does not guarantee an output order", join.getOutputOrder().isEmpty());
+    }
+}
@@ -0,0 +1,339 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashIndexTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    // A is unique, B has 50 distinct values, and C is 0 on half of the rows
+    private static final int TEST_TABLE_ROWS = 20000;
+    private static final int DISTINCT_B = 50;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X Y\n");
+            writer.write(EMPTY_TABLE + " Z\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write((i - TEST_TABLE_ROWS / 2) + ", " + (i % DISTINCT_B) + ", " + (i % 2 == 0 ? 0 : i) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(OTHER_TABLE).toString()))) {
+            for (int i = 0; i < 5; i++) {
+                writer.write((i * 3) + ", " + (i * 1001 - TEST_TABLE_ROWS / 2) + "\n");
+            }
+        }
+        Files.write(csvPath(EMPTY_TABLE), new byte[0]);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static HashIndex build(String table, String column) throws IOException {
+        return HashIndex.build(csvPath(table), DBCatalog.getInstance().getDBSchemata(table).get(column.toLowerCase()),
+                DBCatalog.getHashIndexPath(csvPath(table), column));
+    }
+
+    private static void reloadCatalog() {
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static List<Tuple> select(String condition) throws Exception {
+        return collect(new SelectOperator(new ScanOperator(TEST_TABLE), CCJSqlParserUtil.parseExpression(condition)));
+    }
+
+    private static List<Tuple> lookupRows(LookupIndex index, int key) {
+        ScanOperator scanOp = new ScanOperator(TEST_TABLE);
+        scanOp.lookup(index.lookup(key));
+        return collect(scanOp);
+    }
+
+    /**
+     * Appends rows to the data file of the test table, and returns the byte offset of every row.
+     */
+    private static long[] appendRows(List<int[]> rows) throws IOException {
+        long[] offsets = new long[rows.size()];
+        StringBuilder text = new StringBuilder();
+        long size = Files.size(csvPath(TEST_TABLE));
+        for (int r = 0; r < rows.size(); r++) {
+            offsets[r] = size + text.length();
+            int[] row = rows.get(r);
+            text.append(row[0]).append(", ").append(row[1]).append(", ").append(row[2]).append("\n");
+        }
+        Files.write(csvPath(TEST_TABLE), text.toString().getBytes(), StandardOpenOption.APPEND);
+        return offsets;
+    }
+
+    private static int[] column(List<int[]> rows, int column) {
+        int[] values = new int[rows.size()];
+        for (int r = 0; r < values.length; r++) {
+            values[r] = rows.get(r)[column];
+        }
+        return values;
+    }
+
+    /**
+     * Checks that an index finds the same rows for every key of a column as one built from the data file.
+     */
+    private static void assertSameAsRebuilt(HashIndex index, int column) throws IOException {
+        HashIndex rebuilt = HashIndex.build(csvPath(TEST_TABLE), column, Paths.get(TEST_DB_DIR, "rebuilt.hash"));
+        assertEquals(rebuilt.getEntryCount(), index.getEntryCount());
+        assertEquals(rebuilt.getDistinctKeyCount(), index.getDistinctKeyCount());
+        assertEquals(rebuilt.getBucketCount(), index.getBucketCount());
+
+        List<Integer> keys = new ArrayList<>();
+        BPlusTreeIndex.readRows(csvPath(TEST_TABLE), column, keys, new ArrayList<>());
+        for (int key : new TreeSet<>(keys)) {
+            assertEquals("Key " + key, rebuilt.lookup(key), index.lookup(key));
+        }
+        assertTrue(index.lookup(Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testBuildAndOpen() throws IOException {
+        HashIndex index = build(TEST_TABLE, "A");
+
+        assertEquals(TEST_TABLE_ROWS, index.getEntryCount());
+        assertEquals(TEST_TABLE_ROWS, index.getDistinctKeyCount());
+        int minBuckets = (int) Math.ceil(TEST_TABLE_ROWS / (HashIndex.BUCKET_CAPACITY * Constants.INDEX_HASH_FILL_FACTOR));
+        assertEquals(minBuckets, index.getBucketCount());
+        assertEquals(0, index.getColumnIndex());
+
+        HashIndex reopened = HashIndex.open(index.getIndexPath());
+        assertEquals(index.getBucketCount(), reopened.getBucketCount());
+        assertEquals(index.getDistinctKeyCount(), reopened.getDistinctKeyCount());
+    }
+
+    @Test
+    public void testLookupUniqueKeys() throws Exception {
+        HashIndex index = build(TEST_TABLE, "A");
+
+        for (int key : new int[]{0, 1, 4321, TEST_TABLE_ROWS / 2 - 1}) {
+            assertEquals("Key " + key, select("TestTable.A = " + key), lookupRows(index, key));
+        }
+        for (int key : new int[]{-TEST_TABLE_ROWS / 2, -1}) {
+            List<Tuple> rows = lookupRows(index, key);
+            assertEquals(1, rows.size());
+            assertEquals(key, (int) rows.get(0).getTuple().get(0));
+        }
+        assertTrue(index.lookup(TEST_TABLE_ROWS).isEmpty());
+        assertTrue(index.lookup(Integer.MIN_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testLookupDuplicateKeys() throws Exception {
+        HashIndex index = build(TEST_TABLE, "B");
+        assertEquals(DISTINCT_B, index.getDistinctKeyCount());
+        assertEquals(1.0 / DISTINCT_B, index.estimateSelectivity(), 1e-9);
+
+        // Every key fills more than a page, so its entries continue on overflow pages
+        assertTrue(index.getOverflowPageCount() > 0);
+        for (int key = 0; key < DISTINCT_B; key++) {
+            List<Long> offsets = index.lookup(key);
+            assertEquals(TEST_TABLE_ROWS / DISTINCT_B, offsets.size());
+            for (int i = 1; i < offsets.size(); i++) {
+                assertTrue("Offsets should be in file order", offsets.get(i - 1) < offsets.get(i));
+            }
+        }
+        assertEquals(select("TestTable.B = 17"), lookupRows(index, 17));
+
+        // Half of the rows share a single key
+        HashIndex skewed = build(TEST_TABLE, "C");
+        assertEquals(TEST_TABLE_ROWS / 2, skewed.lookup(0).size());
+        assertEquals(select("TestTable.C = 999"), lookupRows(skewed, 999));
+    }
+
+    @Test
+    public void testEmptyTable() throws IOException {
+        HashIndex index = build(EMPTY_TABLE, "Z");
+
+        assertEquals(0, index.getEntryCount());
+        assertEquals(1, index.getBucketCount());
+        assertTrue(index.lookup(0).isEmpty());
+        assertEquals(0.0, index.estimateSelectivity(), 1e-9);
+    }
+
+    @Test
+    public void testInsertSplitsBuckets() throws IOException {
+        HashIndex index = build(TEST_TABLE, "A");
+        int buckets = index.getBucketCount();
+
+        // Appending in batches splits buckets one at a time, until they are as full as after a build
+        for (int batch = 0; batch < 4; batch++) {
+            List<int[]> rows = new ArrayList<>();
+            for (int i = 0; i < TEST_TABLE_ROWS / 4; i++) {
+                int row = TEST_TABLE_ROWS + batch * TEST_TABLE_ROWS / 4 + i;
+                rows.add(new int[]{row - TEST_TABLE_ROWS / 2, row % DISTINCT_B, 0});
+            }
+            index = index.insert(column(rows, 0), appendRows(rows));
+        }
+
+        assertEquals(2 * TEST_TABLE_ROWS, index.getEntryCount());
+        assertEquals(2 * TEST_TABLE_ROWS, index.getDistinctKeyCount());
+        assertTrue(index.getBucketCount() > buckets);
+        assertSameAsRebuilt(index, 0);
+        assertEquals(index.getBucketCount(), HashIndex.open(index.getIndexPath()).getBucketCount());
+    }
+
+    @Test
+    public void testInsertDuplicateKeys() throws IOException {
+        // Every key continues on overflow pages, which are in the way of the primary pages of new buckets
+        HashIndex index = build(TEST_TABLE, "B");
+        assertTrue(index.getOverflowPageCount() > 0);
+
+        List<int[]> rows = new ArrayList<>();
+        for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+            rows.add(new int[]{TEST_TABLE_ROWS + i, i % (DISTINCT_B + 5), i});
+        }
+        index = index.insert(column(rows, 1), appendRows(rows));
+
+        assertEquals(DISTINCT_B + 5, index.getDistinctKeyCount());
+        assertSameAsRebuilt(index, 1);
+        for (int key = 0; key < DISTINCT_B + 5; key++) {
+            List<Long> offsets = index.lookup(key);
+            for (int i = 1; i < offsets.size(); i++) {
+                assertTrue("Offsets should be in file order", offsets.get(i - 1) < offsets.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testInsertIntoEmptyIndex() throws IOException {
+        HashIndex index = build(EMPTY_TABLE, "Z");
+        HashIndex inserted = index.insert(new int[]{5, 3, 5}, new long[]{0, 3, 6});
+
+        assertEquals(3, inserted.getEntryCount());
+        assertEquals(2, inserted.getDistinctKeyCount());
+        assertEquals(Arrays.asList(0L, 6L), inserted.lookup(5));
+        assertSame(inserted, inserted.insert(new int[0], new long[0]));
+    }
+
+    @Test
+    public void testCatalogLoadsIndexesLazily() throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertNull(catalog.getHashIndex(TEST_TABLE, "A"));
+        assertNull(catalog.getLookupIndex(TEST_TABLE, "A"));
+
+        // Index files written after the catalog was loaded are found on the next load
+        build(TEST_TABLE, "A");
+        BPlusTreeIndex.build(csvPath(TEST_TABLE), 1, false, DBCatalog.getIndexPath(csvPath(TEST_TABLE), "B"));
+        assertNull(DBCatalog.getInstance().getHashIndex(TEST_TABLE, "A"));
+        reloadCatalog();
+
+        catalog = DBCatalog.getInstance();
+        assertNotNull(catalog.getHashIndex(TEST_TABLE, "a"));
+        assertTrue(catalog.getLookupIndex(TEST_TABLE, "A") instanceof HashIndex);
+        assertTrue(catalog.getLookupIndex(TEST_TABLE, "B") instanceof BPlusTreeIndex);
+        assertNull(catalog.getLookupIndex(TEST_TABLE, "C"));
+        assertNull(catalog.getLookupIndex(TEST_TABLE, "D"));
+    }
+
+    @Test
+    public void testIndexNestedLoopJoinUsesHashIndex() throws Exception {
+        build(TEST_TABLE, "A");
+        reloadCatalog();
+
+        Expression condition = CCJSqlParserUtil.parseExpression("OtherTable.Y = TestTable.A");
+        List<Tuple> expected = collect(new JoinOperator(new ScanOperator(OTHER_TABLE),
+                new ScanOperator(TEST_TABLE), condition));
+        assertEquals(5, expected.size());
+
+        IndexNestedLoopJoinOperator joinOp = new IndexNestedLoopJoinOperator(new ScanOperator(OTHER_TABLE),
+                new ScanOperator(TEST_TABLE), condition, new Column(new Table(OTHER_TABLE), "Y"),
+                new Column(new Table(TEST_TABLE), "A"));
+        assertEquals(expected, collect(joinOp));
+    }
+
+    @Test
+    public void testPointLookupScan() throws Exception {
+        build(TEST_TABLE, "A");
+        reloadCatalog();
+
+        IndexScanOperator scanOp = new IndexScanOperator(TEST_TABLE, DBCatalog.getInstance().getHashIndex(TEST_TABLE, "A"), 42);
+        List<Tuple> expected = select("TestTable.A = 42");
+        assertEquals(expected, collect(scanOp));
+        scanOp.reset();
+        assertEquals(expected, collect(scanOp));
+
+        // The optimizer uses the hash index for an equality, but not for a range
+        Files.write(Paths.get(QUERY_FILE), "SELECT * FROM TestTable WHERE TestTable.A = 42;".getBytes());
+        Operator plan = QueryPlanner.parseStatement(QUERY_FILE);
+        assertTrue(plan instanceof IndexScanOperator);
+        assertNotNull(((IndexScanOperator) plan).getHashIndex());
+        assertEquals(expected, collect(plan));
+
+        Files.write(Paths.get(QUERY_FILE), "SELECT * FROM TestTable WHERE TestTable.A < 100 AND TestTable.A > 40;".getBytes());
+        plan = QueryPlanner.parseStatement(QUERY_FILE);
+        assertTrue(plan instanceof SelectOperator);
+        assertEquals(59, collect(plan).size());
+    }
+}
@@ -0,0 +1,221 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.HashJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String ENROLLED_TABLE = "Enrolled";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid name age gpa\n");
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+            writer.write(EMPTY_TABLE + " sid name\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 25, 20, 3\n");
+            writer.write("2, 30, 22, 4\n");
+            writer.write("3, 35, 19, 2\n");
+            writer.write("4, 40, 21, 3\n");
+        }
+
+        // Create Enrolled table data, including a student with no match (sid=5)
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            writer.write("1, 101, 85\n");
+            writer.write("1, 103, 90\n");
+            writer.write("2, 101, 95\n");
+            writer.write("3, 102, 88\n");
+            writer.write("4, 104, 75\n");
+            writer.write("5, 101, 3\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a hash join the same way the query planner does.
+     */
+    private HashJoinOperator createHashJoin(Operator outer, Operator inner, String condition, String innerTable)
+            throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        JoinKeyExtractor extractor = new JoinKeyExtractor(innerTable);
+        joinCondition.accept(extractor);
+        assertTrue("Condition should contain an equi-join key", extractor.hasEquiJoinKeys());
+
+        return new HashJoinOperator(outer, inner, joinCondition,
+                extractor.getOuterKeys(), extractor.getInnerKeys(), extractor.getResidualCondition());
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesNestedLoopJoin() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.sid = Enrolled.sid");
+        JoinOperator nestedLoop = new JoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition);
+        List<Tuple> expected = collect(nestedLoop);
+
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+        List<Tuple> actual = collect(hashJoin);
+
+        assertEquals("Should produce 5 joined tuples", 5, actual.size());
+        assertEquals("Hash join should produce the same tuples in the same order", expected, actual);
+    }
+
+    @Test
+    public void testKeyOnEitherSideOfEquality() throws Exception {
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Enrolled.sid = Students.sid", ENROLLED_TABLE);
+
+        assertEquals(Collections.singletonList(new Column(new Table(STUDENTS_TABLE), "sid")).toString(),
+                hashJoin.getOuterKeyColumns().toString());
+
+        List<Tuple> tuples = collect(hashJoin);
+        assertEquals("Should produce 5 joined tuples", 5, tuples.size());
+        for (Tuple t : tuples) {
+            assertEquals("Student sid should match Enrolled sid", t.getAttribute(0), t.getAttribute(4));
+        }
+    }
+
+    @Test
+    public void testResidualCondition() throws Exception {
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE),
+                "Students.sid = Enrolled.sid AND Enrolled.grade > Students.name * 3", ENROLLED_TABLE);
+
+        List<Tuple> tuples = collect(hashJoin);
+
+        // Only (1, 85 > 75), (1, 90 > 75) and (2, 95 > 90) satisfy the residual condition
+        assertEquals("Residual condition should be applied", 3, tuples.size());
+        for (Tuple t : tuples) {
+            assertEquals(t.getAttribute(0), t.getAttribute(4));
+            assertTrue(t.getAttribute(6) > t.getAttribute(1) * 3);
+        }
+    }
+
+    @Test
+    public void testMultipleKeyColumns() throws Exception {
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE),
+                "Students.sid = Enrolled.sid AND Students.gpa = Enrolled.grade", ENROLLED_TABLE);
+
+        assertEquals("Both equalities should be used as keys", 2, hashJoin.getInnerKeyColumns().size());
+        assertTrue("No tuple satisfies both keys", collect(hashJoin).isEmpty());
+    }
+
+    @Test
+    public void testEmptyBuildSide() throws Exception {
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(EMPTY_TABLE), "Students.sid = EmptyTable.sid", EMPTY_TABLE);
+
+        assertNull("Join with empty build side should produce null", hashJoin.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        HashJoinOperator hashJoin = createHashJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+
+        List<Tuple> firstRun = collect(hashJoin);
+        hashJoin.reset();
+        List<Tuple> secondRun = collect(hashJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+        assertEquals(Arrays.asList(1, 25, 20, 3, 1, 101, 85), secondRun.get(0).getTuple());
+    }
+
+    @Test
+    public void testBloomFilterPushedToProbeScan() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Enrolled.sid = Students.sid");
+        List<Tuple> expected = collect(new JoinOperator(
+                new ScanOperator(ENROLLED_TABLE), new ScanOperator(STUDENTS_TABLE), joinCondition));
+
+        ScanOperator probeScan = new ScanOperator(ENROLLED_TABLE);
+        HashJoinOperator hashJoin = createHashJoin(probeScan,
+                new ScanOperator(STUDENTS_TABLE), "Enrolled.sid = Students.sid", STUDENTS_TABLE);
+
+        assertSame("Filter should target the probe side scan",
+                probeScan, hashJoin.getRuntimeFilterTargets().values().iterator().next());
+
+        List<Tuple> actual = collect(hashJoin);
+        assertEquals("Filtering should not change the result", expected, actual);
+        assertEquals("Only the row with sid 5 has no match", 1, probeScan.getRuntimeFilteredRowCount());
+        assertEquals(1, probeScan.getRuntimeFilterColumns().size());
+    }
+
+    @Test
+    public void testBloomFilterThroughJoinChain() throws Exception {
+        ScanOperator bottomScan = new ScanOperator(ENROLLED_TABLE);
+        HashJoinOperator lowerJoin = createHashJoin(bottomScan,
+                new ScanOperator(STUDENTS_TABLE), "Enrolled.sid = Students.sid", STUDENTS_TABLE);
+        HashJoinOperator upperJoin = createHashJoin(lowerJoin,
+                new ScanOperator(EMPTY_TABLE), "Enrolled.sid = EmptyTable.sid", EMPTY_TABLE);
+
+        assertSame("Filter should reach the scan below the lower join",
+                bottomScan, upperJoin.getRuntimeFilterTargets().values().iterator().next());
+
+        assertNull("Join with empty build side should produce null", upperJoin.getNextTuple());
+        assertEquals("Every probe row should be dropped by the scan", 6, bottomScan.getRuntimeFilteredRowCount());
+    }
+}
@@ -0,0 +1,182 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexNestedLoopJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String ENROLLED_TABLE = "Enrolled";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid name age gpa\n");
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 25, 20, 3\n");
+            writer.write("2, 30, 22, 4\n");
+            writer.write("3, 35, 19, 2\n");
+            writer.write("4, 40, 21, 3\n");
+        }
+
+        // Create Enrolled table data, the last row without a trailing newline
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            writer.write("1, 101, 85\n");
+            writer.write("2, 101, 95\n");
+            writer.write("1, 103, 90\n");
+            writer.write("3, 102, 88\n");
+            writer.write("5, 101, 3\n");
+            writer.write("4, 104, 75");
+        }
+
+        // Index the inner join column, which index nested loop joins look up
+        Path enrolledPath = Paths.get(DATA_DIR, ENROLLED_TABLE + ".csv");
+        BPlusTreeIndex.build(enrolledPath, 0, false, DBCatalog.getIndexPath(enrolledPath, "sid"));
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static IndexNestedLoopJoinOperator createIndexJoin(Operator outer, Operator inner, Expression condition) {
+        return new IndexNestedLoopJoinOperator(outer, inner, condition,
+                new Column(new Table(STUDENTS_TABLE), "sid"), new Column(new Table(ENROLLED_TABLE), "sid"));
+    }
+
+    @Test
+    public void testLookupIndex() {
+        LookupIndex index = DBCatalog.getInstance().getLookupIndex(ENROLLED_TABLE, "sid");
+
+        assertTrue("The B+tree index should be used", index instanceof BPlusTreeIndex);
+        assertEquals("Offsets should be in file order", Arrays.asList(0L, 22L), index.lookup(1));
+        assertTrue("Missing key should have no matches", index.lookup(9).isEmpty());
+        assertSame("Index should be cached in the catalog", index, DBCatalog.getInstance().getLookupIndex(ENROLLED_TABLE, "SID"));
+        assertNull("Column without index file should have no index", DBCatalog.getInstance().getLookupIndex(ENROLLED_TABLE, "cid"));
+        assertNull("Unknown column should have no index", DBCatalog.getInstance().getLookupIndex(ENROLLED_TABLE, "nope"));
+    }
+
+    @Test
+    public void testScanLookupMode() {
+        LookupIndex index = DBCatalog.getInstance().getLookupIndex(ENROLLED_TABLE, "sid");
+        ScanOperator scan = new ScanOperator(ENROLLED_TABLE);
+
+        scan.lookup(index.lookup(4));
+        assertEquals("Last row should be read without trailing newline",
+                Arrays.asList(4, 104, 75), scan.getNextTuple().getTuple());
+        assertNull(scan.getNextTuple());
+
+        // Reset returns to a full scan
+        scan.reset();
+        assertEquals(6, collect(scan).size());
+    }
+
+    @Test
+    public void testMatchesNestedLoopJoin() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.sid = Enrolled.sid");
+        List<Tuple> expected = collect(new JoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition));
+
+        List<Tuple> actual = collect(createIndexJoin(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition));
+
+        assertEquals("Should produce 5 joined tuples", 5, actual.size());
+        assertEquals("Index join should produce the same tuples in the same order", expected, actual);
+    }
+
+    @Test
+    public void testSelectionOnInnerChild() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.sid = Enrolled.sid");
+        Expression selection = CCJSqlParserUtil.parseExpression("Enrolled.grade > 86");
+
+        IndexNestedLoopJoinOperator indexJoin = createIndexJoin(new ScanOperator(STUDENTS_TABLE),
+                new SelectOperator(new ScanOperator(ENROLLED_TABLE), selection), joinCondition);
+        List<Tuple> tuples = collect(indexJoin);
+
+        // (1, 90), (2, 95) and (3, 88)
+        assertEquals("Selection on the inner child should be applied to fetched rows", 3, tuples.size());
+        for (Tuple t : tuples) {
+            assertEquals(t.getAttribute(0), t.getAttribute(4));
+            assertTrue(t.getAttribute(6) > 86);
+        }
+    }
+
+    @Test
+    public void testResidualCondition() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(
+                "Students.sid = Enrolled.sid AND Enrolled.grade > Students.name * 3");
+
+        List<Tuple> tuples = collect(createIndexJoin(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition));
+
+        // Only (1, 85 > 75), (1, 90 > 75) and (2, 95 > 90) satisfy the residual condition
+        assertEquals("Residual condition should be applied", 3, tuples.size());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.sid = Enrolled.sid");
+        IndexNestedLoopJoinOperator indexJoin = createIndexJoin(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition);
+
+        List<Tuple> firstRun = collect(indexJoin);
+        indexJoin.reset();
+        List<Tuple> secondRun = collect(indexJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+}
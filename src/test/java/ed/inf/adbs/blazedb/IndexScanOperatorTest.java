@@ -0,0 +1,210 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.ColumnarScanOperator;
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String COLUMNS_DIR = TEST_DB_DIR + "/" + Constants.COLUMNS_DIRECTORY_NAME;
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+
+    // A is unique in shuffled order, B has 100 distinct values
+    private static final int TEST_TABLE_ROWS = 5000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath().toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                int a = (i * 7919) % TEST_TABLE_ROWS;
+                writer.write(a + ", " + (a % 100) + ", " + (i * 10) + "\n");
+            }
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath() {
+        return Paths.get(DATA_DIR, TEST_TABLE + ".csv");
+    }
+
+    private static BPlusTreeIndex buildIndex(String column, boolean clustered) throws IOException {
+        BPlusTreeIndex.build(csvPath(), DBCatalog.getInstance().getDBSchemata(TEST_TABLE).get(column.toLowerCase()),
+                clustered, DBCatalog.getIndexPath(csvPath(), column));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+        return DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, column);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static List<Tuple> select(String condition) throws Exception {
+        return collect(new SelectOperator(new ScanOperator(TEST_TABLE), CCJSqlParserUtil.parseExpression(condition)));
+    }
+
+    private static Operator plan(String query) throws Exception {
+        Files.write(Paths.get(QUERY_FILE), query.getBytes());
+        return QueryPlanner.parseStatement(QUERY_FILE);
+    }
+
+    private static <T extends Operator> T find(Operator op, Class<T> type) {
+        while (op != null && !type.isInstance(op)) {
+            op = op.hasChild() ? op.getChild() : null;
+        }
+        return type.cast(op);
+    }
+
+    @Test
+    public void testUnclusteredScan() throws Exception {
+        BPlusTreeIndex index = buildIndex("B", false);
+        assertFalse(index.isClustered());
+
+        // Rows are returned in file order, like a full scan
+        IndexScanOperator scanOp = new IndexScanOperator(TEST_TABLE, index, 5, 5);
+        List<Tuple> expected = select("TestTable.B = 5");
+        assertEquals(TEST_TABLE_ROWS / 100, expected.size());
+        assertEquals(expected, collect(scanOp));
+        assertNull(scanOp.getNextTuple());
+
+        assertEquals(select("TestTable.B >= 10 AND TestTable.B <= 12"),
+                collect(new IndexScanOperator(TEST_TABLE, index, 10, 12)));
+        assertTrue(collect(new IndexScanOperator(TEST_TABLE, index, 100, Long.MAX_VALUE)).isEmpty());
+    }
+
+    @Test
+    public void testClusteredScan() throws Exception {
+        BPlusTreeIndex index = buildIndex("A", true);
+        assertTrue(index.isClustered());
+
+        List<Tuple> tuples = collect(new IndexScanOperator(TEST_TABLE, index, Long.MIN_VALUE, 2));
+        assertEquals(3, tuples.size());
+        assertEquals(select("TestTable.A < 3"), tuples);
+
+        assertEquals(select("TestTable.A >= 1234 AND TestTable.A <= 1300"),
+                collect(new IndexScanOperator(TEST_TABLE, index, 1234, 1300)));
+        assertEquals(1, collect(new IndexScanOperator(TEST_TABLE, index, TEST_TABLE_ROWS - 1, Long.MAX_VALUE)).size());
+        assertTrue(collect(new IndexScanOperator(TEST_TABLE, index, -10, -1)).isEmpty());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        for (boolean clustered : new boolean[]{false, true}) {
+            IndexScanOperator scanOp = new IndexScanOperator(TEST_TABLE, buildIndex("A", clustered), 100, 199);
+            List<Tuple> firstRun = collect(scanOp);
+            assertEquals(100, firstRun.size());
+
+            scanOp.reset();
+            scanOp.getNextTuple();
+            scanOp.reset();
+            assertEquals("Should return identical tuples after reset", firstRun, collect(scanOp));
+        }
+    }
+
+    @Test
+    public void testRuntimeFilter() throws Exception {
+        for (boolean clustered : new boolean[]{false, true}) {
+            IndexScanOperator scanOp = new IndexScanOperator(TEST_TABLE, buildIndex("A", clustered), 0, 999);
+            BloomFilter filter = new BloomFilter(1, Constants.BLOOM_FILTER_BITS_PER_KEY);
+            filter.add(42);
+            scanOp.addRuntimeFilter(new Column(new Table(TEST_TABLE), "B"), filter);
+
+            List<Tuple> tuples = collect(scanOp);
+            assertTrue(tuples.containsAll(select("TestTable.A < 1000 AND TestTable.B = 42")));
+            assertEquals(1000, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+        }
+    }
+
+    @Test
+    public void testOptimizerChoosesIndexScan() throws Exception {
+        buildIndex("B", false);
+
+        // Every conjunct is evaluated by the index, so the selection is removed
+        Operator plan = plan("SELECT * FROM TestTable WHERE TestTable.B = 5;");
+        assertNotNull(find(plan, IndexScanOperator.class));
+        assertNull(find(plan, SelectOperator.class));
+        assertEquals(select("TestTable.B = 5"), collect(plan));
+
+        // The other conjuncts stay in the selection
+        plan = plan("SELECT * FROM TestTable WHERE TestTable.B = 5 AND TestTable.A > 2500;");
+        assertNotNull(find(plan, IndexScanOperator.class));
+        assertNotNull(find(plan, SelectOperator.class));
+        assertEquals(select("TestTable.B = 5 AND TestTable.A > 2500"), collect(plan));
+
+        // Half the table matches, so a full scan is cheaper
+        plan = plan("SELECT * FROM TestTable WHERE TestTable.B < 50;");
+        assertNull(find(plan, IndexScanOperator.class));
+        assertEquals(TEST_TABLE_ROWS / 2, collect(plan).size());
+    }
+
+    @Test
+    public void testOptimizerReplacesColumnarScan() throws Exception {
+        buildIndex("A", true);
+        ColumnarTableConverter.convert(csvPath(), Paths.get(COLUMNS_DIR, TEST_TABLE), Arrays.asList("a", "b", "c"));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+
+        Operator plan = plan("SELECT TestTable.C FROM TestTable WHERE TestTable.A < 3;");
+        assertNotNull(find(plan, IndexScanOperator.class));
+        assertNull(find(plan, ColumnarScanOperator.class));
+
+        List<Tuple> tuples = collect(plan);
+        assertEquals(3, tuples.size());
+        for (int i = 0; i < tuples.size(); i++) {
+            assertEquals(select("TestTable.A = " + i).get(0).getTuple().get(2), tuples.get(i).getTuple().get(0));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.BlockNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.MaterializeOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MaterializeOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String COURSES_TABLE = "Courses";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    /**
+     * A scan which counts how many tuples it has returned.
+     */
+    private static class CountingScanOperator extends ScanOperator {
+        private int tuplesRead = 0;
+
+        CountingScanOperator(String tableName) {
+            super(tableName);
+        }
+
+        @Override
+        public Tuple getNextTuple() {
+            Tuple tuple = super.getNextTuple();
+            if (tuple != null) {
+                tuplesRead++;
+            }
+            return tuple;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid age\n");
+            writer.write(COURSES_TABLE + " cid capacity\n");
+            writer.write(EMPTY_TABLE + " sid name\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 20\n");
+            writer.write("2, 22\n");
+            writer.write("3, 19\n");
+        }
+
+        // Create Courses table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + COURSES_TABLE + ".csv"))) {
+            writer.write("1, 21\n");
+            writer.write("2, 19\n");
+            writer.write("3, 25\n");
+            writer.write("4, 30\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + COURSES_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testReturnsChildTuplesInOrder() {
+        List<Tuple> expected = collect(new ScanOperator(COURSES_TABLE));
+
+        MaterializeOperator materialize = new MaterializeOperator(new ScanOperator(COURSES_TABLE));
+        List<Tuple> actual = collect(materialize);
+
+        assertEquals("Materialized tuples should match the child", expected, actual);
+        assertEquals(4, materialize.getRowCount());
+        assertEquals(Arrays.asList(4, 30), actual.get(3).getTuple());
+    }
+
+    @Test
+    public void testResetDoesNotRereadChild() {
+        CountingScanOperator scan = new CountingScanOperator(COURSES_TABLE);
+        MaterializeOperator materialize = new MaterializeOperator(scan);
+
+        List<Tuple> firstRun = collect(materialize);
+        materialize.reset();
+        List<Tuple> secondRun = collect(materialize);
+        materialize.reset();
+        List<Tuple> thirdRun = collect(materialize);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+        assertEquals("Should return identical tuples after reset", firstRun, thirdRun);
+        assertEquals("Child should only be read once", 4, scan.tuplesRead);
+    }
+
+    @Test
+    public void testEmptyChild() {
+        MaterializeOperator materialize = new MaterializeOperator(new ScanOperator(EMPTY_TABLE));
+
+        assertNull("Empty child should produce null", materialize.getNextTuple());
+        materialize.reset();
+        assertNull("Empty child should produce null after reset", materialize.getNextTuple());
+    }
+
+    @Test
+    public void testMaterializedSelectionAsInnerChild() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.age < Courses.capacity");
+        Expression selection = CCJSqlParserUtil.parseExpression("Courses.capacity > 20");
+
+        List<Tuple> expected = collect(new JoinOperator(new ScanOperator(STUDENTS_TABLE),
+                new SelectOperator(new ScanOperator(COURSES_TABLE), selection), joinCondition));
+
+        CountingScanOperator innerScan = new CountingScanOperator(COURSES_TABLE);
+        JoinOperator join = new JoinOperator(new ScanOperator(STUDENTS_TABLE),
+                new MaterializeOperator(new SelectOperator(innerScan, selection)), joinCondition);
+        List<Tuple> actual = collect(join);
+
+        assertEquals("Materialized inner child should not change the join result", expected, actual);
+        assertEquals("Inner table should be scanned once", 4, innerScan.tuplesRead);
+    }
+
+    @Test
+    public void testJoinsRescanningInnerChild() throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.age < Courses.capacity");
+
+        assertTrue(new JoinOperator(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(COURSES_TABLE), joinCondition).rescansInnerChild());
+        assertTrue(new BlockNestedLoopJoinOperator(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(COURSES_TABLE), joinCondition, 2).rescansInnerChild());
+    }
+}
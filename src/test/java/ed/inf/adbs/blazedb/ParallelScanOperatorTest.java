@@ -0,0 +1,204 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ParallelScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+    private static final String BAD_TABLE = "BadTable";
+
+    private static final int TEST_TABLE_ROWS = 5000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(EMPTY_TABLE + " X\n");
+            writer.write(BAD_TABLE + " X Y\n");
+        }
+
+        // Rows of varying length, with blank lines, negative values and no trailing newline
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7) + ", " + (i % 3 == 0 ? Integer.MIN_VALUE : -i * 1000));
+                if (i < TEST_TABLE_ROWS) {
+                    writer.write(i % 1000 == 0 ? "\n\n" : "\n");
+                }
+            }
+        }
+        Files.write(csvPath(EMPTY_TABLE), new byte[0]);
+        Files.write(csvPath(BAD_TABLE), "1, 2\n3, x\n".getBytes());
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> sortedTuples = new ArrayList<>(tuples);
+        sortedTuples.sort(Comparator.comparing(tuple -> tuple.getTuple().get(0)));
+        return sortedTuples;
+    }
+
+    @Test
+    public void testPreservesOrder() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        assertEquals(TEST_TABLE_ROWS, expected.size());
+
+        for (long rangeSize : new long[]{1, 7, 100, 4096, 1 << 20}) {
+            ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, true, rangeSize);
+            assertEquals("Range size " + rangeSize, expected, collect(scanOp));
+            assertNull(scanOp.getNextTuple());
+        }
+    }
+
+    @Test
+    public void testArbitraryOrder() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, false, 500);
+
+        assertFalse(scanOp.preservesOrder());
+        assertEquals("Scan should return every row once", expected, sorted(collect(scanOp)));
+    }
+
+    @Test
+    public void testEmptyTable() {
+        assertNull(new ParallelScanOperator(EMPTY_TABLE, true, 100).getNextTuple());
+    }
+
+    @Test
+    public void testReset() {
+        ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, true, 300);
+        List<Tuple> firstRun = collect(scanOp);
+
+        scanOp.reset();
+        for (int i = 0; i < 1234; i++) {
+            scanOp.getNextTuple();
+        }
+        scanOp.reset();
+
+        assertEquals("Should return identical tuples after reset", firstRun, collect(scanOp));
+    }
+
+    @Test
+    public void testRuntimeFilter() {
+        ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, true, 300);
+        BloomFilter filter = new BloomFilter(1, Constants.BLOOM_FILTER_BITS_PER_KEY);
+        filter.add(4);
+        scanOp.addRuntimeFilter(new Column(new Table(TEST_TABLE), "B"), filter);
+
+        List<Tuple> tuples = collect(scanOp);
+
+        assertTrue(tuples.stream().anyMatch(tuple -> tuple.getTuple().get(1) == 4));
+        assertTrue("Most rows should be filtered", tuples.size() < TEST_TABLE_ROWS / 2);
+        assertEquals(TEST_TABLE_ROWS, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+    }
+
+    @Test
+    public void testSkipsBlocksUsingZoneMap() throws Exception {
+        ZoneMap.build(csvPath(TEST_TABLE), 3, 100).write(DBCatalog.getZoneMapPath(csvPath(TEST_TABLE)));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+
+        Expression expression = CCJSqlParserUtil.parseExpression("TestTable.A >= 1950 AND TestTable.A < 2420");
+        List<Tuple> expected = collect(new SelectOperator(new ScanOperator(TEST_TABLE), expression));
+
+        ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, true, 1000);
+        scanOp.setScanPredicate(expression);
+        assertTrue(scanOp.usesZoneMap());
+        List<Tuple> tuples = collect(scanOp);
+
+        // Blocks 19 to 24 are read
+        assertEquals(600, tuples.size());
+        assertEquals(44, scanOp.getSkippedBlockCount());
+        tuples.removeIf(tuple -> tuple.getTuple().get(0) < 1950 || tuple.getTuple().get(0) >= 2420);
+        assertEquals(expected, tuples);
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        ParallelScanOperator scanOp = new ParallelScanOperator(TEST_TABLE, true, 300);
+        BPlusTreeIndex index = BPlusTreeIndex.build(csvPath(TEST_TABLE), 0, false,
+                DBCatalog.getIndexPath(csvPath(TEST_TABLE), "A"));
+
+        scanOp.lookup(index.lookup(2500));
+        assertEquals(Arrays.asList(new Tuple(Arrays.asList(2500, 1, -2500000))), collect(scanOp));
+
+        scanOp.reset();
+        assertEquals(TEST_TABLE_ROWS, collect(scanOp).size());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMalformedRow() {
+        collect(new ParallelScanOperator(BAD_TABLE, true, 100));
+    }
+
+    @Test
+    public void testValueOutOfRangeOrMisplacedMinusSign() throws IOException {
+        for (String data : new String[]{"1, 3000000000\n", "1, -2147483649\n", "2, 5-\n", "2, --5\n"}) {
+            Files.write(csvPath(BAD_TABLE), data.getBytes());
+            try {
+                collect(new ParallelScanOperator(BAD_TABLE, true, 100));
+                fail("Data should be rejected: " + data);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+}
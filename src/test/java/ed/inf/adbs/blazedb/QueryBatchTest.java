@@ -0,0 +1,154 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.SharedScanOperator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryBatchTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String OUTPUT_DIR = TEST_DB_DIR + "/output";
+    private static final String BIG_TABLE = "BigTable";
+    private static final String SMALL_TABLE = "SmallTable";
+
+    // Large enough for shared scans
+    private static final int BIG_TABLE_ROWS = 320000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+        Files.createDirectories(Paths.get(OUTPUT_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(BIG_TABLE + " A B C\n");
+            writer.write(SMALL_TABLE + " X Y\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(BIG_TABLE).toString()))) {
+            for (int i = 0; i < BIG_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 100) + ", " + (i % 7) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(SMALL_TABLE).toString()))) {
+            for (int i = 0; i < 10; i++) {
+                writer.write(i + ", " + (i * 10) + "\n");
+            }
+        }
+        assertTrue(Files.size(csvPath(BIG_TABLE)) >= Constants.SHARED_SCAN_MIN_FILE_SIZE);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+        SharedScanOperator.setSharingEnabled(false);
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static String writeQuery(String name, String query) throws IOException {
+        Path queryPath = Paths.get(TEST_DB_DIR, name + ".sql");
+        Files.write(queryPath, query.getBytes());
+        return queryPath.toString();
+    }
+
+    private static boolean containsOperator(Operator op, Class<?> type) {
+        if (op == null) {
+            return false;
+        }
+        if (type.isInstance(op)) {
+            return true;
+        }
+        if (op instanceof JoinOperator && containsOperator(((JoinOperator) op).getOuterChild(), type)) {
+            return true;
+        }
+        return containsOperator(op.getChild(), type);
+    }
+
+    @Test
+    public void testBatchMatchesExpectedResults() throws IOException {
+        List<String> queryFiles = Arrays.asList(
+                writeQuery("sum", "SELECT SUM(BigTable.C) FROM BigTable;"),
+                writeQuery("group", "SELECT BigTable.C, SUM(BigTable.B) FROM BigTable GROUP BY BigTable.C ORDER BY BigTable.C;"),
+                writeQuery("select", "SELECT * FROM BigTable WHERE BigTable.A < 5 ORDER BY BigTable.A;"),
+                writeQuery("join", "SELECT BigTable.A, SmallTable.Y FROM BigTable, SmallTable "
+                        + "WHERE BigTable.A = SmallTable.X ORDER BY BigTable.A;"));
+        List<String> outputFiles = new ArrayList<>();
+        for (String name : new String[]{"sum", "group", "select", "join"}) {
+            outputFiles.add(Paths.get(OUTPUT_DIR, name + ".csv").toString());
+        }
+
+        assertEquals(4, QueryBatch.runBatch(queryFiles, outputFiles));
+        assertFalse("Sharing should only be enabled while the batch is planned", SharedScanOperator.isSharingEnabled());
+
+        long sum = 0;
+        for (int i = 0; i < BIG_TABLE_ROWS; i++) {
+            sum += i % 7;
+        }
+        assertEquals(Arrays.asList(String.valueOf(sum)), Files.readAllLines(Paths.get(outputFiles.get(0))));
+
+        long[] groupSums = new long[7];
+        for (int i = 0; i < BIG_TABLE_ROWS; i++) {
+            groupSums[i % 7] += i % 100;
+        }
+        List<String> groups = Files.readAllLines(Paths.get(outputFiles.get(1)));
+        assertEquals(7, groups.size());
+        for (int c = 0; c < 7; c++) {
+            assertEquals(c + ", " + groupSums[c], groups.get(c));
+        }
+
+        assertEquals(Arrays.asList("0, 0, 0", "1, 1, 1", "2, 2, 2", "3, 3, 3", "4, 4, 4"),
+                Files.readAllLines(Paths.get(outputFiles.get(2))));
+        List<String> joined = Files.readAllLines(Paths.get(outputFiles.get(3)));
+        assertEquals(10, joined.size());
+        assertEquals("9, 90", joined.get(9));
+    }
+
+    @Test
+    public void testPlannerUsesSharedScansWhileEnabled() throws IOException {
+        String query = writeQuery("query", "SELECT * FROM BigTable, SmallTable WHERE BigTable.B = SmallTable.X;");
+        assertFalse(containsOperator(QueryPlanner.parseStatement(query), SharedScanOperator.class));
+
+        SharedScanOperator.setSharingEnabled(true);
+        assertTrue(containsOperator(QueryPlanner.parseStatement(query), SharedScanOperator.class));
+        assertFalse("Small tables are not worth sharing", containsOperator(QueryPlanner.parseStatement(
+                writeQuery("small", "SELECT * FROM SmallTable;")), SharedScanOperator.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedOutputFiles() {
+        QueryBatch.runBatch(Arrays.asList("a.sql", "b.sql"), Arrays.asList("a.csv"));
+    }
+}
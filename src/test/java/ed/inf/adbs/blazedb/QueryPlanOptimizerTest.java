@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -257,4 +258,146 @@ public class QueryPlanOptimizerTest extends BlazeDBTest {
 
         runTest(queryName, queryContent, expectedOutput);
     }
+
+    /**
+     * Tests a join on the ORDER BY column, which is evaluated with a sort-merge join
+     * so that the final sort can be removed.
+     */
+    @Test
+    public void testOrderByJoinKeyWithSortMergeJoin() throws IOException {
+        String queryName = "test_optimize_sort_merge_join";
+        String queryContent = "SELECT Enrolled.I, Student.B, Enrolled.K FROM Enrolled, Student " +
+                "WHERE Enrolled.I = Student.A AND Student.B > 25 ORDER BY Enrolled.I;";
+
+        String expectedOutput =
+                "2, 30, 91\n" +
+                        "2, 30, 84\n" +
+                        "3, 35, 78\n" +
+                        "4, 40, 65\n";
+
+        runTest(queryName, queryContent, expectedOutput);
+    }
+
+    /**
+     * Tests an inequality join whose inner child keeps a pushed-down selection,
+     * which is materialized so that the selection is evaluated only once.
+     */
+    @Test
+    public void testMaterializeSelectedInnerChild() throws IOException {
+        String queryName = "test_optimize_materialize_inner";
+        String queryContent = "SELECT Student.A, Course.E FROM Student, Course " +
+                "WHERE Student.C < Course.E AND Course.G > 3 AND Student.A > 4;";
+
+        String expectedOutput =
+                "5, 104\n" +
+                        "6, 104\n" +
+                        "5, 105\n" +
+                        "6, 105\n" +
+                        "5, 106\n" +
+                        "6, 106\n";
+
+        runTest(queryName, queryContent, expectedOutput, false);
+    }
+
+    /**
+     * Tests a join with a selective condition on the outer table, which is evaluated
+     * with an index nested loop join into the hash index on the inner table.
+     */
+    @Test
+    public void testIndexNestedLoopJoinWithSmallOuter() throws IOException {
+        String dbDir = "src/test/resources/test_integration_db"; // set up by BlazeDBTest
+        IndexBuilder.main(new String[]{dbDir, "Enrolled", "I", "hash"});
+        Path indexPath = DBCatalog.getHashIndexPath(Paths.get(dbDir, "data", "Enrolled.csv"), "I");
+        assertTrue(Files.exists(indexPath));
+
+        String queryName = "test_optimize_index_join";
+        String queryContent = "SELECT Student.A, Enrolled.J, Enrolled.K FROM Student, Enrolled " +
+                "WHERE Student.A = Enrolled.I AND Student.A = 2;";
+
+        String expectedOutput =
+                "2, 101, 91\n" +
+                        "2, 103, 84\n";
+
+        try {
+            runTest(queryName, queryContent, expectedOutput);
+        } finally {
+            Files.delete(indexPath);
+        }
+    }
+
+    /**
+     * Tests a join only used to filter the outer table below a GROUP BY without SUM,
+     * which is evaluated as a semi-join returning every student at most once.
+     */
+    @Test
+    public void testSemiJoinForGroupByWithoutSum() throws IOException {
+        String queryName = "test_optimize_semi_join";
+        String queryContent = "SELECT Student.B FROM Student, Enrolled " +
+                "WHERE Student.A = Enrolled.I GROUP BY Student.B ORDER BY Student.B;";
+
+        String expectedOutput =
+                "25\n" +
+                        "30\n" +
+                        "35\n" +
+                        "40\n";
+
+        runTest(queryName, queryContent, expectedOutput);
+    }
+
+    /**
+     * Tests a join only used to filter the inner table below a DISTINCT,
+     * which is evaluated as a semi-join keeping the inner side.
+     */
+    @Test
+    public void testSemiJoinKeepingInnerSide() throws IOException {
+        String queryName = "test_optimize_semi_join_inner";
+        String queryContent = "SELECT DISTINCT Course.G FROM Enrolled, Course " +
+                "WHERE Enrolled.J = Course.E ORDER BY Course.G;";
+
+        String expectedOutput =
+                "3\n" +
+                        "4\n";
+
+        runTest(queryName, queryContent, expectedOutput);
+    }
+
+    /**
+     * Tests that a join below a SUM is not replaced by a semi-join,
+     * since every match contributes to the sum.
+     */
+    @Test
+    public void testNoSemiJoinBelowSum() throws IOException {
+        String queryName = "test_optimize_no_semi_join";
+        String queryContent = "SELECT Student.B, SUM(Student.C) FROM Student, Enrolled " +
+                "WHERE Student.A = Enrolled.I GROUP BY Student.B ORDER BY Student.B;";
+
+        String expectedOutput =
+                "25, 170\n" +
+                        "30, 44\n" +
+                        "35, 19\n" +
+                        "40, 21\n";
+
+        runTest(queryName, queryContent, expectedOutput);
+    }
+
+    /**
+     * Tests two joins on keys of the same table, which are evaluated with a single star join
+     * probing both dimension tables per Enrolled tuple.
+     */
+    @Test
+    public void testStarJoin() throws IOException {
+        String queryName = "test_optimize_star_join";
+        String queryContent = "SELECT Enrolled.I, Student.B, Course.G FROM Enrolled, Student, Course " +
+                "WHERE Enrolled.I = Student.A AND Enrolled.J = Course.E;";
+
+        String expectedOutput =
+                "1, 25, 3\n" +
+                        "1, 25, 3\n" +
+                        "2, 30, 3\n" +
+                        "2, 30, 3\n" +
+                        "3, 35, 3\n" +
+                        "4, 40, 4\n";
+
+        runTest(queryName, queryContent, expectedOutput);
+    }
 }
@@ -0,0 +1,189 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.RangeJoinOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RangeJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String COURSES_TABLE = "Courses";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid low high\n");
+            writer.write(COURSES_TABLE + " cid level\n");
+            writer.write(EMPTY_TABLE + " cid level\n");
+        }
+
+        // Create Students table data, with bounds equal to existing levels to test inclusiveness
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 2, 5\n");
+            writer.write("2, 0, 1\n");
+            writer.write("3, 4, 4\n");
+            writer.write("4, 6, 9\n");
+            writer.write("5, -5, 2147483647\n");
+        }
+
+        // Create unsorted Courses table data, with duplicate levels
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + COURSES_TABLE + ".csv"))) {
+            writer.write("101, 4\n");
+            writer.write("102, 2\n");
+            writer.write("103, 7\n");
+            writer.write("104, 4\n");
+            writer.write("105, 5\n");
+            writer.write("106, 1\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + COURSES_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a range join the same way the query planner does.
+     */
+    private RangeJoinOperator createRangeJoin(String innerTable, String condition) throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        RangeConditionExtractor extractor = new RangeConditionExtractor(innerTable);
+        joinCondition.accept(extractor);
+        assertTrue("Condition should contain a range condition", extractor.hasRangeCondition());
+
+        return new RangeJoinOperator(new ScanOperator(STUDENTS_TABLE), new ScanOperator(innerTable), joinCondition,
+                extractor.getInnerColumn(), extractor.getLowerBound(), extractor.isLowerInclusive(),
+                extractor.getUpperBound(), extractor.isUpperInclusive());
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static Map<Tuple, Integer> countTuples(List<Tuple> tuples) {
+        Map<Tuple, Integer> counts = new HashMap<>();
+        for (Tuple t : tuples) {
+            counts.merge(t, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Checks that the range join produces the same tuples as a nested loop join,
+     * and that matches are grouped per outer tuple in outer order.
+     */
+    private void assertMatchesNestedLoopJoin(String condition) throws Exception {
+        List<Tuple> expected = collect(new JoinOperator(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(COURSES_TABLE), CCJSqlParserUtil.parseExpression(condition)));
+        List<Tuple> actual = collect(createRangeJoin(COURSES_TABLE, condition));
+
+        assertEquals(condition, countTuples(expected), countTuples(actual));
+
+        int previousSid = Integer.MIN_VALUE;
+        for (Tuple t : actual) {
+            assertTrue("Output should follow the outer order", t.getAttribute(0) >= previousSid);
+            previousSid = t.getAttribute(0);
+        }
+    }
+
+    @Test
+    public void testSingleBoundOperators() throws Exception {
+        assertMatchesNestedLoopJoin("Students.low < Courses.level");
+        assertMatchesNestedLoopJoin("Students.low <= Courses.level");
+        assertMatchesNestedLoopJoin("Students.high > Courses.level");
+        assertMatchesNestedLoopJoin("Students.high >= Courses.level");
+    }
+
+    @Test
+    public void testInnerColumnOnLeftSide() throws Exception {
+        assertMatchesNestedLoopJoin("Courses.level > Students.low");
+        assertMatchesNestedLoopJoin("Courses.level <= Students.high");
+    }
+
+    @Test
+    public void testBandCondition() throws Exception {
+        assertMatchesNestedLoopJoin("Courses.level >= Students.low AND Courses.level <= Students.high");
+        assertMatchesNestedLoopJoin("Students.low < Courses.level AND Courses.level < Students.high");
+
+        RangeConditionExtractor extractor = new RangeConditionExtractor(COURSES_TABLE);
+        CCJSqlParserUtil.parseExpression("Courses.level >= Students.low AND Courses.level < Students.high")
+                .accept(extractor);
+        assertEquals("low", extractor.getLowerBound().getColumnName());
+        assertTrue(extractor.isLowerInclusive());
+        assertEquals("high", extractor.getUpperBound().getColumnName());
+        assertFalse(extractor.isUpperInclusive());
+    }
+
+    @Test
+    public void testAdditionalConjuncts() throws Exception {
+        // Only the first inner column is searched, the other conjuncts are still evaluated
+        assertMatchesNestedLoopJoin("Students.low < Courses.level AND Courses.cid > Students.sid " +
+                "AND Students.sid < 4");
+    }
+
+    @Test
+    public void testEmptyInner() throws Exception {
+        RangeJoinOperator join = createRangeJoin(EMPTY_TABLE, "Students.low < EmptyTable.level");
+
+        assertNull("Join with empty inner should produce null", join.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        RangeJoinOperator join = createRangeJoin(COURSES_TABLE,
+                "Courses.level >= Students.low AND Courses.level <= Students.high");
+
+        List<Tuple> firstRun = collect(join);
+        join.reset();
+        List<Tuple> secondRun = collect(join);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+}
@@ -0,0 +1,226 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ReadAheadScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadAheadScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+    private static final String IRREGULAR_TABLE = "IrregularTable";
+    private static final String BROKEN_TABLE = "BrokenTable";
+    private static final String[] TABLES = {TEST_TABLE, EMPTY_TABLE, IRREGULAR_TABLE, BROKEN_TABLE};
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(EMPTY_TABLE + " X Y Z\n");
+            writer.write(IRREGULAR_TABLE + " X Y\n");
+            writer.write(BROKEN_TABLE + " X Y\n");
+        }
+
+        // Create test data file with rows of different lengths
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + TEST_TABLE + ".csv"))) {
+            for (int i = 1; i <= 200; i++) {
+                writer.write(i + ", " + (i * i * 37) + ", " + (i % 5) + "\n");
+            }
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Negative and extreme values, blank lines, CRLF line endings and no trailing newline
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + IRREGULAR_TABLE + ".csv"))) {
+            writer.write("-5, 0\r\n");
+            writer.write("\n");
+            writer.write("2147483647,-2147483648\n");
+            writer.write("  7 ,  8\n");
+            writer.write("\n");
+            writer.write("9, -10");
+        }
+
+        // Row with a missing value
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + BROKEN_TABLE + ".csv"))) {
+            writer.write("1, 2\n");
+            writer.write("3\n");
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(DBCatalog.getIndexPath(Paths.get(DATA_DIR, TEST_TABLE + ".csv"), "C"));
+        for (String table : TABLES) {
+            Files.deleteIfExists(Paths.get(DATA_DIR + "/" + table + ".csv"));
+        }
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR, Constants.INDEX_DIRECTORY_NAME));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesCsvScan() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        ReadAheadScanOperator scanOp = new ReadAheadScanOperator(TEST_TABLE);
+        List<Tuple> tuples = collect(scanOp);
+
+        assertEquals("Read-ahead scan should return the CSV rows in file order", expected, tuples);
+        assertEquals(200, tuples.size());
+        assertEquals("The small file fits into one chunk", 1, scanOp.getChunkCount());
+    }
+
+    @Test
+    public void testRowsCrossingChunks() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+
+        // Chunks smaller than most rows split almost every row, whatever the number of buffers
+        for (int chunkSize : new int[]{1, 7, 31, 64}) {
+            for (int depth : new int[]{1, 2, 4}) {
+                ReadAheadScanOperator scanOp = new ReadAheadScanOperator(TEST_TABLE, chunkSize, depth);
+                assertEquals("Chunk size " + chunkSize + ", depth " + depth, expected, collect(scanOp));
+                assertTrue(scanOp.getChunkCount() >= 200 * 10 / chunkSize);
+                scanOp.close();
+            }
+        }
+    }
+
+    @Test
+    public void testIrregularRows() {
+        List<Tuple> tuples = collect(new ReadAheadScanOperator(IRREGULAR_TABLE, 5, 2));
+
+        assertEquals("Blank lines should be skipped", 4, tuples.size());
+        assertEquals(Arrays.asList(-5, 0), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, Integer.MIN_VALUE), tuples.get(1).getTuple());
+        assertEquals(Arrays.asList(7, 8), tuples.get(2).getTuple());
+        assertEquals("Last line without newline should be read", Arrays.asList(9, -10), tuples.get(3).getTuple());
+    }
+
+    @Test
+    public void testEmptyTable() {
+        ReadAheadScanOperator scanOp = new ReadAheadScanOperator(EMPTY_TABLE);
+
+        assertNull("Should return null for empty table", scanOp.getNextTuple());
+        assertNull("Should keep returning null at the end of the table", scanOp.getNextTuple());
+    }
+
+    @Test
+    public void testResetAndClose() {
+        ReadAheadScanOperator scanOp = new ReadAheadScanOperator(TEST_TABLE, 64, 2);
+
+        List<Tuple> firstRun = collect(scanOp);
+        scanOp.reset();
+        List<Tuple> secondRun = collect(scanOp);
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+
+        // Resetting while the loader is blocked on full buffers restarts it from the first row
+        scanOp.reset();
+        for (int i = 0; i < 10; i++) {
+            scanOp.getNextTuple();
+        }
+        scanOp.reset();
+        assertEquals(firstRun, collect(scanOp));
+
+        scanOp.reset();
+        assertEquals(firstRun.get(0), scanOp.getNextTuple());
+        scanOp.close();
+    }
+
+    @Test
+    public void testLookupAndRuntimeFilter() throws IOException {
+        ReadAheadScanOperator scanOp = new ReadAheadScanOperator(TEST_TABLE, 64, 2);
+        BPlusTreeIndex index = BPlusTreeIndex.build(Paths.get(DATA_DIR, TEST_TABLE + ".csv"), 2, false,
+                DBCatalog.getIndexPath(Paths.get(DATA_DIR, TEST_TABLE + ".csv"), "C"));
+
+        scanOp.lookup(index.lookup(3));
+        List<Tuple> tuples = collect(scanOp);
+        assertEquals("Rows 3, 8, ..., 198 have C = 3", 40, tuples.size());
+        assertEquals(Arrays.asList(198, 198 * 198 * 37, 3), tuples.get(39).getTuple());
+
+        scanOp.reset();
+        BloomFilter filter = new BloomFilter(1, Constants.BLOOM_FILTER_BITS_PER_KEY);
+        filter.add(150);
+        scanOp.addRuntimeFilter(new Column(new Table(TEST_TABLE), "A"), filter);
+        tuples = collect(scanOp);
+        assertTrue(tuples.contains(new Tuple(Arrays.asList(150, 150 * 150 * 37, 0))));
+        assertEquals(200, tuples.size() + scanOp.getRuntimeFilteredRowCount());
+    }
+
+    @Test
+    public void testStallStatistics() {
+        ReadAheadScanOperator scanOp = new ReadAheadScanOperator(TEST_TABLE, 16, 2);
+        collect(scanOp);
+
+        assertTrue(scanOp.getChunkCount() > 0);
+        assertTrue("The scan cannot stall more often than it takes a chunk",
+                scanOp.getStallCount() <= scanOp.getChunkCount());
+        assertTrue(scanOp.getStallNanos() >= 0);
+        assertTrue(scanOp.getReadNanos() > 0);
+        assertTrue(scanOp.getLoaderWaitNanos() >= 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDepth() {
+        new ReadAheadScanOperator(TEST_TABLE, 64, 0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMissingValue() {
+        collect(new ReadAheadScanOperator(BROKEN_TABLE));
+    }
+
+    @Test
+    public void testValueOutOfRangeOrMisplacedMinusSign() throws IOException {
+        for (String data : new String[]{"1, 3000000000\n", "1, -2147483649\n", "2, 5-\n", "2, --5\n"}) {
+            Files.write(Paths.get(DATA_DIR, BROKEN_TABLE + ".csv"), data.getBytes());
+            // Small chunks, so that the values continue from one chunk into the next
+            try {
+                collect(new ReadAheadScanOperator(BROKEN_TABLE, 3, 2));
+                fail("Data should be rejected: " + data);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.IndexScanOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.SampleScanOperator;
+import ed.inf.adbs.blazedb.operator.SumOperator;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SampleScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+
+    // A is the row number, B is A % 10, C is 1; the rows fill 20 blocks of a zone map
+    private static final int BLOCKS = 20;
+    private static final int TEST_TABLE_ROWS = BLOCKS * Constants.ZONE_MAP_BLOCK_ROWS;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X Y\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 10) + ", 1\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(OTHER_TABLE).toString()))) {
+            for (int i = 0; i < 10; i++) {
+                writer.write(i + ", " + (i * 100) + "\n");
+            }
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static void buildZoneMap() throws IOException {
+        Path csvPath = csvPath(TEST_TABLE);
+        ZoneMap.build(csvPath, 3, Constants.ZONE_MAP_BLOCK_ROWS).write(DBCatalog.getZoneMapPath(csvPath));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static Operator plan(String query) throws IOException {
+        Files.write(Paths.get(QUERY_FILE), query.getBytes());
+        return QueryPlanner.parseStatement(QUERY_FILE);
+    }
+
+    private static SumOperator findSumOperator(Operator op) {
+        while (!(op instanceof SumOperator)) {
+            op = op.getChild();
+        }
+        return (SumOperator) op;
+    }
+
+    private static boolean containsIndexScan(Operator op) {
+        if (op instanceof IndexScanOperator) {
+            return true;
+        }
+        if (op.hasChild() && containsIndexScan(op.getChild())) {
+            return true;
+        }
+        return op instanceof JoinOperator && containsIndexScan(((JoinOperator) op).getOuterChild());
+    }
+
+    @Test
+    public void testBernoulliSample() {
+        SampleScanOperator scan = new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.BERNOULLI, 10, 42L);
+        List<Tuple> sample = collect(scan);
+
+        // About 2048 rows, far within 10 standard deviations
+        assertTrue("Sample of " + sample.size() + " rows", Math.abs(sample.size() - TEST_TABLE_ROWS / 10) < 430);
+        int previous = -1;
+        for (Tuple tuple : sample) {
+            int a = tuple.getAttribute(0);
+            assertTrue("Rows are returned in file order", a > previous);
+            assertEquals(a % 10, (int) tuple.getAttribute(1));
+            previous = a;
+        }
+        assertEquals(0.1, scan.getSamplingFraction(), 1e-9);
+    }
+
+    @Test
+    public void testRepeatableSample() {
+        SampleScanOperator scan = new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.BERNOULLI, 5, 7L);
+        List<Tuple> first = collect(scan);
+        scan.reset();
+        assertEquals("A rescan returns the same sample", first, collect(scan));
+        assertEquals(first, collect(new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.BERNOULLI, 5, 7L)));
+        assertNotEquals(first, collect(new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.BERNOULLI, 5, 8L)));
+    }
+
+    @Test
+    public void testSystemSamplesWholeBlocks() throws IOException {
+        List<Tuple> sample = collect(new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.SYSTEM, 30, 3L));
+        assertFalse(sample.isEmpty());
+        assertEquals(0, sample.size() % Constants.ZONE_MAP_BLOCK_ROWS);
+        for (int i = 0; i < sample.size(); i += Constants.ZONE_MAP_BLOCK_ROWS) {
+            int first = sample.get(i).getAttribute(0);
+            assertEquals("Blocks start at a block boundary", 0, first % Constants.ZONE_MAP_BLOCK_ROWS);
+            assertEquals(first + Constants.ZONE_MAP_BLOCK_ROWS - 1,
+                    (int) sample.get(i + Constants.ZONE_MAP_BLOCK_ROWS - 1).getAttribute(0));
+        }
+
+        // With a zone map, the same blocks are sampled and the others are skipped without being read
+        buildZoneMap();
+        SampleScanOperator scan = new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.SYSTEM, 30, 3L);
+        assertTrue(scan.usesZoneMap());
+        assertEquals(sample, collect(scan));
+        assertEquals(BLOCKS - sample.size() / Constants.ZONE_MAP_BLOCK_ROWS, scan.getSkippedBlockCount());
+    }
+
+    @Test
+    public void testSystemSampleWithScanPredicate() throws Exception {
+        buildZoneMap();
+        List<Tuple> sample = collect(new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.SYSTEM, 50, 11L));
+
+        // The predicate skips further blocks, but does not change which blocks are sampled
+        SampleScanOperator scan = new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.SYSTEM, 50, 11L);
+        scan.setScanPredicate(CCJSqlParserUtil.parseCondExpression("TestTable.A >= 10240"));
+        List<Tuple> expected = new ArrayList<>();
+        for (Tuple tuple : sample) {
+            if (tuple.getAttribute(0) >= 10240) {
+                expected.add(tuple);
+            }
+        }
+        List<Tuple> filtered = new ArrayList<>();
+        for (Tuple tuple : collect(scan)) {
+            if (tuple.getAttribute(0) >= 10240) {
+                filtered.add(tuple);
+            }
+        }
+        assertEquals(expected, filtered);
+    }
+
+    @Test
+    public void testSumIsScaledWithErrorBound() throws IOException {
+        Operator root = plan("SELECT SUM(TestTable.C), SUM(TestTable.A) FROM TestTable TABLESAMPLE BERNOULLI (10) REPEATABLE (5);");
+        List<Tuple> result = collect(root);
+        assertEquals(1, result.size());
+
+        SumOperator sumOp = findSumOperator(root);
+        assertTrue(sumOp.isApproximate());
+        List<Double> bounds = sumOp.getErrorBounds().values().iterator().next();
+        long exactSumA = (long) TEST_TABLE_ROWS * (TEST_TABLE_ROWS - 1) / 2;
+        assertTrue("Count estimate " + result.get(0).getAttribute(0) + " +/- " + bounds.get(0),
+                Math.abs(result.get(0).getAttribute(0) - TEST_TABLE_ROWS) <= bounds.get(0));
+        assertTrue("Sum estimate " + result.get(0).getAttribute(1) + " +/- " + bounds.get(1),
+                Math.abs(result.get(0).getAttribute(1) - exactSumA) <= bounds.get(1));
+
+        // The count estimate is the sample size scaled up by 10
+        Operator sample = plan("SELECT * FROM TestTable TABLESAMPLE BERNOULLI (10) REPEATABLE (5);");
+        assertEquals(collect(sample).size() * 10, (int) result.get(0).getAttribute(0));
+    }
+
+    @Test
+    public void testGroupedSystemSample() throws IOException {
+        buildZoneMap();
+        Operator root = plan("SELECT TestTable.B, SUM(TestTable.C) FROM TestTable SAMPLE BLOCK (50) SEED (2) "
+                + "GROUP BY TestTable.B ORDER BY TestTable.B;");
+        List<Tuple> result = collect(root);
+        assertEquals(10, result.size());
+
+        // Every group holds a tenth of every sampled block
+        SumOperator sumOp = findSumOperator(root);
+        int sampledBlocks = result.get(0).getAttribute(1) / 2 / (Constants.ZONE_MAP_BLOCK_ROWS / 10);
+        for (Tuple tuple : result) {
+            assertTrue(Math.abs(tuple.getAttribute(1) - 2 * sampledBlocks * Constants.ZONE_MAP_BLOCK_ROWS / 10) <= 2 * sampledBlocks);
+        }
+
+        // Blocks are the sampling units, so the bound grows with the sums of the blocks, not of the rows
+        double rowBound = Constants.SAMPLE_ERROR_BOUND_Z * Math.sqrt(0.5 * sampledBlocks * Constants.ZONE_MAP_BLOCK_ROWS / 10.0) / 0.5;
+        for (List<Double> bounds : sumOp.getErrorBounds().values()) {
+            assertTrue(bounds.get(0) > 5 * rowBound);
+        }
+    }
+
+    @Test
+    public void testJoinWithSampledTable() throws IOException {
+        Operator root = plan("SELECT SUM(OtherTable.Y) FROM TestTable TABLESAMPLE BERNOULLI (20) REPEATABLE (1), OtherTable "
+                + "WHERE TestTable.B = OtherTable.X;");
+        int estimate = collect(root).get(0).getAttribute(0);
+        int sampleSum = 0;
+        for (Tuple tuple : collect(plan("SELECT * FROM TestTable TABLESAMPLE BERNOULLI (20) REPEATABLE (1);"))) {
+            sampleSum += tuple.getAttribute(1) * 100;
+        }
+        assertEquals(sampleSum * 5, estimate);
+        assertTrue(findSumOperator(root).isApproximate());
+    }
+
+    @Test
+    public void testFullSampleIsExact() throws IOException {
+        Operator root = plan("SELECT SUM(TestTable.C) FROM TestTable TABLESAMPLE SYSTEM (100);");
+        assertEquals(TEST_TABLE_ROWS, (int) collect(root).get(0).getAttribute(0));
+        assertFalse(findSumOperator(root).isApproximate());
+        assertTrue(findSumOperator(root).getErrorBounds().isEmpty());
+    }
+
+    @Test
+    public void testSampledTableIsNotReadByIndex() throws IOException {
+        Path csvPath = csvPath(TEST_TABLE);
+        BPlusTreeIndex.build(csvPath, 0, false, DBCatalog.getIndexPath(csvPath, "A"));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+
+        assertTrue(containsIndexScan(plan("SELECT * FROM TestTable WHERE TestTable.A = 5;")));
+        Operator root = plan("SELECT * FROM TestTable TABLESAMPLE BERNOULLI (50) REPEATABLE (1) WHERE TestTable.A < 100;");
+        assertFalse(containsIndexScan(root));
+        List<Tuple> result = collect(root);
+        assertTrue(result.size() > 20 && result.size() < 80);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentage() {
+        new SampleScanOperator(TEST_TABLE, SampleScanOperator.Method.BERNOULLI, 0, null);
+    }
+}
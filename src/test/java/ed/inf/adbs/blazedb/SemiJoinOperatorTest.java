@@ -0,0 +1,181 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ProjectOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SemiJoinOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SemiJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String ENROLLED_TABLE = "Enrolled";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid name age gpa\n");
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+            writer.write(EMPTY_TABLE + " sid name\n");
+        }
+
+        // Create Students table data
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 25, 20, 3\n");
+            writer.write("2, 30, 22, 4\n");
+            writer.write("3, 35, 19, 2\n");
+            writer.write("4, 40, 21, 3\n");
+        }
+
+        // Create Enrolled table data, with several enrollments for student 1 and none for student 3
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            writer.write("1, 101, 85\n");
+            writer.write("1, 103, 90\n");
+            writer.write("2, 101, 95\n");
+            writer.write("1, 104, 20\n");
+            writer.write("4, 104, 75\n");
+            writer.write("5, 101, 3\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a semi-join from the equi-join keys of a condition, as the optimizer does.
+     */
+    private SemiJoinOperator createSemiJoin(Operator outer, Operator inner, String condition, String innerTable)
+            throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        JoinKeyExtractor extractor = new JoinKeyExtractor(innerTable);
+        joinCondition.accept(extractor);
+        assertTrue("Condition should contain an equi-join key", extractor.hasEquiJoinKeys());
+        assertNull("Condition should only contain equi-join keys", extractor.getResidualCondition());
+
+        return new SemiJoinOperator(outer, inner, joinCondition, extractor.getOuterKeys(), extractor.getInnerKeys());
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testEachOuterTupleReturnedOnce() throws Exception {
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+
+        List<Tuple> tuples = collect(semiJoin);
+
+        assertEquals("Students 1, 2 and 4 are enrolled", 3, tuples.size());
+        assertEquals(Arrays.asList(1, 25, 20, 3), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(2, 30, 22, 4), tuples.get(1).getTuple());
+        assertEquals(Arrays.asList(4, 40, 21, 3), tuples.get(2).getTuple());
+    }
+
+    @Test
+    public void testKeepInnerSide() throws Exception {
+        // Enrolled rows whose student exists, in Enrolled order
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(ENROLLED_TABLE),
+                new ScanOperator(STUDENTS_TABLE), "Students.sid = Enrolled.sid", STUDENTS_TABLE);
+
+        List<Tuple> tuples = collect(semiJoin);
+
+        assertEquals("Only the enrollment of student 5 has no match", 5, tuples.size());
+        for (Tuple t : tuples) {
+            assertEquals("Tuples should keep the Enrolled schema", 3, t.getTuple().size());
+            assertNotEquals(Integer.valueOf(5), t.getAttribute(0));
+        }
+    }
+
+    @Test
+    public void testMultipleKeyColumns() throws Exception {
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid AND Students.name = Enrolled.grade",
+                ENROLLED_TABLE);
+
+        assertEquals(2, semiJoin.getOuterKeyColumns().size());
+        assertTrue("No enrollment matches on both columns", collect(semiJoin).isEmpty());
+    }
+
+    @Test
+    public void testProjectionAboveSemiJoin() throws Exception {
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+        ProjectOperator project = new ProjectOperator(semiJoin,
+                Arrays.asList(new Column(new Table(STUDENTS_TABLE), "age")));
+
+        List<Tuple> tuples = collect(project);
+
+        assertEquals(3, tuples.size());
+        assertEquals(Arrays.asList(20), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(21), tuples.get(2).getTuple());
+    }
+
+    @Test
+    public void testEmptyInner() throws Exception {
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(EMPTY_TABLE), "Students.sid = EmptyTable.sid", EMPTY_TABLE);
+
+        assertNull("Semi-join with empty inner should produce null", semiJoin.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        SemiJoinOperator semiJoin = createSemiJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+
+        List<Tuple> firstRun = collect(semiJoin);
+        semiJoin.reset();
+        List<Tuple> secondRun = collect(semiJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+}
@@ -0,0 +1,228 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SharedScanOperator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SharedScanOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    private static final int TEST_TABLE_ROWS = 2000;
+    private static final int CHUNK_SIZE = 300;
+    private static final int WINDOW_CHUNKS = 4;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(EMPTY_TABLE + " X\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7) + ", " + (-i * 1000) + "\n");
+            }
+        }
+        Files.write(csvPath(EMPTY_TABLE), new byte[0]);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static List<Tuple> sorted(List<Tuple> tuples) {
+        List<Tuple> sortedTuples = new ArrayList<>(tuples);
+        sortedTuples.sort(Comparator.comparing(tuple -> tuple.getTuple().get(0)));
+        return sortedTuples;
+    }
+
+    /**
+     * Reads tuples from a scan until it has read the given number of chunks for its pass.
+     */
+    private static List<Tuple> readChunks(SharedScanOperator scanOp, int chunks) {
+        List<Tuple> tuples = new ArrayList<>();
+        while (scanOp.getPassChunkCount() < chunks) {
+            tuples.add(scanOp.getNextTuple());
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testSingleScanReadsFileInOrder() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        SharedScanOperator scanOp = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+
+        assertEquals("A scan on its own starts a pass at the start of the file", expected, collect(scanOp));
+        assertEquals(0, scanOp.getStartChunk());
+        assertEquals(0, scanOp.getSharedChunkCount());
+        assertEquals(0, scanOp.getPrivateChunkCount());
+        assertNull(scanOp.getNextTuple());
+        assertTrue(scanOp.getOutputOrder().isEmpty());
+    }
+
+    @Test
+    public void testScanAttachesMidFile() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        SharedScanOperator first = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        List<Tuple> firstTuples = readChunks(first, 10);
+
+        // The second scan starts at the oldest chunk in the window, and wraps around to the start of the file
+        SharedScanOperator second = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        List<Tuple> secondTuples = collect(second);
+        assertEquals(10 - WINDOW_CHUNKS, second.getStartChunk());
+        assertNotEquals(expected.get(0), secondTuples.get(0));
+        assertEquals("The second scan should return every row once", expected, sorted(secondTuples));
+        assertEquals(WINDOW_CHUNKS, second.getSharedChunkCount());
+        assertEquals(0, second.getPrivateChunkCount());
+        int chunkCount = (int) (second.getSharedChunkCount() + second.getPassChunkCount());
+
+        // Meanwhile, the second scan has moved the pass past the rest of the first scan, which reads it alone
+        firstTuples.addAll(collect(first));
+        assertEquals(expected, firstTuples);
+        assertEquals(10, first.getPassChunkCount());
+        assertEquals(chunkCount - 10, first.getPrivateChunkCount());
+    }
+
+    @Test
+    public void testScansInLockstepShareEveryChunk() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        SharedScanOperator first = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        SharedScanOperator second = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+
+        List<Tuple> firstTuples = new ArrayList<>();
+        List<Tuple> secondTuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = first.getNextTuple()) != null) {
+            firstTuples.add(tuple);
+            tuple = second.getNextTuple();
+            assertNotNull(tuple);
+            secondTuples.add(tuple);
+        }
+
+        assertEquals(expected, firstTuples);
+        assertEquals(expected, secondTuples);
+        assertEquals("Every chunk should be read once", first.getPassChunkCount(), second.getSharedChunkCount());
+        assertEquals(0, second.getPassChunkCount() + first.getSharedChunkCount());
+    }
+
+    @Test
+    public void testConcurrentScans() throws Exception {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Tuple>>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return collect(new SharedScanOperator(TEST_TABLE, 64, 2));
+            }));
+        }
+        start.countDown();
+
+        for (Future<List<Tuple>> result : results) {
+            assertEquals("Each scan should return every row once", expected, sorted(result.get()));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResetDetaches() {
+        List<Tuple> expected = collect(new ScanOperator(TEST_TABLE));
+        SharedScanOperator first = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        SharedScanOperator second = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        readChunks(first, 5);
+        second.getNextTuple();
+
+        // Once both scans have detached, the pass ends and the next scan starts at the first chunk
+        first.reset();
+        second.close();
+        assertEquals(expected, collect(first));
+        assertEquals(0, first.getStartChunk());
+
+        second.reset();
+        assertEquals(expected, collect(second));
+    }
+
+    @Test
+    public void testChangedFileStartsNewPass() throws IOException {
+        SharedScanOperator first = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        readChunks(first, 5);
+
+        Files.write(csvPath(TEST_TABLE), "5000, 1, 2\n".getBytes(), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csvPath(TEST_TABLE), FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        SharedScanOperator second = new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, WINDOW_CHUNKS);
+        List<Tuple> tuples = collect(second);
+        assertEquals(0, second.getStartChunk());
+        assertEquals(TEST_TABLE_ROWS + 1, tuples.size());
+        first.close();
+    }
+
+    @Test
+    public void testEmptyTable() {
+        SharedScanOperator scanOp = new SharedScanOperator(EMPTY_TABLE);
+
+        assertNull(scanOp.getNextTuple());
+        assertNull(scanOp.getNextTuple());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new SharedScanOperator(TEST_TABLE, CHUNK_SIZE, 0);
+    }
+}
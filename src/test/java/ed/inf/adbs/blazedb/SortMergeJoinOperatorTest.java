@@ -0,0 +1,202 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SortMergeJoinOperator;
+import ed.inf.adbs.blazedb.operator.SortOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SortMergeJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String ENROLLED_TABLE = "Enrolled";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(STUDENTS_TABLE + " sid name age gpa\n");
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+            writer.write(EMPTY_TABLE + " sid name\n");
+        }
+
+        // Create unsorted Students data, with duplicate keys (sid=2)
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("4, 40, 21, 3\n");
+            writer.write("2, 30, 22, 4\n");
+            writer.write("1, 25, 20, 3\n");
+            writer.write("2, 35, 19, 2\n");
+            writer.write("6, 45, 23, 1\n");
+        }
+
+        // Create unsorted Enrolled data, with duplicate keys and keys without a match
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            writer.write("2, 101, 95\n");
+            writer.write("5, 101, 60\n");
+            writer.write("1, 101, 85\n");
+            writer.write("2, 102, 70\n");
+            writer.write("4, 104, 75\n");
+            writer.write("1, 103, 90\n");
+            writer.write("0, 103, 50\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a sort-merge join the same way the query planner does.
+     */
+    private SortMergeJoinOperator createSortMergeJoin(Operator outer, Operator inner, String condition,
+                                                      String innerTable) throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        JoinKeyExtractor extractor = new JoinKeyExtractor(innerTable);
+        joinCondition.accept(extractor);
+
+        return new SortMergeJoinOperator(outer, inner, joinCondition,
+                extractor.getOuterKeys(), extractor.getInnerKeys(), extractor.getResidualCondition());
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesSortedNestedLoopJoin() throws Exception {
+        // A nested loop join followed by a sort on the key must produce exactly the same output
+        Expression joinCondition = CCJSqlParserUtil.parseExpression("Students.sid = Enrolled.sid");
+        JoinOperator nestedLoop = new JoinOperator(
+                new ScanOperator(STUDENTS_TABLE), new ScanOperator(ENROLLED_TABLE), joinCondition);
+        SortOperator sorted = new SortOperator(nestedLoop,
+                Collections.singletonList(new Column(new Table(STUDENTS_TABLE), "sid")));
+        List<Tuple> expected = collect(sorted);
+
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+        List<Tuple> actual = collect(mergeJoin);
+
+        // sid=1: 1x2, sid=2: 2x2, sid=4: 1x1
+        assertEquals("Should produce 7 joined tuples", 7, actual.size());
+        assertEquals("Sort-merge join should match a sorted nested loop join", expected, actual);
+    }
+
+    @Test
+    public void testDuplicateRunsOnBothSides() throws Exception {
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Enrolled.sid = Students.sid", ENROLLED_TABLE);
+
+        List<Tuple> tuples = collect(mergeJoin);
+
+        // Each of the two students with sid=2 must be joined with both enrolments of sid=2
+        List<List<Integer>> sid2 = new ArrayList<>();
+        for (Tuple t : tuples) {
+            assertEquals("Student sid should match Enrolled sid", t.getAttribute(0), t.getAttribute(4));
+            if (t.getAttribute(0) == 2) {
+                sid2.add(Arrays.asList(t.getAttribute(1), t.getAttribute(5)));
+            }
+        }
+        assertEquals(Arrays.asList(
+                Arrays.asList(30, 101), Arrays.asList(30, 102),
+                Arrays.asList(35, 101), Arrays.asList(35, 102)), sid2);
+    }
+
+    @Test
+    public void testResidualCondition() throws Exception {
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE),
+                "Students.sid = Enrolled.sid AND Enrolled.grade > 80", ENROLLED_TABLE);
+
+        List<Tuple> tuples = collect(mergeJoin);
+
+        // (1, 85), (1, 90), and (2, 95) for both students with sid=2
+        assertEquals("Residual condition should be applied", 4, tuples.size());
+        for (Tuple t : tuples) {
+            assertTrue(t.getAttribute(6) > 80);
+        }
+    }
+
+    @Test
+    public void testOutputOrder() throws Exception {
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+
+        assertTrue(mergeJoin.isOrderedBy(Collections.singletonList(new Column(new Table(STUDENTS_TABLE), "sid"))));
+        assertTrue(mergeJoin.isOrderedBy(Collections.singletonList(new Column(new Table(ENROLLED_TABLE), "sid"))));
+        assertFalse(mergeJoin.isOrderedBy(Collections.singletonList(new Column(new Table(ENROLLED_TABLE), "cid"))));
+
+        int previous = Integer.MIN_VALUE;
+        for (Tuple t : collect(mergeJoin)) {
+            assertTrue("Output should be sorted on the join key", t.getAttribute(0) >= previous);
+            previous = t.getAttribute(0);
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws Exception {
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(EMPTY_TABLE), "Students.sid = EmptyTable.sid", EMPTY_TABLE);
+
+        assertNull("Join with empty input should produce null", mergeJoin.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        SortMergeJoinOperator mergeJoin = createSortMergeJoin(new ScanOperator(STUDENTS_TABLE),
+                new ScanOperator(ENROLLED_TABLE), "Students.sid = Enrolled.sid", ENROLLED_TABLE);
+
+        List<Tuple> firstRun = collect(mergeJoin);
+        mergeJoin.reset();
+        List<Tuple> secondRun = collect(mergeJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+}
@@ -0,0 +1,196 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ed.inf.adbs.blazedb.operator.HashJoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.StarJoinOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StarJoinOperatorTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String ENROLLED_TABLE = "Enrolled";
+    private static final String STUDENTS_TABLE = "Students";
+    private static final String COURSES_TABLE = "Courses";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    private static final String STUDENTS_CONDITION = "Enrolled.sid = Students.sid";
+    private static final String COURSES_CONDITION = "Enrolled.cid = Courses.cid";
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(ENROLLED_TABLE + " sid cid grade\n");
+            writer.write(STUDENTS_TABLE + " sid age\n");
+            writer.write(COURSES_TABLE + " cid credits\n");
+            writer.write(EMPTY_TABLE + " cid credits\n");
+        }
+
+        // Create Enrolled table data (the fact table)
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"))) {
+            writer.write("1, 101, 85\n");
+            writer.write("2, 102, 60\n");
+            writer.write("1, 103, 90\n");
+            writer.write("3, 101, 70\n");
+            writer.write("5, 102, 40\n");
+        }
+
+        // Create Students table data, with two rows for student 1
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"))) {
+            writer.write("1, 20\n");
+            writer.write("2, 22\n");
+            writer.write("1, 21\n");
+            writer.write("3, 19\n");
+        }
+
+        // Create Courses table data, with two rows for course 101 and none for course 103
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + COURSES_TABLE + ".csv"))) {
+            writer.write("101, 10\n");
+            writer.write("102, 20\n");
+            writer.write("101, 15\n");
+        }
+
+        // Create empty table file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(DATA_DIR + "/" + EMPTY_TABLE + ".csv"))) {
+            // Intentionally left empty
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + ENROLLED_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + STUDENTS_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + COURSES_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(DATA_DIR + "/" + EMPTY_TABLE + ".csv"));
+        Files.deleteIfExists(Paths.get(SCHEMA_FILE));
+        Files.deleteIfExists(Paths.get(DATA_DIR));
+        Files.deleteIfExists(Paths.get(TEST_DB_DIR));
+        DBCatalog.resetDBCatalog();
+    }
+
+    /**
+     * Builds a hash join from the equi-join keys of a condition, as the query planner does.
+     */
+    private HashJoinOperator createHashJoin(Operator outer, Operator inner, String condition, String innerTable)
+            throws Exception {
+        Expression joinCondition = CCJSqlParserUtil.parseExpression(condition);
+        JoinKeyExtractor extractor = new JoinKeyExtractor(innerTable);
+        joinCondition.accept(extractor);
+        assertTrue("Condition should contain an equi-join key", extractor.hasEquiJoinKeys());
+
+        return new HashJoinOperator(outer, inner, joinCondition,
+                extractor.getOuterKeys(), extractor.getInnerKeys(), extractor.getResidualCondition());
+    }
+
+    /**
+     * Builds the chain Enrolled JOIN Students JOIN (second dimension) with fresh scans.
+     */
+    private List<HashJoinOperator> createChain(String secondCondition, String secondTable) throws Exception {
+        HashJoinOperator first = createHashJoin(new ScanOperator(ENROLLED_TABLE),
+                new ScanOperator(STUDENTS_TABLE), STUDENTS_CONDITION, STUDENTS_TABLE);
+        HashJoinOperator second = createHashJoin(first,
+                new ScanOperator(secondTable), secondCondition, secondTable);
+        return Arrays.asList(first, second);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testMatchesHashJoinChain() throws Exception {
+        List<Tuple> expected = collect(createChain(COURSES_CONDITION, COURSES_TABLE).get(1));
+        StarJoinOperator starJoin = new StarJoinOperator(createChain(COURSES_CONDITION, COURSES_TABLE));
+
+        List<Tuple> tuples = collect(starJoin);
+
+        assertEquals("Star join should return the same tuples in the same order", expected, tuples);
+    }
+
+    @Test
+    public void testAllCombinationsOfMatches() throws Exception {
+        StarJoinOperator starJoin = new StarJoinOperator(createChain(COURSES_CONDITION, COURSES_TABLE));
+
+        List<Tuple> tuples = collect(starJoin);
+
+        // (1, 101): 2 students x 2 courses, (2, 102): 1 x 1, (3, 101): 1 x 2;
+        // (1, 103) has no course and (5, 102) no student
+        assertEquals(7, tuples.size());
+        assertEquals(Arrays.asList(1, 101, 85, 1, 20, 101, 10), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(1, 101, 85, 1, 20, 101, 15), tuples.get(1).getTuple());
+        assertEquals(Arrays.asList(1, 101, 85, 1, 21, 101, 10), tuples.get(2).getTuple());
+        assertEquals(Arrays.asList(2, 102, 60, 2, 22, 102, 20), tuples.get(4).getTuple());
+        assertEquals(Arrays.asList(3, 101, 70, 3, 19, 101, 15), tuples.get(6).getTuple());
+    }
+
+    @Test
+    public void testResidualCondition() throws Exception {
+        String condition = COURSES_CONDITION + " AND Courses.credits <= Students.age AND Courses.credits > 10";
+        List<Tuple> expected = collect(createChain(condition, COURSES_TABLE).get(1));
+        StarJoinOperator starJoin = new StarJoinOperator(createChain(condition, COURSES_TABLE));
+
+        List<Tuple> tuples = collect(starJoin);
+
+        assertEquals(expected, tuples);
+        assertEquals("Only the courses with 15 and 20 credits qualify", 4, tuples.size());
+        assertEquals(Arrays.asList(1, 101, 85, 1, 20, 101, 15), tuples.get(0).getTuple());
+        assertEquals(Arrays.asList(3, 101, 70, 3, 19, 101, 15), tuples.get(3).getTuple());
+    }
+
+    @Test
+    public void testEmptyDimension() throws Exception {
+        StarJoinOperator starJoin = new StarJoinOperator(
+                createChain("Enrolled.cid = EmptyTable.cid", EMPTY_TABLE));
+
+        assertNull("Star join with an empty dimension should produce null", starJoin.getNextTuple());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        StarJoinOperator starJoin = new StarJoinOperator(createChain(COURSES_CONDITION, COURSES_TABLE));
+
+        List<Tuple> firstRun = collect(starJoin);
+        starJoin.reset();
+        List<Tuple> secondRun = collect(starJoin);
+
+        assertEquals("Should return identical tuples after reset", firstRun, secondRun);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresTwoJoins() throws Exception {
+        new StarJoinOperator(Collections.singletonList(createHashJoin(new ScanOperator(ENROLLED_TABLE),
+                new ScanOperator(STUDENTS_TABLE), STUDENTS_CONDITION, STUDENTS_TABLE)));
+    }
+}
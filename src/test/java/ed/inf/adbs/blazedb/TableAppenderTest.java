@@ -0,0 +1,235 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.Operator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableAppenderTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+
+    // A is unique and ascending, B has 30 distinct values, C is A * 3
+    private static final int TEST_TABLE_ROWS = 3000;
+    private static final int DISTINCT_B = 30;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % DISTINCT_B) + ", " + (i * 3) + "\n");
+            }
+        }
+        Files.write(csvPath(OTHER_TABLE), "1\n2".getBytes());
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static void reloadCatalog() {
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    /**
+     * Builds a clustered index on A, which rewrites the data file, then a zone map, a hash index on B,
+     * an unclustered index on C, the statistics and a binary copy of the test table, and reloads the catalog.
+     */
+    private static void buildMetadata() throws IOException {
+        Path csvPath = csvPath(TEST_TABLE);
+        BPlusTreeIndex.build(csvPath, 0, true, DBCatalog.getIndexPath(csvPath, "A"));
+        ZoneMap.build(csvPath, 3, Constants.ZONE_MAP_BLOCK_ROWS).write(DBCatalog.getZoneMapPath(csvPath));
+        TableClusterer.recordSortOrder(TEST_TABLE, Collections.singletonList("a"));
+        HashIndex.build(csvPath, 1, DBCatalog.getHashIndexPath(csvPath, "B"));
+        BPlusTreeIndex.build(csvPath, 2, false, DBCatalog.getIndexPath(csvPath, "C"));
+        TableAnalyzer.analyze(TEST_TABLE);
+        BinaryTableConverter.convert(csvPath, csvPath.resolveSibling(TEST_TABLE + Constants.BINARY_FILE_EXTENSION), 3);
+        reloadCatalog();
+    }
+
+    private static List<int[]> rows(int from, int to) {
+        List<int[]> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new int[]{i, i % DISTINCT_B, i * 3});
+        }
+        return rows;
+    }
+
+    private static List<Tuple> run(String query) throws Exception {
+        Files.write(Paths.get(QUERY_FILE), query.getBytes());
+        Operator plan = QueryPlanner.parseStatement(QUERY_FILE);
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = plan.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    @Test
+    public void testAppendKeepsMetadataUpToDate() throws IOException {
+        buildMetadata();
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertNotNull(catalog.getBinaryLocation(TEST_TABLE));
+
+        TableAppender.append(TEST_TABLE, rows(TEST_TABLE_ROWS, TEST_TABLE_ROWS + 2500));
+        assertNull("The binary copy is not maintained", catalog.getBinaryLocation(TEST_TABLE));
+
+        // Everything is up to date for the next process, and matches metadata built from scratch
+        reloadCatalog();
+        catalog = DBCatalog.getInstance();
+        Path csvPath = csvPath(TEST_TABLE);
+        assertNull(catalog.getBinaryLocation(TEST_TABLE));
+        assertEquals(ZoneMap.build(csvPath, 3, Constants.ZONE_MAP_BLOCK_ROWS).toString(),
+                catalog.getZoneMap(TEST_TABLE).toString());
+
+        BPlusTreeIndex a = catalog.getBPlusTreeIndex(TEST_TABLE, "A");
+        assertTrue(a.isClustered());
+        assertEquals(TEST_TABLE_ROWS + 2500, a.getEntryCount());
+        assertEquals(BPlusTreeIndex.build(csvPath, 0, false, Paths.get(TEST_DB_DIR, "a.idx")).lookupRange(0, 10000),
+                a.lookupRange(0, 10000));
+        BPlusTreeIndex c = catalog.getBPlusTreeIndex(TEST_TABLE, "C");
+        assertEquals(BPlusTreeIndex.build(csvPath, 2, false, Paths.get(TEST_DB_DIR, "c.idx")).lookupRange(0, 100000),
+                c.lookupRange(0, 100000));
+        HashIndex b = catalog.getHashIndex(TEST_TABLE, "B");
+        HashIndex rebuilt = HashIndex.build(csvPath, 1, Paths.get(TEST_DB_DIR, "b.hash"));
+        for (int key = 0; key < DISTINCT_B; key++) {
+            assertEquals(rebuilt.lookup(key), b.lookup(key));
+        }
+
+        TableStatistics statistics = catalog.getTableStatistics(TEST_TABLE);
+        assertEquals(TEST_TABLE_ROWS + 2500, statistics.getRowCount());
+        assertEquals(TEST_TABLE_ROWS + 2499, statistics.getColumnStatistics("a").getMax());
+        assertEquals(DISTINCT_B, statistics.getColumnStatistics("b").getDistinctCount());
+        assertEquals(Collections.singletonList("a"), catalog.getSortOrder(TEST_TABLE));
+    }
+
+    @Test
+    public void testQueriesSeeAppendedRows() throws Exception {
+        buildMetadata();
+        assertEquals(0, run("SELECT * FROM TestTable WHERE TestTable.A >= 3000;").size());
+
+        TableAppender.append(TEST_TABLE, rows(TEST_TABLE_ROWS, TEST_TABLE_ROWS + 100));
+
+        // Without reloading, the catalog serves the extended zone map and indexes
+        List<Tuple> appended = run("SELECT * FROM TestTable WHERE TestTable.A >= 3000;");
+        assertEquals(100, appended.size());
+        assertEquals(Arrays.asList(3000, 0, 9000), appended.get(0).getTuple());
+        assertEquals((TEST_TABLE_ROWS + 100 - 7 + DISTINCT_B - 1) / DISTINCT_B,
+                run("SELECT * FROM TestTable WHERE TestTable.B = 7;").size());
+        assertEquals(1, run("SELECT * FROM TestTable WHERE TestTable.C = 9297;").size());
+        assertEquals(TEST_TABLE_ROWS + 100, run("SELECT * FROM TestTable ORDER BY TestTable.A;").size());
+    }
+
+    @Test
+    public void testRowsOutOfOrderDropSortOrder() throws IOException {
+        buildMetadata();
+
+        TableAppender.append(TEST_TABLE, Arrays.asList(new int[]{5000, 1, 2}, new int[]{10, 3, 4}));
+
+        reloadCatalog();
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertTrue(catalog.getSortOrder(TEST_TABLE).isEmpty());
+        BPlusTreeIndex a = catalog.getBPlusTreeIndex(TEST_TABLE, "A");
+        assertFalse("The data file is no longer sorted on A", a.isClustered());
+        assertEquals(2, a.lookup(10).size());
+        assertEquals(TEST_TABLE_ROWS + 2, catalog.getTableStatistics(TEST_TABLE).getRowCount());
+    }
+
+    @Test
+    public void testStaleMetadataStaysStale() throws IOException {
+        buildMetadata();
+
+        // A zone map older than the data file is not brought up to date by an append
+        Path zoneMapPath = DBCatalog.getZoneMapPath(csvPath(TEST_TABLE));
+        Files.setLastModifiedTime(zoneMapPath, FileTime.fromMillis(
+                Files.getLastModifiedTime(csvPath(TEST_TABLE)).toMillis() - 10000));
+        reloadCatalog();
+        FileTime staleTime = Files.getLastModifiedTime(zoneMapPath);
+
+        TableAppender.append(TEST_TABLE, rows(TEST_TABLE_ROWS, TEST_TABLE_ROWS + 10));
+        assertEquals(staleTime, Files.getLastModifiedTime(zoneMapPath));
+        reloadCatalog();
+        assertNull(DBCatalog.getInstance().getZoneMap(TEST_TABLE));
+        assertNotNull(DBCatalog.getInstance().getBPlusTreeIndex(TEST_TABLE, "A"));
+    }
+
+    @Test
+    public void testAppendWithoutMetadata() throws Exception {
+        // The data file does not end with a line separator
+        TableAppender.append(OTHER_TABLE, Arrays.asList(new int[]{3}, new int[]{4}));
+
+        assertEquals(Arrays.asList("1", "2", "3", "4"), Files.readAllLines(csvPath(OTHER_TABLE)));
+        assertNull(DBCatalog.getInstance().getZoneMap(OTHER_TABLE));
+        assertNull(DBCatalog.getInstance().getTableStatistics(OTHER_TABLE));
+        assertEquals(4, run("SELECT * FROM OtherTable;").size());
+    }
+
+    @Test
+    public void testMain() throws IOException {
+        buildMetadata();
+        Path rowsFile = Paths.get(TEST_DB_DIR, "rows.csv");
+        Files.write(rowsFile, "3000, 0, 9000\n\n3001, 1, 9003\n".getBytes());
+
+        TableAppender.main(new String[]{TEST_DB_DIR, TEST_TABLE, rowsFile.toString()});
+
+        reloadCatalog();
+        assertEquals(TEST_TABLE_ROWS + 2, DBCatalog.getInstance().getTableStatistics(TEST_TABLE).getRowCount());
+        assertEquals(TEST_TABLE_ROWS + 2, DBCatalog.getInstance().getZoneMap(TEST_TABLE).getTotalRowCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowWithWrongNumberOfValues() throws IOException {
+        try {
+            TableAppender.append(TEST_TABLE, Arrays.asList(new int[]{1, 2, 3}, new int[]{1, 2}));
+        } finally {
+            assertEquals(TEST_TABLE_ROWS, Files.readAllLines(csvPath(TEST_TABLE)).size());
+        }
+    }
+}
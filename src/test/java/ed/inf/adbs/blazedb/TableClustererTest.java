@@ -0,0 +1,288 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ParallelScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SortMergeJoinOperator;
+import ed.inf.adbs.blazedb.operator.SortOperator;
+import ed.inf.adbs.blazedb.operator.StarJoinOperator;
+import ed.inf.adbs.blazedb.operator.SumOperator;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableClustererTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+
+    // B has 7 distinct values and C has 3, both repeating out of order
+    private static final int TEST_TABLE_ROWS = 500;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X Y\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i * 3 % 7) + ", " + (i * 2 % 3) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(OTHER_TABLE).toString()))) {
+            for (int i = 0; i < 40; i++) {
+                writer.write(((i * 5) % 9) + ", " + i + "\n");
+            }
+        }
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static void cluster(String table, String... columns) throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        int[] columnIndices = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnIndices[i] = catalog.getDBSchemata(table).get(columns[i].toLowerCase());
+        }
+        TableClusterer.sortDataFile(csvPath(table), columnIndices);
+        TableClusterer.recordSortOrder(table, Arrays.asList(columns));
+        reloadCatalog();
+    }
+
+    private static void reloadCatalog() {
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static Operator plan(String query) throws Exception {
+        Files.write(Paths.get(QUERY_FILE), query.getBytes());
+        return QueryPlanner.parseStatement(QUERY_FILE);
+    }
+
+    private static boolean containsOperator(Operator op, Class<?> type) {
+        if (op == null) {
+            return false;
+        }
+        if (type.isInstance(op)) {
+            return true;
+        }
+        if (op instanceof JoinOperator && containsOperator(((JoinOperator) op).getOuterChild(), type)) {
+            return true;
+        }
+        if (op instanceof StarJoinOperator) {
+            for (Operator input : ((StarJoinOperator) op).getDimensions()) {
+                if (containsOperator(input, type)) {
+                    return true;
+                }
+            }
+        }
+        return containsOperator(op.getChild(), type);
+    }
+
+    @Test
+    public void testSortDataFileIsStable() throws IOException {
+        List<String> before = Files.readAllLines(csvPath(TEST_TABLE));
+        cluster(TEST_TABLE, "B", "C");
+
+        List<String> after = Files.readAllLines(csvPath(TEST_TABLE));
+        assertEquals(TEST_TABLE_ROWS, after.size());
+        for (int i = 1; i < after.size(); i++) {
+            int[] previous = Arrays.stream(after.get(i - 1).split(",\\s*")).mapToInt(Integer::parseInt).toArray();
+            int[] current = Arrays.stream(after.get(i).split(",\\s*")).mapToInt(Integer::parseInt).toArray();
+            assertTrue("Rows should be sorted on B, C", previous[1] < current[1]
+                    || previous[1] == current[1] && previous[2] <= current[2]);
+            if (previous[1] == current[1] && previous[2] == current[2]) {
+                assertTrue("Equal keys should keep file order", previous[0] < current[0]);
+            }
+        }
+
+        List<String> sortedBefore = new ArrayList<>(before);
+        List<String> sortedAfter = new ArrayList<>(after);
+        Collections.sort(sortedBefore);
+        Collections.sort(sortedAfter);
+        assertEquals(sortedBefore, sortedAfter);
+    }
+
+    @Test
+    public void testCatalogRecordsSortOrder() throws IOException {
+        assertTrue(DBCatalog.getInstance().getSortOrder(TEST_TABLE).isEmpty());
+        assertTrue(new ScanOperator(TEST_TABLE).getOutputOrder().isEmpty());
+
+        cluster(TEST_TABLE, "B", "C");
+        cluster(OTHER_TABLE, "X");
+
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertEquals(Arrays.asList("b", "c"), catalog.getSortOrder(TEST_TABLE));
+        assertEquals(Collections.singletonList("x"), catalog.getSortOrder(OTHER_TABLE));
+        assertTrue(Files.readAllLines(Paths.get(TEST_DB_DIR, Constants.SORT_ORDER_FILE_NAME))
+                .contains(TEST_TABLE + " b c"));
+
+        ScanOperator scanOp = new ScanOperator(TEST_TABLE);
+        assertTrue(scanOp.isOrderedBy(Collections.singletonList(new Column(new Table(TEST_TABLE), "B"))));
+        assertTrue(scanOp.isOrderedBy(Arrays.asList(new Column(new Table(TEST_TABLE), "B"),
+                new Column(new Table(TEST_TABLE), "C"))));
+        assertFalse(scanOp.isOrderedBy(Collections.singletonList(new Column(new Table(TEST_TABLE), "C"))));
+
+        // An unordered parallel scan does not keep the order of the file
+        assertTrue(new ParallelScanOperator(TEST_TABLE, true, 1024).isOrderedBy(
+                Collections.singletonList(new Column(new Table(TEST_TABLE), "B"))));
+        assertTrue(new ParallelScanOperator(TEST_TABLE, false, 1024).getOutputOrder().isEmpty());
+    }
+
+    @Test
+    public void testChangedDataFileInvalidatesSortOrder() throws IOException {
+        cluster(TEST_TABLE, "B");
+        cluster(OTHER_TABLE, "X");
+
+        // The data file changes after the order was recorded
+        Path sortOrderPath = Paths.get(TEST_DB_DIR, Constants.SORT_ORDER_FILE_NAME);
+        FileTime recorded = Files.getLastModifiedTime(sortOrderPath);
+        Files.write(csvPath(TEST_TABLE), "1, 6, 0\n".getBytes(), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csvPath(TEST_TABLE), FileTime.fromMillis(recorded.toMillis() + 1000));
+        reloadCatalog();
+        assertTrue(DBCatalog.getInstance().getSortOrder(TEST_TABLE).isEmpty());
+        assertEquals(Collections.singletonList("x"), DBCatalog.getInstance().getSortOrder(OTHER_TABLE));
+
+        // Recording another order drops the stale one, rather than making it look current again
+        cluster(OTHER_TABLE, "Y");
+        assertTrue(DBCatalog.getInstance().getSortOrder(TEST_TABLE).isEmpty());
+        assertFalse(String.join("\n", Files.readAllLines(sortOrderPath)).contains(TEST_TABLE));
+    }
+
+    @Test
+    public void testOrderByOnSortOrderSkipsSort() throws Exception {
+        Operator unclustered = plan("SELECT * FROM TestTable ORDER BY TestTable.B;");
+        assertTrue(containsOperator(unclustered, SortOperator.class));
+        List<Tuple> expected = collect(unclustered);
+
+        cluster(TEST_TABLE, "B", "C");
+        Operator clustered = plan("SELECT * FROM TestTable ORDER BY TestTable.B;");
+        assertFalse(containsOperator(clustered, SortOperator.class));
+        assertEquals(expected.size(), collect(clustered).size());
+
+        // Projections keep the order of the columns they retain
+        assertFalse(containsOperator(plan("SELECT TestTable.B, TestTable.C FROM TestTable WHERE TestTable.A > 10 "
+                + "ORDER BY TestTable.B, TestTable.C;"), SortOperator.class));
+        assertTrue(containsOperator(plan("SELECT * FROM TestTable ORDER BY TestTable.C;"), SortOperator.class));
+    }
+
+    @Test
+    public void testGroupByOnSortOrderStreams() throws Exception {
+        Map<List<Integer>, Integer> expected = new HashMap<>();
+        for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+            expected.merge(Arrays.asList(i * 3 % 7, i * 2 % 3), i, Integer::sum);
+        }
+
+        Operator hashed = plan("SELECT TestTable.C, TestTable.B, SUM(TestTable.A) FROM TestTable "
+                + "GROUP BY TestTable.C, TestTable.B;");
+        assertFalse(((SumOperator) hashed).isStreaming());
+        assertEquals(expected.size(), collect(hashed).size());
+
+        cluster(TEST_TABLE, "B", "C");
+        Operator streamed = plan("SELECT TestTable.C, TestTable.B, SUM(TestTable.A) FROM TestTable "
+                + "GROUP BY TestTable.C, TestTable.B;");
+        assertTrue(((SumOperator) streamed).isStreaming());
+
+        List<Tuple> groups = collect(streamed);
+        assertEquals(expected.size(), groups.size());
+        for (Tuple group : groups) {
+            List<Integer> values = group.getTuple();
+            assertEquals(expected.get(Arrays.asList(values.get(1), values.get(0))), values.get(2));
+        }
+        streamed.reset();
+        assertEquals(groups, collect(streamed));
+
+        // The groups come out sorted on B, so the sort on it is dropped
+        Operator ordered = plan("SELECT TestTable.B, SUM(TestTable.A) FROM TestTable "
+                + "GROUP BY TestTable.B ORDER BY TestTable.B;");
+        assertFalse(containsOperator(ordered, SortOperator.class));
+        List<Tuple> orderedGroups = collect(ordered);
+        assertEquals(7, orderedGroups.size());
+        for (int i = 0; i < orderedGroups.size(); i++) {
+            assertEquals(i, (int) orderedGroups.get(i).getTuple().get(0));
+        }
+    }
+
+    @Test
+    public void testJoinOnSortedInputsMerges() throws Exception {
+        String query = "SELECT * FROM OtherTable, TestTable WHERE OtherTable.X = TestTable.B;";
+        Operator hashed = plan(query);
+        assertFalse(containsOperator(hashed, SortMergeJoinOperator.class));
+        List<Tuple> expected = collect(hashed);
+
+        cluster(TEST_TABLE, "B");
+        assertFalse(containsOperator(plan(query), SortMergeJoinOperator.class));
+
+        cluster(OTHER_TABLE, "X");
+        Operator merged = plan(query);
+        assertTrue(containsOperator(merged, SortMergeJoinOperator.class));
+        assertFalse(containsOperator(merged, SortOperator.class));
+
+        List<Tuple> actual = collect(merged);
+        assertEquals(expected.size(), actual.size());
+        Comparator<Tuple> byValues = Comparator.comparing(Tuple::toString);
+        expected.sort(byValues);
+        actual.sort(byValues);
+        assertEquals(expected, actual);
+
+        assertTrue(merged.isOrderedBy(Collections.singletonList(new Column(new Table(OTHER_TABLE), "X"))));
+    }
+}
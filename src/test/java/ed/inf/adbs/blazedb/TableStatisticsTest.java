@@ -0,0 +1,276 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.IndexNestedLoopJoinOperator;
+import ed.inf.adbs.blazedb.operator.JoinOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableStatisticsTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+    private static final String EMPTY_TABLE = "EmptyTable";
+
+    // A is unique, B has 20 distinct values, C is 0 on 90% of the rows and unique otherwise
+    private static final int TEST_TABLE_ROWS = 5000;
+    private static final int DISTINCT_B = 20;
+    private static final int OTHER_TABLE_ROWS = 12000;
+
+    @Before
+    public void setUp() throws IOException {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X Y\n");
+            writer.write(EMPTY_TABLE + " Z\n");
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 0; i < TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i * 7 % DISTINCT_B) + ", " + (i % 10 == 0 ? i : 0) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(OTHER_TABLE).toString()))) {
+            for (int i = 0; i < OTHER_TABLE_ROWS; i++) {
+                writer.write((OTHER_TABLE_ROWS - i) + ", " + i + "\n");
+            }
+        }
+        Files.write(csvPath(EMPTY_TABLE), new byte[0]);
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static void reloadCatalog() {
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    private static Operator plan(String query) throws Exception {
+        Files.write(Paths.get(QUERY_FILE), query.getBytes());
+        return QueryPlanner.parseStatement(QUERY_FILE);
+    }
+
+    private static boolean containsOperator(Operator op, Class<?> type) {
+        if (op == null) {
+            return false;
+        }
+        if (type.isInstance(op)) {
+            return true;
+        }
+        if (op instanceof JoinOperator && containsOperator(((JoinOperator) op).getOuterChild(), type)) {
+            return true;
+        }
+        return containsOperator(op.getChild(), type);
+    }
+
+    @Test
+    public void testComputeStatistics() throws IOException {
+        TableStatistics statistics = TableStatistics.compute(csvPath(TEST_TABLE), Arrays.asList("a", "b", "c"));
+        assertEquals(TEST_TABLE_ROWS, statistics.getRowCount());
+        assertEquals(Arrays.asList("a", "b", "c"), statistics.getColumnNames());
+
+        ColumnStatistics a = statistics.getColumnStatistics("A");
+        assertEquals(0, a.getMin());
+        assertEquals(TEST_TABLE_ROWS - 1, a.getMax());
+        assertEquals(Constants.HISTOGRAM_BUCKETS, a.getBucketCount());
+
+        // Beyond the size of the sketch, the distinct count is an estimate
+        assertEquals(TEST_TABLE_ROWS, a.getDistinctCount(), TEST_TABLE_ROWS * 0.1);
+        assertEquals(DISTINCT_B, statistics.getColumnStatistics("b").getDistinctCount());
+        assertEquals(TEST_TABLE_ROWS / 10, statistics.getColumnStatistics("c").getDistinctCount());
+
+        int[] bounds = a.getHistogramBounds();
+        for (int b = 1; b < bounds.length; b++) {
+            assertTrue("Bounds should be ascending", bounds[b - 1] <= bounds[b]);
+        }
+    }
+
+    @Test
+    public void testWithAppendedRows() throws IOException {
+        TableStatistics statistics = TableStatistics.compute(csvPath(TEST_TABLE), Arrays.asList("a", "b", "c"));
+
+        // Another table's worth of rows, with values of A above the old range and B repeating its values
+        List<int[]> rows = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = TEST_TABLE_ROWS; i < 2 * TEST_TABLE_ROWS; i++) {
+            rows.add(new int[]{i, i * 7 % DISTINCT_B, 0});
+            text.append(i).append(", ").append(i * 7 % DISTINCT_B).append(", 0\n");
+        }
+        Files.write(csvPath(TEST_TABLE), text.toString().getBytes(), StandardOpenOption.APPEND);
+        TableStatistics appended = statistics.withAppendedRows(rows);
+        TableStatistics computed = TableStatistics.compute(csvPath(TEST_TABLE), Arrays.asList("a", "b", "c"));
+
+        assertEquals(computed.getRowCount(), appended.getRowCount());
+        for (String column : Arrays.asList("a", "b", "c")) {
+            ColumnStatistics expected = computed.getColumnStatistics(column);
+            ColumnStatistics actual = appended.getColumnStatistics(column);
+            assertEquals(expected.getMin(), actual.getMin());
+            assertEquals(expected.getMax(), actual.getMax());
+            assertEquals(expected.getBucketCount(), actual.getBucketCount());
+            int[] bounds = actual.getHistogramBounds();
+            for (int b = 1; b < bounds.length; b++) {
+                assertTrue("Bounds should be ascending", bounds[b - 1] <= bounds[b]);
+            }
+        }
+
+        ColumnStatistics a = appended.getColumnStatistics("a");
+        assertEquals(2 * TEST_TABLE_ROWS, a.getDistinctCount(), 2 * TEST_TABLE_ROWS * 0.1);
+        assertEquals(0.5, a.estimateRangeSelectivity(0, TEST_TABLE_ROWS - 1), 0.05);
+        assertEquals(DISTINCT_B, appended.getColumnStatistics("b").getDistinctCount());
+        // A value inside a sparse range is likely new, so C gains most of one value
+        assertEquals(computed.getColumnStatistics("c").getDistinctCount(),
+                appended.getColumnStatistics("c").getDistinctCount(), 1);
+        assertEquals(0.95, appended.getColumnStatistics("c").estimateEqualsSelectivity(0), 0.05);
+
+        // Rows appended to an empty table give exact statistics
+        TableStatistics empty = TableStatistics.compute(csvPath(EMPTY_TABLE), Arrays.asList("z"));
+        TableStatistics filled = empty.withAppendedRows(Arrays.asList(new int[]{3}, new int[]{8}, new int[]{3}));
+        assertEquals(3, filled.getRowCount());
+        assertEquals(3, filled.getColumnStatistics("z").getMin());
+        assertEquals(8, filled.getColumnStatistics("z").getMax());
+        assertEquals(2, filled.getColumnStatistics("z").getDistinctCount());
+        assertSame(statistics, statistics.withAppendedRows(new ArrayList<>()));
+    }
+
+    @Test
+    public void testSelectivityEstimates() throws IOException {
+        TableStatistics statistics = TableStatistics.compute(csvPath(TEST_TABLE), Arrays.asList("a", "b", "c"));
+        ColumnStatistics a = statistics.getColumnStatistics("a");
+        ColumnStatistics c = statistics.getColumnStatistics("c");
+
+        assertEquals(0.1, a.estimateRangeSelectivity(0, TEST_TABLE_ROWS / 10 - 1), 0.01);
+        assertEquals(0.5, a.estimateRangeSelectivity(TEST_TABLE_ROWS / 2, Long.MAX_VALUE), 0.01);
+        assertEquals(1.0, a.estimateRangeSelectivity(Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+        assertEquals(0.0, a.estimateRangeSelectivity(TEST_TABLE_ROWS, Long.MAX_VALUE), 1e-9);
+        assertEquals(0.0, a.estimateEqualsSelectivity(-1), 1e-9);
+        assertEquals(1.0 / TEST_TABLE_ROWS, a.estimateEqualsSelectivity(17), 1.0 / TEST_TABLE_ROWS);
+
+        // The histogram shows that the most frequent value fills most buckets
+        assertEquals(0.9, c.estimateEqualsSelectivity(0), 0.05);
+        assertEquals(1.0 / c.getDistinctCount(), c.estimateEqualsSelectivity(10), 1e-9);
+        assertEquals(0.1, c.estimateRangeSelectivity(1, Long.MAX_VALUE), 0.05);
+
+        TableStatistics empty = TableStatistics.compute(csvPath(EMPTY_TABLE), Arrays.asList("z"));
+        assertEquals(0, empty.getRowCount());
+        assertEquals(0, empty.getColumnStatistics("z").getBucketCount());
+        assertEquals(0.0, empty.getColumnStatistics("z").estimateRangeSelectivity(0, 10), 1e-9);
+    }
+
+    @Test
+    public void testAnalyzePersistsStatistics() throws IOException {
+        DBCatalog catalog = DBCatalog.getInstance();
+        assertNull(catalog.getTableStatistics(TEST_TABLE));
+
+        TableStatistics analyzed = TableAnalyzer.analyze(TEST_TABLE);
+        TableAnalyzer.analyze(EMPTY_TABLE);
+        assertSame(analyzed, catalog.getTableStatistics(TEST_TABLE));
+
+        List<String> lines = Files.readAllLines(Paths.get(TEST_DB_DIR, Constants.STATISTICS_FILE_NAME));
+        assertTrue(lines.contains(TEST_TABLE + " " + TEST_TABLE_ROWS));
+        assertTrue(lines.contains(EMPTY_TABLE + " 0"));
+
+        // The statistics read back equal the collected ones
+        reloadCatalog();
+        catalog = DBCatalog.getInstance();
+        TableStatistics loaded = catalog.getTableStatistics(TEST_TABLE);
+        assertNotNull(loaded);
+        assertEquals(analyzed.toLines(TEST_TABLE), loaded.toLines(TEST_TABLE));
+        assertEquals(TEST_TABLE_ROWS, catalog.estimateRowCount(TEST_TABLE));
+        assertEquals(DISTINCT_B, catalog.getColumnStatistics(TEST_TABLE, "B").getDistinctCount());
+        assertNull(catalog.getColumnStatistics(TEST_TABLE, "D"));
+        assertNull(catalog.getTableStatistics(OTHER_TABLE));
+
+        Map<String, TableStatistics> parsed = TableStatistics.parse(lines);
+        assertEquals(2, parsed.size());
+        assertEquals(0, parsed.get(EMPTY_TABLE).getRowCount());
+    }
+
+    @Test
+    public void testChangedDataFileInvalidatesStatistics() throws IOException {
+        TableAnalyzer.analyze(TEST_TABLE);
+        TableAnalyzer.analyze(OTHER_TABLE);
+
+        // The data of TestTable changes after the tables were analyzed
+        Path statisticsPath = Paths.get(TEST_DB_DIR, Constants.STATISTICS_FILE_NAME);
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(csvPath(OTHER_TABLE), FileTime.fromMillis(now - 20000));
+        Files.setLastModifiedTime(statisticsPath, FileTime.fromMillis(now - 10000));
+        Files.write(csvPath(TEST_TABLE), "5000, 1, 0\n".getBytes(), StandardOpenOption.APPEND);
+        reloadCatalog();
+        assertNull(DBCatalog.getInstance().getTableStatistics(TEST_TABLE));
+        assertNotNull(DBCatalog.getInstance().getTableStatistics(OTHER_TABLE));
+
+        // Analyzing another table drops the stale statistics, analyzing the table again replaces them
+        TableAnalyzer.analyze(OTHER_TABLE);
+        assertFalse(String.join("\n", Files.readAllLines(statisticsPath)).contains(TEST_TABLE));
+        TableAnalyzer.analyze(TEST_TABLE);
+        reloadCatalog();
+        assertEquals(TEST_TABLE_ROWS + 1, DBCatalog.getInstance().getTableStatistics(TEST_TABLE).getRowCount());
+        assertNotNull(DBCatalog.getInstance().getTableStatistics(OTHER_TABLE));
+    }
+
+    @Test
+    public void testOptimizerUsesStatistics() throws Exception {
+        // Without an index on OtherTable.X, looking up the outer rows is never cheaper than the hash join
+        String query = "SELECT * FROM TestTable, OtherTable WHERE TestTable.A = OtherTable.X AND TestTable.A > 10;";
+        assertFalse(containsOperator(plan(query), IndexNestedLoopJoinOperator.class));
+        BPlusTreeIndex.build(csvPath(OTHER_TABLE), 0, false, DBCatalog.getIndexPath(csvPath(OTHER_TABLE), "X"));
+        reloadCatalog();
+
+        // By default, a range keeps a third of the rows, which is few enough for index lookups into OtherTable
+        assertTrue(containsOperator(plan(query), IndexNestedLoopJoinOperator.class));
+
+        // The histogram shows that nearly every row matches, so the hash join is kept
+        TableAnalyzer.analyze(TEST_TABLE);
+        TableAnalyzer.analyze(OTHER_TABLE);
+        reloadCatalog();
+        assertFalse(containsOperator(plan(query), IndexNestedLoopJoinOperator.class));
+
+        // While a selective range still uses lookups
+        assertTrue(containsOperator(plan("SELECT * FROM TestTable, OtherTable "
+                + "WHERE TestTable.A = OtherTable.X AND TestTable.A > 4000;"), IndexNestedLoopJoinOperator.class));
+    }
+}
@@ -0,0 +1,336 @@
+package ed.inf.adbs.blazedb;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ed.inf.adbs.blazedb.operator.BinaryScanOperator;
+import ed.inf.adbs.blazedb.operator.ColumnarScanOperator;
+import ed.inf.adbs.blazedb.operator.MappedScanOperator;
+import ed.inf.adbs.blazedb.operator.Operator;
+import ed.inf.adbs.blazedb.operator.ReadAheadScanOperator;
+import ed.inf.adbs.blazedb.operator.ScanOperator;
+import ed.inf.adbs.blazedb.operator.SelectOperator;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZoneMapTest {
+
+    private static final String TEST_DB_DIR = "src/test/resources/testdb";
+    private static final String SCHEMA_FILE = TEST_DB_DIR + "/schema.txt";
+    private static final String DATA_DIR = TEST_DB_DIR + "/data";
+    private static final String COLUMNS_DIR = TEST_DB_DIR + "/" + Constants.COLUMNS_DIRECTORY_NAME;
+    private static final String QUERY_FILE = TEST_DB_DIR + "/query.sql";
+    private static final String TEST_TABLE = "TestTable";
+    private static final String OTHER_TABLE = "OtherTable";
+
+    // Rows are sorted on A, which runs from 1 to TEST_TABLE_ROWS
+    private static final int TEST_TABLE_ROWS = 2000;
+    private static final int BLOCK_ROWS = 100;
+
+    @Before
+    public void setUp() throws Exception {
+        // Create test database directory structure
+        Files.createDirectories(Paths.get(DATA_DIR));
+
+        // Create schema file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SCHEMA_FILE))) {
+            writer.write(TEST_TABLE + " A B C\n");
+            writer.write(OTHER_TABLE + " X Y\n");
+        }
+
+        // Create test data file
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(TEST_TABLE).toString()))) {
+            for (int i = 1; i <= TEST_TABLE_ROWS; i++) {
+                writer.write(i + ", " + (i % 7) + ", " + (i * 10) + "\n");
+            }
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(csvPath(OTHER_TABLE).toString()))) {
+            writer.write("1, 2\n");
+        }
+
+        // Write the zone map, and the binary and columnar copies of the table
+        ZoneMap.build(csvPath(TEST_TABLE), 3, BLOCK_ROWS).write(zoneMapPath(TEST_TABLE));
+        BinaryTableConverter.convert(csvPath(TEST_TABLE), Paths.get(DATA_DIR, TEST_TABLE + Constants.BINARY_FILE_EXTENSION), 3);
+        ColumnarTableConverter.convert(csvPath(TEST_TABLE), Paths.get(COLUMNS_DIR, TEST_TABLE), Arrays.asList("a", "b", "c"));
+
+        // Initialize the database catalog
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        // Clean up test files
+        if (Files.exists(Paths.get(TEST_DB_DIR))) {
+            try (Stream<Path> files = Files.walk(Paths.get(TEST_DB_DIR))) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        DBCatalog.resetDBCatalog();
+    }
+
+    private static Path csvPath(String table) {
+        return Paths.get(DATA_DIR, table + ".csv");
+    }
+
+    private static Path zoneMapPath(String table) {
+        return DBCatalog.getZoneMapPath(csvPath(table));
+    }
+
+    private static List<Tuple> collect(Operator op) {
+        List<Tuple> tuples = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = op.getNextTuple()) != null) {
+            tuples.add(tuple);
+        }
+        return tuples;
+    }
+
+    private static List<Integer> columnValues(List<Tuple> tuples, int column) {
+        List<Integer> values = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            values.add(tuple.getTuple().get(column));
+        }
+        return values;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    /**
+     * Scans the table with the given condition handed to the scan, selecting on the condition above it,
+     * twice to check that reset() starts skipping from the first block again.
+     */
+    private static List<Tuple> scanWithPredicate(ScanOperator scan, String condition) throws Exception {
+        Expression expression = CCJSqlParserUtil.parseExpression(condition);
+        scan.setScanPredicate(expression);
+        assertTrue(scan.usesZoneMap());
+
+        SelectOperator select = new SelectOperator(scan, expression);
+        List<Tuple> tuples = collect(select);
+        select.reset();
+        assertEquals(tuples, collect(select));
+        return tuples;
+    }
+
+    @Test
+    public void testBuildAndReadRoundTrip() throws IOException {
+        ZoneMap zoneMap = ZoneMap.read(zoneMapPath(TEST_TABLE));
+        assertEquals(TEST_TABLE_ROWS / BLOCK_ROWS, zoneMap.getBlockCount());
+        assertEquals(3, zoneMap.getColumnCount());
+        assertEquals(TEST_TABLE_ROWS, zoneMap.getTotalRowCount());
+
+        assertEquals(0, zoneMap.getBlockOffset(0));
+        assertEquals(300, zoneMap.getFirstRow(3));
+        assertEquals(BLOCK_ROWS, zoneMap.getRowCount(3));
+        assertEquals(301, zoneMap.getMin(3, 0));
+        assertEquals(400, zoneMap.getMax(3, 0));
+        assertEquals(0, zoneMap.getMin(3, 1));
+        assertEquals(6, zoneMap.getMax(3, 1));
+        assertEquals(4000, zoneMap.getMax(3, 2));
+
+        // The offset of a block is the start of its first row in the CSV file
+        String csv = new String(Files.readAllBytes(csvPath(TEST_TABLE)));
+        assertEquals(csv.indexOf("\n301, ") + 1, zoneMap.getBlockOffset(3));
+    }
+
+    @Test
+    public void testBuildSkipsBlankLines() throws IOException {
+        Path path = csvPath(OTHER_TABLE);
+        Files.write(path, "\n1, 5\n\n2, 6\r\n3, 7".getBytes());
+
+        ZoneMap zoneMap = ZoneMap.build(path, 2, 2);
+        assertEquals(2, zoneMap.getBlockCount());
+        assertEquals(3, zoneMap.getTotalRowCount());
+        assertEquals(1, zoneMap.getBlockOffset(0));
+        assertEquals(13, zoneMap.getBlockOffset(1));
+        assertEquals(6, zoneMap.getMax(0, 1));
+        assertEquals(7, zoneMap.getMin(1, 1));
+    }
+
+    @Test
+    public void testFilterUsesComparisonsWithConstants() throws Exception {
+        ZoneMap zoneMap = DBCatalog.getInstance().getZoneMap(TEST_TABLE);
+        assertNotNull(zoneMap);
+
+        ZoneMapFilter filter = new ZoneMapFilter(TEST_TABLE,
+                CCJSqlParserUtil.parseExpression("TestTable.A < 150 AND 40 <= TestTable.C AND TestTable.B = 3"));
+        assertTrue(filter.hasBounds());
+        assertTrue(filter.mightMatch(zoneMap, 0));
+        assertTrue(filter.mightMatch(zoneMap, 1));
+        assertFalse(filter.mightMatch(zoneMap, 2));
+
+        // A strict bound excludes the constant
+        filter = new ZoneMapFilter(TEST_TABLE, CCJSqlParserUtil.parseExpression("TestTable.A > 1900"));
+        assertFalse(filter.mightMatch(zoneMap, 18));
+        assertTrue(filter.mightMatch(zoneMap, 19));
+
+        // Contradicting bounds match no block
+        filter = new ZoneMapFilter(TEST_TABLE, CCJSqlParserUtil.parseExpression("TestTable.A > 10 AND TestTable.A < 5"));
+        assertFalse(filter.mightMatch(zoneMap, 0));
+    }
+
+    @Test
+    public void testFilterIgnoresOtherConditions() throws Exception {
+        String[] conditions = {
+                "OtherTable.X < 5",
+                "TestTable.A < TestTable.C",
+                "TestTable.A <> 5",
+                "TestTable.A < 5 OR TestTable.A > 1000"
+        };
+        for (String condition : conditions) {
+            assertFalse(condition, new ZoneMapFilter(TEST_TABLE, CCJSqlParserUtil.parseExpression(condition)).hasBounds());
+        }
+    }
+
+    @Test
+    public void testCsvScanSkipsBlocks() throws Exception {
+        ScanOperator scan = new ScanOperator(TEST_TABLE);
+        List<Tuple> tuples = scanWithPredicate(scan, "TestTable.A >= 950 AND TestTable.A < 1020");
+        assertEquals(range(950, 1019), columnValues(tuples, 0));
+        assertEquals(2 * 18, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testMappedScanSkipsBlocks() throws Exception {
+        // Small regions, so that skipped blocks lie in other regions
+        MappedScanOperator scan = new MappedScanOperator(TEST_TABLE, 256);
+        List<Tuple> tuples = scanWithPredicate(scan, "TestTable.A >= 950 AND TestTable.A < 1020");
+        assertEquals(range(950, 1019), columnValues(tuples, 0));
+        assertEquals(2 * 18, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testReadAheadScanSkipsBlocks() throws Exception {
+        // Small chunks, so that skipped blocks lie beyond the chunks read ahead
+        ReadAheadScanOperator scan = new ReadAheadScanOperator(TEST_TABLE, 256, 2);
+        List<Tuple> tuples = scanWithPredicate(scan, "TestTable.A >= 950 AND TestTable.A < 1020");
+        assertEquals(range(950, 1019), columnValues(tuples, 0));
+        assertEquals(2 * 18, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testBinaryScanSkipsBlocks() throws Exception {
+        BinaryScanOperator scan = new BinaryScanOperator(TEST_TABLE);
+        List<Tuple> tuples = scanWithPredicate(scan, "TestTable.A >= 950 AND TestTable.A < 1020");
+        assertEquals(range(950, 1019), columnValues(tuples, 0));
+        assertEquals(2 * 18, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testColumnarScanSkipsBlocks() throws Exception {
+        ColumnarScanOperator scan = new ColumnarScanOperator(TEST_TABLE);
+        scan.setOutputColumns(Arrays.asList(new Column(new Table(TEST_TABLE), "C")));
+        List<Tuple> tuples = scanWithPredicate(scan, "TestTable.C >= 9500 AND TestTable.C < 10200");
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 950; i < 1020; i++) {
+            expected.add(i * 10);
+        }
+        assertEquals(expected, columnValues(tuples, 0));
+        assertEquals(2 * 18, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testAllBlocksSkipped() throws Exception {
+        ScanOperator[] scans = {
+                new ScanOperator(TEST_TABLE),
+                new MappedScanOperator(TEST_TABLE, 256),
+                new ReadAheadScanOperator(TEST_TABLE, 256, 2),
+                new BinaryScanOperator(TEST_TABLE),
+                new ColumnarScanOperator(TEST_TABLE)
+        };
+        for (ScanOperator scan : scans) {
+            assertTrue(scanWithPredicate(scan, "TestTable.A > 5000").isEmpty());
+            assertEquals(2 * TEST_TABLE_ROWS / BLOCK_ROWS, scan.getSkippedBlockCount());
+            scan.close();
+        }
+    }
+
+    @Test
+    public void testLastBlockOnly() throws Exception {
+        ScanOperator[] scans = {
+                new ScanOperator(TEST_TABLE),
+                new MappedScanOperator(TEST_TABLE, 256),
+                new ReadAheadScanOperator(TEST_TABLE, 256, 2),
+                new BinaryScanOperator(TEST_TABLE),
+                new ColumnarScanOperator(TEST_TABLE)
+        };
+        for (ScanOperator scan : scans) {
+            assertEquals(range(1995, 2000), columnValues(scanWithPredicate(scan, "TestTable.A > 1994"), 0));
+            scan.close();
+        }
+    }
+
+    @Test
+    public void testLookupModeIgnoresZoneMap() throws Exception {
+        ScanOperator scan = new ScanOperator(TEST_TABLE);
+        scan.setScanPredicate(CCJSqlParserUtil.parseExpression("TestTable.A > 1900"));
+        scan.lookup(Arrays.asList(0L));
+        assertEquals(range(1, 1), columnValues(collect(scan), 0));
+        scan.close();
+    }
+
+    @Test
+    public void testStaleZoneMapIgnored() throws Exception {
+        Files.setLastModifiedTime(zoneMapPath(TEST_TABLE), FileTime.fromMillis(0));
+        DBCatalog.resetDBCatalog();
+        DBCatalog.initDBCatalog(TEST_DB_DIR);
+
+        assertNull(DBCatalog.getInstance().getZoneMap(TEST_TABLE));
+        assertNull(DBCatalog.getInstance().getZoneMap(OTHER_TABLE));
+
+        ScanOperator scan = new ScanOperator(TEST_TABLE);
+        scan.setScanPredicate(CCJSqlParserUtil.parseExpression("TestTable.A > 1900"));
+        assertFalse(scan.usesZoneMap());
+        assertEquals(100, collect(new SelectOperator(scan, scan.getScanPredicate())).size());
+        assertEquals(0, scan.getSkippedBlockCount());
+        scan.close();
+    }
+
+    @Test
+    public void testOptimizerHandsSelectionToScan() throws Exception {
+        Files.write(Paths.get(QUERY_FILE), "SELECT TestTable.C FROM TestTable WHERE TestTable.A < 150;".getBytes());
+
+        Operator plan = QueryPlanner.parseStatement(QUERY_FILE);
+        Operator op = plan;
+        while (!(op instanceof ScanOperator)) {
+            op = op.getChild();
+        }
+        ScanOperator scan = (ScanOperator) op;
+        assertTrue(scan.usesZoneMap());
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i < 150; i++) {
+            expected.add(i * 10);
+        }
+        assertEquals(expected, columnValues(collect(plan), 0));
+        assertEquals(18, scan.getSkippedBlockCount());
+    }
+}